@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.benchmarks;
+
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclConfigurationException;
+import fr.univrennes1.cri.jtacl.core.monitor.Log;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
+import fr.univrennes1.cri.jtacl.core.probing.Probe;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
+import fr.univrennes1.cri.jtacl.core.probing.ProbesTracker;
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
+import fr.univrennes1.cri.jtacl.lib.ip.PortOperator;
+import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
+import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
+import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
+import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
+import fr.univrennes1.cri.jtacl.shell.ProbeCommand;
+import fr.univrennes1.cri.jtacl.shell.ShellParser;
+import org.parboiled.Parboiled;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Helpers shared by the benchmarks: loading of topologies into the
+ * {@link Monitor}, generation of configuration files and of probes.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public final class BenchmarkSupport {
+
+    /**
+     * system property of the directory of the test topologies.
+     */
+    public static final String TESTS_PROPERTY = "lsfw.tests";
+
+    /*
+     * attributes of the configuration files containing a file name.
+     */
+    protected static final String[] FILE_ATTRIBUTES = {
+            "filename", "directory", "to"
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Returns the directory of the test topology in argument. The test
+     * topologies are looked for in the directory given by the "lsfw.tests"
+     * system property, by default "tests" in the current directory.
+     *
+     * @param topology name of the topology (ie "PacketFilter").
+     * @return the directory of the topology.
+     */
+    public static Path testTopology(String topology) {
+        Path dir = Paths.get(System.getProperty(TESTS_PROPERTY, "tests"),
+                topology).toAbsolutePath().normalize();
+        if (!Files.isDirectory(dir))
+            throw new JtaclConfigurationException("no test topology: " + dir);
+        return dir;
+    }
+
+    /**
+     * Copies the XML configuration files of the topology directory in
+     * argument to a temporary directory. The file names of the copies are
+     * made absolute so the topology can be loaded from any current directory.
+     * Configuration dumps are disabled.
+     *
+     * @param topologyDir directory of the topology.
+     * @return the file name of the jtacl.xml configuration file to use.
+     */
+    public static String copyTopology(Path topologyDir) throws IOException {
+        Path tmp = tempDirectory();
+        File[] files = topologyDir.toFile().listFiles((d, name) -> name.endsWith(".xml"));
+        if (files == null)
+            throw new IOException("cannot list " + topologyDir);
+        for (File file : files) {
+            Document doc = XMLUtils.getXMLDocument(file.getPath());
+            resolveFileNames(doc.getDocumentElement(), topologyDir, tmp);
+            Path copy = tmp.resolve(file.getName());
+            writeDocument(doc, copy);
+            copy.toFile().deleteOnExit();
+        }
+        return tmp.resolve("jtacl.xml").toString();
+    }
+
+    /*
+     * The references to the XML files of the topology are resolved to the
+     * copies, the other files to the original directory.
+     */
+    protected static void resolveFileNames(Element element, Path dir, Path copyDir) {
+        for (String attribute : FILE_ATTRIBUTES) {
+            String value = element.getAttribute(attribute);
+            if (value.isEmpty())
+                continue;
+            Path path = Paths.get(value);
+            if (path.isAbsolute())
+                continue;
+            Path base = value.endsWith(".xml") ? copyDir : dir;
+            element.setAttribute(attribute, base.resolve(path).normalize().toString());
+        }
+        NodeList list = element.getChildNodes();
+        for (int i = list.getLength() - 1; i >= 0; i--) {
+            if (!(list.item(i) instanceof Element))
+                continue;
+            Element e = (Element) list.item(i);
+            if (e.getTagName().equals("option") &&
+                    e.getAttribute("key").equals("dump-configuration")) {
+                element.removeChild(e);
+                continue;
+            }
+            resolveFileNames(e, dir, copyDir);
+        }
+    }
+
+    protected static void writeDocument(Document doc, Path file) throws IOException {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            transformer.transform(new DOMSource(doc), new StreamResult(file.toFile()));
+        } catch (TransformerException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Writes a file in the directory in argument.
+     *
+     * @param dir     directory of the file.
+     * @param name    name of the file.
+     * @param content content of the file.
+     * @return the absolute file name of the file.
+     */
+    public static String writeFile(Path dir, String name, CharSequence content)
+            throws IOException {
+        Path file = dir.resolve(name).toAbsolutePath();
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        file.toFile().deleteOnExit();
+        return file.toString();
+    }
+
+    /**
+     * Creates a temporary directory for generated configuration files.
+     *
+     * @return the temporary directory.
+     */
+    public static Path tempDirectory() throws IOException {
+        Path dir = Files.createTempDirectory("lsfw-bench");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Returns a jtacl.xml configuration with one equipment of the class in
+     * argument and no topology.
+     *
+     * @param className class name of the equipment.
+     * @param name      name of the equipment.
+     * @param fileName  configuration file of the equipment.
+     * @return the content of the jtacl.xml file.
+     */
+    public static String jtaclConfiguration(String className, String name,
+                                            String fileName) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<jtacl>\n" +
+                "<equipments>\n" +
+                "<equipment classname=\"" + className + "\" name=\"" + name +
+                "\" comment=\"" + name + "\" filename=\"" + fileName + "\"/>\n" +
+                "</equipments>\n" +
+                "<topology/>\n" +
+                "</jtacl>\n";
+    }
+
+    /**
+     * Configures and initializes the monitor with the configuration file in
+     * argument. The logs are set up as in the application.
+     *
+     * @param fileName the jtacl.xml configuration file.
+     * @return the monitor.
+     */
+    public static Monitor loadMonitor(String fileName) {
+        Log.install();
+        Monitor monitor = Monitor.getInstance();
+        monitor.configure(fileName);
+        monitor.init();
+        return monitor;
+    }
+
+    /**
+     * Parses a shell probe command and builds its request.
+     *
+     * @param commandLine the probe command, ie "probe 10.0.0.1 10.0.1.1 tcp 80".
+     * @return the probe command ready to run.
+     */
+    public static ProbeCommand probeCommand(String commandLine) {
+        ShellParser parser = Parboiled.createParser(ShellParser.class);
+        ParsingResult<?> result =
+                new ReportingParseRunner<Object>(parser.CommandLine()).run(commandLine);
+        if (!result.matched)
+            throw new JtaclConfigurationException("invalid probe command: " +
+                    commandLine);
+        ProbeCommand command = new ProbeCommand();
+        command.buildRequest(parser.getProbeCmdTemplate());
+        return command;
+    }
+
+    /**
+     * Returns the link of the equipment in argument with the IP address in
+     * argument.
+     *
+     * @param equipment the equipment.
+     * @param ip        the IP address of the link.
+     * @return the link.
+     */
+    public static IfaceLink ifaceLink(NetworkEquipment equipment, String ip) {
+        IfaceLink link;
+        try {
+            link = equipment.getIfaceLink(new IPNet(ip));
+        } catch (UnknownHostException ex) {
+            throw new JtaclConfigurationException(ex.getMessage());
+        }
+        if (link == null)
+            throw new JtaclConfigurationException("no link " + ip +
+                    " on " + equipment.getName());
+        return link;
+    }
+
+    /**
+     * Returns a TCP or UDP probe request to the destination port in argument.
+     *
+     * @param protocol Protocols.TCP or Protocols.UDP.
+     * @param port     the destination port.
+     * @return the request.
+     */
+    public static ProbeRequest portRequest(int protocol, int port) {
+        ProbeRequest request = new ProbeRequest();
+        ProtocolsSpec protocols = new ProtocolsSpec();
+        protocols.add(protocol);
+        protocols.add(Protocols.IP);
+        request.setProtocols(protocols);
+        request.setSourcePort(PortSpec.ANY);
+        request.setDestinationPort(new PortSpec(PortOperator.EQ, port));
+        return request;
+    }
+
+    /**
+     * Returns a new probe, in its own tracker.
+     *
+     * @param link        the incoming link of the probe.
+     * @param source      the source address.
+     * @param destination the destination address.
+     * @param request     the request of the probe.
+     * @return the probe.
+     */
+    public static Probe newProbe(IfaceLink link, IPRangeable source,
+                                 IPRangeable destination, ProbeRequest request) {
+        ProbesTracker tracker = new ProbesTracker();
+        Probe probe = new Probe(tracker, source, destination, request);
+        probe.setIncomingLink(link);
+        tracker.setRootProbe(probe);
+        return probe;
+    }
+
+    /**
+     * Returns a random IPv4 address of the network 10.0.0.0/8.
+     *
+     * @param random the random generator.
+     * @return the address.
+     */
+    public static String randomAddress(Random random) {
+        return "10." + random.nextInt(256) + "." + random.nextInt(256) + "." +
+                (1 + random.nextInt(254));
+    }
+
+    /**
+     * Returns a random IPv4 /24 network of the network 10.0.0.0/8, in
+     * prefix notation.
+     *
+     * @param random the random generator.
+     * @return the network.
+     */
+    public static String randomNetwork(Random random) {
+        return "10." + random.nextInt(256) + "." + random.nextInt(256) + ".0";
+    }
+
+    /**
+     * Returns a random port in the list of common service ports.
+     *
+     * @param random the random generator.
+     * @return the port.
+     */
+    public static int randomPort(Random random) {
+        return PORTS[random.nextInt(PORTS.length)];
+    }
+
+    /**
+     * common service ports.
+     */
+    public static final int[] PORTS = {
+            22, 25, 53, 80, 110, 123, 143, 389, 443, 445, 636, 993, 3306,
+            3389, 5432, 8080, 8443
+    };
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.core.monitor;
+
+import fr.univrennes1.cri.jtacl.benchmarks.BenchmarkSupport;
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclConfigurationException;
+import fr.univrennes1.cri.jtacl.shell.ProbeCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end benchmarks of {@link Monitor#startProbing} on the test
+ * topologies of the "tests" directory. One operation is the probing of all
+ * the probes of the topology, through the shell probe command.
+ * <br/>
+ * The monitor is a singleton: each topology is benchmarked in its own fork.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonitorBenchmark {
+
+    protected static final String[] PACKETFILTER_PROBES = {
+            "probe 10.0.0.1 10.0.1.1 tcp 80",
+            "probe 10.0.0.5 192.168.0.1 tcp 25",
+            "probe 10.0.0.5 192.168.1.1 udp 53",
+            "probe 10.0.0.1 192.168.4.7 icmp",
+            "probe 10.0.0.9 192.168.2.9 tcp 22",
+            "probe 10.0.0.8 192.168.1.130 tcp 443",
+            "probe on PF|if0 192.168.0.5 10.0.0.1 tcp 1:1024",
+            "probe on PF|if1 192.168.4.5 8.8.8.8 tcp 80",
+            "probe6 fe90::5 fe80::1 tcp 80",
+            "probe6 fe90::5 fe81::8 udp 53",
+            "probe 10.0.0.5 192.168.3.5 tcp 8080"
+    };
+
+    protected static final String[] ROUTING1_PROBES = {
+            "probe 10.0.0.1 10.0.1.1",
+            "probe 10.0.0.1 10.0.2.1",
+            "probe 10.0.0.1 10.0.3.1",
+            "probe 10.0.0.1 10.0.4.1",
+            "probe 10.0.0.1 10.0.5.1 tcp 80",
+            "probe 10.0.0.1 10.0.6.1 udp 53"
+    };
+
+    protected static final String[] CISCO_PROBES = {
+            "probe 10.0.2.5 192.168.0.1 tcp 80",
+            "probe 10.0.2.5 192.168.1.5 tcp 22",
+            "probe 192.168.2.1 10.0.2.4 udp 53",
+            "probe 10.0.2.1 192.168.0.10 icmp",
+            "probe 192.168.0.1 10.0.1.1 tcp 25",
+            "probe 10.0.3.1 192.168.1.1 tcp 1:1000",
+            "probe 10.0.2.5 8.8.8.8 tcp 443"
+    };
+
+    @Param({"PacketFilter", "Routing1", "Cisco-example"})
+    public String topology;
+
+    protected List<ProbeCommand> _commands = new ArrayList<>();
+
+    protected static String[] probes(String topology) {
+        switch (topology) {
+            case "PacketFilter":
+                return PACKETFILTER_PROBES;
+            case "Routing1":
+                return ROUTING1_PROBES;
+            case "Cisco-example":
+                return CISCO_PROBES;
+            default:
+                throw new JtaclConfigurationException("no probes for topology: " +
+                        topology);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        String jtacl = BenchmarkSupport.copyTopology(
+                BenchmarkSupport.testTopology(topology));
+        BenchmarkSupport.loadMonitor(jtacl);
+        for (String probe : probes(topology))
+            _commands.add(BenchmarkSupport.probeCommand(probe));
+    }
+
+    @Benchmark
+    public void startProbing(Blackhole bh) {
+        for (ProbeCommand command : _commands) {
+            command.runCommand();
+            bh.consume(command.getProbing().getAclResult());
+        }
+    }
+}
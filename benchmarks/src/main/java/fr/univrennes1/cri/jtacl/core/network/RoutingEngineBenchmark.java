@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.core.network;
+
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPversion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link RoutingEngine#getRoutes} lookups on large routing
+ * tables (up to a full table of 1M routes). The score is the number of
+ * lookups per second.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class RoutingEngineBenchmark {
+
+    protected static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int routes;
+
+    @Param({"IPV4", "IPV6"})
+    public IPversion ipVersion;
+
+    protected RoutingEngine _engine;
+    protected IPNet[] _destinations = new IPNet[LOOKUPS];
+
+    protected IPNet randomNet(Random random, int prefixLen) throws UnknownHostException {
+        byte[] bytes = new byte[ipVersion == IPversion.IPV4 ? 4 : 16];
+        random.nextBytes(bytes);
+        // IPv6: global unicast 2000::/3
+        if (ipVersion == IPversion.IPV6)
+            bytes[0] = (byte) (0x20 | (bytes[0] & 0x1F));
+        return new IPNet(new BigInteger(1, bytes), ipVersion, prefixLen);
+    }
+
+    protected int randomPrefixLen(Random random) {
+        // mostly /24 (or /48) prefixes as in a full table
+        if (ipVersion == IPversion.IPV4)
+            return random.nextInt(4) == 0 ? 8 + random.nextInt(16) : 24;
+        return random.nextInt(4) == 0 ? 16 + random.nextInt(32) : 48;
+    }
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        Random random = new Random(1);
+        _engine = new RoutingEngine();
+        String link = "link";
+        IPNet nextHop = ipVersion == IPversion.IPV4 ?
+                new IPNet("192.0.2.1") : new IPNet("2001:db8::1");
+        _engine.addRoute(new Route<>(randomNet(random, 0).networkAddress(),
+                nextHop, 1, link));
+        for (int i = 0; i < routes; i++) {
+            IPNet prefix = randomNet(random, randomPrefixLen(random)).networkAddress();
+            _engine.addRoute(new Route<>(prefix, nextHop, 1, link));
+        }
+        for (int i = 0; i < LOOKUPS; i++) {
+            _destinations[i] = randomNet(random,
+                    ipVersion == IPversion.IPV4 ? 32 : 128);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getRoutes(Blackhole bh) {
+        for (IPNet destination : _destinations)
+            bh.consume(_engine.getRoutes(destination));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.cisco.router;
+
+import fr.univrennes1.cri.jtacl.benchmarks.BenchmarkSupport;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
+import fr.univrennes1.cri.jtacl.core.probing.Probe;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
+import fr.univrennes1.cri.jtacl.lib.misc.Direction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link CiscoRouter} access lists filtering on a
+ * generated extended access list. The score is the number of probes
+ * filtered per second.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CiscoRouterBenchmark {
+
+    protected static final int PROBES = 256;
+
+    @Param({"100", "1000", "10000"})
+    public int aces;
+
+    protected CiscoRouter _router;
+    protected IfaceLink _link;
+    protected AccessList _acl;
+    protected Probe[] _probes = new Probe[PROBES];
+
+    /*
+     * Generates the configuration of a router with an inbound extended
+     * access list on its outside interface.
+     */
+    protected String routerConfiguration(Random random) {
+        StringBuilder conf = new StringBuilder();
+        conf.append("hostname bench\n!\n");
+        conf.append("interface FastEthernet0/0\n");
+        conf.append(" ip address 10.0.0.1 255.0.0.0\n");
+        conf.append(" ip access-group 101 in\n!\n");
+        conf.append("interface FastEthernet0/1\n");
+        conf.append(" ip address 192.168.0.1 255.255.0.0\n!\n");
+        for (int i = 0; i < aces; i++) {
+            String proto = random.nextInt(4) == 0 ? "udp" : "tcp";
+            int port = BenchmarkSupport.randomPort(random);
+            conf.append("access-list 101 ");
+            switch (random.nextInt(4)) {
+                case 0:
+                    conf.append("permit ").append(proto).append(" ")
+                            .append(BenchmarkSupport.randomNetwork(random))
+                            .append(" 0.0.0.255 host 192.168.").append(random.nextInt(256))
+                            .append(".").append(1 + random.nextInt(254))
+                            .append(" eq ").append(port);
+                    break;
+                case 1:
+                    conf.append("permit ").append(proto).append(" any host 192.168.")
+                            .append(random.nextInt(256)).append(".")
+                            .append(1 + random.nextInt(254))
+                            .append(" eq ").append(port);
+                    break;
+                case 2:
+                    conf.append("deny ").append(proto).append(" any 192.168.")
+                            .append(random.nextInt(256)).append(".0 0.0.0.255 eq ")
+                            .append(port);
+                    break;
+                default:
+                    conf.append("permit ").append(proto).append(" any any eq ")
+                            .append(port);
+            }
+            conf.append("\n");
+        }
+        conf.append("access-list 101 deny ip any any\n");
+        return conf.toString();
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(1);
+        Path dir = BenchmarkSupport.tempDirectory();
+        String config = BenchmarkSupport.writeFile(dir, "router-confg",
+                routerConfiguration(random));
+        String routerXml = BenchmarkSupport.writeFile(dir, "router.xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<equipment>\n" +
+                        "<file filename=\"" + config + "\"/>\n" +
+                        "</equipment>\n");
+        String jtacl = BenchmarkSupport.writeFile(dir, "jtacl.xml",
+                BenchmarkSupport.jtaclConfiguration(CiscoRouter.class.getName(),
+                        "R", routerXml));
+        Monitor monitor = BenchmarkSupport.loadMonitor(jtacl);
+        _router = (CiscoRouter) monitor.getEquipments().get("R");
+        _link = BenchmarkSupport.ifaceLink(_router, "10.0.0.1");
+        _acl = _router._ciscoIfaces.get(_link.getIfaceName())
+                .getAccessList4In().get(0);
+
+        for (int i = 0; i < PROBES; i++) {
+            IPNet source = new IPNet(BenchmarkSupport.randomAddress(random));
+            IPNet destination = new IPNet("192.168." + random.nextInt(256) + "." +
+                    (1 + random.nextInt(254)));
+            ProbeRequest request = BenchmarkSupport.portRequest(
+                    random.nextInt(4) == 0 ? Protocols.UDP : Protocols.TCP,
+                    BenchmarkSupport.randomPort(random));
+            _probes[i] = BenchmarkSupport.newProbe(_link, source, destination,
+                    request);
+        }
+    }
+
+    /*
+     * evaluates every ACE of the access list, without the index.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void probeFilter(Blackhole bh) {
+        for (Probe probe : _probes) {
+            for (AccessListElement ace : _acl)
+                bh.consume(_router.probeFilter(probe, ace, Direction.IN));
+        }
+    }
+
+    /*
+     * filters each probe as the router does on an incoming link.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void packetFilter(Blackhole bh) {
+        for (Probe probe : _probes) {
+            Probe p = BenchmarkSupport.newProbe(_link, probe.getSourceAddress(),
+                    probe.getDestinationAddress(), probe.getRequest());
+            _router.packetFilter(_link, Direction.IN, p);
+            bh.consume(p.getResults());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.fortigate;
+
+import fr.univrennes1.cri.jtacl.benchmarks.BenchmarkSupport;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
+import fr.univrennes1.cri.jtacl.core.probing.Probe;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link FgFw} policy filtering on a generated policy.
+ * The score is the number of probes filtered per second.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FgFwBenchmark {
+
+    protected static final int PROBES = 256;
+
+    protected static final String[] IFACES = {"port1", "port2", "port3", "port4"};
+
+    @Param({"100", "1000", "10000"})
+    public int rules;
+
+    protected FgFw _fw;
+    protected IfaceLink _linkIn;
+    protected IfaceLink _linkOut;
+    protected Probe[] _probes = new Probe[PROBES];
+
+    protected static String keys(String... keys) {
+        StringBuilder s = new StringBuilder("[");
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0)
+                s.append(", ");
+            s.append("{\"q_origin_key\": \"").append(keys[i]).append("\"}");
+        }
+        return s.append("]").toString();
+    }
+
+    /*
+     * Generates a policy in the format of the Fortigate REST API: services
+     * of the common ports, one address object per rule and rules between
+     * the interfaces.
+     */
+    protected String policy(Random random) {
+        StringBuilder json = new StringBuilder("{\n\"services\": [\n");
+        json.append("{\"name\": \"ALL\", \"q_origin_key\": \"ALL\", \"protocol\": \"ALL\"," +
+                " \"iprange\": \"0.0.0.0\", \"fqdn\": \"\", \"comment\": \"\"}");
+        for (int port : BenchmarkSupport.PORTS) {
+            json.append(",\n{\"name\": \"P").append(port).append("\", \"q_origin_key\": \"P")
+                    .append(port).append("\", \"protocol\": \"TCP/UDP/SCTP\"," +
+                            " \"iprange\": \"0.0.0.0\", \"fqdn\": \"\", \"comment\": \"\"," +
+                            " \"tcp-portrange\": \"").append(port)
+                    .append("\", \"udp-portrange\": \"").append(port).append("\"}");
+        }
+        json.append("\n],\n\"addresses\": [\n");
+        json.append("{\"name\": \"all\", \"q_origin_key\": \"all\", \"type\": \"ipmask\"," +
+                " \"subnet\": \"0.0.0.0 0.0.0.0\", \"comment\": \"\", \"uuid\": \"all\"}");
+        for (int i = 0; i < rules; i++) {
+            json.append(",\n{\"name\": \"src").append(i).append("\", \"q_origin_key\": \"src")
+                    .append(i).append("\", \"type\": \"ipmask\", \"subnet\": \"")
+                    .append(BenchmarkSupport.randomNetwork(random))
+                    .append(" 255.255.255.0\", \"comment\": \"\", \"uuid\": \"s").append(i)
+                    .append("\"}");
+            json.append(",\n{\"name\": \"dst").append(i).append("\", \"q_origin_key\": \"dst")
+                    .append(i).append("\", \"type\": \"ipmask\", \"subnet\": \"192.168.")
+                    .append(random.nextInt(256)).append(".").append(1 + random.nextInt(254))
+                    .append(" 255.255.255.255\", \"comment\": \"\", \"uuid\": \"d").append(i)
+                    .append("\"}");
+        }
+        json.append("\n],\n\"rules\": [\n");
+        for (int i = 0; i < rules; i++) {
+            if (i > 0)
+                json.append(",\n");
+            String src = random.nextInt(3) == 0 ? "all" : "src" + i;
+            String srcIface = IFACES[random.nextInt(IFACES.length)];
+            String dstIface = IFACES[random.nextInt(IFACES.length)];
+            json.append("{\"policyid\": ").append(i + 1)
+                    .append(", \"name\": \"rule").append(i)
+                    .append("\", \"q_origin_key\": \"").append(i + 1)
+                    .append("\", \"comment\": \"\", \"global-label\": \"\"")
+                    .append(", \"srcintf\": ").append(keys(srcIface))
+                    .append(", \"dstintf\": ").append(keys(dstIface))
+                    .append(", \"srcaddr\": ").append(keys(src))
+                    .append(", \"dstaddr\": ").append(keys("dst" + i))
+                    .append(", \"service\": ").append(keys("P" + BenchmarkSupport.randomPort(random)))
+                    .append(", \"srcaddr-negate\": \"disable\", \"dstaddr-negate\": \"disable\"")
+                    .append(", \"service-negate\": \"disable\", \"status\": \"enable\"")
+                    .append(", \"action\": \"").append(random.nextInt(4) == 0 ? "deny" : "accept")
+                    .append("\"}");
+        }
+        json.append("\n]\n}\n");
+        return json.toString();
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(1);
+        Path dir = BenchmarkSupport.tempDirectory();
+        String policy = BenchmarkSupport.writeFile(dir, "policy.json", policy(random));
+        StringBuilder fwXml = new StringBuilder();
+        fwXml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<equipment>\n");
+        fwXml.append("<iface name=\"port1\" comment=\"port1\" ip=\"10.0.0.1\" network=\"10.0.0.0/8\"/>\n");
+        fwXml.append("<iface name=\"port2\" comment=\"port2\" ip=\"192.168.0.1\" network=\"192.168.0.0/16\"/>\n");
+        fwXml.append("<iface name=\"port3\" comment=\"port3\" ip=\"172.16.0.1\" network=\"172.16.0.0/16\"/>\n");
+        fwXml.append("<iface name=\"port4\" comment=\"port4\" ip=\"172.17.0.1\" network=\"172.17.0.0/16\"/>\n");
+        fwXml.append("<fwpolicy filename=\"").append(policy).append("\"/>\n");
+        fwXml.append("</equipment>\n");
+        String fw = BenchmarkSupport.writeFile(dir, "fw.xml", fwXml);
+        String jtacl = BenchmarkSupport.writeFile(dir, "jtacl.xml",
+                BenchmarkSupport.jtaclConfiguration(FgFw.class.getName(), "FG", fw));
+        Monitor monitor = BenchmarkSupport.loadMonitor(jtacl);
+        _fw = (FgFw) monitor.getEquipments().get("FG");
+        _linkIn = BenchmarkSupport.ifaceLink(_fw, "10.0.0.1");
+        _linkOut = BenchmarkSupport.ifaceLink(_fw, "192.168.0.1");
+
+        for (int i = 0; i < PROBES; i++) {
+            IPNet source = new IPNet(BenchmarkSupport.randomAddress(random));
+            IPNet destination = new IPNet("192.168." + random.nextInt(256) + "." +
+                    (1 + random.nextInt(254)));
+            ProbeRequest request = BenchmarkSupport.portRequest(
+                    random.nextInt(4) == 0 ? Protocols.UDP : Protocols.TCP,
+                    BenchmarkSupport.randomPort(random));
+            _probes[i] = BenchmarkSupport.newProbe(_linkIn, source, destination,
+                    request);
+        }
+    }
+
+    /*
+     * evaluates every rule of the policy.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void ruleFilter(Blackhole bh) {
+        for (Probe probe : _probes) {
+            for (FgFwRule rule : _fw.getFgRules())
+                bh.consume(_fw.ruleFilter(_linkIn, _linkOut, probe, rule));
+        }
+    }
+
+    /*
+     * filters each probe as the firewall does between two links.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void packetFilter(Blackhole bh) {
+        for (Probe probe : _probes) {
+            Probe p = BenchmarkSupport.newProbe(_linkIn, probe.getSourceAddress(),
+                    probe.getDestinationAddress(), probe.getRequest());
+            _fw.packetFilter(_linkIn, _linkOut, p);
+            bh.consume(p.getResults());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.openbsd;
+
+import fr.univrennes1.cri.jtacl.benchmarks.BenchmarkSupport;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
+import fr.univrennes1.cri.jtacl.core.probing.Probe;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
+import fr.univrennes1.cri.jtacl.lib.misc.Direction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link PacketFilter} filtering on a generated pf.conf
+ * ruleset. The score is the number of probes filtered per second.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketFilterBenchmark {
+
+    protected static final int PROBES = 256;
+
+    @Param({"100", "1000", "10000"})
+    public int rules;
+
+    protected PacketFilter _pf;
+    protected IfaceLink _link;
+    protected Probe[] _probes = new Probe[PROBES];
+
+    /*
+     * Generates a ruleset of pass and block rules on addresses, ports and
+     * tables, in the style of a border firewall.
+     */
+    protected String pfConf(Random random) {
+        StringBuilder conf = new StringBuilder();
+        conf.append("table <blocked> {\n");
+        for (int i = 0; i < Math.max(16, rules / 10); i++)
+            conf.append(BenchmarkSupport.randomNetwork(random)).append("/24\n");
+        conf.append("}\n");
+        conf.append("block\n");
+        conf.append("block in quick on if0 from <blocked>\n");
+        for (int i = 0; i < rules; i++) {
+            String proto = random.nextInt(4) == 0 ? "udp" : "tcp";
+            int port = BenchmarkSupport.randomPort(random);
+            String dest = "192.168." + random.nextInt(256) + "." +
+                    (1 + random.nextInt(254));
+            switch (random.nextInt(4)) {
+                case 0:
+                    conf.append("pass in on if0 proto ").append(proto)
+                            .append(" from ").append(BenchmarkSupport.randomNetwork(random))
+                            .append("/24 to ").append(dest).append(" port ")
+                            .append(port).append("\n");
+                    break;
+                case 1:
+                    conf.append("pass in on if0 proto ").append(proto)
+                            .append(" to ").append(dest).append(" port ")
+                            .append(port).append("\n");
+                    break;
+                case 2:
+                    conf.append("block in on if0 proto ").append(proto)
+                            .append(" to 192.168.").append(random.nextInt(256))
+                            .append(".0/24 port ").append(port).append("\n");
+                    break;
+                default:
+                    conf.append("pass out on if1 proto ").append(proto)
+                            .append(" to ").append(dest).append(" port ")
+                            .append(port).append("\n");
+            }
+        }
+        return conf.toString();
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(1);
+        Path dir = BenchmarkSupport.tempDirectory();
+        String pfConf = BenchmarkSupport.writeFile(dir, "pf.conf", pfConf(random));
+        String pfXml = BenchmarkSupport.writeFile(dir, "pf.xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<equipment>\n" +
+                        "<iface name=\"if0\" comment=\"if0\" ip=\"10.0.0.1\" network=\"10.0.0.0/8\"/>\n" +
+                        "<iface name=\"if1\" comment=\"if1\" ip=\"192.168.0.1\" network=\"192.168.0.0/16\"/>\n" +
+                        "<pfconf filename=\"" + pfConf + "\"/>\n" +
+                        "</equipment>\n");
+        String jtacl = BenchmarkSupport.writeFile(dir, "jtacl.xml",
+                BenchmarkSupport.jtaclConfiguration(PacketFilter.class.getName(),
+                        "PF", pfXml));
+        Monitor monitor = BenchmarkSupport.loadMonitor(jtacl);
+        _pf = (PacketFilter) monitor.getEquipments().get("PF");
+        _link = BenchmarkSupport.ifaceLink(_pf, "10.0.0.1");
+
+        for (int i = 0; i < PROBES; i++)
+            _probes[i] = newProbe(random);
+    }
+
+    protected Probe newProbe(Random random) throws Exception {
+        IPNet source = new IPNet(BenchmarkSupport.randomAddress(random));
+        IPNet destination = new IPNet("192.168." + random.nextInt(256) + "." +
+                (1 + random.nextInt(254)));
+        ProbeRequest request = BenchmarkSupport.portRequest(
+                random.nextInt(4) == 0 ? Protocols.UDP : Protocols.TCP,
+                BenchmarkSupport.randomPort(random));
+        return BenchmarkSupport.newProbe(_link, source, destination, request);
+    }
+
+    /*
+     * evaluates every rule of the main ruleset, without skip steps.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void ruleFilter(Blackhole bh) {
+        for (Probe probe : _probes) {
+            PacketFilter.FilterContext context = _pf.new FilterContext();
+            context.setDirection(Direction.IN);
+            context.setLink(_link);
+            context.setAnchor(_pf._rootAnchor);
+            for (PfGenericRule rule : _pf._rootAnchor.getRules()) {
+                if (rule instanceof PfRule)
+                    bh.consume(_pf.ruleFilter(context, (PfRule) rule, probe));
+            }
+        }
+    }
+
+    /*
+     * filters each probe as the equipment does on an incoming link.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void packetFilter(Blackhole bh) {
+        for (Probe probe : _probes) {
+            Probe p = BenchmarkSupport.newProbe(_link, probe.getSourceAddress(),
+                    probe.getDestinationAddress(), probe.getRequest());
+            bh.consume(_pf.packetFilter(_link, Direction.IN, p));
+            bh.consume(p.getResults());
+        }
+    }
+}
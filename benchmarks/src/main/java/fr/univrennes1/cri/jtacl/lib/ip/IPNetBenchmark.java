@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.ip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link IPNet} parsing and containment.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IPNetBenchmark {
+
+    protected static final int COUNT = 1024;
+
+    protected String[] _ipv4Strings = new String[COUNT];
+    protected String[] _ipv6Strings = new String[COUNT];
+    protected IPNet[] _networks = new IPNet[COUNT];
+    protected IPNet[] _addresses = new IPNet[COUNT];
+    protected IPRange[] _ranges = new IPRange[COUNT];
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        Random random = new Random(1);
+        for (int i = 0; i < COUNT; i++) {
+            _ipv4Strings[i] = random.nextInt(224) + "." + random.nextInt(256) + "." +
+                    random.nextInt(256) + "." + random.nextInt(256) + "/" +
+                    (8 + random.nextInt(25));
+            _ipv6Strings[i] = String.format("2001:db8:%x:%x::%x/%d",
+                    random.nextInt(0x10000), random.nextInt(0x10000),
+                    random.nextInt(0x10000), 32 + random.nextInt(97));
+            _networks[i] = new IPNet(_ipv4Strings[i]).networkAddress();
+            _addresses[i] = new IPNet(_ipv4Strings[i]).hostAddress();
+            _ranges[i] = new IPRange(_networks[i]);
+        }
+    }
+
+    @Benchmark
+    public void parseIPv4(Blackhole bh) throws UnknownHostException {
+        for (String s : _ipv4Strings)
+            bh.consume(new IPNet(s));
+    }
+
+    @Benchmark
+    public void parseIPv6(Blackhole bh) throws UnknownHostException {
+        for (String s : _ipv6Strings)
+            bh.consume(new IPNet(s));
+    }
+
+    @Benchmark
+    public void netContainsAddress(Blackhole bh) {
+        for (int i = 0; i < COUNT; i++)
+            bh.consume(_networks[i].contains(_addresses[(i * 7) % COUNT]));
+    }
+
+    @Benchmark
+    public void netContainsNet(Blackhole bh) {
+        for (int i = 0; i < COUNT; i++)
+            bh.consume(_networks[i].contains(_networks[(i * 7) % COUNT]));
+    }
+
+    @Benchmark
+    public void rangeContainsAddress(Blackhole bh) {
+        for (int i = 0; i < COUNT; i++)
+            bh.consume(_ranges[i].contains(_addresses[(i * 7) % COUNT]));
+    }
+
+    @Benchmark
+    public void netOverlapsRange(Blackhole bh) {
+        for (int i = 0; i < COUNT; i++)
+            bh.consume(_networks[i].overlaps(_ranges[(i * 7) % COUNT]));
+    }
+}
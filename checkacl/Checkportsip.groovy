@@ -16,14 +16,10 @@
  */
 
 import fr.univrennes1.cri.jtacl.shell.*
-import fr.univrennes1.cri.jtacl.App
 
 class VirtualNmap {
 
-	boolean _debug = false
-	int MIN_CHUNK = 256
-
-	Shell _shell
+	LsfwBinding _lsfw
 	String _source
 	String _sourcePort
 	String _dest
@@ -35,15 +31,10 @@ class VirtualNmap {
 	String _dns
 	String _ping
 
-	List<List<Integer>> _udpRangesToTest = new ArrayList<List<Integer>>()
-	List<List<Integer>> _tcpRangesToTest = new ArrayList<List<Integer>>()
-	int _tcpRangeTest = 0
-	int _udpRangeTest = 0
-
-	VirtualNmap(Shell shell, String source, String sourcePort, String dest,
+	VirtualNmap(LsfwBinding lsfw, String source, String sourcePort, String dest,
 		boolean udp, boolean tcp, int first, int last, String hostname, String dns, String ping) {
 
-		_shell = shell
+		_lsfw = lsfw
 		_source = source
 		_sourcePort = sourcePort
 		_dest = dest
@@ -56,105 +47,44 @@ class VirtualNmap {
 		_ping = ping
 	}
 
-	boolean isDeniedRange(boolean udp, int first, int last) {
-
-		int ret
-		if (udp) {
-			_udpRangeTest++
-			ret = _shell.runCommand("probe quick-deny expect unaccepted $_source $_dest udp $_sourcePort:($first,$last)")
-			return ret == App.EXIT_SUCCESS
-		}
-
-		_tcpRangeTest++
-		ret = _shell.runCommand("probe quick-deny expect unaccepted $_source $_dest tcp $_sourcePort:($first,$last) flags Sa")
-		return ret == App.EXIT_SUCCESS
-	}
-
 	/*
-	 * We do a dichotomic search on the range of ports to test. If a range is denied, there is
-	 * no need to probe for accept. If the range is not denied, we split it in two parts and
-	 * repeat the processus until the range is smallest than MIN_CHUNK.
-	 * This greatly improves the speed.
+	 * The scan probes the ranges of ports split by the filtering rules: one
+	 * probing per range of ports matched in the same way by the rules,
+	 * instead of one probing per port.
 	 */
-	void getRangesToTest(boolean udp, int first, int last, List<List<Integer>> rangesToTest) {
-
-		boolean denied = isDeniedRange(udp, first, last)
-		if (denied)
-			return
-		int range = last - first
-		if (range <= MIN_CHUNK) {
-			List<Integer> ports = new ArrayList<Integer>()
-			ports.add(first)
-			ports.add(last)
-			rangesToTest.add(ports)
-			return
-		}
-
-		int pf1 = first
-		int pl1 = first + (range / 2)
-		int pf2 = pl1 + 1
-		int pl2 = last
-
-		if (pf1 <= pl1) {
-			getRangesToTest(udp, pf1, pl1, rangesToTest)
-		}
-
-		if (pf2 <= pl2) {
-			getRangesToTest(udp, pf2, pl2, rangesToTest)
+	void scan(String proto) {
+
+		ProbeBuilder builder = _lsfw.newProbe().from(_source).to(_dest)
+			.protocol(proto).sourcePort(_sourcePort)
+			.destinationPorts(_first, _last).quickDeny()
+		if (proto == 'tcp')
+			builder.flags('Sa')
+
+		_lsfw.scan(builder).each() {
+			result ->
+			if (result.isAccepted()) {
+				result.getPorts().getFirstPort().upto(result.getPorts().getLastPort()) {
+					println("$_dest; $_hostname; $_dns; $_ping; $_source; $_sourcePort; $_dest; $proto; $it")
+				}
+			}
 		}
 	}
 
 	void nmap() {
 
-		_udpRangesToTest.clear()
-		_tcpRangesToTest.clear()
-
 		if (_udp)
-			getRangesToTest(true, _first, _last, _udpRangesToTest)
+			scan('udp')
 
 		if (_tcp)
-			getRangesToTest(false, _first, _last, _tcpRangesToTest)
-
-		if (_debug)
-			println("Range test udp=$_udpRangeTest tcp=$_tcpRangeTest")
-
-		_udpRangesToTest.each() {
-			ports ->
-			int f = ports[0]
-			int l = ports[1]
-
-			if (_debug)
-				println("range udp : $f, $l")
-
-			f.upto(l) {
-				int res = _shell.runCommand("probe quick-deny expect ACCEPT $_source $_dest udp $_sourcePort:$it")
-				if (res == App.EXIT_SUCCESS)
-					println("$_dest; $_hostname; $_dns; $_ping; $_source; $_sourcePort; $_dest; udp; $it")
-			}
-		}
-
-		_tcpRangesToTest.each() {
-			ports ->
-			int f = ports[0]
-			int l = ports[1]
-
-			if (_debug)
-				println("range tcp : $f, $l")
-
-			f.upto(l) {
-				int res = _shell.runCommand("probe quick-deny expect ACCEPT $_source $_dest tcp $_sourcePort:$it flags Sa")
-				if (res == App.EXIT_SUCCESS)
-				    println("$_dest; $_hostname; $_dns; $_ping; $_source; $_sourcePort; $_dest; tcp; $it")
-			}
-		}
+			scan('tcp')
 	}
 
 }
 
-def void testip(Shell shell, String source, String sourcePort, String dest,
+def void testip(LsfwBinding lsfw, String source, String sourcePort, String dest,
 	boolean udp, boolean tcp, int first, int last, String hostname, String dns, String ping) {
 
-	VirtualNmap vn = new VirtualNmap(shell, source, sourcePort, dest, udp, tcp, first, last, hostname, dns, ping)
+	VirtualNmap vn = new VirtualNmap(lsfw, source, sourcePort, dest, udp, tcp, first, last, hostname, dns, ping)
 	vn.nmap()
 }
 
@@ -201,12 +131,10 @@ if (!tcp && !udp) {
 
 long dstart = System.currentTimeMillis()
 
-def shell = new Shell()
-shell.setOutputStream(DevNull.out)
 if (udp)
-	testip(shell, source, sourceport, dest, true, false, first, last, hostname, dns, ping)
+	testip(lsfw, source, sourceport, dest, true, false, first, last, hostname, dns, ping)
 if (tcp)
-	testip(shell, source, sourceport, dest, false, true, first, last, hostname, dns, ping)
+	testip(lsfw, source, sourceport, dest, false, true, first, last, hostname, dns, ping)
 
 long dend = System.currentTimeMillis()
 long d = dend - dstart
@@ -16,14 +16,10 @@
  */
 
 import fr.univrennes1.cri.jtacl.shell.*;
-import fr.univrennes1.cri.jtacl.App;
+import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 
 class VirtualNmap {
 
-	boolean _debug = false;
-	int MIN_CHUNK = 256;
-
-	Shell _shell;
 	String _source;
 	String _sourcePort;
 	String _dest;
@@ -31,15 +27,10 @@ class VirtualNmap {
 	int _last;
 	boolean _tcp;
 	boolean _udp;
-	List<List<Integer>> _udpRangesToTest = new ArrayList<List<Integer>>();
-	List<List<Integer>> _tcpRangesToTest = new ArrayList<List<Integer>>();
-	int _tcpRangeTest = 0;
-	int _udpRangeTest = 0;
 
-	VirtualNmap(Shell shell, String source, String sourcePort, String dest,
+	VirtualNmap(String source, String sourcePort, String dest,
 		boolean udp, boolean tcp, int first, int last) {
 
-		_shell = shell;
 		_source = source;
 		_sourcePort = sourcePort;
 		_dest = dest;
@@ -49,96 +40,45 @@ class VirtualNmap {
 		_last = last;
 	}
 
-	boolean isDeniedRange(boolean udp, int first, int last) {
-
-		if (udp) {
-			_udpRangeTest++;
-			int ret = _shell.runCommand("probe quick-deny expect UNACCEPTED $_source $_dest udp $_sourcePort:($first,$last)");
-			return ret == App.EXIT_SUCCESS;
-		}
-
-		_tcpRangeTest++;
-		int ret = _shell.runCommand("probe quick-deny expect UNACCEPTED $_source $_dest tcp $_sourcePort:($first,$last) flags Sa");
-		return ret == App.EXIT_SUCCESS;
-	}
-
 	/*
-	 * We do a dichotomic search on the range of ports to test. If a range is denied, there is
-	 * no need to probe for accept. If the range is not denied, we split it in two parts and
-	 * repeat the processus until the range is smallest than MIN_CHUNK.
-	 * This greatly improves the speed.
+	 * The scan command probes the ranges of ports split by the filtering
+	 * rules: one probing per range of ports matched in the same way by
+	 * the rules, instead of one probing per port.
 	 */
-	void getRangesToTest(boolean udp, int first, int last, List<List<Integer>> rangesToTest) {
-
-		boolean denied = isDeniedRange(udp, first, last);
-		if (denied)
-			return;
-		int range = last - first;
-		if (range <= MIN_CHUNK) {
-			List<Integer> ports = new ArrayList<Integer>();
-			ports.add(first);
-			ports.add(last);
-			rangesToTest.add(ports);
-			return;
+	void scan(String proto) {
+
+		ProbeCommandTemplate tpl = new ProbeCommandTemplate();
+		tpl.setSrcAddress(_source);
+		tpl.setDestAddress(_dest);
+		tpl.setProtoSpecification(proto);
+		tpl.setPortSource(_sourcePort);
+		tpl.setPortDest("($_first,$_last)");
+		tpl.setProbeOptQuickDeny(true);
+		if (proto == 'tcp') {
+			tpl.setTcpFlags(new StringsList());
+			tpl.addTcpFlag("Sa");
 		}
 
-		int pf1 = first;
-		int pl1 = first + (range / 2);
-		int pf2 = pl1 + 1;
-		int pl2 = last;
-
-		if (pf1 <= pl1) {
-			getRangesToTest(udp, pf1, pl1, rangesToTest);
-		}
-
-		if (pf2 <= pl2) {
-			getRangesToTest(udp, pf2, pl2, rangesToTest);
+		ScanCommand cmd = new ScanCommand();
+		cmd.buildRequest(tpl);
+		cmd.runCommand();
+		cmd.getResults().each() {
+			result ->
+			if (result.isAccepted()) {
+				result.getPorts().getFirstPort().upto(result.getPorts().getLastPort()) {
+				    println("$proto; $_source; $_sourcePort; $_dest; $it");
+				}
+			}
 		}
 	}
 
 	void nmap() {
 
-		_udpRangesToTest.clear();
-		_tcpRangesToTest.clear();
-
 		if (_udp)
-			getRangesToTest(true, _first, _last, _udpRangesToTest);
+			scan('udp');
 
 		if (_tcp)
-			getRangesToTest(false, _first, _last, _tcpRangesToTest);
-
-		if (_debug)
-			println("Range test udp=$_udpRangeTest tcp=$_tcpRangeTest");
-
-		_udpRangesToTest.each() {
-			ports ->
-			int f = ports[0];
-			int l = ports[1];
-
-			if (_debug)
-				println("range udp : $f, $l");
-
-			f.upto(l) {
-				int res = _shell.runCommand("probe quick-deny expect ACCEPT $_source $_dest udp $_sourcePort:$it")
-				if (res == App.EXIT_SUCCESS)
-				    println("udp; $_source; $_sourcePort; $_dest; $it");
-			}
-		}
-
-		_tcpRangesToTest.each() {
-			ports ->
-			int f = ports[0];
-			int l = ports[1];
-
-			if (_debug)
-				println("range tcp : $f, $l");
-
-			f.upto(l) {
-				int res = _shell.runCommand("probe quick-deny expect ACCEPT $_source $_dest tcp $_sourcePort:$it flags Sa")
-				if (res == App.EXIT_SUCCESS)
-				    println("tcp; $_source; $_sourcePort; $_dest; $it");
-			}
-		}
+			scan('tcp');
 	}
 
 	static void usage() {
@@ -184,9 +124,6 @@ if (!tcp && !udp) {
 	return;
 }
 
-def shell = new Shell();
-shell.setOutputStream(DevNull.out);
-
-def vn = new VirtualNmap(shell, source, sourceport, dest, udp, tcp, first, last);
+def vn = new VirtualNmap(source, sourceport, dest, udp, tcp, first, last);
 vn.nmap();
 
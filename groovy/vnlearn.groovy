@@ -16,23 +16,44 @@
  */
 
 import fr.univrennes1.cri.jtacl.shell.*;
-import fr.univrennes1.cri.jtacl.App;
 
 class VirtualNLearn {
 
-	static void nmap(Shell shell, String source, String sourcePort, String dest,
-		boolean udp, boolean tcp, int first, int last) {
+	static int BATCH = 1024;
+
+	static void learn(LsfwBinding lsfw, String proto, String source, String sourcePort,
+		String dest, int first, int last) {
 
-		first.upto(last) {
-			if (udp) {
-				shell.runCommand("probe learn $source $dest udp $sourcePort:$it")
+		ProbeBuilder builder = lsfw.newProbe().from(source).to(dest)
+			.protocol(proto).sourcePort(sourcePort);
+		if (proto == 'tcp')
+			builder.flags('Sa');
+
+		for (int f = first; f <= last; f += BATCH) {
+			int l = Math.min(f + BATCH - 1, last);
+			List<ProbeCommand> cmds = new ArrayList<ProbeCommand>();
+			f.upto(l) {
+				cmds.add(builder.destinationPort(it).build());
 			}
-			if (tcp) {
-				shell.runCommand("probe learn $source $dest tcp $sourcePort:$it flags Sa")
+			List results = lsfw.probe(cmds);
+			f.upto(l) {
+				def probing = results[it - f];
+				String flags = proto == 'tcp' ? ' flags Sa' : '';
+				println("probe learn $source $dest $proto $sourcePort:$it$flags" +
+					" [ACL: ${probing.getAclResult()}; Routing: ${probing.getRoutingResult()}]");
 			}
 		}
 	}
 
+	static void nmap(LsfwBinding lsfw, String source, String sourcePort, String dest,
+		boolean udp, boolean tcp, int first, int last) {
+
+		if (udp)
+			learn(lsfw, 'udp', source, sourcePort, dest, first, last);
+		if (tcp)
+			learn(lsfw, 'tcp', source, sourcePort, dest, first, last);
+	}
+
 	static void usage() {
 		println('Usage: vnlearn (udp|tcp|udp/tcp) source sourceport destination portfirst portlast');
 		println();
@@ -76,6 +97,4 @@ if (!tcp && !udp) {
 	return;
 }
 
-def shell = new Shell();
-//shell.setOutputStream(DevNull.out);
-VirtualNLearn.nmap(shell, source, sourceport, dest, udp, tcp, first, last);
+VirtualNLearn.nmap(lsfw, source, sourceport, dest, udp, tcp, first, last);
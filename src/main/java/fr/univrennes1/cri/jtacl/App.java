@@ -56,6 +56,11 @@ public class App {
         optParser.acceptsAll(asList("o", "option"), "Set option").
                 withRequiredArg().describedAs("option to set (option=value)");
 
+        optParser.acceptsAll(asList("s", "snapshot"),
+                        "Load the configuration from the snapshot file in argument," +
+                                " the snapshot is (re)built if it is missing or out of date.")
+                .withRequiredArg().describedAs("snapshot file");
+
         optParser.acceptsAll(asList("b", "bind"), "bind address").
                 withRequiredArg().describedAs("bind address");
 
@@ -125,8 +130,26 @@ public class App {
             /*
              * init the monitor
              */
-            Monitor.getInstance().configure(configFile);
-            Monitor.getInstance().init();
+            Monitor monitor = Monitor.getInstance();
+            if (optionSet.has("snapshot")) {
+                String snapshot = (String) optionSet.valueOf("snapshot");
+                if (!monitor.loadSnapshot(snapshot, configFile)) {
+                    monitor.configure(configFile);
+                    monitor.init();
+                    /*
+                     * the configuration is loaded, lsfw can run without
+                     * the snapshot
+                     */
+                    try {
+                        monitor.saveSnapshot(snapshot);
+                    } catch (JtaclConfigurationException ex) {
+                        Log.notifier().warning(ex.getMessage());
+                    }
+                }
+            } else {
+                monitor.configure(configFile);
+                monitor.init();
+            }
 
             ShellConsole.install();
             Shell shell;
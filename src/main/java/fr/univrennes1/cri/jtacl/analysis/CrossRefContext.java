@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.analysis;
 
+import java.io.Serializable;
+
 /**
  * Context of a cross reference
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class CrossRefContext {
+public class CrossRefContext implements Serializable {
     protected String _contextString;
     protected String _contextName;
     protected String _comment;
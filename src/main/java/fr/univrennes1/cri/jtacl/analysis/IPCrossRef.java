@@ -11,6 +11,7 @@ package fr.univrennes1.cri.jtacl.analysis;
 
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,7 +20,7 @@ import java.util.List;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class IPCrossRef {
+public class IPCrossRef implements Serializable {
     protected IPRangeable _ip;
 
     protected List<CrossRefContext> _contexts;
@@ -11,12 +11,14 @@ package fr.univrennes1.cri.jtacl.analysis;
 
 import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
 
+import java.io.Serializable;
+
 /**
  * Context of a service cross reference
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class ServiceCrossRefContext {
+public class ServiceCrossRefContext implements Serializable {
     protected ProtocolsSpec _protoSpec;
     protected ServiceCrossRefType _type;
     protected String _contextString;
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.core.monitor;
+
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclRuntimeException;
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the configuration files of the equipments and reloads the changed
+ * equipments in background (autoreload option of the daemon).<br/>
+ * The directories of the files are watched with a {@link WatchService}.
+ * When the files have not changed during the autoreload delay, the changed
+ * equipments (see {@link NetworkEquipment#hasChanged}) are configured,
+ * then a new configuration is built and published by the monitor (see
+ * {@link Monitor#installReloadedEquipment}). None of this takes the lock of
+ * the monitor: the commands are not delayed, the commands in progress end
+ * with the configuration they have read and the next commands use the new
+ * configuration.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class ConfigurationWatcher implements Runnable {
+
+    protected Monitor _monitor;
+    protected WatchService _watchService;
+    protected Thread _thread;
+
+    /**
+     * the keys of the directories watched
+     */
+    protected Map<Path, WatchKey> _directories = new HashMap<>();
+
+    /**
+     * the files of the equipments
+     */
+    protected Set<Path> _files = new HashSet<>();
+
+    /**
+     * Creates a new watcher of the configuration of the monitor.
+     *
+     * @param monitor the monitor.
+     * @throws IOException if the watch service cannot be created.
+     */
+    public ConfigurationWatcher(Monitor monitor) throws IOException {
+        _monitor = monitor;
+        _watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Starts to watch the files of the equipments of the monitor.
+     */
+    public void start() {
+        watchEquipments();
+        _thread = new Thread(this, "lsfw-watcher");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * Stops the watcher.
+     */
+    public void stop() {
+        try {
+            _watchService.close();
+        } catch (IOException ex) {
+            //
+        }
+        if (_thread != null)
+            _thread.interrupt();
+    }
+
+    /**
+     * Watches the directories of the files of the equipments of the monitor.
+     * The directories no longer used by the equipments (equipment removed or
+     * reloaded) are no longer watched.
+     */
+    public synchronized void watchEquipments() {
+        Set<Path> files = new HashSet<>();
+        Map<Path, WatchKey> directories = new HashMap<>();
+        for (NetworkEquipment equipment : _monitor.getEquipments().values()) {
+            for (String fileName : equipment.getMonitoredFiles()) {
+                Path path = Paths.get(fileName).toAbsolutePath();
+                files.add(path);
+                if (Files.isDirectory(path))
+                    watchDirectory(path, directories);
+                Path parent = path.getParent();
+                if (parent != null)
+                    watchDirectory(parent, directories);
+            }
+        }
+        for (Path directory : _directories.keySet()) {
+            if (!directories.containsKey(directory))
+                _directories.get(directory).cancel();
+        }
+        _files = files;
+        _directories = directories;
+    }
+
+    protected void watchDirectory(Path directory,
+                                  Map<Path, WatchKey> directories) {
+        if (directories.containsKey(directory))
+            return;
+        WatchKey key = _directories.get(directory);
+        if (key != null) {
+            directories.put(directory, key);
+            return;
+        }
+        try {
+            key = directory.register(_watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(directory, key);
+        } catch (IOException ex) {
+            Log.notifier().warning("Cannot watch directory " + directory +
+                    ": " + ex.getMessage());
+        }
+    }
+
+    /*
+     * returns true if an event of the key concerns a file of the equipments
+     * (or a file of a directory of the equipments).
+     */
+    protected synchronized boolean isChanged(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                    _files.contains(directory) ||
+                    _files.contains(directory.resolve((Path) event.context())))
+                changed = true;
+        }
+        return changed;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (; ; ) {
+                WatchKey key = _watchService.take();
+                /*
+                 * wait for the files to be stable (an editor or a copy may
+                 * write a file several times).
+                 */
+                boolean changed = false;
+                while (key != null) {
+                    changed |= isChanged(key);
+                    key.reset();
+                    key = _watchService.poll(
+                            _monitor.getOptions().getAutoReloadDelay(),
+                            TimeUnit.MILLISECONDS);
+                }
+                if (changed && _monitor.getOptions().getAutoReload())
+                    reloadChangedEquipments();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            //
+        }
+    }
+
+    /**
+     * Reloads the equipments of the monitor whose configuration has changed.
+     */
+    protected void reloadChangedEquipments() {
+
+        List<NetworkEquipment> changed = new ArrayList<>();
+        for (NetworkEquipment equipment : _monitor.getEquipments().values()) {
+            if (equipment.canReload() && equipment.hasChanged())
+                changed.add(equipment);
+        }
+
+        for (NetworkEquipment equipment : changed) {
+            Log.debug().info("reloading " + equipment.getName());
+            try {
+                NetworkEquipment newEq =
+                        _monitor.configureReloadedEquipment(equipment);
+                /*
+                 * the equipment may have been reloaded meanwhile (reload
+                 * command).
+                 */
+                if (_monitor.installReloadedEquipment(equipment, newEq))
+                    watchEquipments();
+            } catch (JtaclRuntimeException ex) {
+                Log.notifier().warning("Cannot reload " + equipment.getName() +
+                        ": " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.core.monitor;
+
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
+import fr.univrennes1.cri.jtacl.core.topology.Topology;
+
+/**
+ * The configuration loaded by the monitor: the network equipments and the
+ * topology.<br/>
+ * Once published by the monitor, a configuration is not changed: the
+ * reload of an equipment builds and publishes a new configuration (see
+ * {@link Monitor#installReloadedEquipment}), the commands in progress end
+ * with the configuration they have read.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class LoadedConfiguration {
+
+    /**
+     * Map of the network equipments.
+     */
+    protected final NetworkEquipmentsByName _equipments;
+
+    /**
+     * The topology of the network
+     */
+    protected final Topology _topology;
+
+    /**
+     * Creates a new configuration.
+     *
+     * @param equipments the network equipments.
+     * @param topology   the topology of the network.
+     */
+    public LoadedConfiguration(NetworkEquipmentsByName equipments,
+                               Topology topology) {
+        _equipments = equipments;
+        _topology = topology;
+    }
+
+    /**
+     * Creates a new empty configuration.
+     */
+    public LoadedConfiguration() {
+        this(new NetworkEquipmentsByName(), new Topology());
+    }
+
+    /**
+     * Returns a map of the network equipments of this configuration.
+     *
+     * @return a map of the network equipments of this configuration.
+     */
+    public NetworkEquipmentsByName getEquipments() {
+        return _equipments;
+    }
+
+    /**
+     * Returns the topology of this configuration.
+     *
+     * @return the topology of this configuration.
+     */
+    public Topology getTopology() {
+        return _topology;
+    }
+}
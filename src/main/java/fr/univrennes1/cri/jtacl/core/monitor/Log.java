@@ -9,6 +9,9 @@
 
 package fr.univrennes1.cri.jtacl.core.monitor;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Filter;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -31,6 +34,26 @@ public class Log {
     protected static final Handler _consoleHandler =
             _debug.getParent().getHandlers()[0];
 
+    /**
+     * records deferred by the current thread, null if the records are not
+     * deferred.
+     */
+    protected static final ThreadLocal<List<LogRecord>> _deferred =
+            new ThreadLocal<>();
+
+    static {
+        Filter filter = record -> {
+            List<LogRecord> records = _deferred.get();
+            if (records == null)
+                return true;
+            records.add(record);
+            return false;
+        };
+        _debug.setFilter(filter);
+        _notifier.setFilter(filter);
+        _config.setFilter(filter);
+    }
+
     public static Logger debug() {
         return _debug;
     }
@@ -47,6 +70,36 @@ public class Log {
         return _consoleHandler;
     }
 
+    /**
+     * Defers the records logged by the current thread: they are kept until
+     * they are published by {@link #publish}. This keeps the order of the
+     * messages when some work is done concurrently.
+     */
+    public static void defer() {
+        _deferred.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops deferring the records logged by the current thread.
+     *
+     * @return the records deferred by the current thread.
+     */
+    public static List<LogRecord> undefer() {
+        List<LogRecord> records = _deferred.get();
+        _deferred.remove();
+        return records;
+    }
+
+    /**
+     * Logs the records in argument, to their logger.
+     *
+     * @param records records to log.
+     */
+    public static void publish(List<LogRecord> records) {
+        for (LogRecord record : records)
+            Logger.getLogger(record.getLoggerName()).log(record);
+    }
+
     public static void install() {
         class ShortFormatter extends Formatter {
             // inefficient implementation
@@ -11,11 +11,13 @@ package fr.univrennes1.cri.jtacl.core.monitor;
 
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclConfigurationException;
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclInternalException;
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclTopologyException;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.core.probing.FwResult;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
+import fr.univrennes1.cri.jtacl.core.probing.ProbePositions;
 import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
 import fr.univrennes1.cri.jtacl.core.probing.ProbesByUid;
 import fr.univrennes1.cri.jtacl.core.probing.ProbesTracker;
@@ -34,17 +36,37 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
 /**
  * The Monitor is the main class of Jtacl.<br/>
@@ -83,11 +105,6 @@ public class Monitor {
      */
     protected String _configurationFileName;
 
-    /**
-     * Hop counter
-     */
-    protected int _hopCount;
-
     /**
      * Jtacl options
      */
@@ -99,25 +116,57 @@ public class Monitor {
     protected Map<String, String> _defines;
 
     /**
-     * Map of the network equipments.
+     * The configuration published: the network equipments and the topology
+     * of the network. A new configuration is published when the
+     * configuration is reloaded.
      */
-    protected NetworkEquipmentsByName _equipments;
+    protected volatile LoadedConfiguration _configuration;
 
     /**
-     * The topology of the network
+     * The configuration being loaded by {@link #reload}, null if the
+     * configuration is not reloaded.
      */
-    protected Topology _topology;
+    protected LoadedConfiguration _loading;
+
+    /**
+     * The configuration pinned by the current thread (see
+     * {@link #pinConfiguration}).
+     */
+    protected final ThreadLocal<LoadedConfiguration> _pinnedConfiguration =
+            new ThreadLocal<>();
 
     /**
      * Probing collection.
      */
     protected Probing _probing;
 
+    /**
+     * Lock of the loaded configuration, used when the monitor is shared by
+     * several threads.
+     */
+    protected final ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+    /**
+     * Watcher of the configuration files, null if not started.
+     */
+    protected ConfigurationWatcher _watcher;
+
+    /**
+     * Executor of the configuration tasks, shared by all the configurations
+     * and created on demand (see {@link #submitConfigTasks}).
+     */
+    protected ThreadPoolExecutor _configExecutor;
+
+    /**
+     * True on the threads of the configuration executor.
+     */
+    protected final ThreadLocal<Boolean> _configWorker =
+            ThreadLocal.withInitial(() -> Boolean.FALSE);
+
     protected Monitor() {
         _options = new Options();
         _defines = new HashMap<>();
-        _equipments = new NetworkEquipmentsByName();
-        _topology = new Topology();
+        _configuration = new LoadedConfiguration();
         _probing = new Probing();
     }
 
@@ -389,12 +438,13 @@ public class Monitor {
         String s = "className: " + className + " name: " + equipmentName +
                 " comment: " + equipmentComment +
                 " filename: " + fileName;
-        if (_equipments.containsKey(equipmentName))
+        NetworkEquipmentsByName equipments = loadingConfiguration().getEquipments();
+        if (equipments.containsKey(equipmentName))
             throw new JtaclConfigurationException("duplicate equipment: " + s);
         NetworkEquipment eq = createNetworkEquipment(className, equipmentName,
                 equipmentComment, fileName);
 
-        _equipments.put(eq);
+        equipments.put(eq);
         return eq;
     }
 
@@ -404,7 +454,60 @@ public class Monitor {
      * @return a map of the network equipments handled by the monitor.
      */
     public NetworkEquipmentsByName getEquipments() {
-        return _equipments;
+        return getConfiguration().getEquipments();
+    }
+
+    /**
+     * Returns the configuration loaded by the monitor: the configuration
+     * pinned by the current thread if any, the configuration published
+     * otherwise.
+     *
+     * @return the configuration loaded by the monitor.
+     */
+    public LoadedConfiguration getConfiguration() {
+        LoadedConfiguration configuration = _pinnedConfiguration.get();
+        return configuration != null ? configuration : _configuration;
+    }
+
+    /**
+     * Pins the configuration published for the current thread: the
+     * equipments and the topology returned to this thread are the ones of
+     * this configuration, even if a new configuration is published, until
+     * {@link #unpinConfiguration} is called. Used by the daemon to run a
+     * command with one configuration.
+     */
+    public void pinConfiguration() {
+        _pinnedConfiguration.set(_configuration);
+    }
+
+    /**
+     * Unpins the configuration pinned by the current thread (see
+     * {@link #pinConfiguration}).
+     */
+    public void unpinConfiguration() {
+        _pinnedConfiguration.remove();
+    }
+
+    /*
+     * returns the configuration filled by the loading of the equipments: the
+     * configuration being reloaded, or the configuration published while
+     * the monitor is configured.
+     */
+    protected LoadedConfiguration loadingConfiguration() {
+        return _loading != null ? _loading : _configuration;
+    }
+
+    /*
+     * publishes the configuration in argument if the configuration
+     * published is still the configuration 'base' (or if base is null).
+     * Returns true if the configuration has been published.
+     */
+    protected synchronized boolean publishConfiguration(LoadedConfiguration base,
+                                                        LoadedConfiguration configuration) {
+        if (base != null && _configuration != base)
+            return false;
+        _configuration = configuration;
+        return true;
     }
 
     /**
@@ -424,6 +527,21 @@ public class Monitor {
     public void configure(String fileName) {
 
         _configurationFileName = fileName;
+        loadDatabases();
+
+        /*
+         * Read the XML configuration file.
+         */
+        _xmlConfiguration = XMLUtils.getXMLDocument(fileName);
+        loadConfiguration(_xmlConfiguration);
+        loadEquipments(_xmlConfiguration);
+        loadDefines(_xmlConfiguration);
+    }
+
+    /**
+     * Reads the protocols, services and icmp databases from the ressources.
+     */
+    protected void loadDatabases() {
 
         /*
          * Read the protocols from ressources.
@@ -449,14 +567,220 @@ public class Monitor {
         icmp = IPIcmp6.getInstance();
         stream = icmp.getClass().getResourceAsStream("/ip/icmp6");
         readIcmp(icmp, stream);
+    }
 
-        /*
-         * Read the XML configuration file.
-         */
-        _xmlConfiguration = XMLUtils.getXMLDocument(fileName);
-        loadConfiguration(_xmlConfiguration);
-        loadEquipments(_xmlConfiguration);
+    /**
+     * Saves the model loaded by the monitor (the network equipments and the
+     * topology) into a snapshot file. See {@link #loadSnapshot}.
+     *
+     * @param fileName filename of the snapshot file.
+     * @throws JtaclConfigurationException if the snapshot cannot be written.
+     */
+    public void saveSnapshot(String fileName) {
+
+        LoadedConfiguration configuration = getConfiguration();
+        MonitorSnapshot snapshot = new MonitorSnapshot(_configurationFileName,
+                _options.getXref(), configuration.getEquipments(),
+                configuration.getTopology());
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeObject(snapshot);
+        } catch (IOException ex) {
+            throw new JtaclConfigurationException("Cannot write snapshot " +
+                    fileName + ": " + ex);
+        }
+    }
+
+    /**
+     * Configures the monitor from a snapshot file saved by
+     * {@link #saveSnapshot}, instead of configuring and initializing the
+     * network equipments and the topology. The snapshot is used only if it
+     * is up to date: none of the files used by the configuration has changed
+     * since the snapshot was saved.
+     *
+     * @param snapshotFileName      filename of the snapshot file.
+     * @param configurationFileName filename of the configuration file.
+     * @return true if the monitor has been configured and initialized from
+     * the snapshot, false if the snapshot cannot be used.
+     */
+    public boolean loadSnapshot(String snapshotFileName,
+                                String configurationFileName) {
+
+        if (!new File(snapshotFileName).isFile())
+            return false;
+
+        _configurationFileName = configurationFileName;
+        loadDatabases();
+        Document doc = XMLUtils.getXMLDocument(configurationFileName);
+        loadConfiguration(doc);
+
+        MonitorSnapshot snapshot;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(snapshotFileName)))) {
+            snapshot = (MonitorSnapshot) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            Log.notifier().warning("Cannot read snapshot " + snapshotFileName +
+                    ": " + ex);
+            return false;
+        }
+        String reason = snapshot.checkUpToDate(configurationFileName,
+                _options.getXref());
+        if (reason != null) {
+            Log.notifier().info("Snapshot " + snapshotFileName +
+                    " is out of date, " + reason);
+            return false;
+        }
+
+        _xmlConfiguration = doc;
+        _configuration = new LoadedConfiguration(snapshot.getEquipments(),
+                snapshot.getTopology());
+        _probing = new Probing();
         loadDefines(_xmlConfiguration);
+        return true;
+    }
+
+    /**
+     * Configures the equipments in argument.<br/>
+     * If the option config.threads is greater than one, the equipments are
+     * configured concurrently by the configuration executor (see
+     * {@link #submitConfigTasks}). The messages
+     * logged while configuring an equipment are deferred and logged in the
+     * order of the equipments, an error is thrown for the first equipment
+     * in error, as if the equipments were configured one after the other.
+     *
+     * @param equipments the equipments to configure.
+     * @return the child equipments returned by the configuration of each
+     * equipment, in the order of the equipments.
+     * @throws JtaclConfigurationException on error.
+     */
+    public List<NetworkEquipmentsByName> configureEquipments(
+            List<NetworkEquipment> equipments) {
+
+        List<NetworkEquipmentsByName> result = new ArrayList<>(equipments.size());
+        if (isConfigInline(equipments.size())) {
+            for (NetworkEquipment eq : equipments) {
+                result.add(eq.configure());
+            }
+            return result;
+        }
+
+        List<Callable<NetworkEquipmentsByName>> tasks = new ArrayList<>(equipments.size());
+        List<List<LogRecord>> records = new ArrayList<>(equipments.size());
+        for (NetworkEquipment eq : equipments) {
+            List<LogRecord> eqRecords = new ArrayList<>();
+            records.add(eqRecords);
+            tasks.add(() -> {
+                Log.defer();
+                try {
+                    return eq.configure();
+                } finally {
+                    eqRecords.addAll(Log.undefer());
+                }
+            });
+        }
+        List<Future<NetworkEquipmentsByName>> futures = submitConfigTasks(tasks);
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.add(futures.get(i).get());
+                    Log.publish(records.get(i));
+                } catch (ExecutionException ex) {
+                    Log.publish(records.get(i));
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new JtaclInternalException(cause.toString());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new JtaclInternalException("configuration interrupted");
+                }
+            }
+        } finally {
+            for (Future<NetworkEquipmentsByName> future : futures)
+                future.cancel(true);
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the configuration tasks are run by the calling thread (see
+     * {@link #submitConfigTasks}).
+     *
+     * @param tasks the number of tasks.
+     * @return true if the tasks are run by the calling thread.
+     */
+    public boolean isConfigInline(int tasks) {
+        return _options.getConfigThreads() <= 1 || tasks <= 1 ||
+                _configWorker.get();
+    }
+
+    /**
+     * Submits the configuration tasks in argument and returns their futures,
+     * in the order of the tasks.<br/>
+     * The tasks are run by the threads of the configuration executor, shared
+     * by all the configurations, with the number of threads of the option
+     * config.threads. A task run by the executor that submits tasks (by
+     * example a Proxmox host configuring its guests) runs them itself, so the
+     * number of configuration threads is bounded and the threads never wait
+     * for each other.<br/>
+     * If {@link #isConfigInline} the tasks are run by the calling thread, one
+     * after the other, when their result is requested.<br/>
+     * The caller should cancel the futures whose result is not requested
+     * (on error).
+     *
+     * @param tasks the tasks to run.
+     * @return the futures of the tasks.
+     */
+    public <T> List<Future<T>> submitConfigTasks(List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        if (isConfigInline(tasks.size())) {
+            for (Callable<T> task : tasks) {
+                futures.add(new FutureTask<T>(task) {
+                    @Override
+                    public T get() throws InterruptedException, ExecutionException {
+                        run();
+                        return super.get();
+                    }
+                });
+            }
+            return futures;
+        }
+        ExecutorService executor = getConfigExecutor(_options.getConfigThreads());
+        for (Callable<T> task : tasks)
+            futures.add(executor.submit(task));
+        return futures;
+    }
+
+    /**
+     * Returns the executor of the configuration tasks with the number of
+     * threads in argument. The threads are daemon threads, stopped when they
+     * are idle.
+     *
+     * @param threads the number of threads.
+     * @return the executor of the configuration tasks.
+     */
+    protected synchronized ExecutorService getConfigExecutor(int threads) {
+        if (_configExecutor != null &&
+                _configExecutor.getMaximumPoolSize() != threads) {
+            _configExecutor.shutdown();
+            _configExecutor = null;
+        }
+        if (_configExecutor == null) {
+            ThreadFactory factory = r -> {
+                Thread thread = new Thread(() -> {
+                    _configWorker.set(Boolean.TRUE);
+                    r.run();
+                });
+                thread.setDaemon(true);
+                return thread;
+            };
+            _configExecutor = new ThreadPoolExecutor(threads, threads,
+                    10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+            _configExecutor.allowCoreThreadTimeOut(true);
+        }
+        return _configExecutor;
     }
 
     /**
@@ -464,35 +788,52 @@ public class Monitor {
      */
     public void init() {
 
-        final List<String> equipments = new LinkedList<>(_equipments.keySet());
+        LoadedConfiguration configuration = loadingConfiguration();
+        NetworkEquipmentsByName loaded = configuration.getEquipments();
+        Topology topology = configuration.getTopology();
+        final List<String> equipments = new LinkedList<>(loaded.keySet());
 
+        List<NetworkEquipment> configured = new ArrayList<>(equipments.size());
         for (String name : equipments) {
-            NetworkEquipment eq = _equipments.get(name);
-            NetworkEquipmentsByName subEq = eq.configure();
+            configured.add(loaded.get(name));
+        }
+        List<NetworkEquipmentsByName> subEquipments = configureEquipments(configured);
+
+        for (int i = 0; i < configured.size(); i++) {
+            NetworkEquipment eq = configured.get(i);
+            NetworkEquipmentsByName subEq = subEquipments.get(i);
             if (subEq != null) {
                 eq.getChildEquipments().putAll(subEq);
-                _equipments.putAll(subEq);
+                loaded.putAll(subEq);
             }
         }
 
-        for (String name : _equipments.keySet()) {
-            NetworkEquipment eq = _equipments.get(name);
-            _topology.registerNetworkequipment(eq);
+        for (String name : loaded.keySet()) {
+            NetworkEquipment eq = loaded.get(name);
+            topology.registerNetworkequipment(eq);
         }
 
-        loadTopology(_xmlConfiguration, _topology);
-        _topology.makeTopology();
+        loadTopology(_xmlConfiguration, topology);
+        topology.makeTopology();
     }
 
     /**
-     * Reload the monitor
+     * Reload the monitor. The new configuration is built aside and then
+     * published, the commands in progress end with the previous
+     * configuration. On error, the previous configuration is kept.
      */
     public void reload() {
-        _equipments = new NetworkEquipmentsByName();
-        _topology = new Topology();
-        _probing = new Probing();
-        configure(_configurationFileName);
-        init();
+        _loading = new LoadedConfiguration();
+        try {
+            _probing = new Probing();
+            configure(_configurationFileName);
+            init();
+            publishConfiguration(null, _loading);
+        } finally {
+            _loading = null;
+        }
+        if (_watcher != null)
+            _watcher.watchEquipments();
     }
 
     /**
@@ -500,18 +841,20 @@ public class Monitor {
      */
     public void reloadEquipment(NetworkEquipment equipment) {
 
-        /*
-         * if equipment has child, remove them
-         */
-        for (NetworkEquipment eq : equipment.getChildEquipments().values()) {
-            _equipments.remove(eq);
-        }
+        NetworkEquipment newEq = configureReloadedEquipment(equipment);
+        installReloadedEquipment(equipment, newEq);
+    }
 
-        /*
-         * new configuration
-         */
-        Topology topology = new Topology();
-        NetworkEquipmentsByName equipments = new NetworkEquipmentsByName();
+    /**
+     * Creates and configures a new equipment to replace the equipment in
+     * argument. This does not change the loaded configuration, so this can
+     * be done while the configuration is used by other threads.
+     *
+     * @param equipment the equipment to reload.
+     * @return the new equipment, configured, with its child equipments.
+     * @throws JtaclConfigurationException on error.
+     */
+    public NetworkEquipment configureReloadedEquipment(NetworkEquipment equipment) {
 
         /*
          * create a new equipment to replace the older
@@ -525,32 +868,86 @@ public class Monitor {
 
         NetworkEquipmentsByName subEq = newEq.configure();
         if (subEq != null) newEq.getChildEquipments().putAll(subEq);
+        return newEq;
+    }
 
-        /*
-         * build the topology
-         */
-        topology.registerNetworkequipment(newEq);
-        equipments.put(newEq);
-        if (subEq != null) {
-            for (NetworkEquipment eq : subEq.values()) {
-                topology.registerNetworkequipment(eq);
-                equipments.put(eq);
+    /**
+     * Replaces an equipment by its new equipment returned by
+     * {@link #configureReloadedEquipment}: a new configuration is built from
+     * the configuration published, only the links of the equipment (and of
+     * its child equipments) are changed in its topology, then it is
+     * published. No lock is needed, the commands in progress end with the
+     * previous configuration. If another configuration is published
+     * meanwhile, the new configuration is built again from it.
+     *
+     * @param equipment the equipment to replace.
+     * @param newEq     the new equipment.
+     * @return true if the equipment has been replaced, false if the
+     * equipment is no longer in the configuration published (reloaded
+     * meanwhile).
+     * @throws JtaclTopologyException if the new equipment cannot be
+     *                                connected, the configuration is unchanged in this case.
+     */
+    public boolean installReloadedEquipment(NetworkEquipment equipment,
+                                            NetworkEquipment newEq) {
+
+        List<NetworkEquipment> oldEquipments = new ArrayList<>();
+        oldEquipments.add(equipment);
+        oldEquipments.addAll(equipment.getChildEquipments().values());
+        List<NetworkEquipment> newEquipments = new ArrayList<>();
+        newEquipments.add(newEq);
+        newEquipments.addAll(newEq.getChildEquipments().values());
+
+        for (; ; ) {
+            LoadedConfiguration base = _configuration;
+            if (base.getEquipments().get(equipment.getName()) != equipment)
+                return false;
+
+            Topology topology;
+            try {
+                topology = base.getTopology().replaceNetworkEquipments(
+                        oldEquipments, newEquipments);
+            } catch (JtaclTopologyException ex) {
+                if (_configuration != base)
+                    continue;
+                throw ex;
             }
-        }
 
-        for (NetworkEquipment eq : _equipments.values()) {
-            if (eq == equipment || topology.isRegistered(eq))
-                continue;
-            topology.registerNetworkequipment(eq);
-            equipments.put(eq);
+            NetworkEquipmentsByName equipments = new NetworkEquipmentsByName();
+            equipments.putAll(base.getEquipments());
+            for (NetworkEquipment eq : oldEquipments) {
+                equipments.remove(eq.getName());
+            }
+            for (NetworkEquipment eq : newEquipments) {
+                equipments.put(eq);
+            }
+            if (publishConfiguration(base,
+                    new LoadedConfiguration(equipments, topology)))
+                return true;
         }
+    }
 
-        Document xmlConfiguration = XMLUtils.getXMLDocument(_configurationFileName);
-        loadTopology(xmlConfiguration, topology);
-        topology.makeTopology();
+    /**
+     * Starts to watch the configuration files of the equipments, the
+     * changed equipments are reloaded in background (see
+     * {@link ConfigurationWatcher}). Used by the daemon.
+     *
+     * @throws IOException if the files cannot be watched.
+     */
+    public void startWatcher() throws IOException {
+        if (_watcher != null)
+            return;
+        _watcher = new ConfigurationWatcher(this);
+        _watcher.start();
+    }
 
-        _topology = topology;
-        _equipments = equipments;
+    /**
+     * Returns true if the configuration files are watched in background.
+     *
+     * @return true if the configuration files are watched in background.
+     */
+    public boolean isWatching() {
+        return _watcher != null;
     }
 
     /**
@@ -559,7 +956,7 @@ public class Monitor {
      * @return the topology.
      */
     public Topology getTopology() {
-        return _topology;
+        return getConfiguration().getTopology();
     }
 
     /**
@@ -586,7 +983,10 @@ public class Monitor {
         /*
          * Forward the probe to the nextHop.
          */
-        NetworkLink nlink = link.getNetworkLink();
+        Topology topology = probe.getProbesTracker().getTopology();
+        if (topology == null)
+            topology = getTopology();
+        NetworkLink nlink = topology.getNetworkLink(link);
 
         IfaceLink hostLink = null;
 
@@ -665,8 +1065,10 @@ public class Monitor {
          * If we have already seen this probe on this link, the probe is looping.
          * So drop it.
          */
-        ProbesByUid probes = probe.getProbesTracker().probesByIfaceLinkAndProbe(link, probe);
-        if (probe.getParentProbe() != null && !probes.isEmpty()) {
+        ProbesTracker tracker = probe.getProbesTracker();
+        ProbesByUid probes = probe.getParentProbe() == null ? null :
+                tracker.probesByIfaceLinkAndKey(link, probe.getParentsPositionsKey());
+        if (probes != null) {
 
             if (Log.debug().isLoggable(Level.INFO)) {
                 Log.debug().info("----- loop killer on " +
@@ -675,13 +1077,21 @@ public class Monitor {
                 Log.debug().info("probe: " + probe.showSimplePath());
             }
 
+            /*
+             * the tracker indexes the probes by the key of their positions,
+             * only the probes with the key of the parent positions are
+             * compared.
+             */
+            ProbePositions parentsPositions = probe.getParentsPositions();
             boolean loop = false;
             for (Probe p : probes.values()) {
                 if (Log.debug().isLoggable(Level.INFO))
                     Log.debug().info("ppath: " + p.showSimplePath());
 
-                if (p.getPositions().sameAs(probe.getParentsPositions()))
+                if (p.getPositions().sameAs(parentsPositions)) {
                     loop = true;
+                    break;
+                }
             }
             if (loop) {
                 Log.notifier().warning("Loop detected on " +
@@ -693,13 +1103,14 @@ public class Monitor {
             }
         }
 
-        if (_hopCount == 0) {
+        int hopCount = tracker.getHopCount();
+        if (hopCount == 0) {
             probe.setIncomingLink(link);
             probe.killError("max hop count reached");
             Log.notifier().warning("probing stoped: max hop count reached");
             return;
-        } else if (_hopCount > 0)
-            _hopCount--;
+        } else if (hopCount > 0)
+            tracker.setHopCount(hopCount - 1);
 
         /*
          * pass the probe to the link
@@ -722,47 +1133,171 @@ public class Monitor {
     }
 
     /**
-     * Starts the probing.
+     * Does the probing of one tracker.
+     *
+     * @param tracker tracker to probe.
+     */
+    protected void probeTracker(ProbesTracker tracker) {
+
+        tracker.setHopCount(_options.getMaxHop());
+        IfaceLink link = tracker.getRootProbe().getIncomingLink();
+        sendProbe(link, tracker.getRootProbe());
+
+        /*
+         * The path of final probes should unique
+         */
+        if (!tracker.checkFinalProbePath())
+            Log.notifier().warning("Resulting paths should be unique");
+    }
+
+    /**
+     * Starts the probing.<br/>
+     * If the option probing.threads is greater than one, the trackers are
+     * probed concurrently using this number of threads. The trackers are
+     * independent and the resulting probing is the same as the sequential
+     * one, in the same order.
      *
      * @return the result of the probing.
      */
     public Probing startProbing() {
 
+        int threads = _options.getProbingThreads();
+        if (threads > 1 && _probing.size() > 1)
+            return startProbingParallel(threads);
+
         Probing result = new Probing();
 
         while (!_probing.isEmpty()) {
             ProbesTracker tracker = _probing.get(0);
-            _hopCount = _options.getMaxHop();
-            IfaceLink link = tracker.getRootProbe().getIncomingLink();
-            sendProbe(link, tracker.getRootProbe());
-
-            /*
-             * The path of final probes should unique
-             */
-            if (!tracker.checkFinalProbePath())
-                Log.notifier().warning("Resulting paths should be unique");
+            probeTracker(tracker);
             _probing.remove(0);
             result.add(tracker);
         }
         return result;
     }
 
+    protected Probing startProbingParallel(int threads) {
+
+        Probing result = new Probing();
+        probeTrackers(_probing, threads);
+        result.addAll(_probing);
+        _probing.clear();
+        return result;
+    }
+
+    /*
+     * probes the trackers concurrently using this number of threads.
+     */
+    protected void probeTrackers(List<ProbesTracker> trackers, int threads) {
+
+        List<Future<?>> futures = new ArrayList<>(trackers.size());
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(threads, trackers.size()));
+        try {
+            for (ProbesTracker tracker : trackers) {
+                futures.add(executor.submit(() -> probeTracker(tracker)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new JtaclInternalException(cause.toString());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new JtaclInternalException("probing interrupted");
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
-     * Queues a new probing.
+     * Creates the tracker of a new probing.
      *
      * @param link               link to use.
      * @param sourceAddress      source IP range addresses of the probing.
      * @param destinationAddress destination IP range addresses of the probing.
      * @param request            the request of the probing.
+     * @return the tracker of the probing.
      */
-    public void newProbing(IfaceLink link, IPRangeable sourceAddress,
-                           IPRangeable destinationAddress, ProbeRequest request) {
+    public ProbesTracker newTracker(IfaceLink link, IPRangeable sourceAddress,
+                                    IPRangeable destinationAddress, ProbeRequest request) {
 
         ProbesTracker tracker = new ProbesTracker();
+        tracker.setTopology(getTopology());
         Probe probe = new Probe(tracker, sourceAddress, destinationAddress, request);
         probe.setIncomingLink(link);
         tracker.setRootProbe(probe);
-        _probing.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * Does a probing without using the probing queue. Several threads can
+     * probe concurrently, as long as the configuration is not reloaded
+     * (see {@link #getLock}).
+     *
+     * @param link               link to use.
+     * @param sourceAddress      source IP range addresses of the probing.
+     * @param destinationAddress destination IP range addresses of the probing.
+     * @param request            the request of the probing.
+     * @return the result of the probing.
+     */
+    public Probing probe(IfaceLink link, IPRangeable sourceAddress,
+                         IPRangeable destinationAddress, ProbeRequest request) {
+
+        ProbesTracker tracker = newTracker(link, sourceAddress,
+                destinationAddress, request);
+        probeTracker(tracker);
+        Probing result = new Probing();
+        result.add(tracker);
+        return result;
+    }
+
+    /**
+     * Does several probings without using the probing queue. If the option
+     * probing.threads is greater than one, the probings are done
+     * concurrently using this number of threads.
+     *
+     * @param trackers the trackers of the probings (see {@link #newTracker}).
+     * @return the result of each probing, in the order of the trackers.
+     */
+    public List<Probing> probe(List<ProbesTracker> trackers) {
+
+        int threads = _options.getProbingThreads();
+        if (threads > 1 && trackers.size() > 1)
+            probeTrackers(trackers, threads);
+        else {
+            for (ProbesTracker tracker : trackers)
+                probeTracker(tracker);
+        }
+
+        List<Probing> results = new ArrayList<>(trackers.size());
+        for (ProbesTracker tracker : trackers) {
+            Probing result = new Probing();
+            result.add(tracker);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Queues a new probing.
+     *
+     * @param link               link to use.
+     * @param sourceAddress      source IP range addresses of the probing.
+     * @param destinationAddress destination IP range addresses of the probing.
+     * @param request            the request of the probing.
+     */
+    public void newProbing(IfaceLink link, IPRangeable sourceAddress,
+                           IPRangeable destinationAddress, ProbeRequest request) {
+
+        _probing.add(newTracker(link, sourceAddress, destinationAddress, request));
     }
 
     /**
@@ -783,4 +1318,16 @@ public class Monitor {
         return _defines;
     }
 
+    /**
+     * Returns the lock of the loaded configuration. The probing and the
+     * commands reading the configuration take the read lock, the commands
+     * changing the configuration (reload, options, defines) take the write
+     * lock.
+     *
+     * @return the lock of the loaded configuration.
+     */
+    public ReadWriteLock getLock() {
+        return _lock;
+    }
+
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.core.monitor;
+
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
+import fr.univrennes1.cri.jtacl.core.topology.Topology;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the model loaded by the monitor: the network equipments and
+ * the topology, with the dates of the configuration files used to build
+ * them.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class MonitorSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * format of the snapshots, to increment when the serialized form of
+     * the model changes.
+     */
+    public static final int FORMAT = 1;
+
+    /**
+     * format of this snapshot
+     */
+    protected int _format = FORMAT;
+
+    /**
+     * configuration file name (absolute path)
+     */
+    protected String _configurationFileName;
+
+    /**
+     * last modification date of the files of the configuration, keyed by
+     * file name
+     */
+    protected Map<String, Long> _files = new HashMap<>();
+
+    /**
+     * cross reference option used to build the model.
+     */
+    protected boolean _xref;
+
+    /**
+     * network equipments
+     */
+    protected NetworkEquipmentsByName _equipments;
+
+    /**
+     * topology
+     */
+    protected Topology _topology;
+
+    protected static String absolutePath(String fileName) {
+        return new File(fileName).getAbsolutePath();
+    }
+
+    /**
+     * Creates a new snapshot of the model in argument.
+     *
+     * @param configurationFileName the configuration file name.
+     * @param xref                  cross reference option.
+     * @param equipments            network equipments.
+     * @param topology              topology.
+     */
+    public MonitorSnapshot(String configurationFileName, boolean xref,
+                           NetworkEquipmentsByName equipments, Topology topology) {
+        _configurationFileName = absolutePath(configurationFileName);
+        _xref = xref;
+        _equipments = equipments;
+        _topology = topology;
+        _files.put(_configurationFileName,
+                new File(_configurationFileName).lastModified());
+        for (NetworkEquipment equipment : equipments.values()) {
+            String fileName = equipment.getConfigurationFileName();
+            if (fileName != null && !fileName.isEmpty()) {
+                fileName = absolutePath(fileName);
+                _files.put(fileName, new File(fileName).lastModified());
+            }
+        }
+    }
+
+    public NetworkEquipmentsByName getEquipments() {
+        return _equipments;
+    }
+
+    public Topology getTopology() {
+        return _topology;
+    }
+
+    public int getFormat() {
+        return _format;
+    }
+
+    /**
+     * Checks that this snapshot is up to date: the format of the snapshot,
+     * the configuration file and the options are the same and no file of
+     * the configuration has changed since the snapshot was made.
+     *
+     * @param configurationFileName the configuration file name.
+     * @param xref                  cross reference option.
+     * @return the reason why the snapshot is out of date, null if it is up
+     * to date.
+     */
+    public String checkUpToDate(String configurationFileName, boolean xref) {
+        if (_format != FORMAT)
+            return "snapshot format differs: " + _format;
+        if (!_configurationFileName.equals(absolutePath(configurationFileName)))
+            return "configuration file differs: " + _configurationFileName;
+        if (_xref != xref)
+            return "crossreference option differs";
+        for (String fileName : _files.keySet()) {
+            if (new File(fileName).lastModified() != _files.get(fileName))
+                return "file has changed: " + fileName;
+        }
+        for (NetworkEquipment equipment : _equipments.values()) {
+            if (equipment.hasChanged())
+                return "equipment has changed: " + equipment.getName();
+        }
+        return null;
+    }
+}
@@ -30,11 +30,37 @@ public class Options {
      */
     private int _maxHop = -1;
 
+    /**
+     * The number of threads used to do the probing.
+     */
+    private int _probingThreads = 1;
+
+    /**
+     * The number of threads used to configure the equipments.
+     */
+    private int _configThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of client sessions served concurrently by the daemon.
+     */
+    private int _daemonSessions = 16;
+
+    /**
+     * If true, a client session of the daemon accepts several commands.
+     */
+    private boolean _daemonPersistent = false;
+
     /**
      * Auto-reload option
      */
     private boolean _autoReload = false;
 
+    /**
+     * Delay (in ms) without change of the files before the daemon reloads
+     * the changed equipments.
+     */
+    private int _autoReloadDelay = 500;
+
     /**
      * xref option
      */
@@ -68,6 +94,90 @@ public class Options {
         _maxHop = maxHop;
     }
 
+    /**
+     * Returns the number of threads used to do the probing.
+     *
+     * @return the number of threads used to do the probing.
+     */
+    public int getProbingThreads() {
+        return _probingThreads;
+    }
+
+    /**
+     * Sets the number of threads used to do the probing. Zero means the
+     * number of available processors.
+     *
+     * @param threads number to set.
+     */
+    public void setProbingThreads(int threads) {
+        if (threads < 0)
+            throw new JtaclConfigurationException("invalid number of threads: " + threads);
+        _probingThreads = threads == 0 ?
+                Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Returns the number of threads used to configure the equipments.
+     *
+     * @return the number of threads used to configure the equipments.
+     */
+    public int getConfigThreads() {
+        return _configThreads;
+    }
+
+    /**
+     * Sets the number of threads used to configure the equipments. Zero
+     * means the number of available processors.
+     *
+     * @param threads number to set.
+     */
+    public void setConfigThreads(int threads) {
+        if (threads < 0)
+            throw new JtaclConfigurationException("invalid number of threads: " + threads);
+        _configThreads = threads == 0 ?
+                Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Returns the number of client sessions served concurrently by the
+     * daemon.
+     *
+     * @return the number of client sessions served concurrently.
+     */
+    public int getDaemonSessions() {
+        return _daemonSessions;
+    }
+
+    /**
+     * Sets the number of client sessions served concurrently by the daemon.
+     *
+     * @param sessions number to set.
+     */
+    public void setDaemonSessions(int sessions) {
+        if (sessions < 1)
+            throw new JtaclConfigurationException("invalid number of sessions: " + sessions);
+        _daemonSessions = sessions;
+    }
+
+    /**
+     * Returns true if a client session of the daemon accepts several
+     * commands.
+     *
+     * @return true if the client sessions are persistent.
+     */
+    public boolean getDaemonPersistent() {
+        return _daemonPersistent;
+    }
+
+    /**
+     * Sets if a client session of the daemon accepts several commands.
+     *
+     * @param persistent true if the client sessions are persistent.
+     */
+    public void setDaemonPersistent(boolean persistent) {
+        _daemonPersistent = persistent;
+    }
+
     /**
      * Returns the level of the debug logger.
      *
@@ -140,6 +250,28 @@ public class Options {
         _autoReload = flag;
     }
 
+    /**
+     * Returns the delay (in ms) without change of the files before the
+     * daemon reloads the changed equipments.
+     *
+     * @return the autoreload delay in ms.
+     */
+    public int getAutoReloadDelay() {
+        return _autoReloadDelay;
+    }
+
+    /**
+     * Sets the delay (in ms) without change of the files before the daemon
+     * reloads the changed equipments.
+     *
+     * @param delay delay in ms.
+     */
+    public void setAutoReloadDelay(int delay) {
+        if (delay < 0)
+            throw new JtaclConfigurationException("invalid delay: " + delay);
+        _autoReloadDelay = delay;
+    }
+
     /**
      * Gets the DNS cache TTL value.
      *
@@ -248,11 +380,36 @@ public class Options {
                 return;
             }
 
+            if (optionName.equalsIgnoreCase("probing.threads")) {
+                setProbingThreads(Integer.valueOf(value));
+                return;
+            }
+
+            if (optionName.equalsIgnoreCase("config.threads")) {
+                setConfigThreads(Integer.valueOf(value));
+                return;
+            }
+
+            if (optionName.equalsIgnoreCase("daemon.sessions")) {
+                setDaemonSessions(Integer.valueOf(value));
+                return;
+            }
+
+            if (optionName.equalsIgnoreCase("daemon.persistent")) {
+                setDaemonPersistent(Boolean.valueOf(value));
+                return;
+            }
+
             if (optionName.equalsIgnoreCase("autoreload")) {
                 setAutoReload(Boolean.valueOf(value));
                 return;
             }
 
+            if (optionName.equalsIgnoreCase("autoreload.delay")) {
+                setAutoReloadDelay(Integer.valueOf(value));
+                return;
+            }
+
             if (optionName.equalsIgnoreCase("debug.level")) {
                 setDebugLevel(Level.parse(value));
                 return;
@@ -302,13 +459,18 @@ public class Options {
     public String getOptionsList() {
         return
                 "autoreload=" + getAutoReload() + "\n" +
+                        "autoreload.delay=" + getAutoReloadDelay() + "\n" +
                         "config.level=" + getConfigLevel() + "\n" +
+                        "config.threads=" + getConfigThreads() + "\n" +
                         "crossreference=" + getXref() + "\n" +
+                        "daemon.persistent=" + getDaemonPersistent() + "\n" +
+                        "daemon.sessions=" + getDaemonSessions() + "\n" +
                         "debug.level=" + getDebugLevel() + "\n" +
                         "dns.cache.ttl=" + getDnsCacheTTL() + "\n" +
                         "logfile=" + getLogFile() + '\n' +
                         "maxhop=" + getMaxHop() + "\n" +
                         "notify.level=" + getNotifyLevel() + "\n" +
+                        "probing.threads=" + getProbingThreads() + "\n" +
                         "secureLevel=" + getSecureLevel();
     }
 
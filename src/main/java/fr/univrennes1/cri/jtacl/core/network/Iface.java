@@ -15,6 +15,10 @@ import fr.univrennes1.cri.jtacl.core.probing.Probe;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNetConst;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
 /**
  * Describes a network interface.<br/><br/>
  * An interface is part of a {@link NetworkEquipment} network equipment,
@@ -24,7 +28,7 @@ import fr.univrennes1.cri.jtacl.lib.ip.IPNetConst;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class Iface {
+public class Iface implements Serializable {
 
     /**
      * The equipment owner of this iface.
@@ -54,7 +58,7 @@ public class Iface {
     /**
      * a reference to the monitor.
      */
-    protected Monitor _monitor;
+    protected transient Monitor _monitor;
 
     private Iface(Monitor monitor, String name, String comment, boolean loopback, NetworkEquipment equipment) {
         _monitor = monitor;
@@ -65,6 +69,15 @@ public class Iface {
         _links = new IfaceLinksByIp();
     }
 
+    /*
+     * see NetworkEquipment.readObject
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        _monitor = Monitor.getInstance();
+    }
+
     /**
      * Create a new {@link Iface} interface with these name and comment, attached
      * to a {@link NetworkEquipment} equipement.
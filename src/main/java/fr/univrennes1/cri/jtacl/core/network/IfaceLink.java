@@ -14,6 +14,10 @@ import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
 import fr.univrennes1.cri.jtacl.core.topology.NetworkLink;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
 /**
  * Describes a link between an interface {@link Iface} and a network
  * {@link IPNet}.<br/><br/>
@@ -22,7 +26,7 @@ import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class IfaceLink {
+public class IfaceLink implements Serializable {
 
     /**
      * Iface owner of this link.
@@ -47,7 +51,7 @@ public class IfaceLink {
     /**
      * a reference to the monitor.
      */
-    protected Monitor _monitor;
+    protected transient Monitor _monitor;
 
     /**
      * Creates a new {@link IfaceLink} link associated with a {@link Iface} interface.
@@ -64,6 +68,15 @@ public class IfaceLink {
         _monitor = monitor;
     }
 
+    /*
+     * see NetworkEquipment.readObject
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        _monitor = Monitor.getInstance();
+    }
+
     /**
      * Returns the {@link Iface} interface associated to this {@link IfaceLink} link.
      *
@@ -136,6 +149,9 @@ public class IfaceLink {
 
     /**
      * Returns the {@link NetworkLink} network link of this {@link IfaceLink} link.
+     * This is the network link set when the topology was built, once an
+     * equipment has been reloaded use {@link
+     * fr.univrennes1.cri.jtacl.core.topology.Topology#getNetworkLink}.
      *
      * @return the {@link NetworkLink} network link of this {@link IfaceLink} link.
      */
@@ -16,7 +16,12 @@ import fr.univrennes1.cri.jtacl.core.probing.Probe;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Describes a network equipment.<br/><br/>
@@ -25,7 +30,7 @@ import java.io.PrintStream;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class NetworkEquipment {
+public class NetworkEquipment implements Serializable {
 
     /**
      * name of this equipment.
@@ -51,12 +56,12 @@ public class NetworkEquipment {
     /**
      * a reference to the monitor.
      */
-    protected Monitor _monitor;
+    protected transient Monitor _monitor;
 
     /**
      * a reference to the options
      */
-    protected Options _monitorOptions;
+    protected transient Options _monitorOptions;
 
     /**
      * child equipments of this equipment
@@ -80,6 +85,17 @@ public class NetworkEquipment {
         _ifaces = new IfacesByName();
     }
 
+    /*
+     * a deserialized equipment (see MonitorSnapshot) is attached to the
+     * monitor of the running instance.
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        _monitor = Monitor.getInstance();
+        _monitorOptions = _monitor.getOptions();
+    }
+
     /**
      * Create a new {@link Iface} named name and attach it to this equipment.
      * <br/><br/>
@@ -295,6 +311,17 @@ public class NetworkEquipment {
         return false;
     }
 
+    /**
+     * Returns the names of the files used by the configuration of this
+     * equipment, the files checked by {@link #hasChanged}. This is used by
+     * the monitor to watch the files of the equipment.
+     *
+     * @return the list of the file names, may be empty.
+     */
+    public List<String> getMonitoredFiles() {
+        return Collections.emptyList();
+    }
+
     /**
      * Returns true if this equipment can be reloaded.
      * This is used by the monitor to allow the reloading of an equipment.
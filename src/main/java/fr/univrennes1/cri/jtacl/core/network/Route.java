@@ -12,6 +12,8 @@ package fr.univrennes1.cri.jtacl.core.network;
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclRoutingException;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
+import java.io.Serializable;
+
 /**
  * This class describes a route.<br/>
  * A route is composed by a {@link IPNet} IP prefix, the {@link IPNet} IP
@@ -22,7 +24,7 @@ import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
  * @param <T> Type of the link.
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class Route<T> {
+public class Route<T> implements Serializable {
 
     /**
      * the IP prefix of this route.
@@ -12,15 +12,13 @@ package fr.univrennes1.cri.jtacl.core.network;
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclRoutingException;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPPrefixTree;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
 import fr.univrennes1.cri.jtacl.lib.ip.IPversion;
 
 import java.io.CharArrayWriter;
 import java.io.PrintWriter;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.Serializable;
 
 /**
  * The routing engine provides an implementation of routing. It is able to
@@ -28,28 +26,25 @@ import java.util.HashMap;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class RoutingEngine implements ShowableRoutes {
+public class RoutingEngine implements ShowableRoutes, Serializable {
 
-    class RoutingTableItem implements Comparable {
+    class RoutingTableItem implements Serializable {
         IPNet _prefix;
         Routes _routes = new Routes();
 
         RoutingTableItem(IPNet prefix) {
             _prefix = prefix;
         }
-
-        @Override
-        public int compareTo(Object o) {
-            RoutingTableItem item = (RoutingTableItem) o;
-            if (equals(item))
-                return 0;
-            return _prefix.compareTo(item._prefix);
-        }
-
     }
 
-    class RoutingTable extends HashMap<Integer, RoutingTableItem> {
+    /*
+     * routing table: a prefix tree of the routes indexed by prefix
+     */
+    class RoutingTable extends IPPrefixTree<RoutingTableItem> {
 
+        RoutingTable(IPversion ipVersion) {
+            super(ipVersion);
+        }
     }
 
     private RoutingTable _routingTableIPv4;
@@ -79,12 +74,9 @@ public class RoutingEngine implements ShowableRoutes {
     }
 
     private void showRoutingTable(PrintWriter writer, RoutingTable table) {
-        ArrayList<RoutingTableItem> stable = new ArrayList<>(table.values());
-        //noinspection unchecked
-        Collections.sort(stable);
-        if (stable.isEmpty())
+        if (table.isEmpty())
             writer.println("(none)");
-        for (RoutingTableItem routeItem : stable) {
+        for (RoutingTableItem routeItem : table.values()) {
             for (Route route : routeItem._routes) {
                 showRoute(writer, route);
             }
@@ -94,68 +86,46 @@ public class RoutingEngine implements ShowableRoutes {
     private Routes getRoutes(IPNet address, RoutingTable table, int recursion) {
 
         /*
-         * The algorithm used is quite stupid.
-         * We try to find routes starting with the address prefixlen.
-         * If no routes has been found, try with prefixlen - 1, until all
-         * prefixlen have been tested.
+         * longest prefix match of the address in the routing table,
+         * starting with the address prefixlen.
          */
-        IPNet previous = null;
-        for (int i = address.getPrefixLen(); i >= 0; i--) {
-            // prefix of the destination
-            IPNet prefix;
-            try {
-                prefix = new IPNet(address.getIP(), address.getIpVersion(), i);
-                prefix = prefix.networkAddress();
+        RoutingTableItem routeItem = table.longestMatch(address);
+        if (routeItem != null) {
+            Routes routes = new Routes();
+            for (Route route : routeItem._routes) {
                 /*
-                 * Do not test again if the network is the same as the
-                 * previous test.
+                 * If the link is null for a route, use the route matching
+                 * the nexthop.
                  */
-                if (previous != null && prefix.equals(previous))
-                    continue;
-                previous = prefix;
-            } catch (UnknownHostException ex) {
-                throw new JtaclRoutingException(ex.getMessage());
-            }
-            // search the prefix in the routing table
-            Integer prefixKey = prefix.hashCode();
-            RoutingTableItem routeItem = table.get(prefixKey);
-            if (routeItem != null) {
-                Routes routes = new Routes();
-                for (Route route : routeItem._routes) {
-                    /*
-                     * If the link is null for a route, use the route matching
-                     * the nexthop.
-                     */
-                    if (!route.isNullRoute()) {
-                        if (route.getLink() == null) {
-                            IPNet nexthop = route.getNextHop();
-                            /*
-                             * XXX: nexthop is a destination
-                             */
-                            if (recursion > 256)
-                                throw new JtaclRoutingException("too many routing recursions");
-                            Routes resolv = getRoutes(nexthop, recursion + 1);
-                            if (resolv != null)
-                                routes.addAll(resolv);
-                        } else
-                            routes.add(route);
-                    }
+                if (!route.isNullRoute()) {
+                    if (route.getLink() == null) {
+                        IPNet nexthop = route.getNextHop();
+                        /*
+                         * XXX: nexthop is a destination
+                         */
+                        if (recursion > 256)
+                            throw new JtaclRoutingException("too many routing recursions");
+                        Routes resolv = getRoutes(nexthop, recursion + 1);
+                        if (resolv != null)
+                            routes.addAll(resolv);
+                    } else
+                        routes.add(route);
                 }
-                /*
-                 * Check if we have several routes with the same nexthop.
-                 * In this case, return only one route.
-                 */
-                for (int k = 0; k < routes.size(); k++) {
-                    Route route = routes.get(k);
-                    for (int l = k + 1; l < routes.size(); ) {
-                        if (routes.get(l).getNextHop().equals(route.getNextHop()))
-                            routes.remove(l);
-                        else
-                            l++;
-                    }
+            }
+            /*
+             * Check if we have several routes with the same nexthop.
+             * In this case, return only one route.
+             */
+            for (int k = 0; k < routes.size(); k++) {
+                Route route = routes.get(k);
+                for (int l = k + 1; l < routes.size(); ) {
+                    if (routes.get(l).getNextHop().equals(route.getNextHop()))
+                        routes.remove(l);
+                    else
+                        l++;
                 }
-                return routes;
             }
+            return routes;
         }
         return new Routes();
     }
@@ -170,10 +140,10 @@ public class RoutingEngine implements ShowableRoutes {
      * Creates a new {@link RoutingEngine} instance.
      */
     public RoutingEngine() {
-        _routingTableIPv4 = new RoutingTable();
-        _routingTableIPv6 = new RoutingTable();
-        _sourceRoutingTableIPv4 = new RoutingTable();
-        _sourceRoutingTableIPv6 = new RoutingTable();
+        _routingTableIPv4 = new RoutingTable(IPversion.IPV4);
+        _routingTableIPv6 = new RoutingTable(IPversion.IPV6);
+        _sourceRoutingTableIPv4 = new RoutingTable(IPversion.IPV4);
+        _sourceRoutingTableIPv6 = new RoutingTable(IPversion.IPV6);
     }
 
     /**
@@ -183,12 +153,11 @@ public class RoutingEngine implements ShowableRoutes {
      */
     public void addRoute(Route route) {
         RoutingTable table = routingTable(route.getPrefix().getIpVersion());
-        Integer prefixKey = route.getPrefix().hashCode();
-        RoutingTableItem routingItem = table.get(prefixKey);
+        RoutingTableItem routingItem = table.get(route.getPrefix());
 
         if (routingItem == null) {
             routingItem = new RoutingTableItem(route.getPrefix());
-            table.put(prefixKey, routingItem);
+            table.put(route.getPrefix(), routingItem);
         }
         routingItem._routes.add(route);
     }
@@ -200,12 +169,11 @@ public class RoutingEngine implements ShowableRoutes {
      */
     public void addSourceRoute(Route route) {
         RoutingTable table = sourceRoutingTable(route.getPrefix().getIpVersion());
-        Integer prefixKey = route.getPrefix().hashCode();
-        RoutingTableItem routingItem = table.get(prefixKey);
+        RoutingTableItem routingItem = table.get(route.getPrefix());
 
         if (routingItem == null) {
             routingItem = new RoutingTableItem(route.getPrefix());
-            table.put(prefixKey, routingItem);
+            table.put(route.getPrefix(), routingItem);
         }
         routingItem._routes.add(route);
     }
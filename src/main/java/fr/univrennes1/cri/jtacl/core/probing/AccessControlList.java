@@ -12,6 +12,10 @@ package fr.univrennes1.cri.jtacl.core.probing;
 /**
  * Describe one ACL.<br/>
  * An acl has a {@link FwResult} result and a String representation of the acl.
+ * <br/>
+ * The String representation may be given as a rule and a
+ * {@link AclRenderer} renderer, in this case the text is only rendered when
+ * it is requested.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
@@ -19,10 +23,20 @@ public class AccessControlList {
 
 
     /**
-     * string representation of the acl.
+     * string representation of the acl (null until rendered).
      */
     protected String _aclString;
 
+    /**
+     * the rule of the acl, may be null.
+     */
+    protected Object _rule;
+
+    /**
+     * the renderer of the rule, may be null.
+     */
+    protected AclRenderer<Object> _renderer;
+
     /**
      * the result of the acl.
      */
@@ -39,13 +53,45 @@ public class AccessControlList {
         _result = result;
     }
 
+    /**
+     * Creates a new {@link AccessControlList} acl. The textual representation
+     * of the acl is rendered on demand.
+     *
+     * @param rule     the rule of the acl.
+     * @param renderer the {@link AclRenderer} renderer of the rule.
+     * @param result   the {@link FwResult} result of the acl.
+     * @param <T>      Type of the rule.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> AccessControlList(T rule, AclRenderer<? super T> renderer,
+                                 FwResult result) {
+        _rule = rule;
+        _renderer = (AclRenderer<Object>) renderer;
+        _result = result;
+    }
+
+    /**
+     * Returns the rule of this acl.
+     *
+     * @return the rule of this acl. May be null if the acl was created
+     * from a String.
+     */
+    public Object getRule() {
+        return _rule;
+    }
+
     /**
      * Returns the {@link String} textual representation of this acl.
      *
      * @return the {@link String} textual representation of this acl.
      */
     public String getAclString() {
-        return _aclString;
+        String s = _aclString;
+        if (s == null && _renderer != null) {
+            s = _renderer.render(_rule);
+            _aclString = s;
+        }
+        return s;
     }
 
     /**
@@ -59,7 +105,7 @@ public class AccessControlList {
 
     @Override
     public String toString() {
-        return String.format("%6s %s", _result.toString(), _aclString);
+        return String.format("%6s %s", _result.toString(), getAclString());
     }
 
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.core.probing;
+
+/**
+ * Renders the textual representation of a rule of an
+ * {@link AccessControlList} acl.
+ *
+ * @param <T> Type of the rule.
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public interface AclRenderer<T> {
+
+    /**
+     * Returns the textual representation of the rule in argument.
+     *
+     * @param rule rule to render.
+     * @return the textual representation of the rule.
+     */
+    String render(T rule);
+}
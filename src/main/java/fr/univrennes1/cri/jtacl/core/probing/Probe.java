@@ -30,15 +30,10 @@ import java.util.logging.Level;
 public class Probe {
 
     /**
-     * the unique identifier of this probe.
+     * the unique identifier of this probe (unique in its tracker).
      */
     protected int _uid;
 
-    /**
-     * the next uid that will be generated.
-     */
-    protected static int _nextuid = 0;
-
     /**
      * the source IP address
      */
@@ -90,11 +85,16 @@ public class Probe {
     protected ProbeExtension _extension;
 
     /**
-     * Generates and returns a new unique identifier.
+     * key of the positions of this probe (see {@link #getPositionsKey()}),
+     * null if not computed since the position of this probe changed.
+     */
+    protected Integer _positionsKey;
+
+    /**
+     * Generates a new unique identifier using the tracker of this probe.
      */
-    synchronized protected void newUid() {
-        _uid = _nextuid;
-        _nextuid++;
+    protected void newUid() {
+        _uid = _probesTracker.newProbeUid();
     }
 
     /**
@@ -111,8 +111,11 @@ public class Probe {
      * Creates a new raw {@link Probe} probe.
      * Equipments must not call this constructor, instead use {@link #newChild()}
      * or {@link #newInstance()} to get a new probe.
+     *
+     * @param probesTracker {@link ProbesTracker} tracker associated with this probe.
      */
-    protected Probe() {
+    protected Probe(ProbesTracker probesTracker) {
+        _probesTracker = probesTracker;
         initialize();
     }
 
@@ -144,9 +147,9 @@ public class Probe {
      */
     public Probe(ProbesTracker probesTracker, IPRangeable sourceAddress,
                  IPRangeable destinationAddress, ProbeRequest request) {
+        _probesTracker = probesTracker;
         initialize();
         _parentProbe = null;
-        _probesTracker = probesTracker;
         _sourceAddress = sourceAddress;
         _destinationAddress = destinationAddress;
         _request = request;
@@ -170,9 +173,9 @@ public class Probe {
     public Probe(ProbesTracker probesTracker, IPRangeable sourceAddress,
                  IPRangeable destinationAddress, ProbeRequest request, int timeToLive) {
 
+        _probesTracker = probesTracker;
         initialize();
         _parentProbe = null;
-        _probesTracker = probesTracker;
         _sourceAddress = sourceAddress;
         _destinationAddress = destinationAddress;
         _request = request;
@@ -183,8 +186,8 @@ public class Probe {
 
     /**
      * Returns the unique identifier number (uid) of this {@link Probe} probe.<br/>
-     * Uid starts at zero and is incremented each time a probe is created.
-     * This is used to identify and track probes.
+     * Uid starts at zero and is incremented each time a probe is created
+     * in the tracker of the probe. This is used to identify and track probes.
      *
      * @return the Uid of this {@link Probe}
      */
@@ -337,7 +340,12 @@ public class Probe {
      * @param nextHop  the {@link IPNet} IP address of the nexthop.
      */
     public void setOutgoingLink(IfaceLink outgoing, IPNet nextHop) {
+        IfaceLink incoming = _position.getIncoming();
+        int previousKey = incoming == null ? 0 : getPositionsKey();
         _position.setOutgoing(outgoing, nextHop);
+        _positionsKey = null;
+        if (incoming != null)
+            _probesTracker.probePositionChanged(this, incoming, previousKey);
     }
 
     /**
@@ -364,7 +372,11 @@ public class Probe {
      * @param incoming the {@link IfaceLink} incoming link to be associated.
      */
     public void setIncomingLink(IfaceLink incoming) {
+        IfaceLink previous = _position.getIncoming();
+        int previousKey = previous == null ? 0 : getPositionsKey();
         _position.setIncoming(incoming);
+        _positionsKey = null;
+        _probesTracker.probePositionChanged(this, previous, previousKey);
     }
 
     /**
@@ -429,8 +441,7 @@ public class Probe {
      * @return the created probe.
      */
     public Probe newChild() {
-        Probe child = new Probe();
-        child._probesTracker = _probesTracker;
+        Probe child = new Probe(_probesTracker);
         child._parentProbe = this;
         child._sourceAddress = _sourceAddress;
         child._destinationAddress = _destinationAddress;
@@ -452,8 +463,7 @@ public class Probe {
      * @return the created probe.
      */
     public Probe newInstance() {
-        Probe probe = new Probe();
-        probe._probesTracker = _probesTracker;
+        Probe probe = new Probe(_probesTracker);
         probe._parentProbe = _parentProbe;
         probe._sourceAddress = _sourceAddress;
         probe._destinationAddress = _destinationAddress;
@@ -549,6 +559,21 @@ public class Probe {
         return pos;
     }
 
+    /**
+     * Returns the key of the positions of this probe and its ancestors
+     * ({@link ProbePositions#positionsKey()} of {@link #getPositions()}).
+     * The key is computed once and kept until the position of this probe
+     * changes, the positions of the ancestors do not change once they have
+     * children.
+     *
+     * @return the key of the positions.
+     */
+    public int getPositionsKey() {
+        if (_positionsKey == null)
+            _positionsKey = getPositions().positionsKey();
+        return _positionsKey;
+    }
+
     /**
      * Returns all the positions of the ancestors of this {@link Probe} probe.
      *
@@ -568,6 +593,19 @@ public class Probe {
         return pos;
     }
 
+    /**
+     * Returns the key of the positions of the ancestors of this probe
+     * ({@link ProbePositions#positionsKey()} of {@link #getParentsPositions()}).
+     * This is the key kept by the parent probe once its probing is done.
+     *
+     * @return the key of the positions of the ancestors.
+     */
+    public int getParentsPositionsKey() {
+        if (_parentProbe != null && _parentProbe.isProbingDone())
+            return _parentProbe.getPositionsKey();
+        return getParentsPositions().positionsKey();
+    }
+
     /**
      * Returns a {@link String} representation of {@link #getParentsPositions()}.
      *
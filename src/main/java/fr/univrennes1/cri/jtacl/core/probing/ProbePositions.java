@@ -10,6 +10,7 @@
 package fr.univrennes1.cri.jtacl.core.probing;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * A {@link ArrayList} list of {@link ProbePosition} items.
@@ -19,20 +20,43 @@ import java.util.ArrayList;
 public class ProbePositions extends ArrayList<ProbePosition> {
 
     /**
-     * Checks if the {@link ProbePositions} positions in argument contains all
-     * items found in this instance, regardless of the order.
+     * Checks if the {@link ProbePositions} positions in argument contains the
+     * same items as this instance, regardless of the order: each item appears
+     * the same number of times in the two lists.
      *
      * @param positions {@link ProbePositions} positions to compare.
-     * @return true if all items are contained by this instance.
+     * @return true if the two lists contain the same items.
      */
     public boolean sameAs(ProbePositions positions) {
 
         if (size() != positions.size())
             return false;
-        for (ProbePosition p : this) {
-            if (!positions.contains(p))
+        HashMap<ProbePosition, Integer> counts = new HashMap<>();
+        for (ProbePosition p : this)
+            counts.merge(p, 1, Integer::sum);
+        for (ProbePosition p : positions) {
+            Integer count = counts.get(p);
+            if (count == null)
                 return false;
+            if (count == 1)
+                counts.remove(p);
+            else
+                counts.put(p, count - 1);
         }
         return true;
     }
+
+    /**
+     * Returns a key of the positions of this instance that does not depend
+     * on the order of the items: the sum of the hash codes of the items.
+     * Two instances that are {@link #sameAs} have the same key.
+     *
+     * @return the key of the positions.
+     */
+    public int positionsKey() {
+        int key = 0;
+        for (ProbePosition p : this)
+            key += p.hashCode();
+        return key;
+    }
 }
@@ -83,6 +83,13 @@ public class ProbeResults {
             addMatchingAclOut(aclString, result);
     }
 
+    public void addMatchingAcl(Direction direction, AccessControlList acl) {
+        if (direction == Direction.IN)
+            _matchingAclsIn.add(acl);
+        else
+            _matchingAclsOut.add(acl);
+    }
+
     public void addActiveAclIn(String aclString, FwResult result) {
         AccessControlList acl = new AccessControlList(aclString, result);
         _activesAclsIn.add(acl);
@@ -100,6 +107,13 @@ public class ProbeResults {
             addActiveAclOut(aclString, result);
     }
 
+    public void addActiveAcl(Direction direction, AccessControlList acl) {
+        if (direction == Direction.IN)
+            _activesAclsIn.add(acl);
+        else
+            _activesAclsOut.add(acl);
+    }
+
     public ArrayList<AccessControlList> getActiveAcl(Direction direction) {
         if (direction == Direction.IN)
             return getActivesAclsIn();
@@ -11,6 +11,7 @@ package fr.univrennes1.cri.jtacl.core.probing;
 
 import fr.univrennes1.cri.jtacl.core.monitor.Log;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
+import fr.univrennes1.cri.jtacl.core.topology.Topology;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -38,10 +39,32 @@ public class ProbesTracker {
     // list of 'looping' probes: probes which are looping.
     protected ProbesByUid _loopingProbes;
 
+    // tracked probes indexed by their incoming link and the key of their
+    // positions (see Probe.getPositionsKey()).
+    protected HashMap<IfaceLink, HashMap<Integer, ProbesByUid>> _probesByLink;
+
+    // the next probe uid that will be generated.
+    protected int _nextUid;
+
+    // hop counter
+    protected int _hopCount = -1;
+
+    // the topology used to forward the probes, read once at the start of
+    // the probing.
+    protected Topology _topology;
+
     public void setRootProbe(Probe rootProbe) {
         _rootProbe = rootProbe;
     }
 
+    public Topology getTopology() {
+        return _topology;
+    }
+
+    public void setTopology(Topology topology) {
+        _topology = topology;
+    }
+
     /**
      * Creates a new {@link ProbesTracker} instance.
      */
@@ -50,12 +73,42 @@ public class ProbesTracker {
         _finalProbes = new ProbesByUid();
         _killedProbes = new ProbesByUid();
         _loopingProbes = new ProbesByUid();
+        _probesByLink = new HashMap<>();
     }
 
     public Probe getRootProbe() {
         return _rootProbe;
     }
 
+    /**
+     * Generates and returns a new probe unique identifier.
+     *
+     * @return a new probe uid.
+     */
+    public int newProbeUid() {
+        return _nextUid++;
+    }
+
+    /**
+     * Returns the number of hops remaining before the probing of this
+     * tracker is stopped. -1 means no limit.
+     *
+     * @return the number of hops remaining.
+     */
+    public int getHopCount() {
+        return _hopCount;
+    }
+
+    /**
+     * Sets the number of hops remaining before the probing of this
+     * tracker is stopped. -1 means no limit.
+     *
+     * @param hopCount number to set.
+     */
+    public void setHopCount(int hopCount) {
+        _hopCount = hopCount;
+    }
+
     /**
      * Add a {@link Probe} probe into the tracker.
      *
@@ -63,6 +116,7 @@ public class ProbesTracker {
      */
     public void trackProbe(Probe probe) {
         _probes.put(probe);
+        indexProbe(probe.getIncomingLink(), probe);
 
         Log.debug().info("probe: " + probe.getSourceAddress().toString() +
                 " - " + probe.getDestinationAddress() +
@@ -76,6 +130,57 @@ public class ProbesTracker {
      */
     public void untrackProbe(Probe probe) {
         _probes.remove(ProbesByUid.key(probe));
+        if (probe.getIncomingLink() != null)
+            unindexProbe(probe.getIncomingLink(), probe.getPositionsKey(), probe);
+    }
+
+    /**
+     * Notifies the tracker that the position of the {@link Probe} probe
+     * in argument has changed.
+     *
+     * @param probe       the probe.
+     * @param previous    the previous incoming link of the probe. Can be null.
+     * @param previousKey the previous key of the positions of the probe.
+     */
+    public void probePositionChanged(Probe probe, IfaceLink previous,
+                                     int previousKey) {
+        if (!isTracked(probe))
+            return;
+        if (previous != null)
+            unindexProbe(previous, previousKey, probe);
+        indexProbe(probe.getIncomingLink(), probe);
+    }
+
+    protected void indexProbe(IfaceLink link, Probe probe) {
+        if (link == null)
+            return;
+        HashMap<Integer, ProbesByUid> byKey = _probesByLink.get(link);
+        if (byKey == null) {
+            byKey = new HashMap<>();
+            _probesByLink.put(link, byKey);
+        }
+        Integer key = probe.getPositionsKey();
+        ProbesByUid probes = byKey.get(key);
+        if (probes == null) {
+            probes = new ProbesByUid();
+            byKey.put(key, probes);
+        }
+        probes.put(probe);
+    }
+
+    protected void unindexProbe(IfaceLink link, int key, Probe probe) {
+        HashMap<Integer, ProbesByUid> byKey = _probesByLink.get(link);
+        if (byKey == null)
+            return;
+        ProbesByUid probes = byKey.get(key);
+        if (probes == null)
+            return;
+        probes.remove(ProbesByUid.key(probe));
+        if (probes.isEmpty()) {
+            byKey.remove(key);
+            if (byKey.isEmpty())
+                _probesByLink.remove(link);
+        }
     }
 
     /**
@@ -96,6 +201,7 @@ public class ProbesTracker {
         _finalProbes.clear();
         _killedProbes.clear();
         _loopingProbes.clear();
+        _probesByLink.clear();
     }
 
     /**
@@ -107,15 +213,31 @@ public class ProbesTracker {
     public ProbesByUid probesByIfaceLink(IfaceLink link) {
         ProbesByUid probes = new ProbesByUid();
 
-        for (Integer i : _probes.keySet()) {
-            Probe probe = _probes.get(i);
-            IfaceLink ilink = probe.getIncomingLink();
-            if (ilink != null && ilink == link)
-                probes.put(probe);
+        HashMap<Integer, ProbesByUid> byKey = _probesByLink.get(link);
+        if (byKey != null) {
+            for (ProbesByUid indexed : byKey.values())
+                probes.putAll(indexed);
         }
         return probes;
     }
 
+    /**
+     * Returns the probes with incoming position equals to 'link' and with
+     * a key of their positions equals to 'key'
+     * (see {@link Probe#getPositionsKey()}).
+     * The map returned is the one of the index of this tracker and must not
+     * be modified.
+     *
+     * @param link
+     * @param key
+     * @return a {@link ProbesByUid} map containing the probes, null if there
+     * is no such probe.
+     */
+    public ProbesByUid probesByIfaceLinkAndKey(IfaceLink link, int key) {
+        HashMap<Integer, ProbesByUid> byKey = _probesByLink.get(link);
+        return byKey == null ? null : byKey.get(key);
+    }
+
     /**
      * Returns the probes with incoming position equals to 'link' and equals
      * to 'probe'
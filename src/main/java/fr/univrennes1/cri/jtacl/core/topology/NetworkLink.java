@@ -15,12 +15,14 @@ import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
+import java.io.Serializable;
+
 /**
  * Describes a link between one network and several interfaces link.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class NetworkLink implements Comparable {
+public class NetworkLink implements Comparable, Serializable {
 
     /**
      * the network IP address.
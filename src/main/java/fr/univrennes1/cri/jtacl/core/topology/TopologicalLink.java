@@ -13,6 +13,8 @@ import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLinks;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
+import java.io.Serializable;
+
 /**
  * A TopologicalLink is a hint given by configuration to help connecting
  * equipments to each others.<br/>
@@ -20,12 +22,17 @@ import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class TopologicalLink {
+public class TopologicalLink implements Serializable {
 
     protected IfaceLinks _links;
     protected boolean _borderLink;
     protected IPNet _network;
 
+    /**
+     * the network link built from this link by the topology.
+     */
+    protected NetworkLink _networkLink;
+
     public TopologicalLink(boolean borderLink, IPNet network) {
         _links = new IfaceLinks();
         _borderLink = borderLink;
@@ -52,4 +59,12 @@ public class TopologicalLink {
     public boolean isBorderLink() {
         return _borderLink;
     }
+
+    public NetworkLink getNetworkLink() {
+        return _networkLink;
+    }
+
+    public void setNetworkLink(NetworkLink networkLink) {
+        _networkLink = networkLink;
+    }
 }
@@ -12,22 +12,31 @@ package fr.univrennes1.cri.jtacl.core.topology;
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclTopologyException;
 import fr.univrennes1.cri.jtacl.core.network.Iface;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
-import fr.univrennes1.cri.jtacl.core.network.IfaceLinksByIp;
-import fr.univrennes1.cri.jtacl.core.network.IfacesByName;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPPrefixTree;
+import fr.univrennes1.cri.jtacl.lib.ip.IPversion;
 
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class describes the topology of the network.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class Topology {
+public class Topology implements Serializable {
 
     /**
      * All the equipments on the network.
@@ -40,6 +49,133 @@ public class Topology {
     protected NetworkLinks _networkLinks = new NetworkLinks();
     private ArrayList<TopologicalLink> _topologicalLinks = new ArrayList<>();
 
+    /**
+     * index of the network links, keyed by network.
+     */
+    protected Map<IPNet, NetworkLinks> _networkLinksByNetwork = new HashMap<>();
+
+    /**
+     * index of the network links by IP address, keyed by the prefix of their
+     * network (IPv4 and IPv6). The lists may be empty.
+     */
+    protected IPPrefixTree<NetworkLinks> _ipv4NetworkLinks =
+            new IPPrefixTree<>(IPversion.IPV4);
+    protected IPPrefixTree<NetworkLinks> _ipv6NetworkLinks =
+            new IPPrefixTree<>(IPversion.IPV6);
+
+    /**
+     * index of the network links, keyed by the name of the equipments
+     * connected.
+     */
+    protected Map<String, NetworkLinks> _networkLinksByEquipment = new HashMap<>();
+
+    /**
+     * rank of each network link in _networkLinks, the links returned by the
+     * indexes are sorted in this order.
+     */
+    protected Map<NetworkLink, Long> _networkLinksRank = new HashMap<>();
+    protected long _networkLinksCount;
+
+    /**
+     * network link of each iface link connected. The iface links are shared
+     * by the topologies built by {@link #replaceNetworkEquipments}, so the
+     * network link of an iface link is the one of this index.
+     */
+    protected Map<IfaceLink, NetworkLink> _networkLinksByIfaceLink = new HashMap<>();
+
+    /*
+     * returns the iface links of an equipment that can be connected (not
+     * on a loopback interface).
+     */
+    protected static List<IfaceLink> connectableLinks(NetworkEquipment equipment) {
+        List<IfaceLink> links = new ArrayList<>();
+        for (Iface iface : equipment.getIfaces().values()) {
+            if (!iface.isLoopback()) // skip loopback interface
+                links.addAll(iface.getLinks().values());
+        }
+        return links;
+    }
+
+    protected IPPrefixTree<NetworkLinks> getIpTree(IPversion ipVersion) {
+        return ipVersion == IPversion.IPV4 ? _ipv4NetworkLinks : _ipv6NetworkLinks;
+    }
+
+    protected void addNetworkLink(NetworkLink nlink) {
+        _networkLinks.add(nlink);
+        _networkLinksRank.put(nlink, _networkLinksCount++);
+        IPNet network = nlink.getNetwork();
+        _networkLinksByNetwork.computeIfAbsent(network,
+                k -> new NetworkLinks()).add(nlink);
+        IPPrefixTree<NetworkLinks> tree = getIpTree(network.getIpVersion());
+        NetworkLinks links = tree.get(network);
+        if (links == null) {
+            links = new NetworkLinks();
+            tree.put(network, links);
+        }
+        links.add(nlink);
+        for (String name : nlink.getEquipments().keySet()) {
+            _networkLinksByEquipment.computeIfAbsent(name,
+                    k -> new NetworkLinks()).add(nlink);
+        }
+        for (IfaceLink ilink : nlink.getIfaceLinks()) {
+            _networkLinksByIfaceLink.put(ilink, nlink);
+        }
+    }
+
+    /*
+     * connects an iface link to a network link of the topology.
+     */
+    protected void connect(NetworkLink nlink, IfaceLink iLink) {
+        NetworkEquipment equipment = iLink.getEquipment();
+        boolean connected = nlink.isConnectedTo(equipment);
+        nlink.addIfaceLink(iLink);
+        iLink.setNetworkLink(nlink);
+        _networkLinksByIfaceLink.put(iLink, nlink);
+        if (!connected)
+            _networkLinksByEquipment.computeIfAbsent(equipment.getName(),
+                    k -> new NetworkLinks()).add(nlink);
+    }
+
+    /*
+     * returns the links in the order of the list of the network links.
+     */
+    protected NetworkLinks sortLinks(NetworkLinks links) {
+        links.sort(Comparator.comparing(_networkLinksRank::get));
+        return links;
+    }
+
+    /*
+     * connects an iface link to the network link of its network. The network
+     * link is created if needed.
+     */
+    protected void connectByNetwork(IfaceLink iLink) {
+        IPNet network = iLink.getNetwork();
+        NetworkLinks candidateLinks = _networkLinksByNetwork.get(network);
+        NetworkLink nlink;
+        if (candidateLinks == null) {
+            nlink = new NetworkLink(false, network);
+            addNetworkLink(nlink);
+        } else {
+            if (candidateLinks.size() == 1) {
+                nlink = candidateLinks.get(0);
+            } else {
+                // we have found more than one network so we don't know
+                // which one to choose. User must solve ambiguity
+                throw ambiguousTopology(iLink);
+            }
+        }
+        // connect this iface to this link
+        connect(nlink, iLink);
+    }
+
+    protected static JtaclTopologyException ambiguousTopology(IfaceLink iLink) {
+        return new JtaclTopologyException("More than one network" +
+                " was found. Topology is ambiguous." +
+                " network: " + iLink.getNetwork().toString() +
+                " equipment: " + iLink.getEquipmentName() +
+                " interface: " + iLink.getIfaceName());
+    }
+
     /**
      * Builds the topology of the network. The topology is describes by some
      * network links which describe the links beetween ifaces.
@@ -49,35 +185,17 @@ public class Topology {
         /*
          * iterate through all the equipments to retrieve their iface links
          */
-        ArrayList<IfaceLink> ifacesLinks = new ArrayList<>();
-        // each network equipment
-        for (String ename : _equipments.keySet()) {
-            NetworkEquipment ne = _equipments.get(ename);
-            IfacesByName Ifaces = ne.getIfaces();
-
-            // each interface
-            for (Iface iface : Ifaces.values()) {
-                if (!iface.isLoopback()) { // skip loopback interface
-                    IfaceLinksByIp iLinks = iface.getLinks();
-
-                    // each interface link
-                    for (IfaceLink ilink : iLinks.values()) {
-                        ifacesLinks.add(ilink);
-                    }
-                }
-            }
+        Set<IfaceLink> ifacesLinks = new LinkedHashSet<>();
+        for (NetworkEquipment ne : _equipments.values()) {
+            ifacesLinks.addAll(connectableLinks(ne));
         }
 
         /*
          * Connect equipments according to the topological links
          */
-        @SuppressWarnings("unchecked")
-        ArrayList<TopologicalLink> tlinks = (ArrayList<TopologicalLink>) _topologicalLinks.clone();
-        // each topological links
-        while (!tlinks.isEmpty()) {
-            TopologicalLink tlink = tlinks.get(0);
-            IPNet network = tlink.getNetwork();
-            NetworkLink nlink = new NetworkLink(tlink.isBorderLink(), network);
+        for (TopologicalLink tlink : _topologicalLinks) {
+            NetworkLink nlink = new NetworkLink(tlink.isBorderLink(),
+                    tlink.getNetwork());
 
             // each IfaceLink of the topological link
             for (IfaceLink ilink : tlink.getLinks()) {
@@ -86,13 +204,10 @@ public class Topology {
                  * If found, connect the ifaceLink to the network link and remove
                  * it from the main list.
                  */
-                int index = ifacesLinks.indexOf(ilink);
-                if (index > -1) {
+                if (ifacesLinks.remove(ilink)) {
                     // connect the ifaceLink to the network link
                     nlink.addIfaceLink(ilink);
                     ilink.setNetworkLink(nlink);
-                    // and remove this ifaceLink
-                    ifacesLinks.remove(index);
                 }
             }
 
@@ -106,42 +221,186 @@ public class Topology {
                             " equipment: " + ilink.getEquipmentName() +
                             " link: " + ilink.toString());
             }
-            // add the network link to the list and remove it from the known list
-            _networkLinks.add(nlink);
-            tlinks.remove(0);
+            // add the network link to the list
+            tlink.setNetworkLink(nlink);
+            addNetworkLink(nlink);
         }
 
         /*
          * Try to connect each link to each other according to their network
          */
-        while (!ifacesLinks.isEmpty()) {
-            IfaceLink iLink = ifacesLinks.get(0);
-            IPNet network = iLink.getNetwork();
-            NetworkLinks candidateLinks = getNetworkLinksByNetwork(network);
-            NetworkLink nlink = null;
-            if (candidateLinks.size() == 0) {
-                nlink = new NetworkLink(false, network);
-                _networkLinks.add(nlink);
-            } else {
-                if (candidateLinks.size() == 1) {
-                    nlink = candidateLinks.get(0);
-                } else {
-                    // we have found more than one network so we don't know
-                    // which one to choose. User must solve ambiguity
-                    throw new JtaclTopologyException("More than one network" +
-                            " was found. Topology is ambiguous." +
-                            " network: " + iLink.getNetwork().toString() +
-                            " equipment: " + iLink.getEquipmentName() +
-                            " interface: " + iLink.getIfaceName());
+        for (IfaceLink iLink : ifacesLinks) {
+            connectByNetwork(iLink);
+        }
+    }
+
+    /**
+     * Returns a new topology where some equipments of this topology are
+     * replaced by their reloaded equipments. This topology is not changed.
+     * Only the network links connected to these equipments (or to the
+     * network of a new iface link) are created again, the other network
+     * links are shared by the two topologies. The topological links of the
+     * old equipments are connected to the iface links of the new equipments
+     * with the same IP address.
+     *
+     * @param oldEquipments the equipments to remove (an equipment and its
+     *                      child equipments).
+     * @param newEquipments the equipments to add.
+     * @return the new topology.
+     * @throws JtaclTopologyException if the new equipments cannot be
+     *                                connected.
+     */
+    public Topology replaceNetworkEquipments(Collection<NetworkEquipment> oldEquipments,
+                                             Collection<NetworkEquipment> newEquipments) {
+
+        Set<NetworkEquipment> olds = new HashSet<>(oldEquipments);
+        Set<String> oldNames = new HashSet<>();
+        for (NetworkEquipment eq : oldEquipments) {
+            oldNames.add(eq.getName());
+        }
+        NetworkEquipmentsByName news = new NetworkEquipmentsByName();
+        for (NetworkEquipment eq : newEquipments) {
+            if ((isRegistered(eq) && !oldNames.contains(eq.getName())) ||
+                    news.containsKey(eq.getName()))
+                throw new JtaclTopologyException("equipment already registered: " +
+                        eq.getName());
+            news.put(eq);
+        }
+
+        /*
+         * the iface links of the new equipments replacing the iface links of
+         * the old equipments in the topological links.
+         */
+        Map<IfaceLink, IfaceLink> replaced = new HashMap<>();
+        Set<NetworkLink> tnlinks = new HashSet<>();
+        for (TopologicalLink tlink : _topologicalLinks) {
+            tnlinks.add(tlink.getNetworkLink());
+            for (IfaceLink ilink : tlink.getLinks()) {
+                if (!olds.contains(ilink.getEquipment()))
+                    continue;
+                NetworkEquipment equipment = news.get(ilink.getEquipmentName());
+                if (equipment == null)
+                    throw new JtaclTopologyException("Topological link: equipment unknown " +
+                            ilink.getEquipmentName());
+                IfaceLink link = equipment.getIfaceLink(ilink.getIp());
+                if (link == null || replaced.containsValue(link))
+                    throw new JtaclTopologyException("Can't connect topological link" +
+                            " equipment: " + ilink.getEquipmentName() +
+                            " link: " + ilink.toString());
+                replaced.put(ilink, link);
+            }
+        }
+
+        /*
+         * the network links of the old equipments: removed with them if
+         * only connected to them, changed otherwise.
+         */
+        Set<NetworkLink> removed = new HashSet<>();
+        Set<NetworkLink> changed = new HashSet<>();
+        for (NetworkEquipment eq : oldEquipments) {
+            for (IfaceLink ilink : connectableLinks(eq)) {
+                NetworkLink nlink = getNetworkLink(ilink);
+                if (nlink == null || removed.contains(nlink))
+                    continue;
+                boolean empty = true;
+                for (IfaceLink link : nlink.getIfaceLinks()) {
+                    if (!olds.contains(link.getEquipment())) {
+                        empty = false;
+                        break;
+                    }
                 }
+                if (empty && !tnlinks.contains(nlink))
+                    removed.add(nlink);
+                else
+                    changed.add(nlink);
             }
-            // connect this iface to this link
-            if (nlink != null) {
-                nlink.addIfaceLink(iLink);
-                iLink.setNetworkLink(nlink);
+        }
+
+        /*
+         * check that the new iface links can be connected, the network links
+         * of their network are changed.
+         */
+        Set<IfaceLink> newLinks = new LinkedHashSet<>();
+        for (NetworkEquipment eq : newEquipments) {
+            newLinks.addAll(connectableLinks(eq));
+        }
+        newLinks.removeAll(replaced.values());
+        for (IfaceLink iLink : newLinks) {
+            NetworkLinks candidateLinks = _networkLinksByNetwork.get(iLink.getNetwork());
+            if (candidateLinks == null)
+                continue;
+            int count = 0;
+            for (NetworkLink nlink : candidateLinks) {
+                if (!removed.contains(nlink)) {
+                    changed.add(nlink);
+                    count++;
+                }
+            }
+            if (count > 1)
+                throw ambiguousTopology(iLink);
+        }
+
+        /*
+         * the new topology, without the old equipments
+         */
+        Topology topology = new Topology();
+        topology._equipments.putAll(_equipments);
+        for (NetworkEquipment eq : oldEquipments) {
+            topology._equipments.remove(eq.getName());
+        }
+        topology._equipments.putAll(news);
+
+        Map<NetworkLink, NetworkLink> copies = new HashMap<>();
+        for (NetworkLink nlink : _networkLinks) {
+            if (removed.contains(nlink))
+                continue;
+            NetworkLink copy = nlink;
+            if (changed.contains(nlink)) {
+                copy = new NetworkLink(nlink.isBorderLink(), nlink.getNetwork());
+                for (IfaceLink ilink : nlink.getIfaceLinks()) {
+                    if (!olds.contains(ilink.getEquipment()))
+                        copy.addIfaceLink(ilink);
+                }
+            }
+            copies.put(nlink, copy);
+            topology.addNetworkLink(copy);
+        }
+
+        /*
+         * connect the new equipments
+         */
+        for (TopologicalLink tlink : _topologicalLinks) {
+            NetworkLink nlink = copies.get(tlink.getNetworkLink());
+            TopologicalLink copy = new TopologicalLink(tlink.isBorderLink(),
+                    tlink.getNetwork());
+            copy.setNetworkLink(nlink);
+            for (IfaceLink ilink : tlink.getLinks()) {
+                IfaceLink link = replaced.get(ilink);
+                if (link != null) {
+                    copy.getLinks().add(link);
+                    topology.connect(nlink, link);
+                } else {
+                    copy.getLinks().add(ilink);
+                }
             }
-            ifacesLinks.remove(0);
+            topology._topologicalLinks.add(copy);
+        }
+        for (IfaceLink iLink : newLinks) {
+            topology.connectByNetwork(iLink);
         }
+        return topology;
+    }
+
+    /**
+     * Returns the {@link NetworkLink} network link connected to an
+     * {@link IfaceLink} link in this topology.
+     *
+     * @param link the {@link IfaceLink} link.
+     * @return the {@link NetworkLink} network link connected to this link.
+     * Null if the link is not connected.
+     */
+    public NetworkLink getNetworkLink(IfaceLink link) {
+        return _networkLinksByIfaceLink.get(link);
     }
 
     /**
@@ -201,10 +460,9 @@ public class Topology {
     public NetworkLinks getNetworkLinksByNetwork(IPNet network) {
         NetworkLinks links = new NetworkLinks();
 
-        for (NetworkLink link : _networkLinks) {
-            if (link.getNetwork().equals(network))
-                links.add(link);
-        }
+        NetworkLinks indexed = _networkLinksByNetwork.get(network);
+        if (indexed != null)
+            links.addAll(indexed);
         return links;
     }
 
@@ -218,11 +476,12 @@ public class Topology {
     public NetworkLinks getNetworkLinksByIP(IPNet ip) {
         NetworkLinks links = new NetworkLinks();
 
-        for (NetworkLink link : _networkLinks) {
-            if (link.getNetwork().contains(ip)) {
-                links.add(link);
-            }
+        List<NetworkLinks> matching = getIpTree(ip.getIpVersion()).matching(ip);
+        for (NetworkLinks nlinks : matching) {
+            links.addAll(nlinks);
         }
+        if (matching.size() > 1)
+            sortLinks(links);
         return links;
     }
 
@@ -236,9 +495,10 @@ public class Topology {
     public NetworkLinks getNetworkLinksByEquipment(NetworkEquipment equipment) {
         NetworkLinks links = new NetworkLinks();
 
-        for (NetworkLink link : _networkLinks) {
-            if (link.isConnectedTo(equipment))
-                links.add(link);
+        NetworkLinks indexed = _networkLinksByEquipment.get(equipment.getName());
+        if (indexed != null) {
+            links.addAll(indexed);
+            sortLinks(links);
         }
         return links;
     }
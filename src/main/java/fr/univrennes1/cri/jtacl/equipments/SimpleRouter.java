@@ -29,6 +29,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,7 +45,7 @@ public class SimpleRouter extends GenericEquipment {
 
     protected ArrayList<String> _acls = new ArrayList<>();
 
-    protected class SimpleRouterLink {
+    protected class SimpleRouterLink implements Serializable {
         IfaceLink _link;
         boolean _border;
 
@@ -25,6 +25,8 @@ import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.core.network.Route;
 import fr.univrennes1.cri.jtacl.core.network.Routes;
+import fr.univrennes1.cri.jtacl.core.probing.AccessControlList;
+import fr.univrennes1.cri.jtacl.core.probing.AclRenderer;
 import fr.univrennes1.cri.jtacl.core.probing.FwResult;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
@@ -42,7 +44,7 @@ import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
 import fr.univrennes1.cri.jtacl.lib.misc.Direction;
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.parserunners.BasicParseRunner;
 import org.parboiled.support.ParsingResult;
 import org.w3c.dom.Document;
@@ -50,6 +52,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -65,7 +68,7 @@ import java.util.logging.Level;
  */
 public class CpFw extends GenericEquipment {
 
-    protected class CPfwIface {
+    protected class CPfwIface implements Serializable {
         protected Iface _iface;
         protected String _name;
         protected String _description;
@@ -111,11 +114,6 @@ public class CpFw extends GenericEquipment {
         }
     }
 
-    /**
-     * Parser
-     */
-    protected CpParser _parser = Parboiled.createParser(CpParser.class);
-
     /**
      * interfaces
      */
@@ -189,12 +187,13 @@ public class CpFw extends GenericEquipment {
 
     protected CpPortItem parsePort(String sPorts) {
 
+        CpParser parser = ParserCache.getParser(CpParser.class);
         ParsingResult<?> result = new BasicParseRunner(
-                _parser.CpPortItem()).run(sPorts);
+                parser.CpPortItem()).run(sPorts);
         if (!result.matched)
             throwCfgException("invalid port specification: " + sPorts, true);
 
-        PortItemTemplate port = _parser.getPortItem();
+        PortItemTemplate port = parser.getPortItem();
 
         String sfirst = port.getFirstPort();
         String slast = port.getLastPort();
@@ -1513,7 +1512,6 @@ public class CpFw extends GenericEquipment {
             if (!rule.isSecurityRule())
                 continue;
             CpFwFilter filter = new CpFwFilter();
-            String ruleText = rule.toText();
             match = ruleFilter(filter, probe, rule);
             if (match != MatchResult.NOT) {
                 /*
@@ -1524,12 +1522,14 @@ public class CpFw extends GenericEquipment {
                         FwResult.ACCEPT : FwResult.DENY);
                 if (match != MatchResult.ALL)
                     aclResult.addResult(FwResult.MAY);
+                AclRenderer<CpFwRule> renderer = CpFwRule::toText;
                 if (rule.ruleActionIsAccept()
                         && filter.hasServiceInspected()) {
-                    ruleText += " {inspect}";
+                    renderer = r -> r.toText() + " {inspect}";
                 }
-                results.addMatchingAcl(direction, ruleText,
-                        aclResult);
+                AccessControlList acl = new AccessControlList(rule,
+                        renderer, aclResult);
+                results.addMatchingAcl(direction, acl);
 
                 results.setInterface(direction,
                         ifaceName + " (" + ifaceComment + ")");
@@ -1540,9 +1540,7 @@ public class CpFw extends GenericEquipment {
                  * this is the first ace that match the packet.
                  */
                 if (first) {
-                    results.addActiveAcl(direction,
-                            ruleText,
-                            aclResult);
+                    results.addActiveAcl(direction, acl);
                     results.setAclResult(direction,
                             aclResult);
                     first = false;
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.checkpoint;
 
+import java.io.Serializable;
+
 /**
  * Checkpoint IP specification firewall rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class CpFwIpSpec {
+public class CpFwIpSpec implements Serializable {
     protected CpNetworkGroup _networks = new CpNetworkGroup("", "", "");
     protected boolean _notIn;
 
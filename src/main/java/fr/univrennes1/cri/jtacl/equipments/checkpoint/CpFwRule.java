@@ -9,6 +9,7 @@
 
 package fr.univrennes1.cri.jtacl.equipments.checkpoint;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -16,7 +17,7 @@ import java.util.List;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class CpFwRule {
+public class CpFwRule implements Serializable {
 
     protected String _name;
     protected String _className;
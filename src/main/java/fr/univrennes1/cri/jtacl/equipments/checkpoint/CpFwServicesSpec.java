@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.checkpoint;
 
+import java.io.Serializable;
+
 /**
  * Checkpoint service specification firewall rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class CpFwServicesSpec {
+public class CpFwServicesSpec implements Serializable {
 
     protected CpGroupService _services = new CpGroupService("", "");
     protected boolean _notIn;
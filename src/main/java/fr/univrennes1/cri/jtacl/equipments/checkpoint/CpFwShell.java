@@ -11,12 +11,12 @@ package fr.univrennes1.cri.jtacl.equipments.checkpoint;
 
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipmentShell;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 
 import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
 
-import org.parboiled.Parboiled;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
@@ -30,9 +30,9 @@ import org.parboiled.support.ParsingResult;
 public class CpFwShell extends GenericEquipmentShell {
 
     protected CpFw _cpfw;
-    protected CpFwShellParser _shellParser;
-    protected ReportingParseRunner _parseRunner;
-    protected PrintStream _outStream;
+    protected transient CpFwShellParser _shellParser;
+    protected transient ReportingParseRunner _parseRunner;
+    protected transient PrintStream _outStream;
 
     @Override
     public void shellHelp(PrintStream output) {
@@ -41,8 +41,6 @@ public class CpFwShell extends GenericEquipmentShell {
 
     public CpFwShell(CpFw cpfw) {
         _cpfw = cpfw;
-        _shellParser = Parboiled.createParser(CpFwShellParser.class);
-        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
     }
 
     public void commandShowService(PrintStream output, CpFwShellParser parser) {
@@ -98,7 +96,8 @@ public class CpFwShell extends GenericEquipmentShell {
     @Override
     public void shellCommand(String command, PrintStream output) {
         _outStream = output;
-        _parseRunner.getParseErrors().clear();
+        _shellParser = ParserCache.getParser(CpFwShellParser.class);
+        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(command);
 
         if (!result.matched) {
@@ -12,6 +12,7 @@ package fr.univrennes1.cri.jtacl.equipments.checkpoint;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -20,7 +21,7 @@ import java.util.List;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public abstract class CpService {
+public abstract class CpService implements Serializable {
     protected String _name;
     protected String _className;
     protected String _comment;
@@ -10,7 +10,6 @@
 package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.univrennes1.cri.jtacl.analysis.CrossRefContext;
 import fr.univrennes1.cri.jtacl.analysis.IPCrossRef;
 import fr.univrennes1.cri.jtacl.analysis.IPCrossRefMap;
@@ -27,6 +26,8 @@ import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.core.network.Route;
 import fr.univrennes1.cri.jtacl.core.network.Routes;
+import fr.univrennes1.cri.jtacl.core.probing.AccessControlList;
+import fr.univrennes1.cri.jtacl.core.probing.AclRenderer;
 import fr.univrennes1.cri.jtacl.core.probing.FwResult;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
@@ -42,25 +43,28 @@ import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
 import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
 import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
 import fr.univrennes1.cri.jtacl.lib.misc.Direction;
+import fr.univrennes1.cri.jtacl.lib.misc.JsonSections;
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.parserunners.BasicParseRunner;
 import org.parboiled.support.ParsingResult;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
 /**
@@ -70,7 +74,7 @@ import java.util.logging.Level;
  */
 public class CpFw extends GenericEquipment {
 
-    protected class CPfwIface {
+    protected class CPfwIface implements Serializable {
         protected Iface _iface;
         protected String _name;
         protected String _description;
@@ -116,11 +120,6 @@ public class CpFw extends GenericEquipment {
         }
     }
 
-    /**
-     * Parser
-     */
-    protected CpParser _parser = Parboiled.createParser(CpParser.class);
-
     /**
      * interfaces
      */
@@ -177,6 +176,11 @@ public class CpFw extends GenericEquipment {
         return _rootLayer;
     }
 
+    /*
+     * main layer compiled for the gateway
+     */
+    protected CpLayerProgram _rootProgram;
+
     /*
      * rule base actions keyed by name
      */
@@ -267,12 +271,13 @@ public class CpFw extends GenericEquipment {
 
     protected CpPortItem parsePort(String sPorts) {
 
+        CpParser parser = ParserCache.getParser(CpParser.class);
         ParsingResult<?> result = new BasicParseRunner(
-                _parser.CpPortItem()).run(sPorts);
+                parser.CpPortItem()).run(sPorts);
         if (!result.matched)
             throwCfgException("invalid port specification: " + sPorts, true);
 
-        PortItemTemplate port = _parser.getPortItem();
+        PortItemTemplate port = parser.getPortItem();
 
         String sfirst = port.getFirstPort();
         String slast = port.getLastPort();
@@ -530,17 +535,18 @@ public class CpFw extends GenericEquipment {
     }
 
     /*
-     * parse and load objects from JSON
+     * parse and load the objects from JSON reached in the index
      */
-    protected void loadJsonCpObjects(JsonNode objectsDictionary) {
+    protected void loadJsonCpObjects(Iterator<JsonNode> it, CpObjectsIndex index) {
 
-        Iterator<JsonNode> it = objectsDictionary.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
+            String name = n.path("name").textValue();
+            if (!index.isReached(name))
+                continue;
             _parseContext = new ParseContext();
             _parseContext.setLine(n.toString());
             String uid = n.path("uid").textValue();
-            String name = n.path("name").textValue();
             String className = n.path("type").textValue();
             String comment = n.path("comments").textValue();
 
@@ -719,19 +725,21 @@ public class CpFw extends GenericEquipment {
     }
 
     /*
-     * parse fw rules
+     * parse fw rules installed on the gateway
      */
-    protected void parseCpRules(CpLayer layer, JsonNode l) {
+    protected void parseCpRules(CpLayer layer, JsonNode l, CpObjectsIndex index) {
         CpFwRule lastSection = null;
 
         Iterator<JsonNode> it = l.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
+            String className = n.path("type").textValue();
+            if (className.equals("access-rule") && !isInstalled(n, index))
+                continue;
             _parseContext = new ParseContext();
             _parseContext.setLine(n.toString());
             String uid = n.path("uid").textValue();
             String name = n.path("name").textValue();
-            String className = n.path("type").textValue();
             String comment = n.path("comments").textValue();
             CpFwRule rule;
             switch (className) {
@@ -745,7 +753,7 @@ public class CpFw extends GenericEquipment {
                     }
                     lastSection = rule;
                     JsonNode rulesNode = n.path("rulebase");
-                    parseCpRules(layer, rulesNode);
+                    parseCpRules(layer, rulesNode, index);
                     break;
                 case "access-rule":
                     rule = parseFwRule(name, className, comment, uid, layer, n);
@@ -758,27 +766,140 @@ public class CpFw extends GenericEquipment {
     /*
      * parse and load layers
      */
-    protected void loadJsonCpLayers(JsonNode layers) {
+    protected void loadJsonCpLayers(List<JsonNode> layers, CpObjectsIndex index) {
 
-        Iterator<JsonNode> it = layers.elements();
-        while (it.hasNext()) {
-            JsonNode n = it.next();
+        List<CpLayer> cpLayers = new ArrayList<>();
+        for (JsonNode n : layers) {
             _parseContext = new ParseContext();
             _parseContext.setLine(n.toString());
             String uid = n.path("uid").textValue();
             String name = n.path("name").textValue();
             String className = n.path("type").textValue();
             String comment = n.path("comments").textValue();
-            if (_skippedLayers.contains(name)) {
-                warnConfig("Layer " + name + " skipped.", false);
-            } else {
-                CpLayer layer = new CpLayer(name, className, comment, uid);
-                JsonNode l = n.path("rulebase");
-                parseCpRules(layer, l);
-                _cpLayers.put(name, layer);
-                _cpObjects.put(uid, layer);
+            CpLayer layer = new CpLayer(name, className, comment, uid);
+            _cpLayers.put(name, layer);
+            _cpObjects.put(uid, layer);
+            cpLayers.add(layer);
+        }
+        for (int i = 0; i < layers.size(); i++) {
+            JsonNode l = layers.get(i).path("rulebase");
+            parseCpRules(cpLayers.get(i), l, index);
+        }
+    }
+
+    /*
+     * returns true if the rule is installed on the gateway, as checked by
+     * ruleFilter: the rule is installed if an object of "install-on" is
+     * unknown.
+     */
+    protected boolean isInstalled(JsonNode n, CpObjectsIndex index) {
+        boolean installed = false;
+        Iterator<JsonNode> it = n.path("install-on").elements();
+        while (it.hasNext()) {
+            String gwName = index.getName(it.next().textValue());
+            if (gwName == null)
+                return true;
+            if (gwName.equals(_gatewayName) || gwName.equals("Policy Targets"))
+                installed = true;
+        }
+        return installed;
+    }
+
+    /*
+     * reach the objects used by the rules installed on the gateway and add
+     * the uids of the layers called to layersCalled.
+     */
+    protected void reachCpRules(JsonNode l, CpObjectsIndex index, List<String> layersCalled) {
+        Iterator<JsonNode> it = l.elements();
+        while (it.hasNext()) {
+            JsonNode n = it.next();
+            String className = n.path("type").textValue();
+            if (className.equals("access-section")) {
+                reachCpRules(n.path("rulebase"), index, layersCalled);
+                continue;
+            }
+            if (!className.equals("access-rule") || !isInstalled(n, index))
+                continue;
+            index.reachUids(n.path("source"));
+            index.reachUids(n.path("destination"));
+            index.reachUids(n.path("service"));
+            index.reachUids(n.path("install-on"));
+            index.reachUid(n.path("action").textValue());
+            String layerUid = n.path("inline-layer").textValue();
+            if (layerUid != null) {
+                index.reachUid(layerUid);
+                layersCalled.add(layerUid);
+            }
+        }
+    }
+
+    /*
+     * collect the uids of the layers called by the rules
+     */
+    protected void collectLayersCalls(JsonNode l, Set<String> layersCalled) {
+        Iterator<JsonNode> it = l.elements();
+        while (it.hasNext()) {
+            JsonNode n = it.next();
+            collectLayersCalls(n.path("rulebase"), layersCalled);
+            String layerUid = n.path("inline-layer").textValue();
+            if (layerUid != null)
+                layersCalled.add(layerUid);
+        }
+    }
+
+    /*
+     * returns the layers reached from the root layer by the rules installed
+     * on the gateway, in the order of the policy.
+     */
+    protected List<JsonNode> reachCpLayers(List<JsonNode> layers, String rootLayerName,
+                                           CpObjectsIndex index) {
+
+        HashMap<String, List<JsonNode>> layersByName = new HashMap<>();
+        HashMap<String, String> layersNameByUid = new HashMap<>();
+        for (JsonNode n : layers) {
+            String name = n.path("name").textValue();
+            layersByName.computeIfAbsent(name, k -> new ArrayList<>()).add(n);
+            layersNameByUid.put(n.path("uid").textValue(), name);
+        }
+
+        HashSet<String> reached = new HashSet<>();
+        List<String> toReach = new ArrayList<>();
+        toReach.add(rootLayerName);
+        while (!toReach.isEmpty()) {
+            String name = toReach.remove(toReach.size() - 1);
+            if (!reached.add(name))
+                continue;
+            List<String> layersCalled = new ArrayList<>();
+            for (JsonNode n : layersByName.getOrDefault(name, Collections.emptyList()))
+                reachCpRules(n.path("rulebase"), index, layersCalled);
+            for (String uid : layersCalled) {
+                String layerName = index.getName(uid);
+                if (layerName == null)
+                    layerName = layersNameByUid.get(uid);
+                if (layerName != null)
+                    toReach.add(layerName);
+            }
+        }
+
+        /*
+         * the layers never called are not loaded, warn as computeLayersCalls
+         * does.
+         */
+        Set<String> layersCalled = new HashSet<>();
+        for (JsonNode n : layers)
+            collectLayersCalls(n.path("rulebase"), layersCalled);
+
+        List<JsonNode> reachedLayers = new ArrayList<>();
+        for (JsonNode n : layers) {
+            String name = n.path("name").textValue();
+            String uid = n.path("uid").textValue();
+            if (reached.contains(name)) {
+                reachedLayers.add(n);
+            } else if (!layersCalled.contains(uid)) {
+                warnConfig("layer: " + name + " uid: " + uid + " is never called.", false);
             }
         }
+        return reachedLayers;
     }
 
     /*
@@ -966,6 +1087,49 @@ public class CpFw extends GenericEquipment {
         }
     }
 
+    /*
+     * returns true if the rule is applied on this gateway
+     */
+    protected boolean isInstalled(CpFwRule rule) {
+        List<String> gateways = rule.getInstallGateway();
+        return gateways == null || gateways.contains(_gatewayName)
+                || gateways.contains("Policy Targets");
+    }
+
+    /*
+     * compile the layer for this gateway: keep the security rules enabled and
+     * installed on the gateway, compile their IP specifications and the
+     * layers they call.
+     */
+    protected CpLayerProgram compileLayer(CpLayer layer, HashMap<CpLayer, CpLayerProgram> programs) {
+
+        List<CpFwRule> rules = new ArrayList<>();
+        for (CpFwRule rule : layer.getRules()) {
+            if (rule.isImplicitDrop() || rule.isSecurityRule()
+                    && !rule.isDisabled() && isInstalled(rule))
+                rules.add(rule);
+        }
+
+        CpLayerProgram program = new CpLayerProgram(layer, rules.size());
+        programs.put(layer, program);
+        for (int i = 0; i < rules.size(); i++) {
+            CpFwRule rule = rules.get(i);
+            program.getRules()[i] = rule;
+            if (rule.isImplicitDrop())
+                continue;
+            program.getSources()[i] = new CpFwIpMatcher(rule.getSourceIp());
+            program.getDestinations()[i] = new CpFwIpMatcher(rule.getDestIp());
+            if (rule.ruleActionIsLayerCall()) {
+                CpLayer next = _cpLayers.get(rule.getLayerCall());
+                if (next != null) {
+                    CpLayerProgram call = programs.get(next);
+                    program.getCalls()[i] = call != null ? call : compileLayer(next, programs);
+                }
+            }
+        }
+        return program;
+    }
+
     protected void loadConfiguration(Document doc) {
 
         /* fwpolicy */
@@ -1010,29 +1174,64 @@ public class CpFw extends GenericEquipment {
             throwCfgException("gateway name must be specified", false);
         }
 
+        /*
+         * first pass: index the objects dictionary and keep the layers
+         */
+        CpObjectsIndex index = new CpObjectsIndex();
+        List<JsonNode> layers = new ArrayList<>();
+        HashMap<String, JsonSections.SectionLoader> loaders = new HashMap<>();
+        loaders.put("objects-dictionary", it -> {
+            while (it.hasNext())
+                index.add(it.next());
+        });
+        loaders.put("layers", it -> {
+            while (it.hasNext()) {
+                JsonNode n = it.next();
+                String name = n.path("name").textValue();
+                if (_skippedLayers.contains(name))
+                    warnConfig("Layer " + name + " skipped.", false);
+                else
+                    layers.add(n);
+            }
+        });
         for (String f : filenames) {
             famAdd(f);
-            FileReader jf;
-            JsonNode rootNode = null;
-            try {
-                jf = new FileReader(f);
-                ObjectMapper objectMapper = new ObjectMapper();
-                rootNode = objectMapper.readTree(jf);
-            } catch (IOException ex) {
-                throwCfgException("Cannot read file " + ex.getMessage(), false);
-            }
-            JsonNode dictNode = rootNode.path("objects-dictionary");
-            loadJsonCpObjects(dictNode);
-            JsonNode layersNode = rootNode.path("layers");
-            loadJsonCpLayers(layersNode);
+            readSections(f, loaders);
         }
 
         /* main layer */
         String rootLayerName = fwpolicy + " Security";
+        boolean hasRootLayer = false;
+        for (JsonNode n : layers)
+            hasRootLayer |= rootLayerName.equals(n.path("name").textValue());
+        if (!hasRootLayer)
+            throwCfgException("Cannot find fwpolicy layer: " + rootLayerName, false);
+
+        /*
+         * objects reachable from the root layer by the rules installed on
+         * the gateway
+         */
+        index.reachType("CpmiAnyObject");
+        index.reachType("RulebaseAction");
+        index.reachType("Global");
+        List<JsonNode> reachedLayers = reachCpLayers(layers, rootLayerName, index);
+        if (Log.debug().isLoggable(Level.INFO)) {
+            Log.debug().info("CpObjectsIndex: " + index.size() + " objects, "
+                    + index.reachedSize() + " names reached");
+        }
+
+        /*
+         * second pass: load the objects reached
+         */
+        loaders.clear();
+        loaders.put("objects-dictionary", it -> loadJsonCpObjects(it, index));
+        for (String f : filenames)
+            readSections(f, loaders);
+
+        loadJsonCpLayers(reachedLayers, index);
+
         _rootLayer = _cpLayers.get(rootLayerName);
         _rootLayer.setLayerCallRuleNumber(0);
-        if (_rootLayer == null)
-            throwCfgException("Cannot find fwpolicy layer: " + rootLayerName, false);
 
         // implicit drop rule at the end of the root layer
         CpFwRule fwdrop = CpFwRule.newImplicitDropRule(_rootLayer);
@@ -1040,6 +1239,18 @@ public class CpFw extends GenericEquipment {
 
     }
 
+    /*
+     * read the sections of a policy file
+     */
+    protected void readSections(String fileName,
+                                HashMap<String, JsonSections.SectionLoader> loaders) {
+        try {
+            JsonSections.readSections(fileName, loaders);
+        } catch (IOException ex) {
+            throwCfgException("Cannot read file " + ex.getMessage(), false);
+        }
+    }
+
     protected void loadIfaces(Document doc) {
 
         NodeList list = doc.getElementsByTagName("iface");
@@ -1142,6 +1353,7 @@ public class CpFw extends GenericEquipment {
         linkNetworkObjects();
 
         computeLayersCalls(_rootLayer);
+        _rootProgram = compileLayer(_rootLayer, new HashMap<>());
 
         /*
          * routing
@@ -1473,14 +1685,6 @@ public class CpFw extends GenericEquipment {
         }
     }
 
-    protected MatchResult ipSpecFilter(CpFwIpSpec ipSpec, IPRangeable range) {
-
-        MatchResult mres = ipSpec.getNetworks().matches(range);
-        if (ipSpec.isNotIn())
-            mres = mres.not();
-        return mres;
-    }
-
     protected MatchResult servicesSpecFilter(CpFwFilter filter,
                                              CpFwServicesSpec servicesSpec,
                                              ProbeRequest request) {
@@ -1494,22 +1698,13 @@ public class CpFw extends GenericEquipment {
         return mres;
     }
 
-    protected MatchResult ruleFilter(CpFwFilter filter, Probe probe, CpFwRule rule) {
-
-        ProbeRequest request = probe.getRequest();
-
-        /*
-         * applied on this gateway?
-         */
-        List<String> gateways = rule.getInstallGateway();
-        if (gateways != null && !gateways.contains(_gatewayName) && !gateways.contains("Policy Targets"))
-            return MatchResult.NOT;
+    /*
+     * filter the rule number i of the program, the rules not applied on
+     * this gateway are not in the program.
+     */
+    protected MatchResult ruleFilter(CpFwFilter filter, Probe probe, CpLayerProgram program, int i) {
 
-        /*
-         * disabled
-         */
-        if (rule.isDisabled())
-            return MatchResult.NOT;
+        CpFwRule rule = program.getRules()[i];
 
         /*
          * implicit drop rule
@@ -1520,22 +1715,21 @@ public class CpFw extends GenericEquipment {
         /*
          * check source IP
          */
-        CpFwIpSpec ipspec = rule.getSourceIp();
-        MatchResult mIpSource = ipSpecFilter(ipspec, probe.getSourceAddress());
+        MatchResult mIpSource = program.getSources()[i].matches(probe.getSourceAddress());
         if (mIpSource == MatchResult.NOT)
             return MatchResult.NOT;
 
         /*
          * check destination IP
          */
-        ipspec = rule.getDestIp();
-        MatchResult mIpDest = ipSpecFilter(ipspec, probe.getDestinationAddress());
+        MatchResult mIpDest = program.getDestinations()[i].matches(probe.getDestinationAddress());
         if (mIpDest == MatchResult.NOT)
             return MatchResult.NOT;
 
         /*
          * check services
          */
+        ProbeRequest request = probe.getRequest();
         MatchResult mService;
         if (request.getProtocols() != null) {
             CpFwServicesSpec services = rule.getServices();
@@ -1556,22 +1750,19 @@ public class CpFw extends GenericEquipment {
     /**
      * per layer filter
      */
-    protected void layerFilter(IfaceLink link, Direction direction, Probe probe, CpLayer layer, FwResult callResult) {
+    protected void layerFilter(IfaceLink link, Direction direction, Probe probe, CpLayerProgram program, FwResult callResult) {
 
         String ifaceName = link.getIfaceName();
         String ifaceComment = link.getIface().getComment();
         ProbeResults results = probe.getResults();
 
+        CpFwRule[] rules = program.getRules();
+        CpFwFilter filter = new CpFwFilter();
         MatchResult match;
-        for (CpFwRule rule : layer.getRules()) {
-            /*
-             * skip the rule if not a security rule
-             */
-            if (!rule.isSecurityRule())
-                continue;
-            CpFwFilter filter = new CpFwFilter();
-            String ruleText = rule.toText();
-            match = ruleFilter(filter, probe, rule);
+        for (int i = 0; i < rules.length; i++) {
+            CpFwRule rule = rules[i];
+            filter.setServiceInspected(false);
+            match = ruleFilter(filter, probe, program, i);
             /* if the rule matches */
             if (match != MatchResult.NOT) {
                 /*
@@ -1584,17 +1775,18 @@ public class CpFw extends GenericEquipment {
                 if (match != MatchResult.ALL || callResult.hasMay()) {
                     aclResult.addResult(FwResult.MAY);
                 }
+                AclRenderer<CpFwRule> renderer = CpFwRule::toText;
                 switch (rule.getRuleAction()) {
                     case LAYER_CALL:
                         aclResult.addResult(FwResult.MATCH);
                         if (filter.hasServiceInspected()) {
-                            ruleText += " {inspect}";
+                            renderer = r -> r.toText() + " {inspect}";
                         }
                         break;
                     case ACCEPT:
                         aclResult.addResult(FwResult.ACCEPT);
                         if (filter.hasServiceInspected()) {
-                            ruleText += " {inspect}";
+                            renderer = r -> r.toText() + " {inspect}";
                         }
                         break;
                     case REJECT:
@@ -1602,8 +1794,9 @@ public class CpFw extends GenericEquipment {
                         aclResult.addResult(FwResult.DENY);
                         break;
                 }
-                results.addMatchingAcl(direction, ruleText,
-                        aclResult);
+                AccessControlList acl = new AccessControlList(rule,
+                        renderer, aclResult);
+                results.addMatchingAcl(direction, acl);
 
                 results.setInterface(direction,
                         ifaceName + " (" + ifaceComment + ")");
@@ -1613,21 +1806,19 @@ public class CpFw extends GenericEquipment {
                  * this is the first ace that match the packet.
                  */
                 if (results.getActiveAcl(direction).isEmpty() && (aclResult.hasAccept() || aclResult.hasDeny())) {
-                    results.addActiveAcl(direction,
-                            ruleText,
-                            aclResult);
+                    results.addActiveAcl(direction, acl);
                     results.setAclResult(direction,
                             aclResult);
                 }
                 /*
                  * if the rule action is a call to a layer, filter it.
                  */
-                if (rule.ruleActionIsLayerCall()) {
+                CpLayerProgram next = program.getCalls()[i];
+                if (next != null) {
                     FwResult r = new FwResult();
                     if (aclResult.hasMay()) {
                         r.addResult(FwResult.MAY);
                     }
-                    CpLayer next = _cpLayers.get(rule.getLayerCall());
                     layerFilter(link, direction, probe, next, r);
                 }
             }
@@ -1639,9 +1830,8 @@ public class CpFw extends GenericEquipment {
      */
     protected void packetFilter(IfaceLink link, Direction direction, Probe probe) {
 
-        CpLayer layer = _rootLayer;
         FwResult r = new FwResult();
-        layerFilter(link, direction, probe, layer, r);
+        layerFilter(link, direction, probe, _rootProgram, r);
     }
 
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013 - 2018, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
+
+import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
+import fr.univrennes1.cri.jtacl.lib.ip.IPIntervals;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRange;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiled IP specification of a firewall rule.<br/>
+ * The addresses of the network objects and of the groups without excluded
+ * members are flattened in an {@link IPIntervals}, not merged, so the
+ * results are the ones of {@link CpNetworkGroup#matches}. The groups with
+ * excluded members are kept and tested as objects.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class CpFwIpMatcher implements Serializable {
+
+    protected IPIntervals _intervals;
+    protected boolean _any;
+    protected boolean _unknown;
+    protected CpNetworkObject[] _objects;
+    protected boolean _notIn;
+
+    /**
+     * Compiles the IP specification in argument.
+     *
+     * @param ipSpec IP specification of a rule.
+     */
+    public CpFwIpMatcher(CpFwIpSpec ipSpec) {
+        IPIntervals.Builder builder = new IPIntervals.Builder(false);
+        List<CpNetworkObject> objects = new ArrayList<>();
+        addGroup(ipSpec.getNetworks(), builder, objects, new HashSet<>());
+        _intervals = builder.build();
+        _objects = objects.toArray(new CpNetworkObject[0]);
+        _notIn = ipSpec.isNotIn();
+    }
+
+    protected static void addRange(IPIntervals.Builder builder, IPRange range) {
+        if (range != null)
+            builder.add(range);
+    }
+
+    protected void addGroup(CpNetworkGroup group, IPIntervals.Builder builder,
+                            List<CpNetworkObject> objects,
+                            Set<CpNetworkObject> added) {
+        if (group.isAny()) {
+            _any = true;
+            return;
+        }
+        for (CpNetworkObject nobject : group.getBaseObjects().values()) {
+            /*
+             * unresolved member
+             */
+            if (nobject == null || !added.add(nobject))
+                continue;
+            if (nobject instanceof CpNetworkGroup) {
+                CpNetworkGroup ngroup = (CpNetworkGroup) nobject;
+                if (ngroup.getExcludedObjects().isEmpty())
+                    addGroup(ngroup, builder, objects, added);
+                else
+                    objects.add(ngroup);
+            } else if (nobject instanceof CpNetworkIP) {
+                CpNetworkIP nip = (CpNetworkIP) nobject;
+                addRange(builder, nip.getIpRange());
+                addRange(builder, nip.getIpRange6());
+            } else if (nobject instanceof CpNetworkRange) {
+                CpNetworkRange nrange = (CpNetworkRange) nobject;
+                addRange(builder, nrange.getIpRange());
+                addRange(builder, nrange.getIpRange6());
+            } else if (nobject instanceof CpNetworkIPs) {
+                for (IPRange range : ((CpNetworkIPs) nobject).getIpRanges())
+                    addRange(builder, range);
+            } else if (nobject instanceof CpNetworkAny) {
+                _any = true;
+            } else if (nobject instanceof CpUnhandledNetwork) {
+                _unknown = true;
+            } else {
+                objects.add(nobject);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link MatchResult} of the given IP address.
+     *
+     * @param ip IP address to test.
+     * @return the MatchResult of the given IP address.
+     */
+    public MatchResult matches(IPRangeable ip) {
+        MatchResult mres = MatchResult.NOT;
+        if (_any || _intervals.contains(ip)) {
+            mres = MatchResult.ALL;
+        } else {
+            boolean may = _unknown || _intervals.overlaps(ip);
+            for (CpNetworkObject nobject : _objects) {
+                MatchResult r = nobject.matches(ip);
+                if (r == MatchResult.ALL) {
+                    mres = MatchResult.ALL;
+                    break;
+                }
+                if (r != MatchResult.NOT)
+                    may = true;
+            }
+            if (mres != MatchResult.ALL && may)
+                mres = MatchResult.MATCH;
+        }
+        if (_notIn)
+            mres = mres.not();
+        return mres;
+    }
+}
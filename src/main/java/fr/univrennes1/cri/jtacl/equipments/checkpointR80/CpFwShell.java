@@ -11,7 +11,7 @@ package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
 
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipmentShell;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
@@ -29,9 +29,9 @@ import java.util.Map;
 public class CpFwShell extends GenericEquipmentShell {
 
     protected CpFw _cpfw;
-    protected CpFwShellParser _shellParser;
-    protected ReportingParseRunner _parseRunner;
-    protected PrintStream _outStream;
+    protected transient CpFwShellParser _shellParser;
+    protected transient ReportingParseRunner _parseRunner;
+    protected transient PrintStream _outStream;
 
     @Override
     public void shellHelp(PrintStream output) {
@@ -40,8 +40,6 @@ public class CpFwShell extends GenericEquipmentShell {
 
     public CpFwShell(CpFw cpfw) {
         _cpfw = cpfw;
-        _shellParser = Parboiled.createParser(CpFwShellParser.class);
-        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
     }
 
     public void commandShowService(PrintStream output, CpFwShellParser parser) {
@@ -104,7 +102,8 @@ public class CpFwShell extends GenericEquipmentShell {
     @Override
     public void shellCommand(String command, PrintStream output) {
         _outStream = output;
-        _parseRunner.getParseErrors().clear();
+        _shellParser = ParserCache.getParser(CpFwShellParser.class);
+        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(command);
 
         if (!result.matched) {
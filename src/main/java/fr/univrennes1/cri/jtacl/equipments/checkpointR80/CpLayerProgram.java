@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013 - 2018, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
+
+import java.io.Serializable;
+
+/**
+ * Layer compiled for a gateway: the security rules enabled and installed on
+ * the gateway, their compiled IP specifications and the layers they call.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class CpLayerProgram implements Serializable {
+
+    protected CpLayer _layer;
+    protected CpFwRule[] _rules;
+    protected CpFwIpMatcher[] _sources;
+    protected CpFwIpMatcher[] _destinations;
+    protected CpLayerProgram[] _calls;
+
+    /**
+     * Construct a new program of a layer
+     *
+     * @param layer layer compiled
+     * @param size  number of rules
+     */
+    public CpLayerProgram(CpLayer layer, int size) {
+        _layer = layer;
+        _rules = new CpFwRule[size];
+        _sources = new CpFwIpMatcher[size];
+        _destinations = new CpFwIpMatcher[size];
+        _calls = new CpLayerProgram[size];
+    }
+
+    public CpLayer getLayer() {
+        return _layer;
+    }
+
+    /**
+     * Return the rules of this program
+     *
+     * @return the rules of this program
+     */
+    public CpFwRule[] getRules() {
+        return _rules;
+    }
+
+    /**
+     * Return the compiled source IP specifications, by rule index. Null for
+     * the implicit drop rule.
+     *
+     * @return the compiled source IP specifications
+     */
+    public CpFwIpMatcher[] getSources() {
+        return _sources;
+    }
+
+    /**
+     * Return the compiled destination IP specifications, by rule index. Null
+     * for the implicit drop rule.
+     *
+     * @return the compiled destination IP specifications
+     */
+    public CpFwIpMatcher[] getDestinations() {
+        return _destinations;
+    }
+
+    /**
+     * Return the programs of the layers called, by rule index. Null if the
+     * rule does not call a layer.
+     *
+     * @return the programs of the layers called
+     */
+    public CpLayerProgram[] getCalls() {
+        return _calls;
+    }
+}
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
 
+import java.io.Serializable;
+
 /**
  * Checkpoint base object
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class CpObject {
+public class CpObject implements Serializable {
     protected String _name;
     protected String _className;
     protected String _comment;
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2013 - 2018, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Index of the Checkpoint objects dictionary, keyed by uid.<br/>
+ * The index keeps only the name, the type and the references (by name) of
+ * each object. It is used to find the objects reachable from the rules of
+ * the policy, before the objects are built.<br/>
+ * The objects are reached by name: the groups and the rules are linked by
+ * name, an object reached brings all the objects with the same name.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class CpObjectsIndex {
+
+    /*
+     * types of the objects loaded by CpFw
+     */
+    protected static final Set<String> _loadedTypes = new HashSet<>(Arrays.asList(
+            "service-tcp", "service-udp", "service-icmp", "service-icmp6",
+            "service-other", "CpmiAnyObject", "service-group",
+            "service-dce-rpc", "service-rpc", "services-sctp",
+            "host", "CpmiGatewayPlain", "CpmiClusterMember",
+            "CpmiGatewayCluster", "CpmiHostCkp", "network",
+            "multicast-address-range", "address-range", "group",
+            "group-with-exclusion", "simple-gateway", "access-layer"));
+
+    /*
+     * names of the "Global" and "RulebaseAction" objects loaded by CpFw
+     */
+    protected static final Set<String> _loadedActions = new HashSet<>(Arrays.asList(
+            "Accept", "Drop", "Reject", "Auth", "Inner Layer", "Policy Targets"));
+
+    /*
+     * entry of an object
+     */
+    protected static class Entry {
+        protected String _name;
+        protected String _type;
+        protected List<String> _references;
+        protected boolean _inAny;
+
+        protected Entry(String name, String type) {
+            _name = name;
+            _type = type;
+        }
+    }
+
+    /*
+     * entries keyed by uid
+     */
+    protected HashMap<String, Entry> _entries = new HashMap<>();
+
+    /*
+     * uids keyed by name
+     */
+    protected HashMap<String, List<String>> _uids = new HashMap<>();
+
+    /*
+     * names of the services in "Any"
+     */
+    protected List<String> _anyServices = new ArrayList<>();
+
+    /*
+     * names of the objects reached
+     */
+    protected HashSet<String> _reached = new HashSet<>();
+
+    protected static void addReference(Entry entry, JsonNode ref) {
+        String name = ref.path("name").textValue();
+        if (name == null)
+            return;
+        if (entry._references == null)
+            entry._references = new ArrayList<>();
+        entry._references.add(name);
+    }
+
+    /**
+     * Adds the object of the dictionary in argument.
+     *
+     * @param n JSON object of the dictionary.
+     */
+    public void add(JsonNode n) {
+        String uid = n.path("uid").textValue();
+        String name = n.path("name").textValue();
+        String type = n.path("type").textValue();
+        if (type == null)
+            return;
+        if (type.equals("Global") || type.equals("RulebaseAction")) {
+            if (!_loadedActions.contains(name))
+                return;
+        } else if (!_loadedTypes.contains(type)) {
+            return;
+        }
+
+        Entry entry = new Entry(name, type.intern());
+        switch (type) {
+            case "group":
+            case "service-group":
+                Iterator<JsonNode> it = n.path("members").elements();
+                while (it.hasNext())
+                    addReference(entry, it.next());
+                break;
+            case "group-with-exclusion":
+                addReference(entry, n.path("include"));
+                addReference(entry, n.path("except"));
+                break;
+            case "service-tcp":
+            case "service-udp":
+            case "service-other":
+                entry._inAny = n.path("match-for-any").asBoolean();
+                if (entry._inAny)
+                    _anyServices.add(name);
+                break;
+        }
+        _entries.put(uid, entry);
+        _uids.computeIfAbsent(name, k -> new ArrayList<>(1)).add(uid);
+    }
+
+    /**
+     * Returns the name of the object with the uid in argument.
+     *
+     * @param uid uid of the object.
+     * @return the name of the object or null if there is no such object.
+     */
+    public String getName(String uid) {
+        Entry entry = _entries.get(uid);
+        return entry == null ? null : entry._name;
+    }
+
+    /**
+     * Reaches the objects with the uid in argument, and the objects they
+     * reference.
+     *
+     * @param uid uid of the object.
+     */
+    public void reachUid(String uid) {
+        String name = getName(uid);
+        if (name != null)
+            reachName(name);
+    }
+
+    /**
+     * Reaches the objects listed by uid in the JSON array in argument.
+     *
+     * @param uids JSON array of uids.
+     */
+    public void reachUids(JsonNode uids) {
+        Iterator<JsonNode> it = uids.elements();
+        while (it.hasNext())
+            reachUid(it.next().textValue());
+    }
+
+    /**
+     * Reaches the objects of the type in argument.
+     *
+     * @param type type of the objects.
+     */
+    public void reachType(String type) {
+        for (Entry entry : _entries.values()) {
+            if (entry._type.equals(type))
+                reachName(entry._name);
+        }
+    }
+
+    /**
+     * Reaches the objects with the name in argument, and the objects they
+     * reference.
+     *
+     * @param name name of the objects.
+     */
+    public void reachName(String name) {
+        Deque<String> names = new ArrayDeque<>();
+        names.add(name);
+        while (!names.isEmpty()) {
+            String n = names.poll();
+            if (!_reached.add(n))
+                continue;
+            for (String uid : _uids.getOrDefault(n, Collections.emptyList())) {
+                Entry entry = _entries.get(uid);
+                /*
+                 * duplicated uids: this uid is now another object
+                 */
+                if (entry == null || !n.equals(entry._name))
+                    continue;
+                if (entry._references != null)
+                    names.addAll(entry._references);
+                if (entry._type.equals("CpmiAnyObject"))
+                    names.addAll(_anyServices);
+            }
+        }
+    }
+
+    /**
+     * Checks if the objects with the name in argument are reached.
+     *
+     * @param name name of the objects.
+     * @return true if the objects with this name are reached.
+     */
+    public boolean isReached(String name) {
+        return _reached.contains(name);
+    }
+
+    /**
+     * Returns the number of objects in this index.
+     *
+     * @return the number of objects in this index.
+     */
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * Returns the number of names reached.
+     *
+     * @return the number of names reached.
+     */
+    public int reachedSize() {
+        return _reached.size();
+    }
+}
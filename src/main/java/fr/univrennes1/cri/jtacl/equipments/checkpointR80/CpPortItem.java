@@ -15,12 +15,14 @@ import fr.univrennes1.cri.jtacl.equipments.openbsd.PfPortItem;
 import fr.univrennes1.cri.jtacl.lib.ip.PortOperator;
 import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
 
+import java.io.Serializable;
+
 /**
  * Describes a Port Item.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class CpPortItem {
+public class CpPortItem implements Serializable {
 
     /**
      * Operator equal
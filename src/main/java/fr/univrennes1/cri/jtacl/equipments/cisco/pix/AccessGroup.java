@@ -11,12 +11,14 @@ package fr.univrennes1.cri.jtacl.equipments.cisco.pix;
 
 import fr.univrennes1.cri.jtacl.lib.misc.Direction;
 
+import java.io.Serializable;
+
 /**
  * Describes an access group.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class AccessGroup {
+public class AccessGroup implements Serializable {
 
     /**
      * name of this access group.
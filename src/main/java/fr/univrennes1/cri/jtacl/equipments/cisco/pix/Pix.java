@@ -45,7 +45,7 @@ import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 import fr.univrennes1.cri.jtacl.lib.misc.StringTools;
 import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.parserunners.BasicParseRunner;
 import org.parboiled.support.ParsingResult;
 import org.w3c.dom.Document;
@@ -56,6 +56,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -67,7 +68,7 @@ import java.util.logging.Level;
  */
 public class Pix extends GenericEquipment implements GroupTypeSearchable {
 
-    protected class CiscoIface {
+    protected class CiscoIface implements Serializable {
         protected Iface _iface;
         protected String _name;
         protected String _description;
@@ -133,31 +134,39 @@ public class Pix extends GenericEquipment implements GroupTypeSearchable {
     /**
      * Parser
      */
-    protected PixParser _parser = Parboiled.createParser(PixParser.class);
+    protected transient PixParser _parser;
 
     /**
      * ParseRunner for Parse()
      */
-    protected BasicParseRunner _parseRunParse =
-            new BasicParseRunner(_parser.Parse());
+    protected transient BasicParseRunner _parseRunParse;
 
     /**
      * ParseRunner for ExitInterface()
      */
-    protected BasicParseRunner _parseRunExitInterface =
-            new BasicParseRunner(_parser.ExitInterface());
+    protected transient BasicParseRunner _parseRunExitInterface;
 
     /**
      * ParseRunner for InInterface()
      */
-    protected BasicParseRunner _parseRunInInterface =
-            new BasicParseRunner(_parser.InInterface());
+    protected transient BasicParseRunner _parseRunInInterface;
 
     /**
      * ParseRunner for Interface()
      */
-    protected BasicParseRunner _parseRunInterface =
-            new BasicParseRunner(_parser.Interface());
+    protected transient BasicParseRunner _parseRunInterface;
+
+    /**
+     * Gets the parser of the current thread and creates the parse runners.
+     * Must be called by the thread that parses the configuration.
+     */
+    protected void initParsers() {
+        _parser = ParserCache.getParser(PixParser.class);
+        _parseRunParse = new BasicParseRunner(_parser.Parse());
+        _parseRunExitInterface = new BasicParseRunner(_parser.ExitInterface());
+        _parseRunInInterface = new BasicParseRunner(_parser.InInterface());
+        _parseRunInterface = new BasicParseRunner(_parser.Interface());
+    }
 
     /**
      * the list of configuration files, mapped into strings.
@@ -1173,6 +1182,8 @@ public class Pix extends GenericEquipment implements GroupTypeSearchable {
         if (_configurationFileName.isEmpty())
             return null;
 
+        initParsers();
+
         /*
          * Read the XML configuration file
          */
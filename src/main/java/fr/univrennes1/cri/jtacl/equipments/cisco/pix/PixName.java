@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.cisco.pix;
 
+import java.io.Serializable;
+
 /**
  * PIX name
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PixName {
+public class PixName implements Serializable {
 
     protected String _name;
     protected String _ipValue;
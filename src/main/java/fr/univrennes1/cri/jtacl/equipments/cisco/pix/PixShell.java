@@ -11,12 +11,12 @@ package fr.univrennes1.cri.jtacl.equipments.cisco.pix;
 
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipmentShell;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 
 import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.TreeMap;
 
-import org.parboiled.Parboiled;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
@@ -30,9 +30,9 @@ import org.parboiled.support.ParsingResult;
 public class PixShell extends GenericEquipmentShell {
 
     protected Pix _pix;
-    protected PixShellParser _shellParser;
-    protected ReportingParseRunner _parseRunner;
-    protected PrintStream _outStream;
+    protected transient PixShellParser _shellParser;
+    protected transient ReportingParseRunner _parseRunner;
+    protected transient PrintStream _outStream;
 
     protected void commandShowNames(PixShellParser parser) {
 
@@ -78,14 +78,13 @@ public class PixShell extends GenericEquipmentShell {
 
     public PixShell(Pix pix) {
         _pix = pix;
-        _shellParser = Parboiled.createParser(PixShellParser.class);
-        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
     }
 
     @Override
     public void shellCommand(String command, PrintStream output) {
         _outStream = output;
-        _parseRunner.getParseErrors().clear();
+        _shellParser = ParserCache.getParser(PixShellParser.class);
+        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(command);
 
         if (!result.matched) {
@@ -40,6 +40,11 @@ public class AccessList extends ArrayList<AccessListElement> {
      */
     private IPversion _ipVersion;
 
+    /**
+     * index of the ACEs of this acl.
+     */
+    private AccessListIndex _index;
+
     /**
      * Returns the number of this acl.<br/>
      * Null if this acl is a named acl
@@ -115,4 +120,22 @@ public class AccessList extends ArrayList<AccessListElement> {
         _ipVersion = ipVersion;
     }
 
+    /**
+     * Builds the index of the ACEs of this acl. This must be called once all
+     * the ACEs are added.
+     */
+    public void buildIndex() {
+        _index = new AccessListIndex(this);
+    }
+
+    /**
+     * Returns the index of the ACEs of this acl.
+     *
+     * @return the index of the ACEs of this acl. Null if the index is not
+     * built.
+     */
+    public AccessListIndex getIndex() {
+        return _index;
+    }
+
 }
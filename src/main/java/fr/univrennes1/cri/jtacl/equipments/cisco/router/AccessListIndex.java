@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.cisco.router;
+
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPPrefixTree;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
+import fr.univrennes1.cri.jtacl.lib.ip.IPversion;
+import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Index of the elements (ACE) of an {@link AccessList} by protocol and by
+ * destination prefix.<br/>
+ * The index returns the positions in the access list of the ACEs which may
+ * match a probe. The other ACEs certainly do not match the probe.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class AccessListIndex implements Serializable {
+
+    /**
+     * number of ACE in the access list.
+     */
+    protected int _size;
+
+    /**
+     * ACEs matching any protocol.
+     */
+    protected BitSet _anyProtocol = new BitSet();
+
+    /**
+     * ACEs by protocol.
+     */
+    protected HashMap<Integer, BitSet> _byProtocol = new HashMap<>();
+
+    /**
+     * ACEs matching any destination (or with a destination which is not a
+     * network).
+     */
+    protected BitSet _anyDestination = new BitSet();
+
+    /**
+     * ACEs by destination network, by IP version.
+     */
+    protected IPPrefixTree<BitSet> _ipv4Destinations =
+            new IPPrefixTree<>(IPversion.IPV4);
+    protected IPPrefixTree<BitSet> _ipv6Destinations =
+            new IPPrefixTree<>(IPversion.IPV6);
+
+    /**
+     * all the ACEs of the destination trees, by IP version.
+     */
+    protected BitSet _ipv4All = new BitSet();
+    protected BitSet _ipv6All = new BitSet();
+
+    /**
+     * Constructs the index of the access list in argument.
+     *
+     * @param acl access list to index.
+     */
+    public AccessListIndex(AccessList acl) {
+        _size = acl.size();
+        for (int i = 0; i < _size; i++) {
+            AccessListElement ace = acl.get(i);
+
+            /*
+             * protocol
+             */
+            Integer proto = ace.getProtocol();
+            if (proto == null || proto == Protocols.IP) {
+                _anyProtocol.set(i);
+            } else {
+                BitSet bits = _byProtocol.get(proto);
+                if (bits == null) {
+                    bits = new BitSet();
+                    _byProtocol.put(proto, bits);
+                }
+                bits.set(i);
+            }
+
+            /*
+             * destination, only an address without netmask is a network.
+             */
+            IPNet dest = ace.getDestIp();
+            if (dest == null || ace.getDestNetmask() != null) {
+                _anyDestination.set(i);
+            } else {
+                IPPrefixTree<BitSet> tree = getTree(dest.getIpVersion());
+                BitSet bits = tree.get(dest);
+                if (bits == null) {
+                    bits = new BitSet();
+                    tree.put(dest, bits);
+                }
+                bits.set(i);
+                getAll(dest.getIpVersion()).set(i);
+            }
+        }
+    }
+
+    protected IPPrefixTree<BitSet> getTree(IPversion ipVersion) {
+        return ipVersion == IPversion.IPV4 ? _ipv4Destinations : _ipv6Destinations;
+    }
+
+    protected BitSet getAll(IPversion ipVersion) {
+        return ipVersion == IPversion.IPV4 ? _ipv4All : _ipv6All;
+    }
+
+    /**
+     * Returns the positions of the ACEs which may match the destination and
+     * the protocols in argument.
+     *
+     * @param destination destination of the probe.
+     * @param protocols   protocols of the probe. May be null (any protocol).
+     * @return the positions of the candidate ACEs.
+     */
+    public BitSet candidates(IPRangeable destination, List<Integer> protocols) {
+
+        /*
+         * destination. A network of the other IP version is not compared
+         * here, keep it.
+         */
+        IPversion ipVersion = destination.getIpVersion();
+        BitSet result = (BitSet) _anyDestination.clone();
+        for (BitSet bits : getTree(ipVersion).overlapping(destination))
+            result.or(bits);
+        result.or(getAll(ipVersion == IPversion.IPV4 ?
+                IPversion.IPV6 : IPversion.IPV4));
+
+        /*
+         * protocols
+         */
+        if (protocols != null) {
+            BitSet protos = (BitSet) _anyProtocol.clone();
+            for (Integer proto : protocols) {
+                BitSet bits = _byProtocol.get(proto);
+                if (bits != null)
+                    protos.or(bits);
+            }
+            result.and(protos);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of ACEs in the indexed access list.
+     *
+     * @return the number of ACEs in the indexed access list.
+     */
+    public int size() {
+        return _size;
+    }
+}
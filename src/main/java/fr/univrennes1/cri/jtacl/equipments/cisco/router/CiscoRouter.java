@@ -45,7 +45,7 @@ import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 import fr.univrennes1.cri.jtacl.lib.misc.StringTools;
 import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.parserunners.BasicParseRunner;
 import org.parboiled.support.ParsingResult;
 import org.w3c.dom.Document;
@@ -56,9 +56,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.math.BigInteger;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.logging.Level;
@@ -68,7 +70,7 @@ import java.util.logging.Level;
  */
 public class CiscoRouter extends GenericEquipment {
 
-    protected class CiscoIface {
+    protected class CiscoIface implements Serializable {
         protected Iface _iface;
         protected String _name;
         protected String _description;
@@ -82,6 +84,18 @@ public class CiscoRouter extends GenericEquipment {
         protected ArrayList<AccessGroup> _accessGroup6Out
                 = new ArrayList<>();
 
+        /*
+         * access lists bound to the access groups, see resolveAccessLists().
+         */
+        protected ArrayList<AccessList> _accessList4In
+                = new ArrayList<>();
+        protected ArrayList<AccessList> _accessList4Out
+                = new ArrayList<>();
+        protected ArrayList<AccessList> _accessList6In
+                = new ArrayList<>();
+        protected ArrayList<AccessList> _accessList6Out
+                = new ArrayList<>();
+
         protected ArrayList<IPNet> _ipAddresses = new ArrayList<>();
 
         public ArrayList<AccessGroup> getAccessGroup4In() {
@@ -100,6 +114,22 @@ public class CiscoRouter extends GenericEquipment {
             return _accessGroup6Out;
         }
 
+        public ArrayList<AccessList> getAccessList4In() {
+            return _accessList4In;
+        }
+
+        public ArrayList<AccessList> getAccessList4Out() {
+            return _accessList4Out;
+        }
+
+        public ArrayList<AccessList> getAccessList6In() {
+            return _accessList6In;
+        }
+
+        public ArrayList<AccessList> getAccessList6Out() {
+            return _accessList6Out;
+        }
+
         public Iface getIface() {
             return _iface;
         }
@@ -159,37 +189,45 @@ public class CiscoRouter extends GenericEquipment {
     /**
      * Parser
      */
-    protected IOSParser _parser = Parboiled.createParser(IOSParser.class);
+    protected transient IOSParser _parser;
 
     /**
      * ParseRunner for Parse()
      */
-    protected BasicParseRunner _parseRunParse =
-            new BasicParseRunner(_parser.Parse());
+    protected transient BasicParseRunner _parseRunParse;
 
     /**
      * ParseRunner for InAclContext()
      */
-    protected BasicParseRunner _parseRunInAclContext =
-            new BasicParseRunner(_parser.InAclContext());
+    protected transient BasicParseRunner _parseRunInAclContext;
 
     /**
      * ParseRunner for ExitInterface()
      */
-    protected BasicParseRunner _parseRunExitInterface =
-            new BasicParseRunner(_parser.ExitInterface());
+    protected transient BasicParseRunner _parseRunExitInterface;
 
     /**
      * ParseRunner for InInterface()
      */
-    protected BasicParseRunner _parseRunInInterface =
-            new BasicParseRunner(_parser.InInterface());
+    protected transient BasicParseRunner _parseRunInInterface;
 
     /**
      * ParseRunner for Interface()
      */
-    protected BasicParseRunner _parseRunInterface =
-            new BasicParseRunner(_parser.Interface());
+    protected transient BasicParseRunner _parseRunInterface;
+
+    /**
+     * Gets the parser of the current thread and creates the parse runners.
+     * Must be called by the thread that parses the configuration.
+     */
+    protected void initParsers() {
+        _parser = ParserCache.getParser(IOSParser.class);
+        _parseRunParse = new BasicParseRunner(_parser.Parse());
+        _parseRunInAclContext = new BasicParseRunner(_parser.InAclContext());
+        _parseRunExitInterface = new BasicParseRunner(_parser.ExitInterface());
+        _parseRunInInterface = new BasicParseRunner(_parser.InInterface());
+        _parseRunInterface = new BasicParseRunner(_parser.Interface());
+    }
 
     /**
      * the list of configuration files, mapped into strings.
@@ -835,6 +873,8 @@ public class CiscoRouter extends GenericEquipment {
         if (_configurationFileName.isEmpty())
             return null;
 
+        initParsers();
+
         /*
          * Read the XML configuration file
          */
@@ -886,6 +926,21 @@ public class CiscoRouter extends GenericEquipment {
                     " *** implicit deny ***");
             ace.setImplicit(true);
             acl.add(ace);
+            acl.buildIndex();
+        }
+
+        /*
+         * bind the access lists to the interfaces.
+         */
+        for (CiscoIface ciscoIface : _ciscoIfaces.values()) {
+            resolveAccessLists(ciscoIface.getAccessGroup4In(),
+                    ciscoIface.getAccessList4In());
+            resolveAccessLists(ciscoIface.getAccessGroup4Out(),
+                    ciscoIface.getAccessList4Out());
+            resolveAccessLists(ciscoIface.getAccessGroup6In(),
+                    ciscoIface.getAccessList6In());
+            resolveAccessLists(ciscoIface.getAccessGroup6Out(),
+                    ciscoIface.getAccessList6Out());
         }
 
         /*
@@ -902,6 +957,23 @@ public class CiscoRouter extends GenericEquipment {
         return null;
     }
 
+    /**
+     * Adds into accessLists the access lists matching the access groups in
+     * argument, in the order of the access lists definition.
+     */
+    protected void resolveAccessLists(List<AccessGroup> accessGroups,
+                                      List<AccessList> accessLists) {
+        accessLists.clear();
+        for (AccessList acl : _accessLists) {
+            for (AccessGroup group : accessGroups) {
+                if (group.getName().equals(acl.getName())) {
+                    accessLists.add(acl);
+                    break;
+                }
+            }
+        }
+    }
+
     protected IPCrossRef getIPNetCrossRef(IPNet ipnet) {
         if (!_monitorOptions.getXref())
             throw new JtaclInternalException(
@@ -1312,54 +1384,45 @@ public class CiscoRouter extends GenericEquipment {
         ProbeResults results = probe.getResults();
 
         /*
-         * retrieve access groups associated in direction with the interface.
+         * retrieve access lists associated in direction with the interface.
          */
         CiscoIface csIface = _ciscoIfaces.get(ifaceName);
-        List<AccessGroup> agroups = null;
+        List<AccessList> acls = null;
         if (probe.isIPv4()) {
             switch (direction) {
                 case IN:
-                    agroups = csIface.getAccessGroup4In();
+                    acls = csIface.getAccessList4In();
                     break;
                 case OUT:
-                    agroups = csIface.getAccessGroup4Out();
+                    acls = csIface.getAccessList4Out();
                     break;
             }
         } else {
             switch (direction) {
                 case IN:
-                    agroups = csIface.getAccessGroup6In();
+                    acls = csIface.getAccessList6In();
                     break;
                 case OUT:
-                    agroups = csIface.getAccessGroup6Out();
+                    acls = csIface.getAccessList6Out();
                     break;
             }
         }
 
         /*
-         * for each access list matching access groups associated.
+         * for each access list associated.
          */
         boolean first = true;
-        for (AccessList acl : _accessLists) {
-            /*
-             * acl matches any access groups?
-             */
-            boolean mgroup = false;
-            for (AccessGroup group : agroups) {
-                if (group.getName().equals(acl.getName())) {
-                    mgroup = true;
-                    break;
-                }
-            }
-            // access group doesn't match
-            if (!mgroup)
-                continue;
-
+        for (AccessList acl : acls) {
             /*
-             * check each access list element
+             * check each candidate access list element
              */
+            BitSet candidates = acl.getIndex().candidates(
+                    probe.getDestinationAddress(),
+                    probe.getRequest().getProtocols());
             MatchResult match;
-            for (AccessListElement ace : acl) {
+            for (int i = candidates.nextSetBit(0); i >= 0;
+                 i = candidates.nextSetBit(i + 1)) {
+                AccessListElement ace = acl.get(i);
                 match = probeFilter(probe, ace, direction);
                 if (match != MatchResult.NOT) {
                     /*
@@ -11,10 +11,10 @@ package fr.univrennes1.cri.jtacl.equipments.cisco.router;
 
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipmentShell;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 
 import java.io.PrintStream;
 
-import org.parboiled.Parboiled;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
@@ -28,9 +28,9 @@ import org.parboiled.support.ParsingResult;
 public class IOSShell extends GenericEquipmentShell {
 
     protected CiscoRouter _router;
-    protected IOSShellParser _shellParser;
-    protected ReportingParseRunner _parseRunner;
-    protected PrintStream _outStream;
+    protected transient IOSShellParser _shellParser;
+    protected transient ReportingParseRunner _parseRunner;
+    protected transient PrintStream _outStream;
 
     @Override
     public void shellHelp(PrintStream output) {
@@ -39,14 +39,13 @@ public class IOSShell extends GenericEquipmentShell {
 
     public IOSShell(CiscoRouter router) {
         _router = router;
-        _shellParser = Parboiled.createParser(IOSShellParser.class);
-        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
     }
 
     @Override
     public void shellCommand(String command, PrintStream output) {
         _outStream = output;
-        _parseRunner.getParseErrors().clear();
+        _shellParser = ParserCache.getParser(IOSShellParser.class);
+        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(command);
 
         if (!result.matched) {
@@ -10,7 +10,6 @@
 package fr.univrennes1.cri.jtacl.equipments.fortigate;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.univrennes1.cri.jtacl.analysis.CrossRefContext;
 import fr.univrennes1.cri.jtacl.analysis.IPCrossRef;
 import fr.univrennes1.cri.jtacl.analysis.IPCrossRefMap;
@@ -27,12 +26,14 @@ import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.core.network.Route;
 import fr.univrennes1.cri.jtacl.core.network.Routes;
+import fr.univrennes1.cri.jtacl.core.probing.AccessControlList;
 import fr.univrennes1.cri.jtacl.core.probing.FwResult;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
 import fr.univrennes1.cri.jtacl.core.probing.ProbeResults;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipment;
 import fr.univrennes1.cri.jtacl.lib.ip.AddressFamily;
+import fr.univrennes1.cri.jtacl.lib.ip.IPIntervals;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRange;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
@@ -42,31 +43,42 @@ import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
 import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
 import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
 import fr.univrennes1.cri.jtacl.lib.misc.Direction;
+import fr.univrennes1.cri.jtacl.lib.misc.JsonSections;
 import fr.univrennes1.cri.jtacl.lib.misc.Pair;
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
-import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 public class FgFw extends GenericEquipment {
 
-    protected class FgIface {
+    protected class FgIface implements Serializable {
         protected Iface _iface;
         protected String _name;
         protected String _description;
@@ -155,6 +167,41 @@ public class FgFw extends GenericEquipment {
         return _fgServices;
     }
 
+    /*
+     * addresses read from an external resource file
+     */
+    protected static class ExternalResourceFile {
+        protected final long _lastModified;
+        protected final long _length;
+        protected final IPIntervals _ipIntervals;
+        /* addresses that cannot be parsed */
+        protected final List<String> _errors;
+
+        protected ExternalResourceFile(long lastModified, long length,
+                                       IPIntervals ipIntervals, List<String> errors) {
+            _lastModified = lastModified;
+            _length = length;
+            _ipIntervals = ipIntervals;
+            _errors = errors;
+        }
+    }
+
+    /*
+     * external resource files already read, keyed by absolute file name. The
+     * files not modified are not read again when the equipment is reloaded.
+     */
+    protected static final Map<String, ExternalResourceFile> _externalResourceFiles
+            = new ConcurrentHashMap<>();
+
+    /*
+     * absolute names of the external resource files referenced by each
+     * equipment. The equipments removed from the configuration are dropped
+     * when they are garbage collected, the files no longer referenced are
+     * removed from the cache after a load.
+     */
+    protected static final Map<FgFw, Set<String>> _externalResourceUsers
+            = new WeakHashMap<>();
+
     /*
      * firewall rules
      */
@@ -164,6 +211,14 @@ public class FgFw extends GenericEquipment {
         return _fgRules;
     }
 
+    /*
+     * enabled firewall rules keyed by input then output interface name. Each
+     * array holds the rules whose interfaces match the pair of interfaces,
+     * in the order of the rules, computed on demand (see rulesOf).
+     */
+    protected Map<String, Map<String, FgFwRule[]>> _fgRulesByIfaces
+            = new ConcurrentHashMap<>();
+
     /*
      * Policy Route rules
      */
@@ -326,6 +381,7 @@ public class FgFw extends GenericEquipment {
         loadConfiguration(doc);
         linkServices();
         linkNetworkObjects();
+        resetRulesPartitions();
 
         /*
          * routing
@@ -381,42 +437,7 @@ public class FgFw extends GenericEquipment {
 
         for (String f : filenames) {
             famAdd(f);
-            FileReader jf;
-            JsonNode rootNode = null;
-            try {
-                jf = new FileReader(f);
-                ObjectMapper objectMapper = new ObjectMapper();
-                rootNode = objectMapper.readTree(jf);
-            } catch (IOException ex) {
-                throwCfgException("Cannot read file " + ex.getMessage(), false);
-            }
-            JsonNode dictNode = rootNode.path("services");
-            loadJsonServices(dictNode);
-
-            dictNode = rootNode.path("serv_groups");
-            loadJsonServicesGroup(dictNode);
-
-            dictNode = rootNode.path("addresses");
-            loadJsonAddresses(dictNode);
-
-            dictNode = rootNode.path("addr_groups");
-            loadJsonNetworkGroup(dictNode);
-
-            dictNode = rootNode.path("ippools");
-            loadJsonIpPools(dictNode);
-
-            dictNode = rootNode.path("external_resource");
-            loadJsonExternalResources(dictNode, externalDirectory);
-
-            dictNode = rootNode.path("rules");
-            loadJsonFwRules(dictNode);
-
-            dictNode = rootNode.path("router_policy");
-            loadJsonPolicyRouteRules(dictNode);
-
-            dictNode = rootNode.path("central_snat_map");
-            loadJsonSnatRules(dictNode);
-
+            loadJsonPolicy(f, externalDirectory);
         }
         // implicit drop rule at the end of the rules
         FgFwRule fwdrop = FgFwRule.newImplicitDropRule();
@@ -429,6 +450,41 @@ public class FgFw extends GenericEquipment {
         _fgSnatRules.sort(new FgSnatRule.FgSnatRuleComparator());
     }
 
+    /*
+     * Loads a policy file. The file is streamed (see JsonSections) and read
+     * twice: the objects, then the rules which reference the objects, so
+     * the order of the sections in the file does not matter. The policy
+     * routes and the SNAT rules (short sections) are kept until the end of
+     * the second pass to be loaded after the rules.
+     */
+    protected void loadJsonPolicy(String fileName, String externalDirectory) {
+
+        Map<String, JsonSections.SectionLoader> objects = new HashMap<>();
+        objects.put("services", this::loadJsonServices);
+        objects.put("serv_groups", this::loadJsonServicesGroup);
+        objects.put("addresses", this::loadJsonAddresses);
+        objects.put("addr_groups", this::loadJsonNetworkGroup);
+        objects.put("ippools", this::loadJsonIpPools);
+        objects.put("external_resource",
+                it -> loadJsonExternalResources(it, externalDirectory));
+
+        List<JsonNode> policyRoutes = new ArrayList<>();
+        List<JsonNode> snatRules = new ArrayList<>();
+        Map<String, JsonSections.SectionLoader> rules = new HashMap<>();
+        rules.put("rules", this::loadJsonFwRules);
+        rules.put("router_policy", it -> it.forEachRemaining(policyRoutes::add));
+        rules.put("central_snat_map", it -> it.forEachRemaining(snatRules::add));
+
+        try {
+            JsonSections.readSections(fileName, objects);
+            JsonSections.readSections(fileName, rules);
+        } catch (IOException ex) {
+            throwCfgException("Cannot read file " + ex.getMessage(), false);
+        }
+        loadJsonPolicyRouteRules(policyRoutes.iterator());
+        loadJsonSnatRules(snatRules.iterator());
+    }
+
     protected void linkServices() {
         /*
          * each service
@@ -659,9 +715,8 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load fw rules from JSON
      */
-    protected void loadJsonFwRules(JsonNode jrules) {
+    protected void loadJsonFwRules(Iterator<JsonNode> it) {
         int number = 1;
-        Iterator<JsonNode> it = jrules.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -714,8 +769,7 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load central SNAT rules from JSON
      */
-    protected void loadJsonSnatRules(JsonNode jrules) {
-        Iterator<JsonNode> it = jrules.elements();
+    protected void loadJsonSnatRules(Iterator<JsonNode> it) {
         while (it.hasNext()) {
             JsonNode n = it.next();
             int number = n.path("policyid").asInt();
@@ -759,9 +813,8 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load policy routes rules from JSON
      */
-    protected void loadJsonPolicyRouteRules(JsonNode jrules) {
+    protected void loadJsonPolicyRouteRules(Iterator<JsonNode> it) {
         int rule_number = 1;
-        Iterator<JsonNode> it = jrules.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -846,8 +899,7 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load addresses from JSON
      */
-    protected void loadJsonAddresses(JsonNode jAddresses) {
-        Iterator<JsonNode> it = jAddresses.elements();
+    protected void loadJsonAddresses(Iterator<JsonNode> it) {
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -896,8 +948,7 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load Ippools from JSON
      */
-    protected void loadJsonIpPools(JsonNode jIppool) {
-        Iterator<JsonNode> it = jIppool.elements();
+    protected void loadJsonIpPools(Iterator<JsonNode> it) {
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -919,9 +970,8 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load network groups from JSON
      */
-    protected void loadJsonNetworkGroup(JsonNode jServGroup) {
+    protected void loadJsonNetworkGroup(Iterator<JsonNode> it) {
 
-        Iterator<JsonNode> it = jServGroup.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -954,9 +1004,8 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load services groups from JSON
      */
-    protected void loadJsonServicesGroup(JsonNode jServGroup) {
+    protected void loadJsonServicesGroup(Iterator<JsonNode> it) {
 
-        Iterator<JsonNode> it = jServGroup.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -980,9 +1029,8 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load services objects from JSON
      */
-    protected void loadJsonServices(JsonNode jServices) {
+    protected void loadJsonServices(Iterator<JsonNode> it) {
 
-        Iterator<JsonNode> it = jServices.elements();
         while (it.hasNext()) {
             JsonNode n = it.next();
             _parseContext = new ParseContext();
@@ -1080,9 +1128,10 @@ public class FgFw extends GenericEquipment {
     /*
      * parse and load external resources objects from JSON
      */
-    protected void loadJsonExternalResources(JsonNode jExternalResource, String resourceDirectory) {
+    protected void loadJsonExternalResources(Iterator<JsonNode> it, String resourceDirectory) {
 
-        Iterator<JsonNode> it = jExternalResource.elements();
+        List<FgNetworkExternalResource> resources = new ArrayList<>();
+        List<String> fileNames = new ArrayList<>();
         while (it.hasNext()) {
             JsonNode n = it.next();
             String sname = n.path("name").textValue();
@@ -1106,36 +1155,121 @@ public class FgFw extends GenericEquipment {
                 throwCfgException("Directory for external resources files not configured !", false);
             }
             String sf = (url.getHost() + "_" + url.getPath()).replaceAll("/", "");
-            loadExternalResources(resource, resourceDirectory + "/" + sf);
+            resources.add(resource);
+            fileNames.add(resourceDirectory + "/" + sf);
+        }
+        loadExternalResources(resources, fileNames);
+        for (FgNetworkExternalResource resource : resources) {
             _fgNetworks.put(resource.getOriginKey(), resource);
         }
     }
 
-    protected void loadExternalResources(FgNetworkExternalResource resource, String fileName) {
-        StringsList lines = new StringsList();
+    /*
+     * loads the addresses of the external resources from their files, the
+     * files are read concurrently by the configuration executor of the
+     * monitor.
+     */
+    protected void loadExternalResources(List<FgNetworkExternalResource> resources,
+                                         List<String> fileNames) {
+
+        Set<String> files = new HashSet<>();
+        for (String fileName : fileNames)
+            files.add(new File(fileName).getAbsolutePath());
+        synchronized (_externalResourceUsers) {
+            _externalResourceUsers.put(this, files);
+        }
+
+        List<Callable<ExternalResourceFile>> tasks = new ArrayList<>(fileNames.size());
+        for (String fileName : fileNames) {
+            famAdd(fileName);
+            tasks.add(() -> readExternalResourceFile(fileName));
+        }
+        List<Future<ExternalResourceFile>> futures = _monitor.submitConfigTasks(tasks);
         try {
-            lines.readFromFile(fileName);
-        } catch (IOException e) {
-            throwCfgException("Cannot read resource file ! resource: " + resource.getName() + " file: " + fileName, false);
+            for (int i = 0; i < futures.size(); i++) {
+                FgNetworkExternalResource resource = resources.get(i);
+                String fileName = fileNames.get(i);
+                ExternalResourceFile file = null;
+                try {
+                    file = futures.get(i).get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof IOException)
+                        throwCfgException("Cannot read resource file ! resource: " + resource.getName() + " file: " + fileName, false);
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new JtaclInternalException(cause.toString());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new JtaclInternalException("configuration interrupted");
+                }
+                for (String error : file._errors) {
+                    warnConfig("cannot parse ip : " + error + " resource: " + resource.getName() + " file: " + fileName, false);
+                }
+                resource.setIpIntervals(file._ipIntervals);
+            }
+        } finally {
+            for (Future<ExternalResourceFile> future : futures)
+                future.cancel(true);
+            evictExternalResourceFiles();
         }
-        famAdd(fileName);
+    }
 
-        for (String l : lines) {
-            _parseContext = new ParseContext();
-            _parseContext.setLine(l);
-            String sl = l.trim();
-            // comment
-            sl = sl.replaceAll("#.*", "").trim();
-            if (sl.isEmpty()) continue;
+    /*
+     * removes from the cache the external resource files no longer
+     * referenced by an equipment.
+     */
+    protected static void evictExternalResourceFiles() {
+        synchronized (_externalResourceUsers) {
+            Set<String> referenced = new HashSet<>();
+            for (Set<String> files : _externalResourceUsers.values())
+                referenced.addAll(files);
+            _externalResourceFiles.keySet().retainAll(referenced);
+        }
+    }
 
-            IPRangeable ipr = null;
-            try {
-                ipr = new IPRange(sl);
-            } catch (UnknownHostException e) {
-                warnConfig("cannot parse ip : " + sl + " resource: " + resource.getName() + " file: " + fileName, false);
+    /*
+     * reads the addresses of an external resource file, one address, network
+     * or range of addresses by line. Returns the cached addresses if the file
+     * has not changed since it was read.
+     */
+    protected static ExternalResourceFile readExternalResourceFile(String fileName)
+            throws IOException {
+
+        File file = new File(fileName).getAbsoluteFile();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        ExternalResourceFile cached = _externalResourceFiles.get(file.getPath());
+        if (cached != null && cached._lastModified == lastModified
+                && cached._length == length)
+            return cached;
+
+        /*
+         * the ranges are not merged: a range overlapping two ranges of the
+         * file matches them but is not contained by one of them.
+         */
+        IPIntervals.Builder builder = new IPIntervals.Builder(false);
+        List<String> errors = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String l;
+            while ((l = reader.readLine()) != null) {
+                // comment
+                int comment = l.indexOf('#');
+                String sl = (comment >= 0 ? l.substring(0, comment) : l).trim();
+                if (sl.isEmpty()) continue;
+                try {
+                    builder.add(new IPRange(sl));
+                } catch (UnknownHostException e) {
+                    errors.add(sl);
+                }
             }
-            if (ipr != null) resource.getIpRanges().add(ipr);
         }
+        ExternalResourceFile result = new ExternalResourceFile(lastModified,
+                length, builder.build(), errors);
+        _externalResourceFiles.put(file.getPath(), result);
+        return result;
     }
 
     protected IPCrossRef getIPNetCrossRef(IPRangeable iprange) {
@@ -1586,11 +1720,46 @@ public class FgFw extends GenericEquipment {
     }
 
     protected MatchResult interfaceFilter(IfaceLink link, FgIfacesSpec ifacesSpec) {
+        return interfaceFilter(link.getIfaceName(), ifacesSpec);
+    }
+
+    protected MatchResult interfaceFilter(String ifaceName, FgIfacesSpec ifacesSpec) {
         MatchResult mr = ifacesSpec.isAny() ? MatchResult.ALL
-                : (ifacesSpec.contains(link.getIfaceName()) ? MatchResult.ALL : MatchResult.NOT);
+                : (ifacesSpec.contains(ifaceName) ? MatchResult.ALL : MatchResult.NOT);
         return ifacesSpec.hasNegate() ? mr.not() : mr;
     }
 
+    /*
+     * discards the partitions of the rules by pair of interfaces, they are
+     * computed on demand from the rules (see rulesOf).
+     */
+    protected void resetRulesPartitions() {
+        _fgRulesByIfaces.clear();
+    }
+
+    /*
+     * returns the enabled rules matching the input and output interfaces in
+     * argument ("any" and negated interfaces included), in the order of the
+     * rules. The partition of a pair of interfaces is computed on its first
+     * use and then kept.
+     */
+    protected FgFwRule[] rulesOf(String ifaceIn, String ifaceOut) {
+        Map<String, FgFwRule[]> byOut = _fgRulesByIfaces.computeIfAbsent(ifaceIn,
+                k -> new ConcurrentHashMap<>());
+        return byOut.computeIfAbsent(ifaceOut, k -> {
+            List<FgFwRule> rules = new ArrayList<>();
+            for (FgFwRule rule : _fgRules) {
+                if (rule.isDisabled())
+                    continue;
+                if (rule.isImplicitDrop() ||
+                        (interfaceFilter(ifaceIn, rule.getSourceIfaces()) != MatchResult.NOT &&
+                                interfaceFilter(ifaceOut, rule.getDestIfaces()) != MatchResult.NOT))
+                    rules.add(rule);
+            }
+            return rules.toArray(new FgFwRule[0]);
+        });
+    }
+
     protected MatchResult ipSpecFilter(FgFwIpSpec ipSpec, IPRangeable range) {
 
         MatchResult mres = ipSpec.getNetworks().matches(range);
@@ -1609,21 +1778,14 @@ public class FgFw extends GenericEquipment {
         return mres;
     }
 
-    protected MatchResult ruleFilter(IfaceLink linkIn, IfaceLink linkOut, Probe probe, FgFwRule rule) {
-        /*
-         * disabled
-         */
-        if (rule.isDisabled()) return MatchResult.NOT;
-
+    /*
+     * the rule is one of the partition of the interfaces of the probe (see
+     * rulesOf), it is enabled and matches the interfaces.
+     */
+    protected MatchResult ruleFilter(Probe probe, FgFwRule rule) {
         /* implicit drop */
         if (rule.isImplicitDrop()) return MatchResult.ALL;
 
-        /*
-         * interfaces
-         */
-        if (interfaceFilter(linkIn, rule.getSourceIfaces()) == MatchResult.NOT) return MatchResult.NOT;
-        if (interfaceFilter(linkOut, rule.getDestIfaces()) == MatchResult.NOT) return MatchResult.NOT;
-
         /*
          * check source IP
          */
@@ -1672,9 +1834,8 @@ public class FgFw extends GenericEquipment {
         ProbeResults results = probe.getResults();
 
         MatchResult match;
-        for (FgFwRule rule : _fgRules) {
-            String ruleText = rule.toText();
-            match = ruleFilter(linkIn, linkOut, probe, rule);
+        for (FgFwRule rule : rulesOf(ifaceNameIn, ifaceNameOut)) {
+            match = ruleFilter(probe, rule);
             /* if the rule matches */
             if (match != MatchResult.NOT) {
                 /*
@@ -1693,10 +1854,10 @@ public class FgFw extends GenericEquipment {
                 if (match == MatchResult.MATCH || match == MatchResult.UNKNOWN)
                     aclResult.addResult(FwResult.MAY);
 
-                results.addMatchingAcl(Direction.IN, ruleText,
-                        aclResult);
-                results.addMatchingAcl(Direction.OUT, ruleText,
-                        aclResult);
+                AccessControlList acl = new AccessControlList(rule,
+                        FgFwRule::toText, aclResult);
+                results.addMatchingAcl(Direction.IN, acl);
+                results.addMatchingAcl(Direction.OUT, acl);
 
                 results.setInterface(Direction.IN,
                         ifaceNameIn + " (" + ifaceCommentIn + ")");
@@ -1708,14 +1869,10 @@ public class FgFw extends GenericEquipment {
                  * this is the first ace that match the packet.
                  */
                 if (results.getActiveAcl(Direction.IN).isEmpty() && (aclResult.hasAccept() || aclResult.hasDeny())) {
-                    results.addActiveAcl(Direction.IN,
-                            ruleText,
-                            aclResult);
+                    results.addActiveAcl(Direction.IN, acl);
                 }
                 if (results.getActiveAcl(Direction.OUT).isEmpty() && (aclResult.hasAccept() || aclResult.hasDeny())) {
-                    results.addActiveAcl(Direction.OUT,
-                            ruleText,
-                            aclResult);
+                    results.addActiveAcl(Direction.OUT, acl);
                 }
             }
         }
@@ -1736,7 +1893,6 @@ public class FgFw extends GenericEquipment {
         MatchResult match;
         int may = 0;
         for (FgPolicyRouteRule rule : _fgPolicyRouteRules) {
-            String ruleText = rule.toText();
             match = policyRouteRuleFilter(link, probe, rule);
 
             if (match == MatchResult.ALL) {
@@ -1765,8 +1921,9 @@ public class FgFw extends GenericEquipment {
                     aclResult.addResult(FwResult.MAY);
                 }
 
-                results.addMatchingAcl(Direction.IN, ruleText,
-                        aclResult);
+                AccessControlList acl = new AccessControlList(rule,
+                        FgPolicyRouteRule::toText, aclResult);
+                results.addMatchingAcl(Direction.IN, acl);
 
                 results.setInterface(Direction.IN,
                         ifaceName + " (" + ifaceComment + ")");
@@ -1776,9 +1933,7 @@ public class FgFw extends GenericEquipment {
                  * this is the first ace that match the packet.
                  */
                 if (results.getActiveAcl(Direction.IN).isEmpty() && (aclResult.hasAccept() || aclResult.hasDeny())) {
-                    results.addActiveAcl(Direction.IN,
-                            ruleText,
-                            aclResult);
+                    results.addActiveAcl(Direction.IN, acl);
                 }
             }
         }
@@ -1858,7 +2013,6 @@ public class FgFw extends GenericEquipment {
         MatchResult match;
         int may = 0;
         for (FgSnatRule rule : _fgSnatRules) {
-            String ruleText = rule.toText();
             match = sNatRuleFilter(linkIn, linkOut, probe, rule);
 
             if (match == MatchResult.ALL) {
@@ -1879,8 +2033,8 @@ public class FgFw extends GenericEquipment {
                     aclResult.addResult(FwResult.MAY);
                 }
 
-                results.addMatchingAcl(Direction.OUT, ruleText,
-                        aclResult);
+                results.addMatchingAcl(Direction.OUT,
+                        new AccessControlList(rule, FgSnatRule::toText, aclResult));
 
                 results.setInterface(Direction.OUT,
                         ifaceNameOut + " (" + ifaceCommentOut + ")");
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.fortigate;
 
+import java.io.Serializable;
+
 /**
  * Fortigate IP specification firewall rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class FgFwIpSpec {
+public class FgFwIpSpec implements Serializable {
     protected FgNetworkGroup _networks = new FgNetworkGroup("", "", "", "");
     protected boolean _notIn;
 
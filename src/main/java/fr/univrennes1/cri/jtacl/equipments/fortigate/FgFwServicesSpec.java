@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.fortigate;
 
+import java.io.Serializable;
+
 /**
  * Fortigate service specification firewall rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class FgFwServicesSpec {
+public class FgFwServicesSpec implements Serializable {
 
     protected FgServicesGroup _services = new FgServicesGroup();
     protected boolean _notIn;
@@ -9,6 +9,7 @@
 
 package fr.univrennes1.cri.jtacl.equipments.fortigate;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -17,7 +18,7 @@ import java.util.List;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class FgIpPoolSpec {
+public class FgIpPoolSpec implements Serializable {
     protected List<FgNetworkIpPool> _ippools = new LinkedList<>();
 
     public List<FgNetworkIpPool> getIpPools() {
@@ -10,9 +10,9 @@
 package fr.univrennes1.cri.jtacl.equipments.fortigate;
 
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
+import fr.univrennes1.cri.jtacl.lib.ip.IPIntervals;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -22,8 +22,8 @@ import java.util.List;
  */
 public class FgNetworkExternalResource extends FgNetworkObject {
 
-    /* List of IP */
-    protected List<IPRangeable> _ipRanges = new LinkedList<>();
+    /* IP addresses of the resource, sorted, the ranges contained by another one removed */
+    protected IPIntervals _ipIntervals = new IPIntervals.Builder().build();
 
     protected boolean _status;
     protected String _resource;
@@ -46,8 +46,22 @@ public class FgNetworkExternalResource extends FgNetworkObject {
         return _status;
     }
 
+    public IPIntervals getIpIntervals() {
+        return _ipIntervals;
+    }
+
+    public void setIpIntervals(IPIntervals ipIntervals) {
+        _ipIntervals = ipIntervals;
+    }
+
+    /**
+     * Returns the IP addresses of the resource as a new list of ranges. The
+     * ranges are sorted and the ranges contained by another one are removed.
+     *
+     * @return a new list of the IP ranges of the resource.
+     */
     public List<IPRangeable> getIpRanges() {
-        return _ipRanges;
+        return _ipIntervals.toRanges();
     }
 
     public String getResource() {
@@ -60,7 +74,7 @@ public class FgNetworkExternalResource extends FgNetworkObject {
         String s = _name + ", " + _originKey + ", " + _comment + ", " + _type + ", " + _resource + ", [";
         sb.append(s);
         boolean start = true;
-        for (IPRangeable ipr : _ipRanges) {
+        for (IPRangeable ipr : getIpRanges()) {
             if (!start) sb.append(", ");
             else start = false;
             sb.append(ipr.toNetString("::i"));
@@ -72,18 +86,8 @@ public class FgNetworkExternalResource extends FgNetworkObject {
     @Override
     public MatchResult matches(IPRangeable ip) {
         if (!_status) return MatchResult.NOT;
-        int mAll = 0;
-        int mMay = 0;
-        for (IPRangeable i : _ipRanges) {
-            if (ip.sameIPVersion(i)) {
-                if (i.contains(ip))
-                    mAll++;
-                if (i.overlaps(ip))
-                    mMay++;
-            }
-        }
-        if (mAll > 0) return MatchResult.ALL;
-        if (mMay > 0) return MatchResult.MATCH;
+        if (_ipIntervals.contains(ip)) return MatchResult.ALL;
+        if (_ipIntervals.overlaps(ip)) return MatchResult.MATCH;
         return MatchResult.NOT;
     }
 }
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.fortigate;
 
+import java.io.Serializable;
+
 /**
  * Fortigate base object
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class FgObject {
+public class FgObject implements Serializable {
     protected String _name;
     protected String _originKey;
 
@@ -12,7 +12,9 @@ import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
 import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
 
-public class FgPortsSpec {
+import java.io.Serializable;
+
+public class FgPortsSpec implements Serializable {
     protected PortSpec _sourcePorts;
     protected PortSpec _destPorts;
 
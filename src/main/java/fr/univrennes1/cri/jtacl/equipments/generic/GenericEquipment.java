@@ -37,6 +37,7 @@ import org.w3c.dom.NodeList;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -63,7 +64,7 @@ public class GenericEquipment extends NetworkEquipment {
     /**
      * writer used to dump the configuration to a file, may be null.
      */
-    private BufferedWriter _dumpConfigurationWriter;
+    private transient BufferedWriter _dumpConfigurationWriter;
 
     /**
      * Routing engine.
@@ -73,22 +74,22 @@ public class GenericEquipment extends NetworkEquipment {
     /**
      * services database
      */
-    protected IPServices _ipServices;
+    protected transient IPServices _ipServices;
 
     /**
      * protocols database
      */
-    protected IPProtocols _ipProtocols;
+    protected transient IPProtocols _ipProtocols;
 
     /**
      * icmp type database (ipv4)
      */
-    protected IPIcmp _ipIcmp4Types;
+    protected transient IPIcmp _ipIcmp4Types;
 
     /**
      * icmp type database (ipv6)
      */
-    protected IPIcmp _ipIcmp6Types;
+    protected transient IPIcmp _ipIcmp6Types;
 
     /**
      * Filters are regexp uses to filter-out some input from configuration.
@@ -417,6 +418,18 @@ public class GenericEquipment extends NetworkEquipment {
         _ipIcmp6Types = IPIcmp6.getInstance();
     }
 
+    /*
+     * the databases are not part of a snapshot of the equipment.
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        _ipServices = IPServices.getInstance();
+        _ipProtocols = IPProtocols.getInstance();
+        _ipIcmp4Types = IPIcmp4.getInstance();
+        _ipIcmp6Types = IPIcmp6.getInstance();
+    }
+
     @Override
     public ShowableRoutes getShowableRoutes() {
         return _routingEngine;
@@ -437,6 +450,11 @@ public class GenericEquipment extends NetworkEquipment {
         return !files.isEmpty();
     }
 
+    @Override
+    public List<String> getMonitoredFiles() {
+        return _fam.listFiles();
+    }
+
     @Override
     public Routes getRoutes(IPRangeable destination) {
         return _routingEngine.getRoutes(destination);
@@ -28,6 +28,7 @@ import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
 import fr.univrennes1.cri.jtacl.shell.ShellUtils;
 
 import java.io.*;
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -39,7 +40,7 @@ import java.util.Scanner;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public abstract class GenericEquipmentShell {
+public abstract class GenericEquipmentShell implements Serializable {
 
     /**
      * Returns the equipment associated to this shell.
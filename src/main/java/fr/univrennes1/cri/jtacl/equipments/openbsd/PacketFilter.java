@@ -27,6 +27,7 @@ import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
 import fr.univrennes1.cri.jtacl.core.network.Route;
 import fr.univrennes1.cri.jtacl.core.network.Routes;
 import fr.univrennes1.cri.jtacl.core.network.RoutingEngine;
+import fr.univrennes1.cri.jtacl.core.probing.AccessControlList;
 import fr.univrennes1.cri.jtacl.core.probing.FwResult;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
@@ -50,7 +51,7 @@ import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 import fr.univrennes1.cri.jtacl.lib.misc.StringTools;
 import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.parserunners.BasicParseRunner;
 import org.parboiled.support.ParsingResult;
 import org.w3c.dom.Document;
@@ -63,6 +64,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
@@ -84,7 +86,7 @@ public class PacketFilter extends GenericEquipment {
     /**
      * Configuration file, mapped into string.
      */
-    protected class ConfigurationFile {
+    protected class ConfigurationFile implements Serializable {
 
         protected String _fileName;
         protected StringBuilder _buffer = new StringBuilder();
@@ -118,6 +120,37 @@ public class PacketFilter extends GenericEquipment {
         }
     }
 
+    /**
+     * Filter state, shared by the filter contexts of one filtering.
+     */
+    protected static class FilterState {
+        /*
+         * filtering flag done
+         */
+        protected boolean _filteringDone = false;
+
+        /*
+         * route to engine
+         */
+        protected RoutingEngine _routeToEngine = null;
+
+        public boolean isFilteringDone() {
+            return _filteringDone;
+        }
+
+        public void setFilteringDone(boolean filteringDone) {
+            _filteringDone = filteringDone;
+        }
+
+        public RoutingEngine getRouteToEngine() {
+            return _routeToEngine;
+        }
+
+        public void setRouteToEngine(RoutingEngine routeToEngine) {
+            _routeToEngine = routeToEngine;
+        }
+    }
+
     /**
      * Filter context
      */
@@ -125,6 +158,8 @@ public class PacketFilter extends GenericEquipment {
         protected PfAnchor _anchor;
         protected Direction _direction;
         protected IfaceLink _link;
+        protected FilterState _state = new FilterState();
+        protected int _skipStep = PfRule.SKIP_NONE;
 
         public Direction getDirection() {
             return _direction;
@@ -150,17 +185,34 @@ public class PacketFilter extends GenericEquipment {
             _anchor = anchor;
         }
 
+        public FilterState getState() {
+            return _state;
+        }
+
+        /**
+         * Returns the skip step of the field that made the last rule
+         * evaluated not match (PfRule.SKIP_NONE if none).
+         */
+        public int getSkipStep() {
+            return _skipStep;
+        }
+
+        public void setSkipStep(int skipStep) {
+            _skipStep = skipStep;
+        }
+
         public FilterContext newInstance() {
             FilterContext instance = new FilterContext();
             instance._anchor = _anchor;
             instance._direction = _direction;
             instance._link = _link;
+            instance._state = _state;
             return instance;
         }
 
     }
 
-    protected class TableToLoad {
+    protected class TableToLoad implements Serializable {
         protected String _name;
         protected String _anchorName;
         protected StringsList _files = new StringsList();
@@ -187,20 +239,27 @@ public class PacketFilter extends GenericEquipment {
     /**
      * Parser
      */
-    protected PacketFilterParser _parser =
-            Parboiled.createParser(PacketFilterParser.class);
+    protected transient PacketFilterParser _parser;
 
     /**
      * ParseRunner for parse()
      */
-    protected BasicParseRunner _parseRunParse =
-            new BasicParseRunner(_parser.Parse());
+    protected transient BasicParseRunner _parseRunParse;
 
     /**
      * ParseRunner for PfGenericRule
      */
-    protected BasicParseRunner _parseRunePfGenericRule =
-            new BasicParseRunner(_parser.PfGenericRule());
+    protected transient BasicParseRunner _parseRunePfGenericRule;
+
+    /**
+     * Gets the parser of the current thread and creates the parse runners.
+     * Must be called by the thread that parses the configuration.
+     */
+    protected void initParsers() {
+        _parser = ParserCache.getParser(PacketFilterParser.class);
+        _parseRunParse = new BasicParseRunner(_parser.Parse());
+        _parseRunePfGenericRule = new BasicParseRunner(_parser.PfGenericRule());
+    }
 
     /*
      * interfaces
@@ -282,27 +341,17 @@ public class PacketFilter extends GenericEquipment {
     /**
      * the next anchor uid that will be generated.
      */
-    protected static int _anchorNextUid = 0;
+    protected int _anchorNextUid = 0;
 
     /**
      * Generates and returns a new anchor uid.
      */
-    synchronized protected int newAnchorUid() {
+    protected int newAnchorUid() {
         int uid = _anchorNextUid;
         _anchorNextUid++;
         return uid;
     }
 
-    /**
-     * route to engine.
-     */
-    protected RoutingEngine _routeToEngine = null;
-
-    /**
-     * filtering flag done, used at filtering time.
-     */
-    protected boolean _filteringDone = false;
-
     protected void throwCfgException(String msg) {
         if (_parseContext != null)
             throw new JtaclConfigurationException(_parseContext.toString() + msg);
@@ -1795,18 +1844,20 @@ public class PacketFilter extends GenericEquipment {
         famAdd(cfg.getFileName());
 
         StringBuilder buffer = cfg.getBuffer();
+        int length = buffer.length();
+        int position = 0;
         int lineNumber = 1;
         int nbLine;
         int inlinedAnchor = 0;
 
-        while (buffer.length() > 0) {
+        while (position < length) {
             /*
              * get the rule.
              */
             _parseContext = new ParseContext();
             ExpandedRule exRule = null;
             try {
-                exRule = _parser.getRule(buffer, macros);
+                exRule = _parser.getRule(buffer, position, macros);
             } catch (JtaclConfigurationException ex) {
                 StringBuilder ctx = _parser.getCurExpandedContext();
                 _parseContext.set(cfg.getFileName(), lineNumber, ctx.toString());
@@ -1986,17 +2037,14 @@ public class PacketFilter extends GenericEquipment {
             }
 
             /*
-             * adjust the rule buffer.
+             * skip the lines of the rule.
              */
             lineNumber += nbLine;
-            int j = 0;
-            for (int n = nbLine; n > 0 && j < buffer.length(); j++) {
-                if (buffer.charAt(j) == '\n') {
+            for (int n = nbLine; n > 0 && position < length; position++) {
+                if (buffer.charAt(position) == '\n') {
                     n--;
                 }
             }
-            if (j > 0)
-                buffer.delete(0, j);
         } // while
 
         /*
@@ -2012,6 +2060,8 @@ public class PacketFilter extends GenericEquipment {
         if (_configurationFileName.isEmpty())
             return null;
 
+        initParsers();
+
         /*
          * Read the XML configuration file
          */
@@ -2034,6 +2084,8 @@ public class PacketFilter extends GenericEquipment {
         parse(_pfConf);
         loadAnchors();
         loadTables();
+        _rootAnchor.computeSkipSteps();
+        _rootAnchor.indexTables();
         routeDirectlyConnectedNetworks();
         for (String file : _routesFiles) {
             loadRoutesFromFile(file);
@@ -2210,9 +2262,9 @@ public class PacketFilter extends GenericEquipment {
         probe.setExtension(pext);
 
         /*
-         * reset route-to Engine
+         * route-to Engine
          */
-        _routeToEngine = null;
+        RoutingEngine routeToEngine = null;
 
         if (!link.isLoopback()) {
             probe.decTimeToLive();
@@ -2224,7 +2276,7 @@ public class PacketFilter extends GenericEquipment {
             /*
              * Filter in the probe
              */
-            packetFilter(link, Direction.IN, probe);
+            routeToEngine = packetFilter(link, Direction.IN, probe);
         }
 
         /*
@@ -2246,8 +2298,8 @@ public class PacketFilter extends GenericEquipment {
          * Route the probe.
          */
         Routes routes;
-        if (_routeToEngine != null)
-            routes = _routeToEngine.getRoutes(probe);
+        if (routeToEngine != null)
+            routes = routeToEngine.getRoutes(probe);
         else
             routes = _routingEngine.getRoutes(probe);
 
@@ -2391,8 +2443,7 @@ public class PacketFilter extends GenericEquipment {
             /*
              * get the result for the table
              */
-            MatchResult res = tableIpspecFilter(context, table.getIpspec(),
-                    ipAddress, af);
+            MatchResult res = tableFilter(context, table, ipAddress, af);
 
             if (host.isNot())
                 res = res.not();
@@ -2477,107 +2528,36 @@ public class PacketFilter extends GenericEquipment {
     /*
      * table filter
      */
-    protected MatchResult tableIpspecFilter(FilterContext context,
-                                            PfIpSpec ipspec, IPRangeable ipAddress, AddressFamily af) {
+    protected MatchResult tableFilter(FilterContext context,
+                                      PfTable table, IPRangeable ipAddress, AddressFamily af) {
 
         /*
          * XXX: 'not' addresses in table are treated as exception
          * https://www.openbsd.org/faq/pf/tables.html
          */
-        PfIpSpec orIpSpec = new PfIpSpec();
-        PfIpSpec exceptIpSpec = new PfIpSpec();
-
-        for (PfNodeHost host : ipspec) {
-            /*
-             * addr mask
-             */
-            if (!host.isAddrMask())
-                throw new JtaclInternalException("invalid address in table");
-
-
-            if (host.isNot())
-                exceptIpSpec.add(host);
-            else
-                orIpSpec.add(host);
-        }
-
-        int ormAll = 0;
-        int ormMatch = 0;
-
-        for (PfNodeHost host : orIpSpec) {
-            int mAll = 0;
-            int mMatch = 0;
-
-            for (IPNet ip : host.getAddr()) {
-                if (!ip.sameIPVersion(ipAddress))
-                    continue;
-
-                if (ip.contains(ipAddress)) {
-                    mAll++;
-                } else {
-                    if (ip.overlaps(ipAddress))
-                        mMatch++;
-                }
-            }
-            if (mAll > 0)
-                ormAll++;
-            else if (mMatch > 0)
-                ormMatch++;
-
-        }
-        // no match so we don't check exception
-        if ((ormAll == 0) && (ormMatch == 0))
-            return MatchResult.NOT;
-
-        int exmAll = 0;
-        int exmMatch = 0;
-
-        for (PfNodeHost host : exceptIpSpec) {
-            int mAll = 0;
-            int mMatch = 0;
-
-            for (IPNet ip : host.getAddr()) {
-                if (!ip.sameIPVersion(ipAddress))
-                    continue;
-
-                if (ip.contains(ipAddress)) {
-                    mAll++;
-                } else {
-                    if (ip.overlaps(ipAddress))
-                        mMatch++;
-                }
-            }
-            if (mAll > 0)
-                exmAll++;
-            else if (mMatch > 0)
-                exmMatch++;
-
-        }
-        // at least one may match
-        if (ormAll == 0 && ormMatch > 0)
-            return MatchResult.MATCH;
+        if (!table.isIndexed())
+            throw new JtaclInternalException("invalid address in table");
 
-        // no exception match
-        if (ormAll > 0 && exmAll == 0 && exmMatch == 0) {
-            return MatchResult.ALL;
-        }
+        boolean orAll = table.contains(ipAddress, false);
 
-        // exception may match
-        if (ormAll > 0 && exmAll == 0 && exmMatch > 0) {
+        if (!orAll) {
+            // no match so we don't check exception
+            if (!table.overlaps(ipAddress, false))
+                return MatchResult.NOT;
+            // at least one may match
             return MatchResult.MATCH;
         }
 
         // at least one exception match
-        if (ormAll > 0 && exmAll > 0) {
+        if (table.contains(ipAddress, true))
             return MatchResult.NOT;
-        }
 
-        // at least one exception may match
-        if (ormAll > 0 && exmMatch > 0) {
+        // exception may match
+        if (table.overlaps(ipAddress, true))
             return MatchResult.MATCH;
-        }
 
-        return MatchResult.UNKNOWN;
+        // no exception match
+        return MatchResult.ALL;
     }
 
     /**
@@ -2656,13 +2636,16 @@ public class PacketFilter extends GenericEquipment {
                                      Probe probe) {
 
         ProbeRequest request = probe.getRequest();
+        context.setSkipStep(PfRule.SKIP_NONE);
 
         /*
          * direction
          */
         if (rule.getDirection() != Direction.INOUT) {
-            if (context.getDirection() != rule.getDirection())
+            if (context.getDirection() != rule.getDirection()) {
+                context.setSkipStep(PfRule.SKIP_DIR);
                 return MatchResult.NOT;
+            }
         }
 
         /*
@@ -2670,6 +2653,7 @@ public class PacketFilter extends GenericEquipment {
          */
         String ifname = context.getLink().getIfaceName();
         if (!rule.getIfList().isEmpty() && !rule.getIfList().matches(ifname)) {
+            context.setSkipStep(PfRule.SKIP_IFP);
             return MatchResult.NOT;
         }
 
@@ -2687,18 +2671,21 @@ public class PacketFilter extends GenericEquipment {
                     break;
                 }
             }
-            if (!match)
+            if (!match) {
+                context.setSkipStep(PfRule.SKIP_PROTO);
                 return MatchResult.NOT;
+            }
         }
 
         /*
          * Address family
          */
         AddressFamily af = rule.getAf();
-        if (af == AddressFamily.INET && !probe.isIPv4())
-            return MatchResult.NOT;
-        if (af == AddressFamily.INET6 && !probe.isIPv6())
+        if ((af == AddressFamily.INET && !probe.isIPv4()) ||
+                (af == AddressFamily.INET6 && !probe.isIPv6())) {
+            context.setSkipStep(PfRule.SKIP_AF);
             return MatchResult.NOT;
+        }
 
         MatchResult mIpSource = MatchResult.ALL;
         MatchResult mIpDest = MatchResult.ALL;
@@ -2712,8 +2699,10 @@ public class PacketFilter extends GenericEquipment {
             PfIpSpec ipspec = rule.getFromIpSpec();
             mIpSource = ipspecFilter(context, ipspec,
                     probe.getSourceAddress(), af);
-            if (mIpSource == MatchResult.NOT)
+            if (mIpSource == MatchResult.NOT) {
+                context.setSkipStep(PfRule.SKIP_SRC_ADDR);
                 return MatchResult.NOT;
+            }
 
             /*
              * from port spec
@@ -2721,8 +2710,10 @@ public class PacketFilter extends GenericEquipment {
             PortSpec port = request.getSourcePort();
             if (port != null) {
                 mSourcePort = portspecFilter(rule.getFromPortSpec(), port);
-                if (mSourcePort == MatchResult.NOT)
+                if (mSourcePort == MatchResult.NOT) {
+                    context.setSkipStep(PfRule.SKIP_SRC_PORT);
                     return MatchResult.NOT;
+                }
             }
 
             /*
@@ -2731,8 +2722,10 @@ public class PacketFilter extends GenericEquipment {
             ipspec = rule.getToIpSpec();
             mIpDest = ipspecFilter(context, ipspec,
                     probe.getDestinationAddress(), af);
-            if (mIpDest == MatchResult.NOT)
+            if (mIpDest == MatchResult.NOT) {
+                context.setSkipStep(PfRule.SKIP_DST_ADDR);
                 return MatchResult.NOT;
+            }
 
             /*
              * to port spec
@@ -2740,8 +2733,10 @@ public class PacketFilter extends GenericEquipment {
             port = request.getDestinationPort();
             if (port != null) {
                 mDestPort = portspecFilter(rule.getToPortSpec(), port);
-                if (mDestPort == MatchResult.NOT)
+                if (mDestPort == MatchResult.NOT) {
+                    context.setSkipStep(PfRule.SKIP_DST_PORT);
                     return MatchResult.NOT;
+                }
             }
         }
 
@@ -2798,7 +2793,7 @@ public class PacketFilter extends GenericEquipment {
         if (mResult == MatchResult.MATCH)
             return MatchResult.MATCH;
 
-        if (_filteringDone)
+        if (context.getState().isFilteringDone())
             return mResult;
 
         /*
@@ -2824,8 +2819,9 @@ public class PacketFilter extends GenericEquipment {
 
         Route<IfaceLink> route = new Route<>(probe.getDestinationAddress().nearestNetwork(),
                 routeOpts.getNextHop(), 0, routeOpts.getLink());
-        _routeToEngine = new RoutingEngine();
-        _routeToEngine.addRoute(route);
+        RoutingEngine routeToEngine = new RoutingEngine();
+        routeToEngine.addRoute(route);
+        context.getState().setRouteToEngine(routeToEngine);
 
         return mResult;
     }
@@ -2834,14 +2830,14 @@ public class PacketFilter extends GenericEquipment {
         protected PfGenericRule _rule;
         protected MatchResult _match;
         protected String _action;
-        protected String _text;
+        protected String _anchorPath;
 
         protected RuleResult(PfGenericRule rule, MatchResult match,
-                             String action, String text) {
+                             String action, String anchorPath) {
             _rule = rule;
             _match = match;
             _action = action;
-            _text = text;
+            _anchorPath = anchorPath;
         }
 
         protected MatchResult getMatch() {
@@ -2868,16 +2864,22 @@ public class PacketFilter extends GenericEquipment {
             _action = action;
         }
 
-        public String getText() {
-            return _text;
+        public String getAnchorPath() {
+            return _anchorPath;
         }
 
-        public void setText(String text) {
-            _text = text;
+        /*
+         * the text is only built when it is requested.
+         */
+        public String getText() {
+            String anchorText = "";
+            if (!_anchorPath.isEmpty())
+                anchorText = "[" + _anchorPath + "] ";
+            return _rule.getConfigurationLine() + anchorText + _rule.getText();
         }
 
         protected RuleResult newInstance() {
-            return new RuleResult(_rule, _match, _action, _text);
+            return new RuleResult(_rule, _match, _action, _anchorPath);
         }
     }
 
@@ -2910,16 +2912,24 @@ public class PacketFilter extends GenericEquipment {
 
         protected RuleResult addRuleResult(PfGenericRule rule, MatchResult match,
                                            String action, String anchorPath) {
-            String anchorText = "";
-            if (!anchorPath.isEmpty())
-                anchorText = "[" + anchorPath + "] ";
-            String text = rule.getConfigurationLine() + anchorText + rule.getText();
-            RuleResult result = new RuleResult(rule, match, action, text);
+            RuleResult result = new RuleResult(rule, match, action, anchorPath);
             _ruleResults.add(result);
             return result;
         }
     }
 
+    /**
+     * Returns the index of the next rule to evaluate after the rule in
+     * argument did not match.
+     */
+    protected int skipStep(FilterContext context, PfGenericRule rule, int next) {
+        int step = context.getSkipStep();
+        int[] skipSteps = rule.getSkipSteps();
+        if (step == PfRule.SKIP_NONE || skipSteps == null)
+            return next;
+        return Math.max(next, skipSteps[step]);
+    }
+
     protected AnchorResult anchorFilter(FilterContext context, Probe probe) {
 
         PfAnchor anchor = context.getAnchor();
@@ -2927,9 +2937,15 @@ public class PacketFilter extends GenericEquipment {
         String anchorPath = anchor.getPath();
 
         /*
-         * each rule
+         * each rule. When a rule does not match because of a field, the
+         * following rules with the same value for this field are skipped
+         * (skip steps).
          */
-        for (PfGenericRule rule : anchor.getRules()) {
+        List<PfGenericRule> rules = anchor.getRules();
+        int next;
+        for (int i = 0; i < rules.size(); i = next) {
+            PfGenericRule rule = rules.get(i);
+            next = i + 1;
 
             /*
              * anchor rule
@@ -2937,8 +2953,10 @@ public class PacketFilter extends GenericEquipment {
             if (rule instanceof PfAnchorRule) {
                 PfAnchorRule anchorRule = (PfAnchorRule) rule;
                 MatchResult match = ruleFilter(context, anchorRule.getPfRule(), probe);
-                if (match == MatchResult.NOT)
+                if (match == MatchResult.NOT) {
+                    next = skipStep(context, rule, next);
                     continue;
+                }
                 RuleResult ruleResult = anchorResult.addRuleResult(rule, match,
                         PfRule.PASS, anchorPath);
                 /*
@@ -3013,14 +3031,16 @@ public class PacketFilter extends GenericEquipment {
             if (rule instanceof PfRule) {
                 PfRule pfrule = (PfRule) rule;
                 MatchResult match = ruleFilter(context, pfrule, probe);
-                if (match != MatchResult.NOT) {
-                    RuleResult result = anchorResult.addRuleResult(rule, match,
-                            pfrule.getAction(), anchorPath);
-                    anchorResult.setLastResult(result);
-                    if (pfrule.isQuick()) {
-                        anchorResult.setQuickRule(true);
-                        _filteringDone = true;
-                    }
+                if (match == MatchResult.NOT) {
+                    next = skipStep(context, rule, next);
+                    continue;
+                }
+                RuleResult result = anchorResult.addRuleResult(rule, match,
+                        pfrule.getAction(), anchorPath);
+                anchorResult.setLastResult(result);
+                if (pfrule.isQuick()) {
+                    anchorResult.setQuickRule(true);
+                    context.getState().setFilteringDone(true);
                 }
             }
         }
@@ -3028,7 +3048,12 @@ public class PacketFilter extends GenericEquipment {
         return anchorResult;
     }
 
-    protected void packetFilter(IfaceLink link, Direction direction, Probe probe) {
+    /**
+     * Filters the probe on the link in the direction in argument.
+     *
+     * @return the route-to engine set by the matching rules, null if none.
+     */
+    protected RoutingEngine packetFilter(IfaceLink link, Direction direction, Probe probe) {
 
         String interfaceDesc = link.getIfaceName() + " (" +
                 link.getIface().getComment() + ")";
@@ -3040,17 +3065,16 @@ public class PacketFilter extends GenericEquipment {
         if (probe.getRequest().getProbeOptions().hasState()) {
             probeResults.setAclResult(direction, new FwResult(FwResult.ACCEPT));
             probeResults.setInterface(direction, interfaceDesc + " # STATE MATCH");
-            return;
+            return null;
         }
 
-        _filteringDone = false;
         /*
          * skipped interface
          */
         if (_skippedIfaces.containsKey(link.getIfaceName())) {
             probeResults.setAclResult(direction, new FwResult(FwResult.ACCEPT));
             probeResults.setInterface(direction, interfaceDesc + " # SKIPPED");
-            return;
+            return null;
         }
 
         /*
@@ -3074,8 +3098,8 @@ public class PacketFilter extends GenericEquipment {
             if (ruleResult.getMatch() != MatchResult.ALL)
                 aclResult.addResult(FwResult.MAY);
             probeResults.addMatchingAcl(direction,
-                    ruleResult.getText(),
-                    aclResult);
+                    new AccessControlList(ruleResult, RuleResult::getText,
+                            aclResult));
         }
 
         /*
@@ -3090,7 +3114,9 @@ public class PacketFilter extends GenericEquipment {
                 aclResult.addResult(FwResult.ACCEPT);
             if (lastResult.getMatch() != MatchResult.ALL)
                 aclResult.addResult(FwResult.MAY);
-            probeResults.addActiveAcl(direction, lastResult.getText(), aclResult);
+            probeResults.addActiveAcl(direction,
+                    new AccessControlList(lastResult, RuleResult::getText,
+                            aclResult));
             probeResults.setAclResult(direction, aclResult);
         } else {
             probeResults.setAclResult(direction, new FwResult(FwResult.ACCEPT));
@@ -3098,6 +3124,7 @@ public class PacketFilter extends GenericEquipment {
 
         probeResults.setInterface(direction, interfaceDesc);
 
+        return context.getState().getRouteToEngine();
     }
 
     @Override
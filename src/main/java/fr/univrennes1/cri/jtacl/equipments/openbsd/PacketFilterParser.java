@@ -353,18 +353,25 @@ public class PacketFilterParser extends PacketFilterBaseParser {
         return true;
     }
 
-    private List<StringBuilder> expandLine(StringBuilder line, Map<String, String> symbols) {
+    /*
+     * expands the line in argument: macros are substituted and comments are
+     * removed. The result is a list of lines (a macro or a string may
+     * contain a new line).
+     */
+    private List<StringBuilder> expandLine(CharSequence line, Map<String, String> symbols) {
 
-        StringBuilder sb = new StringBuilder("");
+        List<StringBuilder> slist = new ArrayList<>();
+        StringBuilder sline = new StringBuilder(line.length());
+        slist.add(sline);
         int length = line.length();
 
-        for (int i = 0; i < line.length(); ) {
+        for (int i = 0; i < length; ) {
             char c = line.charAt(i);
             /*
              * string
              */
             if (_quoted) {
-                sb.append(c);
+                sline = appendExpanded(slist, sline, c);
                 i++;
                 if (c == _quotec)
                     _quoted = false;
@@ -374,7 +381,7 @@ public class PacketFilterParser extends PacketFilterBaseParser {
              * end of string
              */
             if (c == '\'' || c == '"') {
-                sb.append(c);
+                sline = appendExpanded(slist, sline, c);
                 _quotec = c;
                 _quoted = true;
                 i++;
@@ -384,7 +391,7 @@ public class PacketFilterParser extends PacketFilterBaseParser {
              * comment
              */
             if (c == '#') {
-                sb.append('\n');
+                appendExpanded(slist, sline, '\n');
                 break;
             }
 
@@ -392,85 +399,86 @@ public class PacketFilterParser extends PacketFilterBaseParser {
              * macro expansion
              */
             if (c == '$') {
-                StringBuilder sym = new StringBuilder("");
-                for (i++; i < length; ) {
-                    c = line.charAt(i);
-                    if (IDENT.indexOf(c) >= 0) {
-                        sym.append(c);
-                        i++;
-                    } else
-                        break;
-                }
-                if (sym.length() == 0)
+                int j = i + 1;
+                while (j < length && IDENT.indexOf(line.charAt(j)) >= 0)
+                    j++;
+                if (j == i + 1)
                     throw new JtaclConfigurationException("empty macro");
-                String value = symbols.get(sym.toString());
+                String sym = line.subSequence(i + 1, j).toString();
+                String value = symbols.get(sym);
                 if (value == null)
                     throw new JtaclConfigurationException("unknown macro " + sym);
-                sb.append(value);
+                for (int k = 0; k < value.length(); k++)
+                    sline = appendExpanded(slist, sline, value.charAt(k));
+                i = j;
                 continue;
             }
 
             /*
              * other
              */
-            sb.append(c);
+            sline = appendExpanded(slist, sline, c);
             i++;
         }
-        List<StringBuilder> slist = new ArrayList<>();
-        StringBuilder sline = new StringBuilder("");
-        slist.add(sline);
-        for (int i = 0; i < sb.length(); i++) {
-            char c = sb.charAt(i);
-            sline.append(c);
-            _curExpandedContext.append(c);
-            if (c == '\n' && i < sb.length() - 1) {
-                sline = new StringBuilder("");
-                slist.add(sline);
-            }
-        }
         return slist;
     }
 
-    private StringBuilder getLine(StringBuilder buffer, int index) {
-        String line;
-        int p = buffer.indexOf("\n", index);
-        if (p >= 0)
-            line = buffer.substring(index, p + 1);
-        else
-            line = buffer.substring(index);
-        return new StringBuilder(line);
+    /*
+     * appends a character to the current expanded line. A line ends after a
+     * new line character, the next character starts a new line.
+     */
+    private StringBuilder appendExpanded(List<StringBuilder> slist,
+                                         StringBuilder sline, char c) {
+        int len = sline.length();
+        if (len > 0 && sline.charAt(len - 1) == '\n') {
+            sline = new StringBuilder();
+            slist.add(sline);
+        }
+        sline.append(c);
+        _curExpandedContext.append(c);
+        return sline;
+    }
+
+    /*
+     * returns the index following the end of the line starting at index.
+     */
+    private static int lineEnd(CharSequence buffer, int index) {
+        int length = buffer.length();
+        int i = index;
+        while (i < length) {
+            if (buffer.charAt(i++) == '\n')
+                break;
+        }
+        return i;
     }
 
     private int _charRuleLineRead;
-    private int _lineRuleLineRead;
 
-    private void getRuleLine(ExpandedRule exRule, StringBuilder buffer, int index,
+    private void getRuleLine(ExpandedRule exRule, CharSequence buffer, int index,
                              Map<String, String> symbols) {
 
-        StringBuilder line;
-        StringBuilder rule;
+        int length = buffer.length();
         _quoted = false;
         _charRuleLineRead = 0;
-        _lineRuleLineRead = 0;
         for (; ; ) {
             ExpandedRuleLine exLine = new ExpandedRuleLine();
             exRule.add(exLine);
-            _lineRuleLineRead++;
-            line = new StringBuilder(getLine(buffer, index));
+            int end = lineEnd(buffer, index);
+            StringBuilder line = new StringBuilder(end - index);
+            line.append(buffer, index, end);
             exLine.setLine(line);
-            index = index + line.length();
-            _charRuleLineRead += line.length();
+            _charRuleLineRead += end - index;
+            index = end;
             exLine.getExpanded().addAll(expandLine(line, symbols));
-            if (index >= buffer.length())
+            if (index >= length)
                 break;
             if (_quoted)
                 continue;
             /*
              * test if the line continue ('\'\n)
              */
-            rule = exRule.get(exRule.size() - 1).getLine();
-            int p = rule.lastIndexOf("\\\n");
-            if (p >= 0 && p == rule.length() - 2) {
+            if (line.length() >= 2 && buffer.charAt(end - 2) == '\\' &&
+                    buffer.charAt(end - 1) == '\n') {
                 continue;
             }
             break;
@@ -480,20 +488,69 @@ public class PacketFilterParser extends PacketFilterBaseParser {
     }
 
     /*
-     * Parse Runners for getRule
+     * Tests if the expanded rule is a closing brace: '}' between spaces,
+     * followed by the end of the line or of the rule.
      */
-    protected BasicParseRunner _parseRunIsClosingBrace =
-            new BasicParseRunner(IsClosingBrace());
+    private static boolean isClosingBrace(ExpandedRule exRule) {
+        String s = exRule.expandedToString();
+        int i = skipSpaces(s, 0);
+        if (i >= s.length() || s.charAt(i) != '}')
+            return false;
+        i = skipSpaces(s, i + 1);
+        return i >= s.length() || s.charAt(i) == '\n';
+    }
+
+    /*
+     * skips the white spaces (' ', '\t' and '\'\n) from index.
+     */
+    private static int skipSpaces(CharSequence s, int index) {
+        int length = s.length();
+        int i = index;
+        while (i < length) {
+            char c = s.charAt(i);
+            if (c == ' ' || c == '\t')
+                i++;
+            else if (c == '\\' && i + 1 < length && s.charAt(i + 1) == '\n')
+                i += 2;
+            else
+                break;
+        }
+        return i;
+    }
 
+    /*
+     * Parse Runner for getRule
+     */
     protected BasicParseRunner _parseRunIsNewRule =
             new BasicParseRunner(IsNewRule());
 
-    public ExpandedRule getRule(StringBuilder buffer, Map<String, String> symbols) {
+    /**
+     * Returns the rule starting at the beginning of the buffer.
+     *
+     * @param buffer  buffer to read.
+     * @param symbols the macros to expand.
+     * @return the rule starting at the beginning of the buffer.
+     */
+    public ExpandedRule getRule(CharSequence buffer, Map<String, String> symbols) {
+        return getRule(buffer, 0, symbols);
+    }
+
+    /**
+     * Returns the rule starting at the index in argument of the buffer. The
+     * buffer is read in place: the lines of the rule are found by scanning
+     * the buffer, only the lines of the rule are copied.
+     *
+     * @param buffer  buffer to read.
+     * @param index   index of the beginning of the rule in the buffer.
+     * @param symbols the macros to expand.
+     * @return the rule starting at index.
+     */
+    public ExpandedRule getRule(CharSequence buffer, int index,
+                                Map<String, String> symbols) {
 
         ParsingResult<?> result;
-        int lindex = 0;
+        int lindex = index;
         int blength = buffer.length();
-        int lineRead = 0;
         /*
          * begining of the rule
          */
@@ -501,13 +558,11 @@ public class PacketFilterParser extends PacketFilterBaseParser {
         _curExpandedContext = new StringBuilder();
         getRuleLine(exRule, buffer, lindex, symbols);
         lindex += _charRuleLineRead;
-        lineRead += _lineRuleLineRead;
 
         /*
          * brace '}\n'
          */
-        result = _parseRunIsClosingBrace.run(exRule.expandedToString());
-        if (!result.matched) {
+        if (!isClosingBrace(exRule)) {
             /*
              * find the next rule.
              */
@@ -528,7 +583,6 @@ public class PacketFilterParser extends PacketFilterBaseParser {
                     break;
                 exRule.addAll(nextRule);
                 lindex += _charRuleLineRead;
-                lineRead += _lineRuleLineRead;
             }
         }
         return exRule;
@@ -603,24 +657,6 @@ public class PacketFilterParser extends PacketFilterBaseParser {
                 );
     }
 
-    /**
-     * Matches '}\n'
-     *
-     * @return a Rule
-     */
-    public Rule IsClosingBrace() {
-        return
-                Sequence(
-                        SkipSpaces(),
-                        Ch('}'),
-                        SkipSpaces(),
-                        FirstOf(
-                                Ch('\n'),
-                                EOI
-                        )
-                );
-    }
-
     /**
      * Generic PF syntax rule
      *
@@ -11,10 +11,10 @@ package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipmentShell;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 
 import java.io.PrintStream;
 
-import org.parboiled.Parboiled;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
@@ -28,9 +28,9 @@ import org.parboiled.support.ParsingResult;
 public class PacketFilterShell extends GenericEquipmentShell {
 
     protected PacketFilter _pf;
-    protected PacketFilterShellParser _shellParser;
-    protected ReportingParseRunner _parseRunner;
-    protected PrintStream _outStream;
+    protected transient PacketFilterShellParser _shellParser;
+    protected transient ReportingParseRunner _parseRunner;
+    protected transient PrintStream _outStream;
 
     @Override
     public void shellHelp(PrintStream output) {
@@ -39,14 +39,13 @@ public class PacketFilterShell extends GenericEquipmentShell {
 
     public PacketFilterShell(PacketFilter pf) {
         _pf = pf;
-        _shellParser = Parboiled.createParser(PacketFilterShellParser.class);
-        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
     }
 
     @Override
     public void shellCommand(String command, PrintStream output) {
         _outStream = output;
-        _parseRunner.getParseErrors().clear();
+        _shellParser = ParserCache.getParser(PacketFilterShellParser.class);
+        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(command);
 
         if (!result.matched) {
@@ -9,6 +9,7 @@
 
 package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -21,7 +22,7 @@ import java.util.Map;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfAnchor {
+public class PfAnchor implements Serializable {
 
     /**
      * Comparator class to sort anchors in alphabetical order.
@@ -214,6 +215,63 @@ public class PfAnchor {
         return table;
     }
 
+    /**
+     * Returns the filtering rule of the rule in argument: the rule itself
+     * or the filtering rule of an anchor rule.
+     */
+    protected static PfRule filterRule(PfGenericRule rule) {
+        if (rule instanceof PfAnchorRule)
+            return ((PfAnchorRule) rule).getPfRule();
+        if (rule instanceof PfRule)
+            return (PfRule) rule;
+        return null;
+    }
+
+    /**
+     * Computes the skip steps of the rules of this anchor and of its
+     * children anchors.<br/>
+     * For each rule and each field, the skip step is the index of the next
+     * rule with a different value for this field (as in pf_calc_skip_steps()).
+     * This must be called after the rules are loaded.
+     */
+    public void computeSkipSteps() {
+        int size = _rules.size();
+        int[][] steps = new int[size][PfRule.SKIP_COUNT];
+
+        for (int step = 0; step < PfRule.SKIP_COUNT; step++) {
+            int head = 0;
+            for (int i = 1; i <= size; i++) {
+                if (i < size) {
+                    PfRule headRule = filterRule(_rules.get(head));
+                    PfRule rule = filterRule(_rules.get(i));
+                    if (headRule != null && rule != null &&
+                            headRule.sameSkipField(step, rule))
+                        continue;
+                }
+                for (int j = head; j < i; j++)
+                    steps[j][step] = i;
+                head = i;
+            }
+        }
+        for (int i = 0; i < size; i++)
+            _rules.get(i).setSkipSteps(steps[i]);
+
+        for (PfAnchor child : _children)
+            child.computeSkipSteps();
+    }
+
+    /**
+     * Indexes the addresses of the tables of this anchor and of its
+     * children anchors (see {@link PfTable#buildIndex()}).
+     */
+    public void indexTables() {
+        for (PfTable table : _tables.values())
+            table.buildIndex();
+
+        for (PfAnchor child : _children)
+            child.indexTables();
+    }
+
     /**
      * Retrieves the anchor named name in the children list of this anchor.
      *
@@ -273,8 +331,9 @@ public class PfAnchor {
         if (path.equals("*")) {
             if (!spath.isEmpty())
                 return null;
-            _children.sort(_anchorCompare);
-            return _children;
+            List<PfAnchor> children = new ArrayList<>(_children);
+            children.sort(_anchorCompare);
+            return children;
         }
 
         List<PfAnchor> anchorList = new ArrayList<>();
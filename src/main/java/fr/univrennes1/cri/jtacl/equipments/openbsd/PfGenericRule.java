@@ -11,12 +11,14 @@ package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 
+import java.io.Serializable;
+
 /**
  * Generic rule type.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public abstract class PfGenericRule {
+public abstract class PfGenericRule implements Serializable {
 
     /**
      * the line of configuration corresponding to this rule.
@@ -38,6 +40,11 @@ public abstract class PfGenericRule {
      */
     protected PfAnchor _ownerAnchor;
 
+    /**
+     * skip steps of this rule (see {@link PfAnchor#computeSkipSteps()}).
+     */
+    protected int[] _skipSteps;
+
     /**
      * Returns the line of configuration corresponding to this rule.
      *
@@ -110,4 +117,25 @@ public abstract class PfGenericRule {
         _ownerAnchor = ownerAnchor;
     }
 
+    /**
+     * Returns the skip steps of this rule. The skip step of a field is the
+     * index, in the rules of the owner anchor, of the next rule with a
+     * different value for this field.
+     *
+     * @return the skip steps of this rule, indexed by the PfRule.SKIP_*
+     * constants. May be null if the skip steps are not computed.
+     */
+    public int[] getSkipSteps() {
+        return _skipSteps;
+    }
+
+    /**
+     * Sets the skip steps of this rule.
+     *
+     * @param skipSteps skip steps to set.
+     */
+    public void setSkipSteps(int[] skipSteps) {
+        _skipSteps = skipSteps;
+    }
+
 }
@@ -9,12 +9,15 @@
 
 package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
+import java.io.Serializable;
+import java.util.Objects;
+
 /**
  * Interface specification in rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfIfSpec {
+public class PfIfSpec implements Serializable {
     protected String _ifName;
     protected boolean _ifNot = false;
 
@@ -39,4 +42,27 @@ public class PfIfSpec {
             return _ifName;
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 41 * hash + (_ifName != null ? _ifName.hashCode() : 0);
+        hash = 41 * hash + (_ifNot ? 1 : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final PfIfSpec other = (PfIfSpec) obj;
+        if (_ifNot != other._ifNot) {
+            return false;
+        }
+        return Objects.equals(_ifName, other._ifName);
+    }
+
 }
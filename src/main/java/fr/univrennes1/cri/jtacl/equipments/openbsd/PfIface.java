@@ -13,12 +13,14 @@ import fr.univrennes1.cri.jtacl.core.network.Iface;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 
+import java.io.Serializable;
+
 /**
  * Describes a PF interface
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfIface {
+public class PfIface implements Serializable {
 
     protected Iface _iface;
     protected StringsList _groups = new StringsList();
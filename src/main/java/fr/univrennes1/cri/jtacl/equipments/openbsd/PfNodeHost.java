@@ -13,16 +13,18 @@ import fr.univrennes1.cri.jtacl.lib.ip.AddressFamily;
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclInternalException;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * PF Host.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfNodeHost {
+public class PfNodeHost implements Serializable {
 
     /**
      * address family.
@@ -403,4 +405,35 @@ public class PfNodeHost {
         return s;
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 23 * hash + (_af != null ? _af.ordinal() : 0);
+        hash = 23 * hash + (_not ? 1 : 0);
+        hash = 23 * hash + (_type != null ? _type.ordinal() : 0);
+        hash = 23 * hash + Objects.hashCode(_addr);
+        hash = 23 * hash + Objects.hashCode(_rangeAddr);
+        hash = 23 * hash + Objects.hashCode(_tblName);
+        hash = 23 * hash + Objects.hashCode(_rtlabelName);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final PfNodeHost other = (PfNodeHost) obj;
+        return _af == other._af &&
+                _not == other._not &&
+                _type == other._type &&
+                Objects.equals(_addr, other._addr) &&
+                Objects.equals(_rangeAddr, other._rangeAddr) &&
+                Objects.equals(_tblName, other._tblName) &&
+                Objects.equals(_rtlabelName, other._rtlabelName);
+    }
+
 }
@@ -14,12 +14,14 @@ import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.lib.ip.PortOperator;
 import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
 
+import java.io.Serializable;
+
 /**
  * Describes a Port Item.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfPortItem {
+public class PfPortItem implements Serializable {
 
     /**
      * Operator equal
@@ -154,4 +156,21 @@ public class PfPortItem {
         return _portSpec.toString();
     }
 
+    @Override
+    public int hashCode() {
+        return _portSpec.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final PfPortItem other = (PfPortItem) obj;
+        return _portSpec.equals(other._portSpec);
+    }
+
 }
@@ -12,6 +12,8 @@ import fr.univrennes1.cri.jtacl.core.exceptions.JtaclInternalException;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
+import java.io.Serializable;
+
 /**
  * Route options in rule.<br/>
  * XXX: only ROUTETO options are handled.
@@ -19,7 +21,7 @@ import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
 
-public class PfRouteOpts {
+public class PfRouteOpts implements Serializable {
     protected PfRouteOptsType _type;
     protected String _ifName;
     protected IPNet _nextHop;
@@ -38,6 +38,56 @@ public class PfRule extends PfGenericRule {
      */
     public static final String BLOCK = "block";
 
+    /**
+     * skip step: interfaces
+     */
+    public static final int SKIP_IFP = 0;
+
+    /**
+     * skip step: direction
+     */
+    public static final int SKIP_DIR = 1;
+
+    /**
+     * skip step: address family
+     */
+    public static final int SKIP_AF = 2;
+
+    /**
+     * skip step: protocols
+     */
+    public static final int SKIP_PROTO = 3;
+
+    /**
+     * skip step: source address
+     */
+    public static final int SKIP_SRC_ADDR = 4;
+
+    /**
+     * skip step: source port
+     */
+    public static final int SKIP_SRC_PORT = 5;
+
+    /**
+     * skip step: destination address
+     */
+    public static final int SKIP_DST_ADDR = 6;
+
+    /**
+     * skip step: destination port
+     */
+    public static final int SKIP_DST_PORT = 7;
+
+    /**
+     * number of skip steps
+     */
+    public static final int SKIP_COUNT = 8;
+
+    /**
+     * none skip step
+     */
+    public static final int SKIP_NONE = -1;
+
     /**
      * action (pass, match, block)
      */
@@ -416,4 +466,45 @@ public class PfRule extends PfGenericRule {
         _taggedOpt = taggedOpt;
     }
 
+    /**
+     * Checks if this rule and the rule in argument have the same value for
+     * the skip step field in argument. If a probe does not match a rule
+     * because of a field, it does not match the following rules with the
+     * same value for this field.
+     *
+     * @param step skip step (one of the SKIP_* constants).
+     * @param rule rule to compare.
+     * @return true if the two rules have the same value for the field.
+     */
+    public boolean sameSkipField(int step, PfRule rule) {
+        switch (step) {
+            case SKIP_IFP:
+                return _ifList.equals(rule._ifList);
+            case SKIP_DIR:
+                return _direction == rule._direction;
+            case SKIP_AF:
+                return _af == rule._af;
+            case SKIP_PROTO:
+                return _protocols.equals(rule._protocols);
+            /*
+             * the address filters depend on the address family and the
+             * addresses and ports are not checked for a 'all' rule.
+             */
+            case SKIP_SRC_ADDR:
+                return _all == rule._all && _af == rule._af &&
+                        _fromIpSpec.equals(rule._fromIpSpec);
+            case SKIP_SRC_PORT:
+                return _all == rule._all &&
+                        _fromPortSpec.equals(rule._fromPortSpec);
+            case SKIP_DST_ADDR:
+                return _all == rule._all && _af == rule._af &&
+                        _toIpSpec.equals(rule._toIpSpec);
+            case SKIP_DST_PORT:
+                return _all == rule._all &&
+                        _toPortSpec.equals(rule._toPortSpec);
+            default:
+                return false;
+        }
+    }
+
 }
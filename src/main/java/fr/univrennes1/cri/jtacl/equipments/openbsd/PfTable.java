@@ -9,6 +9,10 @@
 
 package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPPrefixTree;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
+import fr.univrennes1.cri.jtacl.lib.ip.IPversion;
 import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
 
 /**
@@ -33,6 +37,23 @@ public class PfTable extends PfGenericRule {
      */
     protected PfIpSpec _ipspec = new PfIpSpec();
 
+    /**
+     * addresses of the table, by IP version (see {@link #buildIndex()}).
+     */
+    protected IPPrefixTree<IPNet> _ipv4Entries;
+    protected IPPrefixTree<IPNet> _ipv6Entries;
+
+    /**
+     * 'not' addresses of the table, by IP version.
+     */
+    protected IPPrefixTree<IPNet> _ipv4Exceptions;
+    protected IPPrefixTree<IPNet> _ipv6Exceptions;
+
+    /**
+     * true if the addresses of the table are indexed.
+     */
+    protected boolean _indexed;
+
     /**
      * Returns the fileNames of this table.
      *
@@ -69,4 +90,66 @@ public class PfTable extends PfGenericRule {
         _name = name;
     }
 
+    /**
+     * Indexes the addresses of the IP specification of this table in prefix
+     * trees, the 'not' addresses are kept apart. This must be called once
+     * the table is loaded.<br/>
+     * The table is not indexed if it contains an entry which is not an
+     * address.
+     */
+    public void buildIndex() {
+        _ipv4Entries = new IPPrefixTree<>(IPversion.IPV4);
+        _ipv6Entries = new IPPrefixTree<>(IPversion.IPV6);
+        _ipv4Exceptions = new IPPrefixTree<>(IPversion.IPV4);
+        _ipv6Exceptions = new IPPrefixTree<>(IPversion.IPV6);
+        _indexed = false;
+
+        for (PfNodeHost host : _ipspec) {
+            if (!host.isAddrMask())
+                return;
+            for (IPNet ip : host.getAddr()) {
+                getTree(ip.getIpVersion(), host.isNot()).put(ip, ip);
+            }
+        }
+        _indexed = true;
+    }
+
+    /**
+     * Checks if the addresses of this table are indexed.
+     *
+     * @return true if the addresses of this table are indexed.
+     */
+    public boolean isIndexed() {
+        return _indexed;
+    }
+
+    protected IPPrefixTree<IPNet> getTree(IPversion ipVersion, boolean exception) {
+        if (ipVersion == IPversion.IPV4)
+            return exception ? _ipv4Exceptions : _ipv4Entries;
+        return exception ? _ipv6Exceptions : _ipv6Entries;
+    }
+
+    /**
+     * Checks if an address of this table contains all the addresses of the
+     * range in argument.
+     *
+     * @param ipAddress range to check.
+     * @param exception if true, checks the 'not' addresses of this table.
+     * @return true if an address of this table contains the range.
+     */
+    public boolean contains(IPRangeable ipAddress, boolean exception) {
+        return getTree(ipAddress.getIpVersion(), exception).match(ipAddress) != null;
+    }
+
+    /**
+     * Checks if an address of this table overlaps the range in argument.
+     *
+     * @param ipAddress range to check.
+     * @param exception if true, checks the 'not' addresses of this table.
+     * @return true if an address of this table overlaps the range.
+     */
+    public boolean overlaps(IPRangeable ipAddress, boolean exception) {
+        return getTree(ipAddress.getIpVersion(), exception).overlaps(ipAddress);
+    }
+
 }
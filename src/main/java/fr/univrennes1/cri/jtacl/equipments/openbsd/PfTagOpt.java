@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
+import java.io.Serializable;
+
 /**
  * PF tag option.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfTagOpt {
+public class PfTagOpt implements Serializable {
 
     private String _tag;
 
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
+import java.io.Serializable;
+
 /**
  * PF tagged option.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PfTaggedOpt {
+public class PfTaggedOpt implements Serializable {
 
     private boolean _not;
     private String _tag;
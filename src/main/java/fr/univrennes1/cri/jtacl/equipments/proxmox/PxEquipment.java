@@ -23,6 +23,8 @@ import fr.univrennes1.cri.jtacl.core.network.Iface;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.Route;
 import fr.univrennes1.cri.jtacl.core.network.Routes;
+import fr.univrennes1.cri.jtacl.core.probing.AccessControlList;
+import fr.univrennes1.cri.jtacl.core.probing.AclRenderer;
 import fr.univrennes1.cri.jtacl.core.probing.FwResult;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 import fr.univrennes1.cri.jtacl.core.probing.Probe;
@@ -38,12 +40,13 @@ import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
 import fr.univrennes1.cri.jtacl.lib.misc.Direction;
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.parserunners.BasicParseRunner;
 import org.parboiled.support.ParsingResult;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -57,7 +60,7 @@ import java.util.logging.Level;
  */
 public abstract class PxEquipment extends GenericEquipment {
 
-    protected class PxgIface {
+    protected class PxgIface implements Serializable {
         protected Iface _iface;
         protected String _name;
         protected String _description;
@@ -111,38 +114,46 @@ public abstract class PxEquipment extends GenericEquipment {
     /**
      * Parser
      */
-    protected PxVeParser _parser = Parboiled.createParser(PxVeParser.class);
+    protected transient PxVeParser _parser;
 
     /**
      * ParseRunner for section
      */
-    protected BasicParseRunner _parseRunSection =
-            new BasicParseRunner(_parser.RSection());
+    protected transient BasicParseRunner _parseRunSection;
 
     /**
      * ParseRunner for options
      */
-    protected BasicParseRunner _parseRunOption =
-            new BasicParseRunner(_parser.ROption());
+    protected transient BasicParseRunner _parseRunOption;
 
     /**
      * ParseRunner for aliases
      */
-    protected BasicParseRunner _parseRunAlias =
-            new BasicParseRunner(_parser.RAlias());
+    protected transient BasicParseRunner _parseRunAlias;
 
     /**
      * ParseRunner for ListIdents
      */
-    protected BasicParseRunner _parseRunListIdents =
-            new BasicParseRunner(_parser.RListIdents());
+    protected transient BasicParseRunner _parseRunListIdents;
 
 
     /**
      * ParseRunner for Rule
      */
-    protected BasicParseRunner _parseRunRule =
-            new BasicParseRunner(_parser.RveRule());
+    protected transient BasicParseRunner _parseRunRule;
+
+    /**
+     * Gets the parser of the current thread and creates the parse runners.
+     * Must be called by the thread that parses the configuration.
+     */
+    protected void initParsers() {
+        _parser = ParserCache.getParser(PxVeParser.class);
+        _parseRunSection = new BasicParseRunner(_parser.RSection());
+        _parseRunOption = new BasicParseRunner(_parser.ROption());
+        _parseRunAlias = new BasicParseRunner(_parser.RAlias());
+        _parseRunListIdents = new BasicParseRunner(_parser.RListIdents());
+        _parseRunRule = new BasicParseRunner(_parser.RveRule());
+    }
 
 
     /**
@@ -230,6 +241,7 @@ public abstract class PxEquipment extends GenericEquipment {
     }
 
     public void parseSections(String fileName, StringsList lines) {
+        initParsers();
         int ln = 0;
         String sectionName = null;
         String sectionIdent = "";
@@ -842,7 +854,7 @@ public abstract class PxEquipment extends GenericEquipment {
         PxGroupRules rules = _rules;
         if (!_options.isEnable()) {
             addRuleResult(direction, link.getIface(), MatchResult.ALL, probe.getResults(), PxRuleAction.ACCEPT,
-                    "***firewall is disabled***");
+                    "***firewall is disabled***", String::toString);
         } else {
             groupRulesFilter(link, direction, probe, rules);
         }
@@ -859,12 +871,10 @@ public abstract class PxEquipment extends GenericEquipment {
 
         MatchResult match;
         for (PxRule rule : groupRules) {
-            String ruleText = rule.toText();
-
             if (rule.isGroupRule()) {
                 FwResult aclResult = new FwResult(FwResult.MATCH);
-                results.addMatchingAcl(direction, ruleText,
-                        aclResult);
+                results.addMatchingAcl(direction,
+                        new AccessControlList(rule, PxRule::toText, aclResult));
                 results.setInterface(direction,
                         ifaceName + " (" + ifaceComment + ")");
                 PxGroupRules next = findGroupRules(rule.getGroupIdent());
@@ -872,14 +882,16 @@ public abstract class PxEquipment extends GenericEquipment {
             } else {
                 match = ruleFilter(link, direction, probe, rule);
                 if (match != MatchResult.NOT) {
-                    addRuleResult(direction, link.getIface(), match, results, rule.getAction(), ruleText);
+                    addRuleResult(direction, link.getIface(), match, results, rule.getAction(), rule,
+                            PxRule::toText);
                 }
             }
         }
     }
 
-    protected void addRuleResult(Direction direction, Iface iface, MatchResult match
-            , ProbeResults probeResults, PxRuleAction action, String ruleText) {
+    protected <T> void addRuleResult(Direction direction, Iface iface, MatchResult match
+            , ProbeResults probeResults, PxRuleAction action, T rule,
+            AclRenderer<? super T> renderer) {
         /*
          * store the result in the probe
          */
@@ -896,7 +908,8 @@ public abstract class PxEquipment extends GenericEquipment {
                 break;
         }
 
-        probeResults.addMatchingAcl(direction, ruleText, aclResult);
+        AccessControlList acl = new AccessControlList(rule, renderer, aclResult);
+        probeResults.addMatchingAcl(direction, acl);
 
         probeResults.setInterface(direction,
                 iface.getName() + " (" + iface.getComment() + ")");
@@ -906,9 +919,7 @@ public abstract class PxEquipment extends GenericEquipment {
          * this is the first acl that match the packet.
          */
         if (probeResults.getActiveAcl(direction).isEmpty() && (aclResult.hasAccept() || aclResult.hasDeny())) {
-            probeResults.addActiveAcl(direction,
-                    ruleText,
-                    aclResult);
+            probeResults.addActiveAcl(direction, acl);
         }
     }
 
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.equipments.proxmox;
 
+import java.io.Serializable;
+
 /**
  * Proxmox IP specification firewall rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PxFwIpSpec {
+public class PxFwIpSpec implements Serializable {
     protected PxNetworkIpSet _networks = new PxNetworkIpSet("", null);
 
     public PxNetworkIpSet getNetworks() {
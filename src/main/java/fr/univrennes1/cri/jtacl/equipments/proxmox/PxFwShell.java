@@ -11,7 +11,7 @@ package fr.univrennes1.cri.jtacl.equipments.proxmox;
 
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.equipments.generic.GenericEquipmentShell;
-import org.parboiled.Parboiled;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
@@ -31,9 +31,9 @@ import java.util.Map;
 public class PxFwShell extends GenericEquipmentShell {
 
     protected PxEquipment _pxfw;
-    protected PxShellParser _shellParser;
-    protected ReportingParseRunner _parseRunner;
-    protected PrintStream _outStream;
+    protected transient PxShellParser _shellParser;
+    protected transient ReportingParseRunner _parseRunner;
+    protected transient PrintStream _outStream;
 
     @Override
     public void shellHelp(PrintStream output) {
@@ -42,8 +42,6 @@ public class PxFwShell extends GenericEquipmentShell {
 
     public PxFwShell(PxEquipment pxfw) {
         _pxfw = pxfw;
-        _shellParser = Parboiled.createParser(PxShellParser.class);
-        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
     }
 
     public void commandShowAlias(PrintStream output, PxShellParser parser) {
@@ -114,7 +112,8 @@ public class PxFwShell extends GenericEquipmentShell {
     @Override
     public void shellCommand(String command, PrintStream output) {
         _outStream = output;
-        _parseRunner.getParseErrors().clear();
+        _shellParser = ParserCache.getParser(PxShellParser.class);
+        _parseRunner = new ReportingParseRunner(_shellParser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(command);
 
         if (!result.matched) {
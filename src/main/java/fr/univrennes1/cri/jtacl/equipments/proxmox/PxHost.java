@@ -125,6 +125,14 @@ public class PxHost extends PxEquipment {
         }
     }
 
+    /*
+     * Creates the guests of the directory in argument. The guests are
+     * configured by the monitor, concurrently by its configuration executor
+     * if the option config.threads is greater than one. If the host itself is
+     * configured by the executor, the guests are configured one after the
+     * other by its thread. The guests only read the aliases, ipsets and
+     * groups of the host, parsed once by the host.
+     */
     protected NetworkEquipmentsByName createGuestsEquipments(String directory) {
 
         NetworkEquipmentsByName equipments = new NetworkEquipmentsByName();
@@ -133,6 +141,7 @@ public class PxHost extends PxEquipment {
         if (files == null) {
             throwCfgException("Cannot read directory " + directory, false);
         }
+        List<NetworkEquipment> guests = new ArrayList<>();
         for (File f : files) {
             if (!f.isFile() || !f.getAbsolutePath().endsWith(".xml"))
                 continue;
@@ -140,7 +149,10 @@ public class PxHost extends PxEquipment {
             String name = f.getName().split(".xml")[0];
             NetworkEquipment guest = new PxGuest(_monitor, getName() + "." + name
                     , name, dir.getAbsolutePath(), f.getAbsolutePath(), this);
-            guest.configure();
+            guests.add(guest);
+        }
+        _monitor.configureEquipments(guests);
+        for (NetworkEquipment guest : guests) {
             equipments.put(guest);
         }
         return equipments;
@@ -10,12 +10,14 @@ package fr.univrennes1.cri.jtacl.equipments.proxmox;
 
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 
+import java.io.Serializable;
+
 /**
  * Proxmox object
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PxObject {
+public class PxObject implements Serializable {
     protected ParseContext _context;
 
     public PxObject(ParseContext context) {
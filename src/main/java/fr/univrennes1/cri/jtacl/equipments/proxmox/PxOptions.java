@@ -8,12 +8,14 @@
  */
 package fr.univrennes1.cri.jtacl.equipments.proxmox;
 
+import java.io.Serializable;
+
 /**
  * Proxmox options (section OPTIONS)
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PxOptions {
+public class PxOptions implements Serializable {
     protected boolean _enable;
     protected PxRuleAction _policyIn;
     protected PxRuleAction _policyOut;
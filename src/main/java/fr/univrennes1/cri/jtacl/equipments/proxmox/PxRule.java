@@ -13,12 +13,14 @@ import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
 import fr.univrennes1.cri.jtacl.lib.ip.ProtocolsSpec;
 import fr.univrennes1.cri.jtacl.lib.misc.ParseContext;
 
+import java.io.Serializable;
+
 /**
  * Proxmox fw rule
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PxRule {
+public class PxRule implements Serializable {
 
     protected boolean _disabled = false;
     protected boolean _implicit = false;
@@ -129,6 +129,100 @@ public class IP {
         return null;
     }
 
+    /**
+     * Returns the high 64 bits of the netmask of a prefix length.
+     *
+     * @param prefixLen the prefix to convert from.
+     * @param ipVersion the {@link IPversion} version of IP.
+     * @return the high 64 bits of the netmask (always 0 for IPv4).
+     */
+    public static long netmaskHigh(int prefixLen, IPversion ipVersion) {
+        if (ipVersion == IPversion.IPV4 || prefixLen == 0)
+            return 0L;
+        if (prefixLen >= 64)
+            return -1L;
+        return -1L << (64 - prefixLen);
+    }
+
+    /**
+     * Returns the low 64 bits of the netmask of a prefix length.
+     *
+     * @param prefixLen the prefix to convert from.
+     * @param ipVersion the {@link IPversion} version of IP.
+     * @return the low 64 bits of the netmask.
+     */
+    public static long netmaskLow(int prefixLen, IPversion ipVersion) {
+        if (ipVersion == IPversion.IPV4) {
+            if (prefixLen == 0)
+                return 0L;
+            return (0xFFFFFFFFL << (32 - prefixLen)) & 0xFFFFFFFFL;
+        }
+        if (prefixLen <= 64)
+            return 0L;
+        return -1L << (128 - prefixLen);
+    }
+
+    /**
+     * Returns the low 64 bits of the hostmask (inverse of the netmask) of a
+     * prefix length.
+     *
+     * @param prefixLen the prefix to convert from.
+     * @param ipVersion the {@link IPversion} version of IP.
+     * @return the low 64 bits of the hostmask.
+     */
+    public static long hostmaskLow(int prefixLen, IPversion ipVersion) {
+        long mask = ~netmaskLow(prefixLen, ipVersion);
+        return ipVersion == IPversion.IPV4 ? mask & 0xFFFFFFFFL : mask;
+    }
+
+    /**
+     * Returns the high 64 bits of the hostmask (inverse of the netmask) of a
+     * prefix length.
+     *
+     * @param prefixLen the prefix to convert from.
+     * @param ipVersion the {@link IPversion} version of IP.
+     * @return the high 64 bits of the hostmask (always 0 for IPv4).
+     */
+    public static long hostmaskHigh(int prefixLen, IPversion ipVersion) {
+        return ipVersion == IPversion.IPV4 ? 0L : ~netmaskHigh(prefixLen, ipVersion);
+    }
+
+    /**
+     * Compares two IP addresses expressed as two unsigned longs.
+     *
+     * @param high1 high 64 bits of the first address.
+     * @param low1  low 64 bits of the first address.
+     * @param high2 high 64 bits of the second address.
+     * @param low2  low 64 bits of the second address.
+     * @return a negative value, zero or a positive value as the first address
+     * is less than, equal to or greater than the second address.
+     */
+    public static int compareAddress(long high1, long low1, long high2, long low2) {
+        int c = Long.compareUnsigned(high1, high2);
+        if (c != 0)
+            return c;
+        return Long.compareUnsigned(low1, low2);
+    }
+
+    /**
+     * Converts an IP address expressed as two unsigned longs to a
+     * {@link BigInteger}.
+     *
+     * @param high high 64 bits of the address.
+     * @param low  low 64 bits of the address.
+     * @return the {@link BigInteger} IP address.
+     */
+    public static BigInteger toBigInteger(long high, long low) {
+        if (high == 0 && low >= 0)
+            return BigInteger.valueOf(low);
+        byte[] bytes = new byte[17];
+        for (int i = 0; i < 8; i++) {
+            bytes[8 - i] = (byte) (high >>> (i * 8));
+            bytes[16 - i] = (byte) (low >>> (i * 8));
+        }
+        return new BigInteger(bytes);
+    }
+
     /**
      * Checks if a netmask can be expressed as a prefix.
      *
@@ -9,34 +9,77 @@
 
 package fr.univrennes1.cri.jtacl.lib.ip;
 
+import java.io.Serializable;
 import java.math.BigInteger;
 
 /**
- * Base of an IP address : value, prefixlen and familly
+ * Base of an IP address : value, prefixlen and familly.<br/>
+ * The value is stored as two longs (high and low 64 bits of the address).
+ * An IPv4 address only uses the low part. The {@link BigInteger} value is
+ * computed on demand.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
 
-public final class IPBase {
+public final class IPBase implements Serializable {
 
-    private final BigInteger _ip;
+    private final long _high;
+    private final long _low;
     private final int _prefixlen;
     private final IPversion _ipVersion;
 
+    /*
+     * cache of the BigInteger value
+     */
+    private BigInteger _ip;
+
+    public IPBase(long high, long low, int prefixlen, IPversion ipVersion) {
+        _high = high;
+        _low = low;
+        _prefixlen = prefixlen;
+        _ipVersion = ipVersion;
+    }
+
     public IPBase(BigInteger ip, int prefixlen, IPversion ipVersion) {
-        _ip = ip;
+        _high = ip.shiftRight(64).longValue();
+        _low = ip.longValue();
         _prefixlen = prefixlen;
         _ipVersion = ipVersion;
+        _ip = ip;
     }
 
     public IPBase(IPNet ip) {
-        _ip = ip.getIP();
+        _high = ip.getHigh();
+        _low = ip.getLow();
         _prefixlen = ip.getPrefixLen();
         _ipVersion = ip.getIpVersion();
     }
 
     public BigInteger getIP() {
-        return _ip;
+        BigInteger ip = _ip;
+        if (ip == null) {
+            ip = IP.toBigInteger(_high, _low);
+            _ip = ip;
+        }
+        return ip;
+    }
+
+    /**
+     * Returns the high 64 bits of the address (always 0 for IPv4).
+     *
+     * @return the high 64 bits of the address.
+     */
+    public long getHigh() {
+        return _high;
+    }
+
+    /**
+     * Returns the low 64 bits of the address.
+     *
+     * @return the low 64 bits of the address.
+     */
+    public long getLow() {
+        return _low;
     }
 
     public IPversion getIpVersion() {
@@ -64,8 +107,7 @@ public final class IPBase {
             return false;
         }
         final IPBase other = (IPBase) obj;
-        if (this._ip != other._ip && (this._ip == null ||
-                !this._ip.equals(other._ip))) {
+        if (this._high != other._high || this._low != other._low) {
             return false;
         }
         if (this._prefixlen != other._prefixlen) {
@@ -80,10 +122,11 @@ public final class IPBase {
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 67 * hash + (this._ip != null ? this._ip.hashCode() : 0);
+        hash = 67 * hash + Long.hashCode(this._high);
+        hash = 67 * hash + Long.hashCode(this._low);
         hash = 67 * hash + this._prefixlen;
         hash = 67 * hash + (this._ipVersion != null ?
-                this._ipVersion.hashCode() : 0);
+                this._ipVersion.ordinal() : 0);
         return hash;
     }
 
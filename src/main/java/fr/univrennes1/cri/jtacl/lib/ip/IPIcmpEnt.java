@@ -9,6 +9,8 @@
 
 package fr.univrennes1.cri.jtacl.lib.ip;
 
+import java.io.Serializable;
+
 /**
  * Icmp type definition:<br/>
  * <ul>
@@ -19,7 +21,7 @@ package fr.univrennes1.cri.jtacl.lib.ip;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class IPIcmpEnt {
+public class IPIcmpEnt implements Serializable {
 
     protected String _name;
     protected int _icmp;
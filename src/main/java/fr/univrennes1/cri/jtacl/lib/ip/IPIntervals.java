@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.ip;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable set of IP addresses stored as sorted and merged intervals of
+ * addresses in arrays of longs, for the large lists of addresses (address
+ * feeds).<br/>
+ * The intervals of each IP version are disjoint and not adjacent, the tests
+ * are binary searches on the first addresses of the intervals and do not
+ * allocate.<br/>
+ * A builder created with merge set to false does not merge the ranges, it
+ * only removes the ranges contained by another one: {@link #contains} then
+ * checks that one of the ranges added contains the range in argument.
+ *
+ * <pre>
+ *     IPIntervals.Builder builder = new IPIntervals.Builder();
+ *     builder.add(new IPRange("10.0.0.0/24"));
+ *     IPIntervals intervals = builder.build();
+ * </pre>
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class IPIntervals implements Serializable {
+
+    protected static final long[] EMPTY = new long[0];
+
+    /*
+     * IPv4: first and last addresses of each interval.
+     */
+    protected long[] _ipv4 = EMPTY;
+
+    /*
+     * IPv6: high and low parts of the first and last addresses of each
+     * interval.
+     */
+    protected long[] _ipv6 = EMPTY;
+
+    /**
+     * Builder of {@link IPIntervals}.
+     */
+    public static class Builder {
+
+        protected long[] _ipv4 = new long[16];
+        protected int _ipv4Size;
+        protected long[] _ipv6 = new long[16];
+        protected int _ipv6Size;
+        protected boolean _merge;
+
+        /**
+         * Creates a builder merging the ranges.
+         */
+        public Builder() {
+            this(true);
+        }
+
+        /**
+         * Creates a builder.
+         *
+         * @param merge true to merge the overlapping and adjacent ranges.
+         */
+        public Builder(boolean merge) {
+            _merge = merge;
+        }
+
+        /**
+         * Adds the addresses of the range in argument.
+         *
+         * @param range range of addresses to add.
+         * @return this builder.
+         */
+        public Builder add(IPRangeable range) {
+            IPNet first = range.getIpFirst();
+            IPNet last = range.getIpLast();
+            if (range.isIPv4()) {
+                if (_ipv4Size == _ipv4.length)
+                    _ipv4 = Arrays.copyOf(_ipv4, _ipv4Size * 2);
+                /*
+                 * packs the range in one long, the first address in the
+                 * high bits, to sort the ranges by first address.
+                 */
+                _ipv4[_ipv4Size++] = first.getLow() << 32 | last.getLow();
+            } else {
+                if (_ipv6Size + 4 > _ipv6.length)
+                    _ipv6 = Arrays.copyOf(_ipv6, _ipv6.length * 2);
+                _ipv6[_ipv6Size++] = first.getHigh();
+                _ipv6[_ipv6Size++] = first.getLow();
+                _ipv6[_ipv6Size++] = last.getHigh();
+                _ipv6[_ipv6Size++] = last.getLow();
+            }
+            return this;
+        }
+
+        /**
+         * Builds the intervals of the ranges added.
+         *
+         * @return the intervals.
+         */
+        public IPIntervals build() {
+            IPIntervals intervals = new IPIntervals();
+            intervals._ipv4 = buildIPv4();
+            intervals._ipv6 = buildIPv6();
+            return intervals;
+        }
+
+        protected long[] buildIPv4() {
+            if (_ipv4Size == 0)
+                return EMPTY;
+            /*
+             * sort as unsigned values
+             */
+            long[] ranges = Arrays.copyOf(_ipv4, _ipv4Size);
+            for (int i = 0; i < ranges.length; i++)
+                ranges[i] ^= Long.MIN_VALUE;
+            Arrays.sort(ranges);
+
+            long[] result = new long[ranges.length * 2];
+            int size = 0;
+            for (long range : ranges) {
+                range ^= Long.MIN_VALUE;
+                long first = range >>> 32;
+                long last = range & 0xFFFFFFFFL;
+                /*
+                 * range contained by the previous one
+                 */
+                if (size > 0 && last <= result[size - 1])
+                    continue;
+                if (size > 0 && (first == result[size - 2]
+                        || _merge && first <= result[size - 1] + 1)) {
+                    result[size - 1] = last;
+                } else {
+                    result[size++] = first;
+                    result[size++] = last;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        protected long[] buildIPv6() {
+            if (_ipv6Size == 0)
+                return EMPTY;
+            int count = _ipv6Size / 4;
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++)
+                order[i] = i * 4;
+            Arrays.sort(order, (i1, i2) -> IP.compareAddress(
+                    _ipv6[i1], _ipv6[i1 + 1], _ipv6[i2], _ipv6[i2 + 1]));
+
+            long[] result = new long[_ipv6Size];
+            int size = 0;
+            for (int i : order) {
+                /*
+                 * range contained by the previous one
+                 */
+                if (size > 0 && IP.compareAddress(_ipv6[i + 2], _ipv6[i + 3],
+                        result[size - 2], result[size - 1]) <= 0)
+                    continue;
+                if (size > 0 && (IP.compareAddress(_ipv6[i], _ipv6[i + 1],
+                        result[size - 4], result[size - 3]) == 0
+                        || _merge && isContiguous(result[size - 2], result[size - 1],
+                        _ipv6[i], _ipv6[i + 1]))) {
+                    result[size - 2] = _ipv6[i + 2];
+                    result[size - 1] = _ipv6[i + 3];
+                } else {
+                    System.arraycopy(_ipv6, i, result, size, 4);
+                    size += 4;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        /*
+         * returns true if the address (high, low) is lower or equal to the
+         * address following the address (lastHigh, lastLow).
+         */
+        protected static boolean isContiguous(long lastHigh, long lastLow,
+                                              long high, long low) {
+            if (IP.compareAddress(high, low, lastHigh, lastLow) <= 0)
+                return true;
+            long nextLow = lastLow + 1;
+            long nextHigh = nextLow == 0 ? lastHigh + 1 : lastHigh;
+            /*
+             * last address of the address space
+             */
+            if (nextLow == 0 && nextHigh == 0)
+                return true;
+            return IP.compareAddress(high, low, nextHigh, nextLow) <= 0;
+        }
+    }
+
+    /*
+     * returns the index of the last IPv4 interval whose first address is
+     * lower or equal to the address, -1 if none.
+     */
+    protected int floorIPv4(long address) {
+        int lo = 0;
+        int hi = _ipv4.length / 2 - 1;
+        int result = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (_ipv4[mid * 2] <= address) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /*
+     * returns the index of the last IPv6 interval whose first address is
+     * lower or equal to the address, -1 if none.
+     */
+    protected int floorIPv6(long high, long low) {
+        int lo = 0;
+        int hi = _ipv6.length / 4 - 1;
+        int result = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (IP.compareAddress(_ipv6[mid * 4], _ipv6[mid * 4 + 1],
+                    high, low) <= 0) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if all the addresses of the range in argument are in these
+     * intervals.
+     *
+     * @param range range of addresses to test.
+     * @return true if the range is contained by these intervals.
+     */
+    public boolean contains(IPRangeable range) {
+        IPNet first = range.getIpFirst();
+        IPNet last = range.getIpLast();
+        if (range.isIPv4()) {
+            int i = floorIPv4(first.getLow());
+            return i >= 0 && _ipv4[i * 2 + 1] >= last.getLow();
+        }
+        int i = floorIPv6(first.getHigh(), first.getLow());
+        return i >= 0 && IP.compareAddress(_ipv6[i * 4 + 2], _ipv6[i * 4 + 3],
+                last.getHigh(), last.getLow()) >= 0;
+    }
+
+    /**
+     * Checks if some addresses of the range in argument are in these
+     * intervals.
+     *
+     * @param range range of addresses to test.
+     * @return true if the range overlaps these intervals.
+     */
+    public boolean overlaps(IPRangeable range) {
+        IPNet first = range.getIpFirst();
+        IPNet last = range.getIpLast();
+        if (range.isIPv4()) {
+            int i = floorIPv4(last.getLow());
+            return i >= 0 && _ipv4[i * 2 + 1] >= first.getLow();
+        }
+        int i = floorIPv6(last.getHigh(), last.getLow());
+        return i >= 0 && IP.compareAddress(_ipv6[i * 4 + 2], _ipv6[i * 4 + 3],
+                first.getHigh(), first.getLow()) >= 0;
+    }
+
+    /**
+     * Returns the number of intervals.
+     *
+     * @return the number of intervals.
+     */
+    public int size() {
+        return _ipv4.length / 2 + _ipv6.length / 4;
+    }
+
+    /**
+     * Returns the intervals as a list of {@link IPRange}, the IPv4 intervals
+     * first, in the order of the addresses.
+     *
+     * @return a new list of the intervals.
+     */
+    public List<IPRangeable> toRanges() {
+        List<IPRangeable> ranges = new ArrayList<>(size());
+        int v4Len = IP.maxPrefixLen(IPversion.IPV4);
+        for (int i = 0; i < _ipv4.length; i += 2) {
+            ranges.add(new IPRange(
+                    new IPNet(new IPBase(0, _ipv4[i], v4Len, IPversion.IPV4)),
+                    new IPNet(new IPBase(0, _ipv4[i + 1], v4Len, IPversion.IPV4))));
+        }
+        int v6Len = IP.maxPrefixLen(IPversion.IPV6);
+        for (int i = 0; i < _ipv6.length; i += 4) {
+            ranges.add(new IPRange(
+                    new IPNet(new IPBase(_ipv6[i], _ipv6[i + 1], v6Len, IPversion.IPV6)),
+                    new IPNet(new IPBase(_ipv6[i + 2], _ipv6[i + 3], v6Len, IPversion.IPV6))));
+        }
+        return ranges;
+    }
+}
@@ -34,8 +34,9 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class and tools to deal with IPv4 and IPv6 addresses and networks.<br/>
- * An IP address is a {@link BigInteger} number between 0 and 2^128, and could
- * have a prefix length to specify network mask.<br/><br/>
+ * An IP address is a number between 0 and 2^128, stored as two longs, and could
+ * have a prefix length to specify network mask. {@link #getIP()} returns it as
+ * a {@link BigInteger} for compatibility.<br/><br/>
  * Mostly taken from IPy http://pypi.python.org/pypi/IPy
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
@@ -112,16 +113,14 @@ public final class IPNet implements Comparable, IPRangeable {
         /*
          * parse the IPv4 address and return it as two hextets
          */
-        BigInteger ipInt = parseAddressIPv4(addr);
-        BigInteger bi = ipInt.shiftRight(16);
-        result[0] = bi.toString(16);
-        bi = ipInt.and(IP.BIG_INT_0xFFFF);
-        result[1] = bi.toString(16);
+        long ipInt = parseAddressIPv4(addr);
+        result[0] = Long.toHexString(ipInt >>> 16);
+        result[1] = Long.toHexString(ipInt & 0xFFFFL);
 
         return result;
     }
 
-    protected static BigInteger parseAddressIPv4(String addr) throws UnknownHostException {
+    protected static long parseAddressIPv4(String addr) throws UnknownHostException {
 
         // assume IPv4  ('127' gets interpreted as '127.0.0.0')
         String[] sbytes = addr.split("\\.");
@@ -141,32 +140,11 @@ public final class IPNet implements Comparable, IPRangeable {
                 throw new UnknownHostException("IPv4 Address with ! 0 <= bytes <= 255: " + addr);
         }
 
-        BigInteger ipInt = BigInteger.ZERO;
-        BigInteger bi;
-
-        // ipInts[0] << 24
-        bi = BigInteger.valueOf(ipInts[0]);
-        bi = bi.shiftLeft(24);
-        ipInt = ipInt.add(bi);
-
-        // ipInts[1] << 16
-        bi = BigInteger.valueOf(ipInts[1]);
-        bi = bi.shiftLeft(16);
-        ipInt = ipInt.add(bi);
-
-        // ipInts[2] << 8
-        bi = BigInteger.valueOf(ipInts[2]);
-        bi = bi.shiftLeft(8);
-        ipInt = ipInt.add(bi);
-
-        // ipInts[3]
-        bi = BigInteger.valueOf(ipInts[3]);
-        ipInt = ipInt.add(bi);
-
-        return ipInt;
+        return ((long) ipInts[0] << 24) | ((long) ipInts[1] << 16) |
+                ((long) ipInts[2] << 8) | (long) ipInts[3];
     }
 
-    protected static BigInteger parseAddressIPv6(String addr)
+    protected static IPBase parseAddressIPv6(String addr)
             throws UnknownHostException {
 
         /*
@@ -190,7 +168,7 @@ public final class IPNet implements Comparable, IPRangeable {
 
         if (count == 0) {
             // addr == "::"
-            return BigInteger.ZERO;
+            return new IPBase(0L, 0L, 0, IPversion.IPV6);
         }
 
         if (count == 1) {
@@ -276,26 +254,30 @@ public final class IPNet implements Comparable, IPRangeable {
                     "Invalid IPv6 address: should have 8 hextets: " + addr);
 
         /*
-         * Convert hextets to BigInteger
+         * Convert hextets to the high and low parts of the address
          */
-        BigInteger value = BigInteger.ZERO;
+        long high = 0L;
+        long low = 0L;
 
-        for (String item : items) {
-            BigInteger hexlet;
+        for (int i = 0; i < 8; i++) {
+            String item = items.get(i);
+            int hexlet;
             try {
-                hexlet = new BigInteger(item, 16);
+                hexlet = Integer.parseInt(item, 16);
             } catch (NumberFormatException e) {
                 throw new UnknownHostException(
                         "Invalid IPv6 address: invalid hextet: " + addr);
             }
-            if ((hexlet.compareTo(BigInteger.ZERO) < 0) || (hexlet.compareTo(IP.BIG_INT_0xFFFF) > 0))
+            if (hexlet < 0 || hexlet > 0xFFFF)
                 throw new UnknownHostException(
                         "Invalid IPv6 address: invalid hextet: " + addr);
-            value = value.multiply(IP.BIG_INT_0x10000);
-            value = value.add(hexlet);
+            if (i < 4)
+                high = (high << 16) | hexlet;
+            else
+                low = (low << 16) | hexlet;
         }
 
-        return value;
+        return new IPBase(high, low, 0, IPversion.IPV6);
     }
 
     protected static IPBase parseAddress(String addr)
@@ -321,9 +303,7 @@ public final class IPNet implements Comparable, IPRangeable {
             }
             if (addr.contains(":")) {
                 // IPv6 notation
-                BigInteger bi = parseAddressIPv6(addr);
-                result = new IPBase(bi, 0, IPversion.IPV6);
-                return result;
+                return parseAddressIPv6(addr);
             }
             /*
              * XXX: not sure if this is a good idea
@@ -338,8 +318,8 @@ public final class IPNet implements Comparable, IPRangeable {
             if (addr.contains(".") || (addr.length() < 4) &&
                     Integer.parseInt(addr) < 256) {
 
-                BigInteger bi = parseAddressIPv4(addr);
-                result = new IPBase(bi, 0, IPversion.IPV4);
+                result = new IPBase(0L, parseAddressIPv4(addr), 0,
+                        IPversion.IPV4);
                 return result;
             }
 
@@ -382,12 +362,22 @@ public final class IPNet implements Comparable, IPRangeable {
         return new IPBase(ip, prefixLen, ipVersion);
     }
 
+    protected static IPBase makeIP(IPBase ip, int prefixLen)
+            throws UnknownHostException {
+
+        IPversion ipVersion = ip.getIpVersion();
+        if (!IP.isValidPrefixLen(prefixLen, ipVersion))
+            throw new UnknownHostException("Invalid prefix length 0 <= prefix <= " +
+                    IP.maxPrefixLen(ipVersion) + " :" + ip.getIP());
+
+        return new IPBase(ip.getHigh(), ip.getLow(), prefixLen, ipVersion);
+    }
+
     protected static IPBase makeFromIP(String sip)
             throws UnknownHostException {
 
         IPBase result = parseAddress(sip);
-        return makeIP(result.getIP(), IP.maxPrefixLen(result.getIpVersion()),
-                result.getIpVersion());
+        return makeIP(result, IP.maxPrefixLen(result.getIpVersion()));
     }
 
     protected static IPBase makeFromRange(String data, String sfirst, String slast)
@@ -402,13 +392,14 @@ public final class IPNet implements Comparable, IPRangeable {
                 || (first.isIPv6() && !last.isIPv6()))
             throw new UnknownHostException(
                     "First-last notation must have the same address family: " + data);
-        if (first.getIP().compareTo(last.getIP()) > 0)
+        if (IP.compareAddress(first.getHigh(), first.getLow(),
+                last.getHigh(), last.getLow()) > 0)
             throw new UnknownHostException(
                     "Last address must be greater than first: " + data);
 
         int prefixlen = IP.maxPrefixLen(first.getIpVersion());
-        IPNet iFirst = new IPNet(first.getIP(), first.getIpVersion(), prefixlen);
-        IPNet iLast = new IPNet(last.getIP(), last.getIpVersion(), prefixlen);
+        IPNet iFirst = new IPNet(makeIP(first, prefixlen));
+        IPNet iLast = new IPNet(makeIP(last, prefixlen));
         IPRange range = new IPRange(iFirst, iLast);
         if (!range.isNetwork())
             throw new UnknownHostException("Range is not on a network boundary");
@@ -453,7 +444,7 @@ public final class IPNet implements Comparable, IPRangeable {
 
         IPBase result = parseAddress(sip);
         int prefix = getPrefixFromNetmask(smask, result.getIpVersion());
-        return makeIP(result.getIP(), prefix, result.getIpVersion());
+        return makeIP(result, prefix);
     }
 
     /**
@@ -810,26 +801,54 @@ public final class IPNet implements Comparable, IPRangeable {
     @Override
     public final boolean contains(IPRangeable iprange) {
 
-        IPNet first = networkAddress();
-        IPNet last = lastNetworkAddress();
+        if (iprange instanceof IPNet) {
+            IPNet other = (IPNet) iprange;
+            return compareAddress(networkHigh(), networkLow(),
+                    other.networkHigh(), other.networkLow()) <= 0 &&
+                    compareAddress(other.lastNetworkHigh(), other.lastNetworkLow(),
+                            lastNetworkHigh(), lastNetworkLow()) <= 0;
+        }
+
         IPNet firstOther = iprange.getIpFirst();
         IPNet lastOther = iprange.getIpLast();
 
-        return firstOther.isBetweenIP(first, last) &&
-                lastOther.isBetweenIP(first, last);
+        return compareAddress(networkHigh(), networkLow(),
+                firstOther.getHigh(), firstOther.getLow()) <= 0 &&
+                compareAddress(lastOther.getHigh(), lastOther.getLow(),
+                        lastNetworkHigh(), lastNetworkLow()) <= 0;
     }
 
     @Override
     public final boolean overlaps(IPRangeable iprange) {
-        IPNet first = networkAddress();
-        IPNet last = lastNetworkAddress();
-        IPNet firstOther = iprange.getIpFirst();
-        IPNet lastOther = iprange.getIpLast();
 
-        return first.isBetweenIP(firstOther, lastOther) ||
-                last.isBetweenIP(firstOther, lastOther) ||
-                firstOther.isBetweenIP(first, last) ||
-                lastOther.isBetweenIP(first, last);
+        long firstOtherHigh;
+        long firstOtherLow;
+        long lastOtherHigh;
+        long lastOtherLow;
+
+        if (iprange instanceof IPNet) {
+            IPNet other = (IPNet) iprange;
+            firstOtherHigh = other.networkHigh();
+            firstOtherLow = other.networkLow();
+            lastOtherHigh = other.lastNetworkHigh();
+            lastOtherLow = other.lastNetworkLow();
+        } else {
+            IPNet firstOther = iprange.getIpFirst();
+            IPNet lastOther = iprange.getIpLast();
+            firstOtherHigh = firstOther.getHigh();
+            firstOtherLow = firstOther.getLow();
+            lastOtherHigh = lastOther.getHigh();
+            lastOtherLow = lastOther.getLow();
+        }
+
+        /*
+         * [first, last] and [firstOther, lastOther] share at least one
+         * address if first <= lastOther and firstOther <= last
+         */
+        return compareAddress(networkHigh(), networkLow(),
+                lastOtherHigh, lastOtherLow) <= 0 &&
+                compareAddress(firstOtherHigh, firstOtherLow,
+                        lastNetworkHigh(), lastNetworkLow()) <= 0;
     }
 
     @Override
@@ -848,13 +867,53 @@ public final class IPNet implements Comparable, IPRangeable {
      * We do not take care of the prefix length of the {@link IPNet} objects.
      */
     public final boolean isBetweenIP(IPNet first, IPNet second) {
-        if (getIP().compareTo(first.getIP()) < 0)
+        if (compareAddress(getHigh(), getLow(), first.getHigh(), first.getLow()) < 0)
             return false;
-        if (getIP().compareTo(second.getIP()) > 0)
+        if (compareAddress(getHigh(), getLow(), second.getHigh(), second.getLow()) > 0)
             return false;
         return true;
     }
 
+    private static int compareAddress(long high1, long low1, long high2, long low2) {
+        return IP.compareAddress(high1, low1, high2, low2);
+    }
+
+    /**
+     * Returns the high 64 bits of the network IP address of this instance.
+     *
+     * @return the high 64 bits of the network IP address.
+     */
+    public final long networkHigh() {
+        return _ip.getHigh() & IP.netmaskHigh(_ip.getPrefixlen(), _ip.getIpVersion());
+    }
+
+    /**
+     * Returns the low 64 bits of the network IP address of this instance.
+     *
+     * @return the low 64 bits of the network IP address.
+     */
+    public final long networkLow() {
+        return _ip.getLow() & IP.netmaskLow(_ip.getPrefixlen(), _ip.getIpVersion());
+    }
+
+    /**
+     * Returns the high 64 bits of the last network IP address of this instance.
+     *
+     * @return the high 64 bits of the last network IP address.
+     */
+    public final long lastNetworkHigh() {
+        return networkHigh() | IP.hostmaskHigh(_ip.getPrefixlen(), _ip.getIpVersion());
+    }
+
+    /**
+     * Returns the low 64 bits of the last network IP address of this instance.
+     *
+     * @return the low 64 bits of the last network IP address.
+     */
+    public final long lastNetworkLow() {
+        return networkLow() | IP.hostmaskLow(_ip.getPrefixlen(), _ip.getIpVersion());
+    }
+
     /**
      * Returns the network IP address of this {@link IPNet} instance.
      *
@@ -862,10 +921,8 @@ public final class IPNet implements Comparable, IPRangeable {
      */
     public final IPNet networkAddress() {
         if (_networkAddress == null) {
-            BigInteger bi = IP.prefixLenToNetmask(_ip.getPrefixlen(),
-                    _ip.getIpVersion());
-            bi = _ip.getIP().and(bi);
-            IPBase ip = new IPBase(bi, _ip.getPrefixlen(), _ip.getIpVersion());
+            IPBase ip = new IPBase(networkHigh(), networkLow(),
+                    _ip.getPrefixlen(), _ip.getIpVersion());
             _networkAddress = new IPNet(ip);
         }
         return _networkAddress;
@@ -880,7 +937,7 @@ public final class IPNet implements Comparable, IPRangeable {
      */
     public final IPNet hostAddress() {
         if (_hostAddress == null) {
-            IPBase ip = new IPBase(_ip.getIP(),
+            IPBase ip = new IPBase(_ip.getHigh(), _ip.getLow(),
                     IP.maxPrefixLen(_ip.getIpVersion()), _ip.getIpVersion());
             _hostAddress = new IPNet(ip);
         }
@@ -896,11 +953,8 @@ public final class IPNet implements Comparable, IPRangeable {
      */
     public final IPNet lastNetworkAddress() {
         if (_lastNetworkAddress == null) {
-            IPNet net = networkAddress();
-            BigInteger bi = net.getIP().add(IP.networkLength(_ip.getPrefixlen(),
-                    _ip.getIpVersion()));
-            bi = bi.subtract(BigInteger.ONE);
-            IPBase ip = new IPBase(bi, _ip.getPrefixlen(), _ip.getIpVersion());
+            IPBase ip = new IPBase(lastNetworkHigh(), lastNetworkLow(),
+                    _ip.getPrefixlen(), _ip.getIpVersion());
             _lastNetworkAddress = new IPNet(ip);
         }
         return _lastNetworkAddress;
@@ -915,7 +969,7 @@ public final class IPNet implements Comparable, IPRangeable {
      * @throws UnknownHostException if some parameters are invalid
      */
     public final IPNet setMask(int mask) throws UnknownHostException {
-        return new IPNet(_ip.getIP(), _ip.getIpVersion(), mask);
+        return new IPNet(makeIP(_ip, mask));
     }
 
     @Override
@@ -1000,6 +1054,26 @@ public final class IPNet implements Comparable, IPRangeable {
         return _ip.getIP();
     }
 
+    /**
+     * Returns the high 64 bits of the IP address of this {@link IPNet}
+     * instance (always 0 for IPv4).
+     *
+     * @return the high 64 bits of the IP address.
+     */
+    public final long getHigh() {
+        return _ip.getHigh();
+    }
+
+    /**
+     * Returns the low 64 bits of the IP address of this {@link IPNet}
+     * instance.
+     *
+     * @return the low 64 bits of the IP address.
+     */
+    public final long getLow() {
+        return _ip.getLow();
+    }
+
     /**
      * Returns the length of this {@link IPNet} instance. The length is the
      * number of IP addresses associates to the network designated by the
@@ -1069,7 +1143,7 @@ public final class IPNet implements Comparable, IPRangeable {
         IPNet obj = (IPNet) o;
         if (equals(obj))
             return 0;
-        return getIP().compareTo(obj.getIP());
+        return compareAddress(getHigh(), getLow(), obj.getHigh(), obj.getLow());
     }
 
     /**
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.ip;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A path-compressed binary (Patricia) tree of IP prefixes. Each prefix is
+ * associated to a value. A tree only contains prefixes of one IP version.
+ * <br/>
+ * Lookups walk the tree using the high and low parts of the addresses
+ * (see {@link IPNet#getHigh()} and {@link IPNet#getLow()}) and do not
+ * allocate.
+ *
+ * @param <V> Type of the values.
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class IPPrefixTree<V> implements Serializable {
+
+    protected static final class Node<V> implements Serializable {
+        final long _high;
+        final long _low;
+        final int _prefixLen;
+        V _value;
+        Node<V> _left;
+        Node<V> _right;
+
+        Node(long high, long low, int prefixLen, V value) {
+            _high = high;
+            _low = low;
+            _prefixLen = prefixLen;
+            _value = value;
+        }
+
+        Node<V> child(int bit) {
+            return bit == 0 ? _left : _right;
+        }
+
+        void setChild(int bit, Node<V> node) {
+            if (bit == 0)
+                _left = node;
+            else
+                _right = node;
+        }
+    }
+
+    protected final IPversion _ipVersion;
+    protected final int _maxPrefixLen;
+    protected Node<V> _root;
+    protected int _size;
+
+    /**
+     * Creates a new empty tree for the {@link IPversion} IP version in
+     * argument.
+     *
+     * @param ipVersion IP version of the prefixes of this tree.
+     */
+    public IPPrefixTree(IPversion ipVersion) {
+        _ipVersion = ipVersion;
+        _maxPrefixLen = IP.maxPrefixLen(ipVersion);
+    }
+
+    /**
+     * Returns the IP version of the prefixes of this tree.
+     *
+     * @return the IP version of the prefixes of this tree.
+     */
+    public IPversion getIpVersion() {
+        return _ipVersion;
+    }
+
+    /**
+     * Returns the number of prefixes in this tree.
+     *
+     * @return the number of prefixes in this tree.
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Checks if this tree is empty.
+     *
+     * @return true if this tree does not contain any prefix.
+     */
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Removes all the prefixes of this tree.
+     */
+    public void clear() {
+        _root = null;
+        _size = 0;
+    }
+
+    protected int bit(long high, long low, int pos) {
+        if (_ipVersion == IPversion.IPV4)
+            return (int) (low >>> (31 - pos)) & 1;
+        if (pos < 64)
+            return (int) (high >>> (63 - pos)) & 1;
+        return (int) (low >>> (127 - pos)) & 1;
+    }
+
+    protected int commonPrefixLen(long high1, long low1, long high2, long low2) {
+        if (_ipVersion == IPversion.IPV4)
+            return Long.numberOfLeadingZeros(low1 ^ low2) - 32;
+        if (high1 != high2)
+            return Long.numberOfLeadingZeros(high1 ^ high2);
+        return 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    protected boolean nodeMatches(Node<V> node, long high, long low) {
+        int len = node._prefixLen;
+        return (high & IP.netmaskHigh(len, _ipVersion)) == node._high &&
+                (low & IP.netmaskLow(len, _ipVersion)) == node._low;
+    }
+
+    protected void checkVersion(IPRangeable prefix) {
+        if (prefix.getIpVersion() != _ipVersion)
+            throw new IllegalArgumentException("IP version mismatch: " + prefix);
+    }
+
+    /**
+     * Associates the value in argument to the network of the prefix in
+     * argument.
+     *
+     * @param prefix prefix to add. Only the network address of the prefix
+     *               is used.
+     * @param value  value to associate, not null.
+     * @return the previous value associated to this prefix or null.
+     */
+    public V put(IPNet prefix, V value) {
+        checkVersion(prefix);
+        int len = prefix.getPrefixLen();
+        long high = prefix.networkHigh();
+        long low = prefix.networkLow();
+
+        Node<V> parent = null;
+        int dir = 0;
+        Node<V> node = _root;
+        while (true) {
+            if (node == null) {
+                attach(parent, dir, new Node<>(high, low, len, value));
+                _size++;
+                return null;
+            }
+            int common = Math.min(commonPrefixLen(high, low, node._high, node._low),
+                    Math.min(len, node._prefixLen));
+
+            if (common == node._prefixLen && common == len) {
+                V old = node._value;
+                node._value = value;
+                if (old == null)
+                    _size++;
+                return old;
+            }
+            if (common == node._prefixLen) {
+                // node is a prefix of the key, go down
+                parent = node;
+                dir = bit(high, low, common);
+                node = node.child(dir);
+                continue;
+            }
+            Node<V> leaf = new Node<>(high, low, len, value);
+            if (common == len) {
+                // the key is a prefix of the node
+                leaf.setChild(bit(node._high, node._low, len), node);
+                attach(parent, dir, leaf);
+            } else {
+                // split at the common prefix
+                Node<V> glue = new Node<>(high & IP.netmaskHigh(common, _ipVersion),
+                        low & IP.netmaskLow(common, _ipVersion), common, null);
+                glue.setChild(bit(high, low, common), leaf);
+                glue.setChild(bit(node._high, node._low, common), node);
+                attach(parent, dir, glue);
+            }
+            _size++;
+            return null;
+        }
+    }
+
+    protected void attach(Node<V> parent, int dir, Node<V> node) {
+        if (parent == null)
+            _root = node;
+        else
+            parent.setChild(dir, node);
+    }
+
+    /**
+     * Returns the value associated to the network of the prefix in argument.
+     *
+     * @param prefix prefix to look for.
+     * @return the value associated to the prefix or null.
+     */
+    public V get(IPNet prefix) {
+        checkVersion(prefix);
+        int len = prefix.getPrefixLen();
+        long high = prefix.getHigh();
+        long low = prefix.getLow();
+
+        Node<V> node = _root;
+        while (node != null && node._prefixLen <= len) {
+            if (!nodeMatches(node, high, low))
+                return null;
+            if (node._prefixLen == len)
+                return node._value;
+            node = node.child(bit(high, low, node._prefixLen));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value associated to the longest prefix containing the
+     * network of the address in argument (longest prefix match).
+     *
+     * @param address address to look for. The prefix length of the address is
+     *                used as the longest prefix length to consider.
+     * @return the value of the longest matching prefix or null if not found.
+     */
+    public V longestMatch(IPNet address) {
+        checkVersion(address);
+        return longestMatch(address.getHigh(), address.getLow(),
+                address.getPrefixLen());
+    }
+
+    protected V longestMatch(long high, long low, int len) {
+        V best = null;
+        Node<V> node = _root;
+        while (node != null && node._prefixLen <= len) {
+            if (!nodeMatches(node, high, low))
+                break;
+            if (node._value != null)
+                best = node._value;
+            if (node._prefixLen == len)
+                break;
+            node = node.child(bit(high, low, node._prefixLen));
+        }
+        return best;
+    }
+
+    /**
+     * Returns the values associated to all the prefixes containing the
+     * network of the address in argument, from the shortest to the longest
+     * prefix.
+     *
+     * @param address address to look for. The prefix length of the address is
+     *                used as the longest prefix length to consider.
+     * @return a list of the values of the matching prefixes, may be empty.
+     */
+    public List<V> matching(IPNet address) {
+        checkVersion(address);
+        long high = address.getHigh();
+        long low = address.getLow();
+        int len = address.getPrefixLen();
+
+        List<V> values = new ArrayList<>();
+        Node<V> node = _root;
+        while (node != null && node._prefixLen <= len) {
+            if (!nodeMatches(node, high, low))
+                break;
+            if (node._value != null)
+                values.add(node._value);
+            if (node._prefixLen == len)
+                break;
+            node = node.child(bit(high, low, node._prefixLen));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the value associated to the longest prefix containing all the
+     * addresses of the range in argument.
+     *
+     * @param range range to look for.
+     * @return the value of the longest prefix containing the range or null
+     * if not found.
+     */
+    public V match(IPRangeable range) {
+        if (range instanceof IPNet)
+            return longestMatch((IPNet) range);
+
+        checkVersion(range);
+        IPNet first = range.getIpFirst();
+        IPNet last = range.getIpLast();
+        int len = commonPrefixLen(first.getHigh(), first.getLow(),
+                last.getHigh(), last.getLow());
+        return longestMatch(first.getHigh(), first.getLow(), len);
+    }
+
+    /**
+     * Checks if at least one prefix of this tree overlaps the range in
+     * argument (ie they share at least one address).
+     *
+     * @param range range to check.
+     * @return true if a prefix of this tree overlaps the range.
+     */
+    public boolean overlaps(IPRangeable range) {
+        checkVersion(range);
+        if (range instanceof IPNet) {
+            IPNet net = (IPNet) range;
+            return overlaps(_root, net.networkHigh(), net.networkLow(),
+                    net.lastNetworkHigh(), net.lastNetworkLow());
+        }
+        IPNet first = range.getIpFirst();
+        IPNet last = range.getIpLast();
+        return overlaps(_root, first.getHigh(), first.getLow(),
+                last.getHigh(), last.getLow());
+    }
+
+    /**
+     * Returns the values of all the prefixes of this tree overlapping the
+     * range in argument, ordered by network address then by prefix length.
+     *
+     * @param range range to check.
+     * @return a list of the values of the prefixes overlapping the range.
+     */
+    public List<V> overlapping(IPRangeable range) {
+        checkVersion(range);
+        List<V> values = new ArrayList<>();
+        if (range instanceof IPNet) {
+            IPNet net = (IPNet) range;
+            overlaps(_root, net.networkHigh(), net.networkLow(),
+                    net.lastNetworkHigh(), net.lastNetworkLow(), values);
+        } else {
+            IPNet first = range.getIpFirst();
+            IPNet last = range.getIpLast();
+            overlaps(_root, first.getHigh(), first.getLow(),
+                    last.getHigh(), last.getLow(), values);
+        }
+        return values;
+    }
+
+    protected boolean overlaps(Node<V> node, long firstHigh, long firstLow,
+                               long lastHigh, long lastLow) {
+        return overlaps(node, firstHigh, firstLow, lastHigh, lastLow, null);
+    }
+
+    /*
+     * Only the nodes on the paths of the first and the last addresses of the
+     * range partially overlap the range, the other nodes are either outside
+     * or inside the range.
+     * If values is null, stops at the first prefix overlapping the range,
+     * else adds the values of all the prefixes overlapping the range.
+     */
+    protected boolean overlaps(Node<V> node, long firstHigh, long firstLow,
+                               long lastHigh, long lastLow, List<V> values) {
+        boolean found = false;
+        while (node != null) {
+            int len = node._prefixLen;
+            long nodeLastHigh = node._high | IP.hostmaskHigh(len, _ipVersion);
+            long nodeLastLow = node._low | IP.hostmaskLow(len, _ipVersion);
+
+            if (IP.compareAddress(nodeLastHigh, nodeLastLow, firstHigh, firstLow) < 0 ||
+                    IP.compareAddress(lastHigh, lastLow, node._high, node._low) < 0)
+                return found;
+            // a node without value has two children: the subtree is not empty
+            if (IP.compareAddress(firstHigh, firstLow, node._high, node._low) <= 0 &&
+                    IP.compareAddress(nodeLastHigh, nodeLastLow, lastHigh, lastLow) <= 0) {
+                if (values != null)
+                    collect(node, values);
+                return true;
+            }
+            if (node._value != null) {
+                if (values == null)
+                    return true;
+                values.add(node._value);
+                found = true;
+            }
+            if (overlaps(node._left, firstHigh, firstLow, lastHigh, lastLow, values)) {
+                if (values == null)
+                    return true;
+                found = true;
+            }
+            node = node._right;
+        }
+        return found;
+    }
+
+    /**
+     * Returns the values of all the prefixes of this tree, ordered by
+     * network address then by prefix length.
+     *
+     * @return a list of the values of this tree.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(_size);
+        collect(_root, values);
+        return values;
+    }
+
+    protected void collect(Node<V> node, List<V> values) {
+        while (node != null) {
+            if (node._value != null)
+                values.add(node._value);
+            collect(node._left, values);
+            node = node._right;
+        }
+    }
+}
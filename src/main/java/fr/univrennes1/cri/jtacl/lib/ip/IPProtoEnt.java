@@ -9,6 +9,7 @@
 
 package fr.univrennes1.cri.jtacl.lib.ip;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,7 +23,7 @@ import java.util.List;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class IPProtoEnt {
+public class IPProtoEnt implements Serializable {
 
     protected String _name;
     protected List<String> _aliases;
@@ -139,7 +139,7 @@ public class IPRange implements IPRangeable {
             _ipLast = _ipFirst.lastNetworkAddress();
         }
 
-        if (_ipFirst.getIP().compareTo(_ipLast.getIP()) > 0)
+        if (_ipFirst.compareTo(_ipLast) > 0)
             throw new UnknownHostException(
                     "last address must be greater than the first: " + data);
     }
@@ -160,8 +160,10 @@ public class IPRange implements IPRangeable {
         IPNet firstOther = iprange.getIpFirst();
         IPNet lastOther = iprange.getIpLast();
 
-        return firstOther.isBetweenIP(_ipFirst, _ipLast) &&
-                lastOther.isBetweenIP(_ipFirst, _ipLast);
+        return IP.compareAddress(_ipFirst.getHigh(), _ipFirst.getLow(),
+                firstOther.getHigh(), firstOther.getLow()) <= 0 &&
+                IP.compareAddress(lastOther.getHigh(), lastOther.getLow(),
+                        _ipLast.getHigh(), _ipLast.getLow()) <= 0;
     }
 
     @Override
@@ -169,10 +171,10 @@ public class IPRange implements IPRangeable {
         IPNet firstOther = iprange.getIpFirst();
         IPNet lastOther = iprange.getIpLast();
 
-        return _ipFirst.isBetweenIP(firstOther, lastOther) ||
-                _ipLast.isBetweenIP(firstOther, lastOther) ||
-                firstOther.isBetweenIP(_ipFirst, _ipLast) ||
-                lastOther.isBetweenIP(_ipFirst, _ipLast);
+        return IP.compareAddress(_ipFirst.getHigh(), _ipFirst.getLow(),
+                lastOther.getHigh(), lastOther.getLow()) <= 0 &&
+                IP.compareAddress(firstOther.getHigh(), firstOther.getLow(),
+                        _ipLast.getHigh(), _ipLast.getLow()) <= 0;
     }
 
     @Override
@@ -247,7 +249,8 @@ public class IPRange implements IPRangeable {
 
     @Override
     public final boolean isHost() {
-        return _ipFirst.getIP().compareTo(_ipLast.getIP()) == 0;
+        return _ipFirst.getHigh() == _ipLast.getHigh() &&
+                _ipFirst.getLow() == _ipLast.getLow();
     }
 
     @Override
@@ -9,6 +9,7 @@
 
 package fr.univrennes1.cri.jtacl.lib.ip;
 
+import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.Collection;
 
@@ -17,7 +18,7 @@ import java.util.Collection;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public interface IPRangeable {
+public interface IPRangeable extends Serializable {
 
     /**
      * Checks if this range instance contains a range.<br/>
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.lib.ip;
 
+import java.io.Serializable;
+
 /**
  * A range of ports [0..65535]
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PortRange {
+public class PortRange implements Serializable {
     private int _firstPort = -1;
     private int _lastPort = -1;
 
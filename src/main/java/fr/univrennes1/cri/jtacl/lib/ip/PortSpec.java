@@ -12,9 +12,12 @@ package fr.univrennes1.cri.jtacl.lib.ip;
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclInternalException;
 import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * Port specification in a ProbeRequest.
@@ -22,7 +25,7 @@ import java.util.List;
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class PortSpec {
+public class PortSpec implements Serializable {
 
     /**
      * Current operator
@@ -34,6 +37,12 @@ public class PortSpec {
      */
     protected List<PortRange> _ranges = new ArrayList<>();
 
+    /**
+     * Boundaries of the port specs matched against this instance, null if
+     * they are not recorded (see {@link #newRecorder}).
+     */
+    protected transient NavigableSet<Integer> _boundaries;
+
     /**
      * PortSpec NONE
      */
@@ -194,6 +203,36 @@ public class PortSpec {
         return Collections.unmodifiableList(_ranges);
     }
 
+    /**
+     * Returns a new copy of this instance recording the boundaries of the
+     * port specs matched against it (see {@link #getBoundaries}).
+     * A port spec of a probe request can be replaced by a recorder to know
+     * where the filtering rules split the ports of the request.
+     *
+     * @return a new copy of this instance recording the boundaries.
+     */
+    public PortSpec newRecorder() {
+        PortSpec spec = new PortSpec();
+        spec._operator = _operator;
+        spec._ranges = new ArrayList<>(_ranges);
+        spec._boundaries = new ConcurrentSkipListSet<>();
+        return spec;
+    }
+
+    /**
+     * Returns the boundaries of the port specs matched against this
+     * instance if this instance is a recorder: the first port and the last
+     * port + 1 of each range of these port specs. A boundary is the first
+     * port of a new class of ports, all the ports between two boundaries
+     * are matched in the same way by the port specs.
+     *
+     * @return the boundaries recorded, null if this instance is not a
+     * recorder.
+     */
+    public NavigableSet<Integer> getBoundaries() {
+        return _boundaries;
+    }
+
     /**
      * Checks if this instance matches the port spec in argument.
      * <ul>
@@ -209,6 +248,13 @@ public class PortSpec {
      */
     public MatchResult matches(PortSpec portSpec) {
 
+        if (portSpec._boundaries != null) {
+            for (PortRange range : _ranges) {
+                portSpec._boundaries.add(range.getFirstPort());
+                portSpec._boundaries.add(range.getLastPort() + 1);
+            }
+        }
+
         if (_ranges.isEmpty())
             return MatchResult.NOT;
 
@@ -267,4 +313,27 @@ public class PortSpec {
         return s;
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 59 * hash + (_operator != null ? _operator.ordinal() : 0);
+        hash = 59 * hash + _ranges.hashCode();
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final PortSpec other = (PortSpec) obj;
+        if (_operator != other._operator) {
+            return false;
+        }
+        return _ranges.equals(other._ranges);
+    }
+
 }
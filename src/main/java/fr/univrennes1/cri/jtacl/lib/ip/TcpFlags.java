@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.lib.ip;
 
+import java.io.Serializable;
+
 /**
  * This class handles TCP flags
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class TcpFlags {
+public class TcpFlags implements Serializable {
 
     protected static final int CWR = 1;
     protected static final int ECE = 2;
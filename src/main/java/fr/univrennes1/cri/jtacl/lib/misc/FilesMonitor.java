@@ -10,6 +10,7 @@
 package fr.univrennes1.cri.jtacl.lib.misc;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,11 +21,11 @@ import java.util.Map;
  *
  * @author patrick.lamaiziere@univ-rennes1.fr
  */
-public class FilesMonitor {
+public class FilesMonitor implements Serializable {
 
     protected Map<String, Long> _filesMap = new HashMap<>();
 
-    public void addFile(String filename) {
+    public synchronized void addFile(String filename) {
         File file = new File(filename);
         Long date = file.lastModified();
         Long df = _filesMap.get(filename);
@@ -33,7 +34,7 @@ public class FilesMonitor {
         _filesMap.put(filename, date);
     }
 
-    public List<String> checkFiles() {
+    public synchronized List<String> checkFiles() {
         ArrayList<String> files = new ArrayList<>();
 
         for (String filename : _filesMap.keySet()) {
@@ -47,6 +48,10 @@ public class FilesMonitor {
         return files;
     }
 
+    public synchronized List<String> listFiles() {
+        return new ArrayList<>(_filesMap.keySet());
+    }
+
     public Map<String, Long> getFiles() {
         return _filesMap;
     }
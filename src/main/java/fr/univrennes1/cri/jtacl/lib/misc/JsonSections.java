@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.misc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of a JSON file made of sections: a root object whose
+ * fields are arrays (or objects) of elements.<br/>
+ * The file is read with the token API of Jackson and only one element of a
+ * section is read as a tree at a time, the whole file is never held in
+ * memory. The sections without loader are skipped.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class JsonSections {
+
+    protected static final MappingJsonFactory _factory = new MappingJsonFactory();
+
+    /**
+     * Loader of the elements of a section.
+     */
+    public interface SectionLoader {
+        /**
+         * Loads the elements of a section.
+         *
+         * @param elements the elements of the section, read on demand.
+         */
+        void load(Iterator<JsonNode> elements);
+    }
+
+    /*
+     * iterator over the elements of the section at the current token of
+     * the parser: the values of an array or of an object.
+     */
+    protected static class Elements implements Iterator<JsonNode> {
+
+        protected JsonParser _parser;
+        protected boolean _object;
+        protected JsonToken _next;
+
+        protected Elements(JsonParser parser) throws IOException {
+            _parser = parser;
+            JsonToken token = parser.currentToken();
+            _object = token == JsonToken.START_OBJECT;
+            if (token == JsonToken.START_ARRAY || _object)
+                advance();
+            else
+                _next = null;
+        }
+
+        protected void advance() throws IOException {
+            _next = _parser.nextToken();
+            if (_object && _next == JsonToken.FIELD_NAME)
+                _next = _parser.nextToken();
+            if (_next == JsonToken.END_ARRAY || _next == JsonToken.END_OBJECT)
+                _next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next != null;
+        }
+
+        @Override
+        public JsonNode next() {
+            if (_next == null)
+                throw new NoSuchElementException();
+            try {
+                JsonNode node = _parser.readValueAsTree();
+                advance();
+                return node;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /*
+         * skips the elements not read by the loader.
+         */
+        protected void skip() {
+            while (hasNext()) {
+                try {
+                    _parser.skipChildren();
+                    advance();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the sections of the JSON file in argument, in the order of the
+     * file. Each section with a loader is given to this loader.
+     *
+     * @param fileName the JSON file.
+     * @param loaders  the loaders of the sections, by name of section.
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     JSON object.
+     */
+    public static void readSections(String fileName,
+                                    Map<String, SectionLoader> loaders)
+            throws IOException {
+
+        try (JsonParser parser = _factory.createParser(new FileReader(fileName))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException(fileName + ": JSON object expected");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                SectionLoader loader = loaders.get(parser.getCurrentName());
+                parser.nextToken();
+                if (loader == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                Elements elements = new Elements(parser);
+                loader.load(elements);
+                elements.skip();
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+}
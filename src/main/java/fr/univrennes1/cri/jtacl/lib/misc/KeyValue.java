@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.lib.misc;
 
+import java.io.Serializable;
+
 /**
  * Describe a key and value item.
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class KeyValue {
+public class KeyValue implements Serializable {
     String _key;
     String _value;
 
@@ -9,12 +9,14 @@
 
 package fr.univrennes1.cri.jtacl.lib.misc;
 
+import java.io.Serializable;
+
 /**
  * Context while parsing
  *
  * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
  */
-public class ParseContext {
+public class ParseContext implements Serializable {
 
     protected String _fileName;
     protected int _lineNumber;
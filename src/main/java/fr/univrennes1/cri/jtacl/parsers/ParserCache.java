@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.parsers;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the Parboiled parsers.<br/>
+ * Creating a parser builds its rules tree, this is done once per thread
+ * and per class of parser: the parsers are kept by thread as they keep
+ * the state of the last parsing and cannot be shared between threads.
+ * The parser returned must not be used by another thread.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class ParserCache {
+
+    protected static final ThreadLocal<Map<Class<?>, Object>> _parsers =
+            ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Returns the parser of the current thread for this class of parser,
+     * created on first use.
+     *
+     * @param parserClass class of the parser.
+     * @return the parser of the current thread.
+     */
+    public static <P extends BaseParser<V>, V> P getParser(Class<P> parserClass) {
+        Map<Class<?>, Object> parsers = _parsers.get();
+        Object parser = parsers.get(parserClass);
+        if (parser == null) {
+            parser = Parboiled.createParser(parserClass);
+            parsers.put(parserClass, parser);
+        }
+        return parserClass.cast(parser);
+    }
+}
@@ -9,9 +9,13 @@
 package fr.univrennes1.cri.jtacl.shell;
 
 import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.probing.ExpectedProbing;
+import fr.univrennes1.cri.jtacl.core.probing.ProbesTracker;
+import fr.univrennes1.cri.jtacl.core.probing.Probing;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -80,4 +84,78 @@ public class LsfwBinding {
         return _vars;
     }
 
+    /**
+     * Returns a new builder of probe commands.
+     *
+     * @return a new builder of probe commands.
+     */
+    public ProbeBuilder newProbe() {
+        return new ProbeBuilder();
+    }
+
+    /**
+     * Runs the probe command in argument.
+     *
+     * @param cmd the probe command (see {@link #newProbe}).
+     * @return the result of the probing.
+     */
+    public Probing probe(ProbeCommand cmd) {
+        cmd.runCommand();
+        return cmd.getProbing();
+    }
+
+    /**
+     * Builds and runs a probe command.
+     *
+     * @param builder the builder of the probe command.
+     * @return the result of the probing.
+     */
+    public Probing probe(ProbeBuilder builder) {
+        return probe(builder.build());
+    }
+
+    /**
+     * Runs several probe commands. If the option probing.threads is greater
+     * than one, the probings are done concurrently.
+     *
+     * @param cmds the probe commands.
+     * @return the result of each probing, in the order of the commands.
+     */
+    public List<Probing> probe(List<ProbeCommand> cmds) {
+        List<ProbesTracker> trackers = new ArrayList<>(cmds.size());
+        for (ProbeCommand cmd : cmds) {
+            trackers.add(_monitor.newTracker(cmd.getIlink(),
+                    cmd.getSourceAddress(), cmd.getDestinationAddress(),
+                    cmd.getRequest()));
+        }
+        return _monitor.probe(trackers);
+    }
+
+    /**
+     * Checks the result of a probing, as 'probe expect'.
+     *
+     * @param probing the result of a probing.
+     * @param expect  the expected result (see help probe).
+     * @return true if the result of the probing is the expected result.
+     * @throws fr.univrennes1.cri.jtacl.core.exceptions.JtaclParameterException
+     *         if the expected result is invalid.
+     */
+    public boolean expect(Probing probing, String expect) {
+        ExpectedProbing ep = ShellUtils.parseExpectedProbing(expect);
+        return probing.checkExpectedResult(ep);
+    }
+
+    /**
+     * Scans the destination ports of a probe (see help scan).
+     *
+     * @param builder the builder of the probe command (tcp or udp).
+     * @return the results of the scan, by range of destination ports.
+     */
+    public List<ScanCommand.ScanResult> scan(ProbeBuilder builder) {
+        ScanCommand cmd = new ScanCommand();
+        cmd.buildRequest(builder.getTemplate());
+        cmd.runCommand();
+        return cmd.getResults();
+    }
+
 }
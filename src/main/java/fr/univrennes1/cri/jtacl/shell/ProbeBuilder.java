@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2012, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.shell;
+
+import fr.univrennes1.cri.jtacl.lib.misc.StringsList;
+
+/**
+ * Builder of probe commands, for the scripts. The arguments are the same as
+ * the arguments of the probe command (see help probe), without the parsing
+ * of a command line.
+ *
+ * <pre>
+ *     ProbeCommand cmd = lsfw.newProbe().from("10.0.0.1").to("10.0.1.1")
+ *         .protocol("tcp").sourcePort("dyn").destinationPort(80)
+ *         .flags("Sa").quickDeny().build();
+ * </pre>
+ *
+ * The builder can be reused to build several commands.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class ProbeBuilder {
+
+    protected ProbeCommandTemplate _template = new ProbeCommandTemplate();
+
+    /**
+     * Sets the source of the probe.
+     *
+     * @param source source (hostname, address, network or range of addresses).
+     * @return this builder.
+     */
+    public ProbeBuilder from(String source) {
+        _template.setSrcAddress(source);
+        return this;
+    }
+
+    /**
+     * Sets the destination of the probe.
+     *
+     * @param destination destination (hostname, address, network or range
+     *                    of addresses).
+     * @return this builder.
+     */
+    public ProbeBuilder to(String destination) {
+        _template.setDestAddress(destination);
+        return this;
+    }
+
+    /**
+     * Uses IPv6 resolution of the addresses (probe6).
+     *
+     * @return this builder.
+     */
+    public ProbeBuilder ipv6() {
+        _template.setProbe6flag(true);
+        return this;
+    }
+
+    /**
+     * Sets the protocol of the probe.
+     *
+     * @param protocol name or number of the protocol.
+     * @return this builder.
+     */
+    public ProbeBuilder protocol(String protocol) {
+        _template.setProtoSpecification(protocol);
+        return this;
+    }
+
+    /**
+     * Sets the source port (tcp or udp) or the icmp-type (icmp or icmp6).
+     *
+     * @param port port specification, as in the probe command.
+     * @return this builder.
+     */
+    public ProbeBuilder sourcePort(String port) {
+        _template.setPortSource(port);
+        return this;
+    }
+
+    public ProbeBuilder sourcePort(int port) {
+        return sourcePort(Integer.toString(port));
+    }
+
+    public ProbeBuilder sourcePorts(int first, int last) {
+        return sourcePort("(" + first + "," + last + ")");
+    }
+
+    /**
+     * Sets the destination port (tcp or udp).
+     *
+     * @param port port specification, as in the probe command.
+     * @return this builder.
+     */
+    public ProbeBuilder destinationPort(String port) {
+        _template.setPortDest(port);
+        return this;
+    }
+
+    public ProbeBuilder destinationPort(int port) {
+        return destinationPort(Integer.toString(port));
+    }
+
+    public ProbeBuilder destinationPorts(int first, int last) {
+        return destinationPort("(" + first + "," + last + ")");
+    }
+
+    /**
+     * Sets the tcp flags of the probe.
+     *
+     * @param flags the tcp flags, the probe matches if one of them matches.
+     * @return this builder.
+     */
+    public ProbeBuilder flags(String... flags) {
+        StringsList tcpFlags = new StringsList();
+        for (String flag : flags)
+            tcpFlags.add(flag);
+        _template.setTcpFlags(tcpFlags);
+        return this;
+    }
+
+    /**
+     * Sets the equipment specification where the probe is injected.
+     *
+     * @param equipments equipment specification, as in the probe command.
+     * @return this builder.
+     */
+    public ProbeBuilder on(String equipments) {
+        _template.setEquipments(equipments);
+        return this;
+    }
+
+    public ProbeBuilder noAction() {
+        _template.setProbeOptNoAction(true);
+        return this;
+    }
+
+    public ProbeBuilder quickDeny() {
+        _template.setProbeOptQuickDeny(true);
+        return this;
+    }
+
+    public ProbeBuilder state() {
+        _template.setProbeOptState(true);
+        return this;
+    }
+
+    /**
+     * Returns the template of the probe command built.
+     *
+     * @return the template of the probe command built.
+     */
+    public ProbeCommandTemplate getTemplate() {
+        return _template;
+    }
+
+    /**
+     * Builds a new probe command ready to run.
+     *
+     * @return a new probe command.
+     * @throws fr.univrennes1.cri.jtacl.core.exceptions.JtaclParameterException
+     *         if an argument is invalid.
+     */
+    public ProbeCommand build() {
+        ProbeCommand cmd = new ProbeCommand();
+        cmd.buildRequest(_template);
+        return cmd;
+    }
+}
@@ -265,10 +265,8 @@ public class ProbeCommand {
         /*
          * probe
          */
-        _monitor.resetProbing();
-        _monitor.newProbing(_ilink, _sourceAddress,
+        _probing = _monitor.probe(_ilink, _sourceAddress,
                 _destinationAddress, _request);
-        _probing = _monitor.startProbing();
     }
 
     public ProbeRequest getRequest() {
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2012, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.shell;
+
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclParameterException;
+import fr.univrennes1.cri.jtacl.core.probing.ExpectedProbing;
+import fr.univrennes1.cri.jtacl.core.probing.FwResult;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
+import fr.univrennes1.cri.jtacl.core.probing.Probing;
+import fr.univrennes1.cri.jtacl.core.probing.RoutingResult;
+import fr.univrennes1.cri.jtacl.lib.ip.PortOperator;
+import fr.univrennes1.cri.jtacl.lib.ip.PortRange;
+import fr.univrennes1.cri.jtacl.lib.ip.PortSpec;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * Shell scan command: finds the destination ports accepted from a source
+ * to a destination.<br/>
+ * The destination port spec of the probe is replaced by a recorder of the
+ * boundaries of the port specs of the filtering rules (see
+ * {@link PortSpec#newRecorder}). The ports between two boundaries are
+ * matched in the same way by all the rules, they form an equivalence class
+ * of ports which has the result of any of its ports. Each range of ports is
+ * probed once, if the probing records boundaries inside the range, the range
+ * is split and the parts are probed, else the range is a class.
+ * So the number of probings is the number of classes instead of the number
+ * of ports.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class ScanCommand {
+
+    protected static final ExpectedProbing EXPECT_ACCEPT =
+            new ExpectedProbing(false, "ACCEPT");
+
+    protected ProbeCommand _probeCommand = new ProbeCommand();
+    protected List<ScanResult> _results = new ArrayList<>();
+    protected int _probingsCount;
+
+    /**
+     * Result of a range of ports.
+     */
+    public static class ScanResult {
+
+        protected PortRange _ports;
+        protected FwResult _aclResult;
+        protected RoutingResult _routingResult;
+        protected boolean _accepted;
+
+        protected ScanResult(PortRange ports, Probing probing) {
+            _ports = ports;
+            _aclResult = probing.getAclResult();
+            _routingResult = probing.getRoutingResult();
+            _accepted = probing.checkExpectedResult(EXPECT_ACCEPT);
+        }
+
+        protected ScanResult(PortRange ports, ScanResult result) {
+            _ports = ports;
+            _aclResult = result._aclResult;
+            _routingResult = result._routingResult;
+            _accepted = result._accepted;
+        }
+
+        /**
+         * Returns the range of destination ports of this result.
+         *
+         * @return the range of destination ports of this result.
+         */
+        public PortRange getPorts() {
+            return _ports;
+        }
+
+        public FwResult getAclResult() {
+            return _aclResult;
+        }
+
+        public RoutingResult getRoutingResult() {
+            return _routingResult;
+        }
+
+        /**
+         * Returns true if the ports are accepted (as 'probe expect accept').
+         *
+         * @return true if the ports are accepted.
+         */
+        public boolean isAccepted() {
+            return _accepted;
+        }
+
+        protected boolean sameResult(ScanResult other) {
+            return _accepted == other._accepted &&
+                    _routingResult == other._routingResult &&
+                    _aclResult.equals(other._aclResult);
+        }
+    }
+
+    /**
+     * Builds the probe request of the scan.
+     *
+     * @param probeCmd template of the command.
+     * @throws JtaclParameterException if the command is invalid.
+     */
+    public void buildRequest(ProbeCommandTemplate probeCmd) {
+        _probeCommand.buildRequest(probeCmd);
+        if (_probeCommand.getRequest().getDestinationPort() == null)
+            throw new JtaclParameterException("tcp or udp protocol expected");
+    }
+
+    /**
+     * Scans the ranges of the destination port spec of the request.
+     */
+    public void runCommand() {
+        _results.clear();
+        _probingsCount = 0;
+        ProbeRequest request = _probeCommand.getRequest();
+        PortSpec destPort = request.getDestinationPort();
+        try {
+            for (PortRange range : destPort.getRanges())
+                scanRange(range);
+        } finally {
+            request.setDestinationPort(destPort);
+        }
+    }
+
+    protected void scanRange(PortRange range) {
+        ProbeRequest request = _probeCommand.getRequest();
+        List<ScanResult> results = new ArrayList<>();
+        Deque<PortRange> ranges = new ArrayDeque<>();
+        ranges.push(range);
+        while (!ranges.isEmpty()) {
+            PortRange ports = ranges.pop();
+            PortSpec recorder = new PortSpec(PortOperator.RANGE,
+                    ports.getFirstPort(), ports.getLastPort()).newRecorder();
+            request.setDestinationPort(recorder);
+            _probeCommand.runCommand();
+            _probingsCount++;
+
+            /*
+             * the boundaries inside the range split it.
+             */
+            NavigableSet<Integer> boundaries = recorder.getBoundaries().subSet(
+                    ports.getFirstPort(), false, ports.getLastPort(), true);
+            if (boundaries.isEmpty()) {
+                ScanResult result = new ScanResult(ports,
+                        _probeCommand.getProbing());
+                results.add(result);
+                continue;
+            }
+            /*
+             * push the parts in reverse order to scan the ports in order.
+             */
+            int last = ports.getLastPort();
+            for (int first : boundaries.descendingSet()) {
+                ranges.push(new PortRange(first, last));
+                last = first - 1;
+            }
+            ranges.push(new PortRange(ports.getFirstPort(), last));
+        }
+
+        /*
+         * merge the adjacent classes with the same result.
+         */
+        ScanResult previous = null;
+        for (ScanResult result : results) {
+            if (previous != null && previous.sameResult(result)) {
+                previous = new ScanResult(new PortRange(
+                        previous.getPorts().getFirstPort(),
+                        result.getPorts().getLastPort()), previous);
+                _results.set(_results.size() - 1, previous);
+            } else {
+                _results.add(result);
+                previous = result;
+            }
+        }
+    }
+
+    public ProbeCommand getProbeCommand() {
+        return _probeCommand;
+    }
+
+    /**
+     * Returns the results of the scan, by range of destination ports in
+     * the order of the ports.
+     *
+     * @return the results of the scan.
+     */
+    public List<ScanResult> getResults() {
+        return _results;
+    }
+
+    /**
+     * Returns the number of probings done by the scan.
+     *
+     * @return the number of probings done by the scan.
+     */
+    public int getProbingsCount() {
+        return _probingsCount;
+    }
+}
@@ -29,15 +29,16 @@ import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRange;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
 import fr.univrennes1.cri.jtacl.lib.ip.IPversion;
+import fr.univrennes1.cri.jtacl.parsers.ParserCache;
 import groovy.lang.Binding;
 import groovy.ui.Console;
 import groovy.util.GroovyScriptEngine;
-import org.parboiled.Parboiled;
 import org.parboiled.buffers.InputBuffer;
 import org.parboiled.errors.ParseError;
 import org.parboiled.parserunners.ReportingParseRunner;
 import org.parboiled.support.ParsingResult;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -51,6 +52,9 @@ import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -62,9 +66,8 @@ import java.util.stream.Collectors;
 public class Shell {
 
     protected String _prompt = "lsfw> ";
-    protected ShellParser _parser = Parboiled.createParser(ShellParser.class);
-    protected ReportingParseRunner _parseRunner =
-            new ReportingParseRunner(_parser.CommandLine());
+    protected ShellParser _parser;
+    protected ReportingParseRunner _parseRunner;
     protected Monitor _monitor = Monitor.getInstance();
     protected Options _monitorOptions = _monitor.getOptions();
     protected boolean _interactive;
@@ -340,6 +343,20 @@ public class Shell {
         }
     }
 
+    public void snapshotCommand(ShellParser command) {
+
+        if (_daemon || _monitorOptions.getSecureLevel() > 0) {
+            _outStream.println("Error: snapshot unallowed in daemon mode or in secure level > 0");
+            return;
+        }
+        String fileName = command.getString("SnapshotFile");
+        try {
+            _monitor.saveSnapshot(fileName);
+        } catch (JtaclRuntimeException ex) {
+            _outStream.println("Error: " + ex.getMessage());
+        }
+    }
+
     public boolean probeCommand(String commandLine, ProbeCommandTemplate probeCmd) {
 
         boolean testMode = probeCmd.getProbeExpect() != null;
@@ -444,6 +461,42 @@ public class Shell {
         return testExpect;
     }
 
+    public void scanCommand(ProbeCommandTemplate probeCmd) {
+
+        ScanCommand cmd = new ScanCommand();
+        try {
+            cmd.buildRequest(probeCmd);
+        } catch (JtaclParameterException ex) {
+            _outStream.println(ex.getMessage());
+            return;
+        }
+
+        ProbeCommand probeCommand = cmd.getProbeCommand();
+        _outStream.println("scan from: " +
+                probeCommand.getSourceAddress().toNetString("::i") +
+                " to: " + probeCommand.getDestinationAddress().toNetString("::i"));
+
+        cmd.runCommand();
+        _lastProbing = probeCommand.getProbing();
+
+        /*
+         * results by range of destination ports
+         */
+        String accepted = "";
+        for (ScanCommand.ScanResult result : cmd.getResults()) {
+            String ports = result.getPorts().toText();
+            _outStream.print("ports: " + ports);
+            _outStream.print(" [ACL: " + result.getAclResult());
+            _outStream.print("; Routing: " + result.getRoutingResult());
+            _outStream.println("]");
+            if (result.isAccepted())
+                accepted += " " + ports;
+        }
+        _outStream.println("Accepted ports:" + accepted);
+        _outStream.println("Probings: " + cmd.getProbingsCount());
+        _outStream.println();
+    }
+
     public void groovyCommand(ShellParser parser) {
 
         if (_monitorOptions.getSecureLevel() > 0) {
@@ -566,6 +619,90 @@ public class Shell {
         }
     }
 
+    /*
+     * runs the command parsed by the shell parser.
+     */
+    protected void runShellCommand(String commandLine, String command) {
+
+        if (command.equals("probe") || command.equals("probe6")) {
+            boolean test = probeCommand(commandLine, _parser.getProbeCmdTemplate());
+            if (_parser.getProbeCmdTemplate().getProbeExpect() != null) {
+                if (!test)
+                    _testResult = false;
+            }
+        }
+        if (command.equals("scan"))
+            scanCommand(_parser.getProbeCmdTemplate());
+        if (command.equals("option"))
+            optionCommand(_parser);
+        if (command.equals("topology"))
+            topologyCommand(_parser);
+        if (command.equals("route"))
+            routeCommand(_parser);
+        if (command.equals("help"))
+            helpCommand(_parser);
+        if (command.equals("define"))
+            defineCommand(_parser);
+        if (command.equals("equipment"))
+            equipmentCommand(_parser);
+        if (command.equals("reload"))
+            reloadCommand(_parser);
+        if (command.equals("snapshot"))
+            snapshotCommand(_parser);
+        if (command.equals("groovy"))
+            groovyCommand(_parser);
+        if (command.equals("groovyconsole"))
+            groovyConsoleCommand(_parser);
+        if (command.equals("host") || command.equals("host6"))
+            hostCommand(_parser);
+        if (command.equals("ip") || command.equals("ip6"))
+            ipCommand(_parser);
+    }
+
+    /*
+     * runs a command of a client of the daemon. The sessions share the
+     * monitor: the commands changing the configuration are run alone, the
+     * others (probing, scan...) are run concurrently on the loaded
+     * configuration. The shells of the equipments keep the state of the
+     * command run in the equipment, so the equipment commands are run alone
+     * too.
+     * With the autoreload option, the changed equipments are reloaded in
+     * background by the watcher of the monitor, or before the command if the
+     * files cannot be watched.
+     */
+    protected void runDaemonCommand(String commandLine, String command) {
+
+        if (_monitor.getOptions().getAutoReload() && !_monitor.isWatching()) {
+            Lock lock = _monitor.getLock().writeLock();
+            lock.lock();
+            try {
+                autoReload();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean write = command.equals("reload") || command.equals("option") ||
+                command.equals("define") || command.equals("groovy") ||
+                command.equals("groovyconsole") || command.equals("equipment");
+        Lock lock = write ? _monitor.getLock().writeLock() :
+                _monitor.getLock().readLock();
+        lock.lock();
+        /*
+         * the command uses the configuration published when it starts, an
+         * equipment reloaded meanwhile is seen by the next commands.
+         */
+        if (!write)
+            _monitor.pinConfiguration();
+        try {
+            runShellCommand(commandLine, command);
+        } finally {
+            if (!write)
+                _monitor.unpinConfiguration();
+            lock.unlock();
+        }
+    }
+
     public void parseShellCommand(String commandLine) {
 
         if (Log.debug().isLoggable(Level.INFO))
@@ -575,7 +712,18 @@ public class Shell {
         if (commandLine.startsWith("#"))
             return;
         // macro substitution
-        String subs = substitute(commandLine);
+        String subs;
+        if (_daemon) {
+            Lock lock = _monitor.getLock().readLock();
+            lock.lock();
+            try {
+                subs = substitute(commandLine);
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            subs = substitute(commandLine);
+        }
 
         // tee redirection
         boolean teeAppend = false;
@@ -601,7 +749,8 @@ public class Shell {
         if (subs.isEmpty())
             return;
 
-        _parseRunner.getParseErrors().clear();
+        _parser = ParserCache.getParser(ShellParser.class);
+        _parseRunner = new ReportingParseRunner(_parser.CommandLine());
         ParsingResult<?> result = _parseRunner.run(subs);
 
         if (!result.matched) {
@@ -616,7 +765,7 @@ public class Shell {
         /*
          * tee stdout
          */
-        if (teeFile != null && _monitorOptions.getSecureLevel() == 0) {
+        if (teeFile != null && _monitorOptions.getSecureLevel() == 0 && !_daemon) {
             try {
                 ShellConsole.out().tee(teeFile, teeAppend);
             } catch (FileNotFoundException ex) {
@@ -636,44 +785,19 @@ public class Shell {
                     System.exit(0);
             }
 
-            if ((_interactive || _daemon) && _monitor.getOptions().getAutoReload())
-                autoReload();
-
-            if (command.equals("probe") || command.equals("probe6")) {
-                boolean test = probeCommand(commandLine, _parser.getProbeCmdTemplate());
-                if (_parser.getProbeCmdTemplate().getProbeExpect() != null) {
-                    if (!test)
-                        _testResult = false;
-                }
+            if (_daemon)
+                runDaemonCommand(commandLine, command);
+            else {
+                if (_interactive && _monitor.getOptions().getAutoReload())
+                    autoReload();
+                runShellCommand(commandLine, command);
             }
-            if (command.equals("option"))
-                optionCommand(_parser);
-            if (command.equals("topology"))
-                topologyCommand(_parser);
-            if (command.equals("route"))
-                routeCommand(_parser);
-            if (command.equals("help"))
-                helpCommand(_parser);
-            if (command.equals("define"))
-                defineCommand(_parser);
-            if (command.equals("equipment"))
-                equipmentCommand(_parser);
-            if (command.equals("reload"))
-                reloadCommand(_parser);
-            if (command.equals("groovy"))
-                groovyCommand(_parser);
-            if (command.equals("groovyconsole"))
-                groovyConsoleCommand(_parser);
-            if (command.equals("host") || command.equals("host6"))
-                hostCommand(_parser);
-            if (command.equals("ip") || command.equals("ip6"))
-                ipCommand(_parser);
         }
 
         /*
          * 'untee' stdout
          */
-        if (teeFile != null) {
+        if (teeFile != null && !_daemon) {
             try {
                 ShellConsole.out().unTee();
             } catch (IOException ex) {
@@ -747,34 +871,32 @@ public class Shell {
             System.exit(1);
         }
 
+        /*
+         * the changed equipments are reloaded in background
+         */
+        try {
+            _monitor.startWatcher();
+        } catch (IOException ex) {
+            System.err.println("Cannot watch the configuration files: " +
+                    ex.getMessage());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                _monitorOptions.getDaemonSessions());
         boolean run = true;
         while (run) {
-            Socket socket;
             try {
-                socket = server.accept();
-                BufferedReader dataIn =
-                        new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                _outStream = new PrintStream(socket.getOutputStream());
-                try {
-                    String commandLine = dataIn.readLine();
-                    if (commandLine == null) {
-                        socket.close();
-                    } else {
-                        commandLine = commandLine.trim();
-                        try {
-                            parseShellCommand(commandLine);
-                        } catch (JtaclRuntimeException ex) {
-                            _outStream.println(ex.getMessage());
-                        }
-                        socket.close();
-                    }
-                } catch (IOException ex) {
-                    //
-                }
+                Socket socket = server.accept();
+                executor.execute(() -> {
+                    Shell session = new Shell(false);
+                    session._daemon = true;
+                    session.runSession(socket);
+                });
             } catch (IOException ex) {
                 run = false;
             }
         }
+        executor.shutdown();
         try {
             server.close();
         } catch (IOException ex) {
@@ -782,6 +904,41 @@ public class Shell {
         }
     }
 
+    /**
+     * Runs the session of a client of the daemon. The commands are read
+     * from the socket, one per line, and run in order. The output of each
+     * command is written to the socket when the command is done. The
+     * session ends after the first command, unless the option
+     * daemon.persistent is set, in this case it ends when the client
+     * closes the connection or sends 'quit'.
+     *
+     * @param socket socket of the client.
+     */
+    protected void runSession(Socket socket) {
+
+        try (Socket s = socket) {
+            BufferedReader dataIn =
+                    new BufferedReader(new InputStreamReader(s.getInputStream()));
+            _outStream = new PrintStream(new BufferedOutputStream(s.getOutputStream()));
+            boolean persistent = _monitorOptions.getDaemonPersistent();
+            for (; ; ) {
+                String commandLine = dataIn.readLine();
+                if (commandLine == null)
+                    break;
+                try {
+                    parseShellCommand(commandLine.trim());
+                } catch (JtaclRuntimeException ex) {
+                    _outStream.println(ex.getMessage());
+                }
+                _outStream.flush();
+                if (!persistent || s.isClosed())
+                    break;
+            }
+        } catch (IOException ex) {
+            //
+        }
+    }
+
     public PrintStream getOutputStream() {
         return _outStream;
     }
@@ -48,6 +48,7 @@ public class ShellParser extends CommonRules<Object> {
                         clear(),
                         FirstOf(
                                 CommandProbe(),
+                                CommandScan(),
                                 CommandQuit(),
                                 CommandDefine(),
                                 CommandOption(),
@@ -56,6 +57,7 @@ public class ShellParser extends CommonRules<Object> {
                                 CommandHelp(),
                                 CommandEquipment(),
                                 CommandReload(),
+                                CommandSnapshot(),
                                 CommandGroovy(),
                                 CommandGroovyConsole(),
                                 CommandHost(),
@@ -263,6 +265,20 @@ public class ShellParser extends CommonRules<Object> {
         );
     }
 
+    /*
+     * snapshot atom
+     */
+    public Rule CommandSnapshot() {
+        return Sequence(
+                IgnoreCase("snapshot"),
+                WhiteSpaces(),
+                StringAtom(),
+                setString("SnapshotFile", match()),
+                EOI,
+                setString("Command", "snapshot")
+        );
+    }
+
     /*
      * (probe | p | probe6 | p6) [ProbeOptions]
      *		SourceSpec DestSpec [ProtoSpec]
@@ -300,6 +316,53 @@ public class ShellParser extends CommonRules<Object> {
         );
     }
 
+    /*
+     * (scan | scan6) [ScanOptions]
+     *		SourceSpec DestSpec ProtoSpec
+     */
+    public Rule CommandScan() {
+        return Sequence(
+                _probeCmdTemplate.setProbe6flag(false),
+                FirstOf(
+                        Sequence(
+                                IgnoreCase("scan6"),
+                                _probeCmdTemplate.setProbe6flag(true)
+                        ),
+                        IgnoreCase("scan")
+                ),
+                WhiteSpaces(),
+                Optional(ScanOptions()),
+                SourceSpecification(),
+                _probeCmdTemplate.setSrcAddress(getLastQuotedString()),
+                WhiteSpaces(),
+                DestinationSpecification(),
+                _probeCmdTemplate.setDestAddress(getLastQuotedString()),
+                WhiteSpaces(),
+                ProtoSpecification(),
+                EOI,
+                setString("Command", "scan")
+        );
+    }
+
+    /*
+     * ScanOptions: ( OnEquipments | OptNoAction | OptQuickDeny | OptState)
+     *					ScanOptions
+     */
+    public Rule ScanOptions() {
+        return
+                Sequence(
+                        FirstOf(
+                                OnEquipments(),
+                                OptNoAction(),
+                                OptQuickDeny(),
+                                OptState()
+                        ),
+                        Optional(
+                                ScanOptions()
+                        )
+                );
+    }
+
     /*
      * ProbeOptions: ( ProbeExpect | OnEquipments | OptNoAction | OptVerbose)
      *					ProbeOptions
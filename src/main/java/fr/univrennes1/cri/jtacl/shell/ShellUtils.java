@@ -22,6 +22,7 @@ import fr.univrennes1.cri.jtacl.core.network.Routes;
 import fr.univrennes1.cri.jtacl.core.probing.ExpectedProbing;
 import fr.univrennes1.cri.jtacl.core.topology.NetworkLink;
 import fr.univrennes1.cri.jtacl.core.topology.NetworkLinks;
+import fr.univrennes1.cri.jtacl.core.topology.Topology;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
 import fr.univrennes1.cri.jtacl.lib.ip.IPServices;
@@ -316,6 +317,7 @@ public class ShellUtils {
     public static IfaceLink findOnRouteIfaceLink(NetworkLink link,
                                                  IPRangeable destination) {
 
+        Topology topology = Monitor.getInstance().getTopology();
         IfaceLinks res = new IfaceLinks();
         IfaceLinks ilinks = link.getIfaceLinks();
         /*
@@ -335,7 +337,7 @@ public class ShellUtils {
                 //noinspection unchecked
                 for (Route<IfaceLink> r : routes) {
                     IfaceLink rilink = r.getLink();
-                    if (rilink != null && rilink.getNetworkLink() != link)
+                    if (rilink != null && topology.getNetworkLink(rilink) != link)
                         res.add(l);
                 }
             }
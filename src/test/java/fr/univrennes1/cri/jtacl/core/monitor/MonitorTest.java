@@ -10,11 +10,36 @@
 package fr.univrennes1.cri.jtacl.core.monitor;
 
 import fr.univrennes1.cri.jtacl.core.exceptions.JtaclConfigurationException;
+import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
+import fr.univrennes1.cri.jtacl.core.probing.Probe;
+import fr.univrennes1.cri.jtacl.core.probing.ProbePosition;
+import fr.univrennes1.cri.jtacl.core.probing.ProbePositions;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeRequest;
+import fr.univrennes1.cri.jtacl.core.probing.ProbeResults;
+import fr.univrennes1.cri.jtacl.core.probing.ProbesTracker;
+import fr.univrennes1.cri.jtacl.core.probing.Probing;
+import fr.univrennes1.cri.jtacl.core.probing.RoutingResult;
+import fr.univrennes1.cri.jtacl.equipments.SimpleRouter;
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 import fr.univrennes1.cri.jtacl.lib.xml.XMLUtils;
 
+import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.WatchKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
 import junit.framework.TestCase;
 import org.w3c.dom.Document;
@@ -81,4 +106,471 @@ public class MonitorTest extends TestCase {
         assertEquals("router #1", equipment.getComment());
     }
 
+    protected void queueProbings(Monitor monitor, IfaceLink link)
+            throws Exception {
+        for (int i = 1; i < 64; i++) {
+            monitor.newProbing(link, new IPNet("192.168.0." + i),
+                    new IPNet(i % 2 == 0 ? "192.168.1." + i : "10.0.0." + i),
+                    new ProbeRequest());
+        }
+    }
+
+    /**
+     * Test of startProbing method using several threads.
+     */
+    public void testStartProbingParallel() throws Exception {
+        System.out.println("startProbingParallel");
+        URL url = this.getClass().getResource("/TestParseConfiguration.xml");
+        Monitor monitor = new Monitor();
+        monitor._xmlConfiguration = XMLUtils.getXMLDocument(url.getFile());
+        url = this.getClass().getResource("/TestConfigSimpleRouter1.xml");
+        monitor.addEquipment("fr.univrennes1.cri.jtacl.equipments.SimpleRouter",
+                "router1", "router #1", url.getFile());
+        monitor.init();
+        IfaceLink link = monitor.getEquipments().get("router1")
+                .getIfaceLink(new IPNet("192.168.0.1"));
+
+        queueProbings(monitor, link);
+        Probing sequential = monitor.startProbing();
+
+        monitor.getOptions().setOption("probing.threads", "4");
+        queueProbings(monitor, link);
+        Probing parallel = monitor.startProbing();
+
+        assertEquals(63, parallel.size());
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            ProbesTracker seq = sequential.get(i);
+            ProbesTracker par = parallel.get(i);
+            assertEquals(seq.getRootProbe().getSourceAddress(),
+                    par.getRootProbe().getSourceAddress());
+            assertEquals(seq.getRoutingResult(), par.getRoutingResult());
+            assertEquals(seq.getProbes().size(), par.getProbes().size());
+        }
+        assertEquals(RoutingResult.ROUTED, parallel.get(1).getRoutingResult());
+        assertEquals(RoutingResult.NOTROUTED, parallel.get(0).getRoutingResult());
+    }
+
+    /**
+     * Test of probe method on a list of trackers.
+     */
+    public void testProbeTrackers() throws Exception {
+        System.out.println("probeTrackers");
+        URL url = this.getClass().getResource("/TestParseConfiguration.xml");
+        Monitor monitor = new Monitor();
+        monitor._xmlConfiguration = XMLUtils.getXMLDocument(url.getFile());
+        url = this.getClass().getResource("/TestConfigSimpleRouter1.xml");
+        monitor.addEquipment("fr.univrennes1.cri.jtacl.equipments.SimpleRouter",
+                "router1", "router #1", url.getFile());
+        monitor.init();
+        IfaceLink link = monitor.getEquipments().get("router1")
+                .getIfaceLink(new IPNet("192.168.0.1"));
+
+        for (String threads : new String[]{"1", "4"}) {
+            monitor.getOptions().setOption("probing.threads", threads);
+            List<ProbesTracker> trackers = new ArrayList<>();
+            for (int i = 1; i < 64; i++) {
+                trackers.add(monitor.newTracker(link,
+                        new IPNet("192.168.0." + i),
+                        new IPNet(i % 2 == 0 ? "192.168.1." + i : "10.0.0." + i),
+                        new ProbeRequest()));
+            }
+            List<Probing> results = monitor.probe(trackers);
+            assertEquals(63, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(1, results.get(i).size());
+                assertSame(trackers.get(i), results.get(i).get(0));
+                assertEquals(i % 2 == 0 ? RoutingResult.NOTROUTED :
+                                RoutingResult.ROUTED,
+                        results.get(i).getRoutingResult());
+            }
+            assertTrue(monitor.getProbing().isEmpty());
+        }
+    }
+
+    /**
+     * Returns a monitor with the equipments of the test topology in
+     * argument (directory in tests/), configured with SimpleRouter.
+     */
+    protected Monitor newRoutingMonitor(String topology, int routers)
+            throws Exception {
+        URL url = this.getClass().getResource("/TestParseConfiguration.xml");
+        Monitor monitor = new Monitor();
+        monitor._xmlConfiguration = XMLUtils.getXMLDocument(url.getFile());
+        for (int i = 1; i <= routers; i++) {
+            File file = new File("tests/" + topology +
+                    "/TestConfigSimpleRouter" + i + ".xml");
+            monitor.addEquipment("fr.univrennes1.cri.jtacl.equipments.SimpleRouter",
+                    "R" + i, "router #" + i, file.getAbsolutePath());
+        }
+        return monitor;
+    }
+
+    /**
+     * Test of the loop detection, on the looping topology uglyRouting.
+     */
+    public void testLoopDetection() throws Exception {
+        System.out.println("loopDetection");
+
+        /*
+         * the key of the positions agrees with sameAs on duplicate items
+         */
+        ProbePosition a = new ProbePosition();
+        ProbePosition b = new ProbePosition();
+        b.setNextHop(new IPNet("10.0.0.1"));
+        ProbePosition c = new ProbePosition();
+        c.setNextHop(new IPNet("10.0.0.2"));
+        ProbePositions aab = new ProbePositions();
+        aab.add(a);
+        aab.add(a);
+        aab.add(b);
+        ProbePositions aba = new ProbePositions();
+        aba.add(a);
+        aba.add(b);
+        aba.add(a);
+        ProbePositions abc = new ProbePositions();
+        abc.add(a);
+        abc.add(b);
+        abc.add(c);
+        assertTrue(aab.sameAs(aba));
+        assertTrue(aba.sameAs(aab));
+        assertEquals(aab.positionsKey(), aba.positionsKey());
+        assertFalse(aab.sameAs(abc));
+        assertFalse(abc.sameAs(aab));
+
+        Monitor monitor = newRoutingMonitor("uglyRouting", 4);
+        monitor.init();
+        IfaceLink link = monitor.getEquipments().get("R1")
+                .getIfaceLink(new IPNet("10.0.0.1"));
+
+        /*
+         * destination, probes, probes killed by the loop killer.
+         */
+        String[][] expected = {{"10.0.2.9", "28", "2"}, {"10.0.3.9", "28", "2"},
+                {"10.0.4.9", "28", "2"}, {"10.0.5.9", "30", "2"}};
+        for (String[] e : expected) {
+            monitor.resetProbing();
+            monitor.newProbing(link, new IPNet("10.0.0.9"),
+                    new IPNet(e[0]), new ProbeRequest());
+            ProbesTracker tracker = monitor.startProbing().get(0);
+            int loops = 0;
+            for (Probe p : tracker.getLoopingProbes().values()) {
+                if (p.getResults().getRoutingMessage().equals("loop detected"))
+                    loops++;
+            }
+            assertEquals(e[0], Integer.parseInt(e[1]), tracker.getProbes().size());
+            assertEquals(e[0], Integer.parseInt(e[2]), loops);
+            assertEquals(e[0], RoutingResult.ROUTED, tracker.getRoutingResult());
+        }
+    }
+
+    /**
+     * SimpleRouter logging warnings while configured, after a delay.
+     */
+    public static class SlowRouter extends SimpleRouter {
+
+        protected int _delay;
+        protected boolean _fail;
+
+        public SlowRouter(Monitor monitor, String name, String comment,
+                          String fileName) {
+            super(monitor, name, comment, fileName);
+        }
+
+        @Override
+        public NetworkEquipmentsByName configure() {
+            try {
+                Thread.sleep(_delay);
+            } catch (InterruptedException ex) {
+                throw new JtaclConfigurationException("interrupted");
+            }
+            Log.config().warning(getName() + " begin");
+            if (_fail)
+                throw new JtaclConfigurationException(getName() + " error");
+            NetworkEquipmentsByName equipments = super.configure();
+            Log.config().warning(getName() + " end");
+            return equipments;
+        }
+    }
+
+    /*
+     * initializes the monitor in argument and returns the messages logged
+     * by the equipments, the last message is the error if any.
+     */
+    protected List<String> initLogged(Monitor monitor) {
+        List<String> messages = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Level level = Log.config().getLevel();
+        Log.config().setLevel(Level.WARNING);
+        Log.config().addHandler(handler);
+        try {
+            monitor.init();
+        } catch (JtaclConfigurationException ex) {
+            messages.add(ex.getMessage());
+        } finally {
+            Log.config().removeHandler(handler);
+            Log.config().setLevel(level);
+        }
+        return messages;
+    }
+
+    /**
+     * Test of the configuration of the equipments using several threads:
+     * the messages and the first error are reported in the order of the
+     * equipments.
+     */
+    public void testConfigureEquipmentsParallel() throws Exception {
+        System.out.println("configureEquipmentsParallel");
+        URL url = this.getClass().getResource("/TestParseConfiguration.xml");
+        for (boolean fail : new boolean[]{false, true}) {
+            Monitor monitor = new Monitor();
+            monitor._xmlConfiguration = XMLUtils.getXMLDocument(url.getFile());
+            monitor.getOptions().setOption("config.threads", "4");
+            for (int i = 1; i <= 4; i++) {
+                File file = new File("tests/Routing1/TestConfigSimpleRouter" +
+                        i + ".xml");
+                monitor.addEquipment(SlowRouter.class.getName(), "R" + i,
+                        "router #" + i, file.getAbsolutePath());
+            }
+
+            /*
+             * the first equipments are the slowest to configure, the
+             * second and the fourth fail.
+             */
+            List<String> names = new ArrayList<>(monitor.getEquipments().keySet());
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                SlowRouter router = (SlowRouter) monitor.getEquipments().get(name);
+                router._delay = (names.size() - i) * 50;
+                router._fail = fail && i % 2 == 1;
+                if (!fail || i < 2) {
+                    expected.add(name + " begin");
+                    expected.add(name + (router._fail ? " error" : " end"));
+                }
+            }
+            assertEquals(expected, initLogged(monitor));
+        }
+    }
+
+    /**
+     * Test of the configuration executor: the number of threads is bounded
+     * by config.threads, the tasks submitted by a task of the executor are
+     * run by its thread.
+     */
+    public void testSubmitConfigTasks() throws Exception {
+        System.out.println("submitConfigTasks");
+        Monitor monitor = new Monitor();
+        monitor.getOptions().setOption("config.threads", "2");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread worker = Thread.currentThread();
+                    List<Callable<Thread>> nested = new ArrayList<>();
+                    for (int j = 0; j < 3; j++) {
+                        nested.add(() -> {
+                            Thread.sleep(10);
+                            return Thread.currentThread();
+                        });
+                    }
+                    boolean inline = monitor.isConfigInline(nested.size());
+                    for (Future<Thread> future : monitor.submitConfigTasks(nested))
+                        inline &= future.get() == worker;
+                    return inline;
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+        assertFalse(monitor.isConfigInline(tasks.size()));
+        for (Future<Boolean> future : monitor.submitConfigTasks(tasks))
+            assertTrue(future.get());
+        assertEquals(2, maxRunning.get());
+    }
+
+    /**
+     * Copies the files in argument of the test topology (directory in
+     * tests/) into a temporary directory, the file names of the
+     * configuration are made absolute: the files copied are read from the
+     * temporary directory, the others from the test topology.
+     *
+     * @param topology name of the test topology.
+     * @param files    files to copy.
+     * @return the temporary directory.
+     */
+    protected File copyTopology(String topology, String... files)
+            throws Exception {
+        File src = new File("tests/" + topology).getAbsoluteFile();
+        File dir = Files.createTempDirectory("jtacl").toFile();
+        dir.deleteOnExit();
+        for (String name : files) {
+            String content = new String(Files.readAllBytes(
+                    new File(src, name).toPath()), StandardCharsets.ISO_8859_1);
+            for (String copied : files) {
+                content = content.replace("\"./" + copied + "\"",
+                        '"' + new File(dir, copied).getPath() + '"');
+            }
+            content = content.replace("\"./", '"' + src.getPath() + "/");
+            File dest = new File(dir, name);
+            Files.write(dest.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+            dest.deleteOnExit();
+        }
+        return dir;
+    }
+
+    /*
+     * returns the paths and the results of the probes of the probing in
+     * argument.
+     */
+    protected String showProbing(Probing probing) {
+        StringBuilder s = new StringBuilder();
+        for (ProbesTracker tracker : probing) {
+            s.append(tracker.getAclResult()).append(' ')
+                    .append(tracker.getRoutingResult()).append('\n');
+            for (Probe probe : new TreeMap<>(tracker.getProbes()).values()) {
+                ProbeResults results = probe.getResults();
+                s.append(probe.showPath()).append(' ')
+                        .append(results.getMatchingAclsIn()).append(' ')
+                        .append(results.getMatchingAclsOut()).append(' ')
+                        .append(results.getProbeResult()).append(' ')
+                        .append(results.getRoutingResult()).append('\n');
+            }
+        }
+        return s.toString();
+    }
+
+    protected String probePacketFilter(Monitor monitor) throws Exception {
+        IfaceLink link = monitor.getEquipments().get("PF")
+                .getIfaceLink(new IPNet("10.0.0.1"));
+        StringBuilder s = new StringBuilder();
+        String[] destinations = {"192.168.0.10", "192.168.1.130",
+                "192.168.4.10", "10.0.0.10"};
+        for (String destination : destinations) {
+            s.append(showProbing(monitor.probe(link, new IPNet("10.0.0.9"),
+                    new IPNet(destination), new ProbeRequest())));
+        }
+        link = monitor.getEquipments().get("PF")
+                .getIfaceLink(new IPNet("fe90::1"));
+        s.append(showProbing(monitor.probe(link, new IPNet("fe90::9"),
+                new IPNet("fe80::10"), new ProbeRequest())));
+        return s.toString();
+    }
+
+    /**
+     * Test of saveSnapshot and loadSnapshot methods.
+     */
+    public void testSnapshot() throws Exception {
+        System.out.println("snapshot");
+        File dir = copyTopology("PacketFilter", "jtacl.xml", "pf.xml");
+        String config = new File(dir, "jtacl.xml").getPath();
+        File snapshot = new File(dir, "lsfw.snapshot");
+        snapshot.deleteOnExit();
+
+        Monitor monitor = new Monitor();
+        assertFalse(monitor.loadSnapshot(snapshot.getPath(), config));
+        monitor.configure(config);
+        monitor.init();
+        monitor.saveSnapshot(snapshot.getPath());
+        String expected = probePacketFilter(monitor);
+
+        Monitor loaded = new Monitor();
+        assertTrue(loaded.loadSnapshot(snapshot.getPath(), config));
+        assertEquals(expected, probePacketFilter(loaded));
+
+        /*
+         * snapshot of another format
+         */
+        MonitorSnapshot other = new MonitorSnapshot(config, false,
+                loaded.getEquipments(), loaded.getTopology());
+        assertNull(other.checkUpToDate(config, false));
+        other._format = MonitorSnapshot.FORMAT + 1;
+        assertNotNull(other.checkUpToDate(config, false));
+    }
+
+    /**
+     * Test of the reload of a changed equipment by the ConfigurationWatcher.
+     */
+    public void testConfigurationWatcher() throws Exception {
+        System.out.println("configurationWatcher");
+        File dir = copyTopology("PacketFilter", "jtacl.xml", "pf.xml",
+                "pftest.conf");
+        Monitor monitor = new Monitor();
+        monitor.configure(new File(dir, "jtacl.xml").getPath());
+        monitor.init();
+        monitor.getOptions().setAutoReload(true);
+        monitor.getOptions().setAutoReloadDelay(100);
+        NetworkEquipment equipment = monitor.getEquipments().get("PF");
+        IfaceLink link = equipment.getIfaceLink(new IPNet("10.0.0.1"));
+        Probing probing = monitor.probe(link, new IPNet("10.0.0.9"),
+                new IPNet("192.168.4.10"), new ProbeRequest());
+        assertTrue(probing.get(0).getAclResult().isCertainlyDeny());
+
+        monitor.startWatcher();
+        try {
+            File file = new File(dir, "pftest.conf");
+            String content = new String(Files.readAllBytes(file.toPath()),
+                    StandardCharsets.ISO_8859_1);
+            content = content.replace("block quick from <toto>",
+                    "pass quick to 192.168.4.10\nblock quick from <toto>");
+            long lastModified = file.lastModified();
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+            file.setLastModified(lastModified + 2000);
+
+            /*
+             * the equipment is replaced in background, without the lock of
+             * the monitor: a command in progress (read lock held) keeps the
+             * configuration it has pinned.
+             */
+            NetworkEquipment reloaded = equipment;
+            Lock lock = monitor.getLock().readLock();
+            lock.lock();
+            monitor.pinConfiguration();
+            try {
+                for (int i = 0; i < 100 && reloaded == equipment; i++) {
+                    Thread.sleep(100);
+                    reloaded = monitor._configuration.getEquipments().get("PF");
+                }
+                assertSame(equipment, monitor.getEquipments().get("PF"));
+            } finally {
+                monitor.unpinConfiguration();
+                lock.unlock();
+            }
+            assertNotSame(equipment, reloaded);
+            assertSame(reloaded, monitor.getEquipments().get("PF"));
+            link = reloaded.getIfaceLink(new IPNet("10.0.0.1"));
+            probing = monitor.probe(link, new IPNet("10.0.0.9"),
+                    new IPNet("192.168.4.10"), new ProbeRequest());
+            assertTrue(probing.get(0).getAclResult().isCertainlyAccept());
+
+            /*
+             * the directories of a removed equipment are no longer watched
+             */
+            ConfigurationWatcher watcher = monitor._watcher;
+            WatchKey key = watcher._directories.get(dir.toPath().toAbsolutePath());
+            assertNotNull(key);
+            monitor._configuration = new LoadedConfiguration();
+            watcher.watchEquipments();
+            assertFalse(key.isValid());
+            assertTrue(watcher._directories.isEmpty());
+        } finally {
+            monitor._watcher.stop();
+        }
+    }
 }
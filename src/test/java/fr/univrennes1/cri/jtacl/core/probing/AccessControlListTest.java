@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2012, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+package fr.univrennes1.cri.jtacl.core.probing;
+
+import junit.framework.TestCase;
+
+/**
+ * tests for AccessControlList
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class AccessControlListTest extends TestCase {
+
+    public AccessControlListTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of getAclString method, of class AccessControlList.
+     */
+    public void testGetAclString() {
+
+        /*
+         * string acl
+         */
+        AccessControlList acl = new AccessControlList("permit ip any any",
+                new FwResult(FwResult.ACCEPT));
+        assertEquals("permit ip any any", acl.getAclString());
+        assertNull(acl.getRule());
+
+        /*
+         * the rule is rendered once, on demand
+         */
+        final int[] renders = new int[1];
+        StringBuilder rule = new StringBuilder("deny ip any any");
+        acl = new AccessControlList(rule, r -> {
+            renders[0]++;
+            return r.toString();
+        }, new FwResult(FwResult.DENY));
+        assertEquals(0, renders[0]);
+        assertSame(rule, acl.getRule());
+        assertEquals("deny ip any any", acl.getAclString());
+        assertEquals("deny ip any any", acl.getAclString());
+        assertEquals(1, renders[0]);
+        assertEquals(String.format("%6s %s", new FwResult(FwResult.DENY),
+                "deny ip any any"), acl.toString());
+    }
+}
@@ -9,6 +9,7 @@
 
 package fr.univrennes1.cri.jtacl.core.topology;
 
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclTopologyException;
 import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
 import fr.univrennes1.cri.jtacl.core.network.Iface;
 import fr.univrennes1.cri.jtacl.core.network.IfaceLink;
@@ -16,6 +17,7 @@ import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
 import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
 
 import java.net.UnknownHostException;
+import java.util.Collections;
 
 import junit.framework.TestCase;
 
@@ -137,4 +139,167 @@ public class TopologyTest extends TestCase {
 
     }
 
+    /**
+     * Test of getNetworkLinksByIP and getNetworkLinksByEquipment, of class
+     * Topology.
+     */
+    public void testGetNetworkLinksByIP() throws UnknownHostException {
+        System.out.println("getNetworkLinksByIP");
+
+        /* 10.0.0.0/8 - R1 - 10.1.0.0/16 - R2 - 2001:db8::/64
+         */
+        Topology topology = new Topology();
+        Monitor monitor = Monitor.getInstance();
+        NetworkEquipment r1 = new NetworkEquipment(monitor, "R1", "Router R1", null);
+        r1.addIface("eth0", "interface eth0").addLink(new IPNet("10.0.0.1"),
+                new IPNet("10.0.0.0/8"));
+        r1.addIface("eth1", "interface eth1").addLink(new IPNet("10.1.0.1"),
+                new IPNet("10.1.0.0/16"));
+
+        NetworkEquipment r2 = new NetworkEquipment(monitor, "R2", "Router R2", null);
+        r2.addIface("eth0", "interface eth0").addLink(new IPNet("10.1.0.2"),
+                new IPNet("10.1.0.0/16"));
+        r2.addIface("eth1", "interface eth1").addLink(new IPNet("2001:db8::1"),
+                new IPNet("2001:db8::/64"));
+
+        topology.registerNetworkequipment(r1);
+        topology.registerNetworkequipment(r2);
+        topology.makeTopology();
+
+        NetworkLinks nlinks = topology.getNetworkLinksByIP(new IPNet("10.1.2.3"));
+        assertEquals(2, nlinks.size());
+        assertTrue(topology.getNetworkLinks().indexOf(nlinks.get(0)) <
+                topology.getNetworkLinks().indexOf(nlinks.get(1)));
+
+        nlinks = topology.getNetworkLinksByIP(new IPNet("10.2.0.1"));
+        assertEquals(1, nlinks.size());
+        assertEquals(new IPNet("10.0.0.0/8"), nlinks.get(0).getNetwork());
+
+        assertTrue(topology.getNetworkLinksByIP(new IPNet("192.168.0.1")).isEmpty());
+        assertEquals(1, topology.getNetworkLinksByIP(new IPNet("2001:db8::5")).size());
+        assertTrue(topology.getNetworkLinksByIP(new IPNet("2001:db9::5")).isEmpty());
+
+        nlinks = topology.getNetworkLinksByEquipment(r2);
+        assertEquals(2, nlinks.size());
+        for (NetworkLink nlink : nlinks) {
+            assertTrue(nlink.isConnectedTo(r2));
+        }
+        assertEquals(2, topology.getNetworkLinksByEquipment(r1).size());
+    }
+
+    /**
+     * Test of replaceNetworkEquipments, of class Topology.
+     */
+    public void testReplaceNetworkEquipments() throws UnknownHostException {
+        System.out.println("replaceNetworkEquipments");
+
+        /* 192.168.0.0/24 - R1 - 10.0.0.0/24 - R2 - 192.168.1.0/24
+         * R2 is replaced by a router connected to 172.16.0.0/24 instead of
+         * 192.168.1.0/24.
+         */
+        Topology topology = new Topology();
+        Monitor monitor = Monitor.getInstance();
+        NetworkEquipment r1 = new NetworkEquipment(monitor, "R1", "Router R1", null);
+        r1.addIface("eth0", "interface eth0").addLink(new IPNet("192.168.0.1"),
+                new IPNet("192.168.0.0/24"));
+        r1.addIface("eth1", "interface eth1").addLink(new IPNet("10.0.0.1"),
+                new IPNet("10.0.0.0/24"));
+
+        NetworkEquipment r2 = new NetworkEquipment(monitor, "R2", "Router R2", null);
+        r2.addIface("eth0", "interface eth0").addLink(new IPNet("192.168.1.1"),
+                new IPNet("192.168.1.0/24"));
+        r2.addIface("eth1", "interface eth1").addLink(new IPNet("10.0.0.2"),
+                new IPNet("10.0.0.0/24"));
+
+        topology.registerNetworkequipment(r1);
+        topology.registerNetworkequipment(r2);
+        topology.addTopologicalLink(true, "192.168.1.0/24", "R2|192.168.1.1");
+        topology.makeTopology();
+
+        NetworkLink r1Link = topology.getNetworkLinksByNetwork(
+                new IPNet("192.168.0.0/24")).get(0);
+        NetworkLink border = topology.getNetworkLinksByNetwork(
+                new IPNet("192.168.1.0/24")).get(0);
+
+        NetworkEquipment newR2 = new NetworkEquipment(monitor, "R2", "Router R2", null);
+        newR2.addIface("eth0", "interface eth0").addLink(new IPNet("192.168.1.1"),
+                new IPNet("192.168.1.0/24"));
+        newR2.addIface("eth1", "interface eth1").addLink(new IPNet("10.0.0.2"),
+                new IPNet("10.0.0.0/24"));
+        newR2.addIface("eth2", "interface eth2").addLink(new IPNet("172.16.0.1"),
+                new IPNet("172.16.0.0/24"));
+
+        NetworkLink r2Link = topology.getNetworkLinksByNetwork(
+                new IPNet("10.0.0.0/24")).get(0);
+        IfaceLink r1ilink = r1.getIfaceLink(new IPNet("10.0.0.1"));
+
+        Topology replaced = topology.replaceNetworkEquipments(
+                Collections.singletonList(r2), Collections.singletonList(newR2));
+
+        // the topology is unchanged
+        assertSame(r2, topology.getEquipment("R2"));
+        assertEquals(3, topology.getNetworkLinks().size());
+        assertSame(r2Link, topology.getNetworkLink(r1ilink));
+        assertEquals(2, r2Link.getIfaceLinks().size());
+        assertTrue(r2Link.isConnectedTo(r2));
+        assertTrue(border.isConnectedTo(r2));
+
+        assertSame(newR2, replaced.getEquipment("R2"));
+        assertEquals(4, replaced.getNetworkLinks().size());
+
+        // the links of R1 not connected to R2 are shared
+        assertSame(r1Link, replaced.getNetworkLinksByNetwork(
+                new IPNet("192.168.0.0/24")).get(0));
+
+        // R1 - 10.0.0.0/24 - new R2
+        NetworkLinks nlinks = replaced.getNetworkLinksByNetwork(new IPNet("10.0.0.0/24"));
+        assertEquals(1, nlinks.size());
+        assertNotSame(r2Link, nlinks.get(0));
+        assertEquals(2, nlinks.get(0).getIfaceLinks().size());
+        assertSame(nlinks.get(0), replaced.getNetworkLink(r1ilink));
+        IfaceLink ilink = nlinks.get(0).getIfaceLink(new IPNet("10.0.0.2"));
+        assertSame(newR2, ilink.getEquipment());
+        assertSame(nlinks.get(0), replaced.getNetworkLink(ilink));
+
+        // the topological link is connected to the new R2
+        nlinks = replaced.getNetworkLinksByNetwork(new IPNet("192.168.1.0/24"));
+        assertEquals(1, nlinks.size());
+        assertTrue(nlinks.get(0).isBorderLink());
+        assertEquals(1, nlinks.get(0).getIfaceLinks().size());
+        assertSame(newR2, nlinks.get(0).getIfaceLinks().get(0).getEquipment());
+
+        // new R2 - 172.16.0.0/24
+        nlinks = replaced.getNetworkLinksByNetwork(new IPNet("172.16.0.0/24"));
+        assertEquals(1, nlinks.size());
+        assertTrue(nlinks.get(0).isConnectedTo(newR2));
+        assertEquals(2, replaced.getNetworkLinksByEquipment(r1).size());
+
+        // R2 is replaced by a router without 10.0.0.0/24
+        NetworkEquipment lastR2 = new NetworkEquipment(monitor, "R2", "Router R2", null);
+        lastR2.addIface("eth0", "interface eth0").addLink(new IPNet("192.168.1.1"),
+                new IPNet("192.168.1.0/24"));
+
+        Topology last = replaced.replaceNetworkEquipments(
+                Collections.singletonList(newR2), Collections.singletonList(lastR2));
+        assertEquals(4, replaced.getNetworkLinks().size());
+        assertEquals(3, last.getNetworkLinks().size());
+        assertTrue(last.getNetworkLinksByNetwork(new IPNet("172.16.0.0/24")).isEmpty());
+        nlinks = last.getNetworkLinksByNetwork(new IPNet("10.0.0.0/24"));
+        assertEquals(1, nlinks.get(0).getIfaceLinks().size());
+        assertFalse(nlinks.get(0).isConnectedTo(lastR2));
+        assertSame(nlinks.get(0), last.getNetworkLink(r1ilink));
+
+        // a topological link cannot be connected to the new R2
+        NetworkEquipment badR2 = new NetworkEquipment(monitor, "R2", "Router R2", null);
+        try {
+            last.replaceNetworkEquipments(Collections.singletonList(lastR2),
+                    Collections.singletonList(badR2));
+            fail("JtaclTopologyException expected");
+        } catch (JtaclTopologyException ex) {
+            // the topology is unchanged
+            assertSame(lastR2, last.getEquipment("R2"));
+            assertEquals(3, last.getNetworkLinks().size());
+        }
+    }
+
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2013 - 2018, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
+
+import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRange;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
+import junit.framework.TestCase;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class CpFwIpMatcherTest extends TestCase {
+
+    public CpFwIpMatcherTest(String testName) {
+        super(testName);
+    }
+
+    protected static CpNetworkIP newIP(String name, String ip, String ip6)
+            throws UnknownHostException {
+        return new CpNetworkIP(name, "host", "", name,
+                ip == null ? null : new IPNet(ip),
+                ip6 == null ? null : new IPNet(ip6), false);
+    }
+
+    protected static CpNetworkGroup newGroup(String name, CpNetworkObject... members) {
+        CpNetworkGroup group = new CpNetworkGroup(name, "network_object_group", "", name);
+        for (CpNetworkObject member : members)
+            group.addBaseReference(member.getName(), member);
+        return group;
+    }
+
+    protected static CpFwIpSpec newSpec(boolean notIn, CpNetworkObject... objects) {
+        CpFwIpSpec spec = new CpFwIpSpec();
+        for (CpNetworkObject object : objects)
+            spec.addReference(object.getName(), object);
+        spec.setNotIn(notIn);
+        return spec;
+    }
+
+    /*
+     * returns a random network or range of addresses around the objects of
+     * the test.
+     */
+    protected static IPRangeable randomProbe(Random random)
+            throws UnknownHostException {
+        int kind = random.nextInt(4);
+        if (kind == 0) {
+            return new IPRange("2001:db8::" + Integer.toHexString(random.nextInt(0x40))
+                    + "/" + (118 + random.nextInt(11)));
+        }
+        String ip = "10.0." + random.nextInt(48) + "." + random.nextInt(256);
+        if (kind == 1) {
+            String last = "10.0." + random.nextInt(48) + "." + random.nextInt(256);
+            IPRange r1 = new IPRange(ip);
+            IPRange r2 = new IPRange(last);
+            return r1.getIpFirst().compareTo(r2.getIpFirst()) <= 0
+                    ? new IPRange(ip + "-" + last) : new IPRange(last + "-" + ip);
+        }
+        return new IPRange(ip + "/" + (16 + random.nextInt(17)));
+    }
+
+    /**
+     * Test of the compiled IP specifications: the results are the ones of
+     * the IP specifications on random probes.
+     */
+    public void testMatches() throws UnknownHostException {
+        System.out.println("matches");
+
+        CpNetworkIP h1 = newIP("h1", "10.0.1.1", "2001:db8::1");
+        CpNetworkIP h2 = newIP("h2", null, "2001:db8::20");
+        CpNetworkIP n1 = newIP("n1", "10.0.2.0/24", null);
+        /*
+         * contiguous networks, broadcast addresses allowed
+         */
+        CpNetworkIP n2a = new CpNetworkIP("n2a", "network", "", "n2a",
+                new IPNet("10.0.4.0/25"), null, true);
+        CpNetworkIP n2b = new CpNetworkIP("n2b", "network", "", "n2b",
+                new IPNet("10.0.4.128/25"), null, true);
+        CpNetworkRange r1 = new CpNetworkRange("r1", "address-range", "", "r1",
+                new IPRange("10.0.8.10-10.0.9.20"), new IPRange("2001:db8::10-2001:db8::2f"));
+        CpNetworkIPs ips = new CpNetworkIPs("ips", "ips", "", "ips");
+        ips.addIp(new IPNet("10.0.16.1"));
+        ips.addIp(new IPNet("10.0.16.2"));
+        CpNetworkIP big = newIP("big", "10.0.32.0/20", "2001:db8::/122");
+        CpNetworkIP hole = newIP("hole", "10.0.33.0/24", "2001:db8::/124");
+        CpUnhandledNetwork unhandled = new CpUnhandledNetwork("u", "dynamic-object", "", "u");
+        CpNetworkAny any = new CpNetworkAny("Any", "CpmiAnyObject", "", "Any");
+
+        /*
+         * nested groups, the group with exclusion is also a member of a
+         * group without exclusion.
+         */
+        CpNetworkGroup g3 = newGroup("g3", h1, r1);
+        CpNetworkGroup g2 = newGroup("g2", n1, g3, h2);
+        CpNetworkGroup gx = new CpNetworkGroup("gx", "group-with-exclusion", "", "gx");
+        gx.addBaseReference("big", big);
+        gx.addExcludedReference("hole", hole);
+        CpNetworkGroup g1 = newGroup("g1", g2, n2a, g3, gx);
+
+        List<CpFwIpSpec> specs = new ArrayList<>();
+        for (boolean notIn : new boolean[]{false, true}) {
+            specs.add(newSpec(notIn, h1));
+            specs.add(newSpec(notIn, n2a, n2b));
+            specs.add(newSpec(notIn, g1));
+            specs.add(newSpec(notIn, gx));
+            specs.add(newSpec(notIn, g2, ips));
+            specs.add(newSpec(notIn, gx, n2a, n2b, h2));
+            specs.add(newSpec(notIn, g1, unhandled));
+            specs.add(newSpec(notIn, unhandled));
+            specs.add(newSpec(notIn, ips, any));
+        }
+
+        Random random = new Random(2018);
+        List<IPRangeable> probes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            probes.add(randomProbe(random));
+        probes.add(new IPRange("10.0.4.0/24"));
+        probes.add(new IPRange("10.0.33.0/24"));
+        probes.add(new IPRange("10.0.32.0/20"));
+
+        int[] counts = new int[MatchResult.values().length];
+        for (CpFwIpSpec spec : specs) {
+            CpFwIpMatcher matcher = new CpFwIpMatcher(spec);
+            for (IPRangeable probe : probes) {
+                MatchResult expected = spec.getNetworks().matches(probe);
+                if (spec.isNotIn())
+                    expected = expected.not();
+                assertEquals(spec + " " + probe, expected, matcher.matches(probe));
+                counts[expected.ordinal()]++;
+            }
+        }
+        /*
+         * the probes cover the results
+         */
+        assertTrue(counts[MatchResult.ALL.ordinal()] > 0);
+        assertTrue(counts[MatchResult.MATCH.ordinal()] > 0);
+        assertTrue(counts[MatchResult.NOT.ordinal()] > 0);
+
+        assertEquals(MatchResult.MATCH,
+                new CpFwIpMatcher(specs.get(1)).matches(new IPRange("10.0.4.0/24")));
+        assertEquals(MatchResult.MATCH,
+                new CpFwIpMatcher(specs.get(3)).matches(new IPRange("10.0.32.0/20")));
+        assertEquals(MatchResult.NOT,
+                new CpFwIpMatcher(specs.get(3)).matches(new IPRange("10.0.33.1")));
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2013 - 2018, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.checkpointR80;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class CpObjectsIndexTest extends TestCase {
+
+    protected ObjectMapper _mapper = new ObjectMapper()
+            .configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+
+    public CpObjectsIndexTest(String testName) {
+        super(testName);
+    }
+
+    protected JsonNode json(String s) throws Exception {
+        return _mapper.readTree(s);
+    }
+
+    /*
+     * returns an index of the objects of the JSON array in argument
+     */
+    protected CpObjectsIndex newIndex(String objects) throws Exception {
+        CpObjectsIndex index = new CpObjectsIndex();
+        Iterator<JsonNode> it = json(objects).elements();
+        while (it.hasNext())
+            index.add(it.next());
+        return index;
+    }
+
+    protected CpFw newFw(String gatewayName) {
+        CpFw fw = new CpFw(Monitor.getInstance(), "fw", "fw", null);
+        fw._gatewayName = gatewayName;
+        return fw;
+    }
+
+    public void testReachName() throws Exception {
+        System.out.println("reachName");
+        CpObjectsIndex index = newIndex("["
+                + "{'uid': 'u1', 'name': 'h1', 'type': 'host'},"
+                + "{'uid': 'u2', 'name': 'h2', 'type': 'host'},"
+                + "{'uid': 'u3', 'name': 'h3', 'type': 'host'},"
+                + "{'uid': 'u4', 'name': 'g1', 'type': 'group',"
+                + "  'members': [{'name': 'h1'}, {'name': 'g2'}, {'name': 'dup'}]},"
+                + "{'uid': 'u5', 'name': 'g2', 'type': 'group',"
+                + "  'members': [{'name': 'h2'}]},"
+                + "{'uid': 'u6', 'name': 'dup', 'type': 'host'},"
+                + "{'uid': 'u7', 'name': 'dup', 'type': 'network'},"
+                + "{'uid': 'u8', 'name': 'vpn', 'type': 'vpn-community'}"
+                + "]");
+
+        assertEquals(7, index.size());
+        assertEquals("g1", index.getName("u4"));
+        assertNull(index.getName("u8"));
+        assertNull(index.getName("unknown"));
+
+        /*
+         * the members are reached by name, nested groups included
+         */
+        index.reachUid("u4");
+        assertTrue(index.isReached("g1"));
+        assertTrue(index.isReached("h1"));
+        assertTrue(index.isReached("g2"));
+        assertTrue(index.isReached("h2"));
+        assertTrue(index.isReached("dup"));
+        assertFalse(index.isReached("h3"));
+        assertEquals(5, index.reachedSize());
+
+        /*
+         * unknown uids and objects not loaded are ignored
+         */
+        index.reachUid("unknown");
+        index.reachUid("u8");
+        assertFalse(index.isReached("vpn"));
+        assertEquals(5, index.reachedSize());
+    }
+
+    public void testAnyServices() throws Exception {
+        System.out.println("anyServices");
+        CpObjectsIndex index = newIndex("["
+                + "{'uid': 'u1', 'name': 'Any', 'type': 'CpmiAnyObject'},"
+                + "{'uid': 'u2', 'name': 'tcp80', 'type': 'service-tcp',"
+                + "  'match-for-any': true},"
+                + "{'uid': 'u3', 'name': 'tcp2000', 'type': 'service-tcp',"
+                + "  'match-for-any': false},"
+                + "{'uid': 'u4', 'name': 'udp53', 'type': 'service-udp',"
+                + "  'match-for-any': true},"
+                + "{'uid': 'u5', 'name': 'gre', 'type': 'service-other',"
+                + "  'match-for-any': true},"
+                + "{'uid': 'u6', 'name': 'echo', 'type': 'service-icmp'}"
+                + "]");
+
+        index.reachUids(json("['u1']"));
+        assertTrue(index.isReached("Any"));
+        assertTrue(index.isReached("tcp80"));
+        assertTrue(index.isReached("udp53"));
+        assertTrue(index.isReached("gre"));
+        assertFalse(index.isReached("tcp2000"));
+        assertFalse(index.isReached("echo"));
+    }
+
+    public void testGroupWithExclusion() throws Exception {
+        System.out.println("groupWithExclusion");
+        CpObjectsIndex index = newIndex("["
+                + "{'uid': 'u1', 'name': 'h1', 'type': 'host'},"
+                + "{'uid': 'u2', 'name': 'h2', 'type': 'host'},"
+                + "{'uid': 'u3', 'name': 'h3', 'type': 'host'},"
+                + "{'uid': 'u4', 'name': 'g1', 'type': 'group',"
+                + "  'members': [{'name': 'h1'}, {'name': 'h2'}]},"
+                + "{'uid': 'u5', 'name': 'gx', 'type': 'group-with-exclusion',"
+                + "  'include': {'name': 'g1'}, 'except': {'name': 'h2'}}"
+                + "]");
+
+        index.reachUid("u5");
+        assertTrue(index.isReached("gx"));
+        assertTrue(index.isReached("g1"));
+        assertTrue(index.isReached("h1"));
+        assertTrue(index.isReached("h2"));
+        assertFalse(index.isReached("h3"));
+    }
+
+    public void testInstalled() throws Exception {
+        System.out.println("installed");
+        CpObjectsIndex index = newIndex("["
+                + "{'uid': 'gw1', 'name': 'gw1', 'type': 'CpmiGatewayCluster'},"
+                + "{'uid': 'gw2', 'name': 'gw2', 'type': 'CpmiGatewayCluster'},"
+                + "{'uid': 'pt', 'name': 'Policy Targets', 'type': 'Global'}"
+                + "]");
+        CpFw fw = newFw("gw1");
+
+        assertTrue(fw.isInstalled(json("{'install-on': ['gw1']}"), index));
+        assertTrue(fw.isInstalled(json("{'install-on': ['gw2', 'gw1']}"), index));
+        assertFalse(fw.isInstalled(json("{'install-on': ['gw2']}"), index));
+        assertTrue(fw.isInstalled(json("{'install-on': ['pt']}"), index));
+        /*
+         * an unknown object may be the gateway
+         */
+        assertTrue(fw.isInstalled(json("{'install-on': ['unknown']}"), index));
+        assertTrue(fw.isInstalled(json("{'install-on': ['gw2', 'unknown']}"), index));
+    }
+
+    public void testReachLayers() throws Exception {
+        System.out.println("reachLayers");
+        CpObjectsIndex index = newIndex("["
+                + "{'uid': 'gw1', 'name': 'gw1', 'type': 'CpmiGatewayCluster'},"
+                + "{'uid': 'gw2', 'name': 'gw2', 'type': 'CpmiGatewayCluster'},"
+                + "{'uid': 'acc', 'name': 'Accept', 'type': 'RulebaseAction'},"
+                + "{'uid': 'inl', 'name': 'Inner Layer', 'type': 'RulebaseAction'},"
+                + "{'uid': 'h1', 'name': 'h1', 'type': 'host'},"
+                + "{'uid': 'h2', 'name': 'h2', 'type': 'host'},"
+                + "{'uid': 'h3', 'name': 'h3', 'type': 'host'},"
+                + "{'uid': 'h4', 'name': 'h4', 'type': 'host'},"
+                + "{'uid': 'h5', 'name': 'h5', 'type': 'host'},"
+                + "{'uid': 'lroot', 'name': 'P Security', 'type': 'access-layer'},"
+                + "{'uid': 'lin1', 'name': 'Inner1', 'type': 'access-layer'},"
+                + "{'uid': 'lin2', 'name': 'Inner2', 'type': 'access-layer'}"
+                + "]");
+        String layers = "["
+                + "{'uid': 'lroot', 'name': 'P Security', 'rulebase': ["
+                + "  {'type': 'access-rule', 'install-on': ['gw1'],"
+                + "   'source': ['h1'], 'destination': [], 'service': [],"
+                + "   'action': 'inl', 'inline-layer': 'lin1'},"
+                + "  {'type': 'access-section', 'rulebase': ["
+                + "    {'type': 'access-rule', 'install-on': ['gw2'],"
+                + "     'source': ['h2'], 'destination': [], 'service': [],"
+                + "     'action': 'inl', 'inline-layer': 'lin2'},"
+                + "    {'type': 'access-rule', 'install-on': ['gw1'],"
+                + "     'source': [], 'destination': ['h3'], 'service': [],"
+                + "     'action': 'inl', 'inline-layer': 'lin3'}"
+                + "  ]}"
+                + "]},"
+                + "{'uid': 'lin1', 'name': 'Inner1', 'rulebase': ["
+                + "  {'type': 'access-rule', 'install-on': ['gw1'],"
+                + "   'source': ['h4'], 'destination': [], 'service': [],"
+                + "   'action': 'acc'}"
+                + "]},"
+                + "{'uid': 'lin2', 'name': 'Inner2', 'rulebase': ["
+                + "  {'type': 'access-rule', 'install-on': ['gw1'],"
+                + "   'source': ['h5'], 'destination': [], 'service': [],"
+                + "   'action': 'acc'}"
+                + "]},"
+                + "{'uid': 'lin3', 'name': 'Inner3', 'rulebase': []},"
+                + "{'uid': 'lorphan', 'name': 'Orphan', 'rulebase': []}"
+                + "]";
+        List<JsonNode> nodes = new ArrayList<>();
+        json(layers).elements().forEachRemaining(nodes::add);
+
+        CpFw fw = newFw("gw1");
+        List<JsonNode> reached = fw.reachCpLayers(nodes, "P Security", index);
+
+        /*
+         * Inner2 is called only by a rule installed on gw2, Inner3 is not
+         * in the dictionary but is found by its uid in the layers.
+         */
+        List<String> names = new ArrayList<>();
+        for (JsonNode n : reached)
+            names.add(n.path("name").textValue());
+        assertEquals("[P Security, Inner1, Inner3]", names.toString());
+        assertTrue(index.isReached("h1"));
+        assertTrue(index.isReached("h3"));
+        assertTrue(index.isReached("h4"));
+        assertTrue(index.isReached("Inner Layer"));
+        assertTrue(index.isReached("Accept"));
+        assertTrue(index.isReached("gw1"));
+        assertFalse(index.isReached("h2"));
+        assertFalse(index.isReached("h5"));
+        assertFalse(index.isReached("gw2"));
+    }
+}
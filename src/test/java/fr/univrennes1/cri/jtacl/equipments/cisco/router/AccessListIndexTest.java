@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.cisco.router;
+
+import fr.univrennes1.cri.jtacl.lib.ip.IPNet;
+import fr.univrennes1.cri.jtacl.lib.ip.Protocols;
+import junit.framework.TestCase;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class AccessListIndexTest extends TestCase {
+
+    public AccessListIndexTest(String testName) {
+        super(testName);
+    }
+
+    protected AccessListElement newAce(Integer proto, String dest, String netmask)
+            throws UnknownHostException {
+        AccessListElement ace = new AccessListElement();
+        ace.setProtocol(proto);
+        if (dest != null)
+            ace.setDestIp(new IPNet(dest));
+        if (netmask != null)
+            ace.setDestNetmask(new IPNet(netmask));
+        return ace;
+    }
+
+    protected List<Integer> protocols(Integer... protos) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer proto : protos)
+            list.add(proto);
+        return list;
+    }
+
+    protected String bits(BitSet bitSet) {
+        return bitSet.toString();
+    }
+
+    /**
+     * Test of candidates method, of class AccessListIndex.
+     */
+    public void testCandidates() throws UnknownHostException {
+        System.out.println("candidates");
+        AccessList acl = new AccessList();
+        acl.add(newAce(Protocols.TCP, "192.168.0.1", null));
+        acl.add(newAce(Protocols.UDP, "192.168.0.0/24", null));
+        acl.add(newAce(Protocols.IP, "10.0.0.0/8", null));
+        acl.add(newAce(Protocols.TCP, "0.0.0.1", "255.255.255.254"));
+        acl.add(newAce(Protocols.ICMP, null, null));
+        acl.add(newAce(null, "2001:db8::/32", null));
+        acl.buildIndex();
+        AccessListIndex index = acl.getIndex();
+        assertEquals(6, index.size());
+
+        assertEquals("{0, 3, 5}", bits(index.candidates(new IPNet("192.168.0.1"),
+                protocols(Protocols.TCP))));
+        assertEquals("{0, 1, 3, 4, 5}", bits(index.candidates(new IPNet("192.168.0.1"),
+                null)));
+        assertEquals("{1, 5}", bits(index.candidates(new IPNet("192.168.0.0/16"),
+                protocols(Protocols.UDP))));
+        assertEquals("{2, 3, 4, 5}", bits(index.candidates(new IPNet("10.1.2.3"),
+                protocols(Protocols.TCP, Protocols.ICMP))));
+        assertEquals("{1, 2, 5}", bits(index.candidates(new IPNet("2001:db8::1"),
+                protocols(Protocols.UDP))));
+        assertEquals("{0, 1, 2, 3, 4}", bits(index.candidates(new IPNet("2001:db9::1"),
+                null)));
+    }
+}
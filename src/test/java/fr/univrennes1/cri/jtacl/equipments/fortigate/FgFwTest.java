@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.fortigate;
+
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclConfigurationException;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.probing.MatchResult;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRangeable;
+import fr.univrennes1.cri.jtacl.lib.ip.IPRange;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class FgFwTest extends TestCase {
+
+    public FgFwTest(String testName) {
+        super(testName);
+    }
+
+    protected static String jsonFile(String content) throws IOException {
+        File file = File.createTempFile("jtacl", ".json");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.replace('\'', '"')
+                .getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    /**
+     * Test of an invalid policy file.
+     */
+    public void testInvalidPolicy() throws IOException {
+        System.out.println("invalidPolicy");
+        FgFw fw = new FgFw(Monitor.getInstance(), "fw", "fw", null);
+
+        /*
+         * the error on an element read by a loader is a configuration error
+         */
+        String fileName = jsonFile("{'services': [{'name': }], 'rules': []}");
+        try {
+            fw.loadJsonPolicy(fileName, null);
+            fail("JtaclConfigurationException expected");
+        } catch (JtaclConfigurationException ex) {
+            assertTrue(ex.getMessage().contains("Cannot read file"));
+        }
+
+        fileName = jsonFile("{'rules': [{'policyid': 1,");
+        try {
+            fw.loadJsonPolicy(fileName, null);
+            fail("JtaclConfigurationException expected");
+        } catch (JtaclConfigurationException ex) {
+            assertTrue(ex.getMessage().contains("Cannot read file"));
+        }
+    }
+
+    protected static String resourceFile(String content) throws IOException {
+        File file = File.createTempFile("jtacl", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    protected static FgNetworkExternalResource loadResource(FgFw fw, String fileName) {
+        FgNetworkExternalResource resource = new FgNetworkExternalResource(
+                "res", "res", null, null, "http://res", true);
+        List<FgNetworkExternalResource> resources = new ArrayList<>();
+        resources.add(resource);
+        fw.loadExternalResources(resources, Collections.singletonList(fileName));
+        return resource;
+    }
+
+    /**
+     * Test of the external resources: matching and cache of the files.
+     */
+    public void testExternalResource() throws IOException {
+        System.out.println("externalResource");
+        FgFw fw = new FgFw(Monitor.getInstance(), "fwres", "fwres", null);
+
+        /*
+         * a range overlapping two ranges of the file is not contained by
+         * one of them
+         */
+        String fileName = resourceFile("10.0.0.0/25\n"
+                + "10.0.0.128/25 # comment\n"
+                + "10.0.0.10\n"
+                + "2001:db8::/64\n");
+        FgNetworkExternalResource resource = loadResource(fw, fileName);
+        assertEquals(3, resource.getIpRanges().size());
+        assertEquals(MatchResult.MATCH, resource.matches(new IPRange("10.0.0.0/24")));
+        assertEquals(MatchResult.ALL, resource.matches(new IPRange("10.0.0.128/25")));
+        assertEquals(MatchResult.ALL, resource.matches(new IPRange("10.0.0.10")));
+        assertEquals(MatchResult.MATCH, resource.matches(new IPRange("10.0.0.0/16")));
+        assertEquals(MatchResult.NOT, resource.matches(new IPRange("10.0.1.0/24")));
+        assertEquals(MatchResult.ALL, resource.matches(new IPRange("2001:db8::1")));
+        assertEquals(MatchResult.NOT, resource.matches(new IPRange("2001:db8:1::1")));
+
+        /*
+         * the file not modified is read from the cache, the file no longer
+         * referenced is removed from the cache.
+         */
+        String path = new File(fileName).getAbsolutePath();
+        FgFw.ExternalResourceFile cached = FgFw._externalResourceFiles.get(path);
+        assertNotNull(cached);
+        loadResource(fw, fileName);
+        assertSame(cached, FgFw._externalResourceFiles.get(path));
+
+        String other = resourceFile("192.168.0.0/24\n");
+        resource = loadResource(fw, other);
+        assertEquals(MatchResult.ALL, resource.matches(new IPRange("192.168.0.1")));
+        assertNull(FgFw._externalResourceFiles.get(path));
+        assertNotNull(FgFw._externalResourceFiles.get(new File(other).getAbsolutePath()));
+    }
+
+    /*
+     * returns a JSON rule of a policy file
+     */
+    protected static String jsonRule(int id, String srcintf, String dstintf,
+                                     String srcaddr, String dstaddr,
+                                     String status, String action) {
+        return "{'policyid': " + id + ", 'name': 'r" + id + "', 'q_origin_key': '" + id + "',"
+                + " 'comment': '', 'global-label': '',"
+                + " 'srcintf': [{'q_origin_key': '" + srcintf + "'}],"
+                + " 'dstintf': [{'q_origin_key': '" + dstintf + "'}],"
+                + " 'srcaddr': [{'q_origin_key': '" + srcaddr + "'}],"
+                + " 'dstaddr': [{'q_origin_key': '" + dstaddr + "'}],"
+                + " 'service': [{'q_origin_key': 'ALL'}],"
+                + " 'srcaddr-negate': 'disable', 'dstaddr-negate': 'disable',"
+                + " 'service-negate': 'disable',"
+                + " 'status': '" + status + "', 'action': '" + action + "'}";
+    }
+
+    protected static String jsonAddress(String name, String subnet) {
+        return "{'name': '" + name + "', 'q_origin_key': '" + name + "', 'type': 'ipmask',"
+                + " 'subnet': '" + subnet + "', 'comment': '', 'uuid': '" + name + "'}";
+    }
+
+    /*
+     * returns the rules matching the interfaces and the addresses in
+     * argument, in the order of the rules.
+     */
+    protected static List<FgFwRule> matchingRules(FgFw fw, Iterable<FgFwRule> rules,
+                                                  String ifaceIn, String ifaceOut,
+                                                  IPRangeable source, IPRangeable dest) {
+        List<FgFwRule> matching = new ArrayList<>();
+        for (FgFwRule rule : rules) {
+            if (rule.isDisabled())
+                continue;
+            if (rule.isImplicitDrop()) {
+                matching.add(rule);
+                continue;
+            }
+            if (fw.interfaceFilter(ifaceIn, rule.getSourceIfaces()) != MatchResult.NOT &&
+                    fw.interfaceFilter(ifaceOut, rule.getDestIfaces()) != MatchResult.NOT &&
+                    fw.ipSpecFilter(rule.getSourceIp(), source) != MatchResult.NOT &&
+                    fw.ipSpecFilter(rule.getDestIp(), dest) != MatchResult.NOT)
+                matching.add(rule);
+        }
+        return matching;
+    }
+
+    /**
+     * Test of the rules partitioned by pair of interfaces: the rules matching
+     * a packet are the ones found by a scan of all the rules.
+     */
+    public void testPartitionRules() throws IOException {
+        System.out.println("partitionRules");
+
+        String policy = jsonFile("{"
+                + "'services': [{'name': 'ALL', 'q_origin_key': 'ALL', 'protocol': 'ALL',"
+                + " 'iprange': '0.0.0.0', 'fqdn': '', 'comment': ''}],"
+                + "'addresses': ["
+                + jsonAddress("all", "0.0.0.0 0.0.0.0") + ","
+                + jsonAddress("n1", "10.1.0.0 255.255.0.0") + ","
+                + jsonAddress("n2", "10.2.0.0 255.255.0.0") + ","
+                + jsonAddress("n3", "10.3.0.0 255.255.0.0") + "],"
+                + "'rules': ["
+                + jsonRule(1, "port1", "port2", "n1", "n2", "enable", "deny") + ","
+                + jsonRule(2, "any", "port3", "all", "n3", "enable", "accept") + ","
+                + jsonRule(3, "port2", "any", "n2", "all", "enable", "accept") + ","
+                + jsonRule(4, "any", "any", "all", "all", "disable", "accept") + ","
+                + jsonRule(5, "port3", "port1", "all", "n1", "enable", "deny") + ","
+                + jsonRule(6, "any", "any", "n1", "all", "enable", "accept")
+                + "]}");
+        File xml = File.createTempFile("jtacl", ".xml");
+        xml.deleteOnExit();
+        Files.write(xml.toPath(), ("<equipment>\n"
+                + "<iface name=\"port1\" comment=\"p1\" ip=\"10.1.255.1\" network=\"10.1.0.0/16\"/>\n"
+                + "<iface name=\"port2\" comment=\"p2\" ip=\"10.2.255.1\" network=\"10.2.0.0/16\"/>\n"
+                + "<iface name=\"port3\" comment=\"p3\" ip=\"10.3.255.1\" network=\"10.3.0.0/16\"/>\n"
+                + "<fwpolicy filename=\"" + policy + "\"/>\n"
+                + "</equipment>\n").getBytes(StandardCharsets.UTF_8));
+
+        FgFw fw = new FgFw(Monitor.getInstance(), "fgpart", "fgpart", xml.getPath());
+        fw.configure();
+
+        /*
+         * rules with negated interfaces (not loaded from the policy files),
+         * inserted before the implicit drop.
+         */
+        FgFwRule template = fw._fgRules.get(0);
+        FgIfacesSpec notPort1 = new FgIfacesSpec(true);
+        notPort1.add("port1");
+        FgIfacesSpec any = new FgIfacesSpec();
+        any.add("any");
+        FgIfacesSpec notPort3 = new FgIfacesSpec(true);
+        notPort3.add("port3");
+        FgFwRule drop = fw._fgRules.remove(fw._fgRules.size() - 1);
+        assertTrue(drop.isImplicitDrop());
+        fw._fgRules.add(FgFwRule.newSecurityRule("n7", "7", "", "", "7", 7, false,
+                notPort1, any, template.getSourceIp(), template.getDestIp(),
+                template.getServices(), FgFwRuleAction.DROP));
+        fw._fgRules.add(FgFwRule.newSecurityRule("n8", "8", "", "", "8", 8, false,
+                any, notPort3, template.getDestIp(), template.getSourceIp(),
+                template.getServices(), FgFwRuleAction.ACCEPT));
+        fw._fgRules.add(drop);
+        fw.resetRulesPartitions();
+        assertTrue(fw._fgRulesByIfaces.isEmpty());
+
+        /*
+         * the partitions are computed on demand, port4 is not an interface
+         * of the equipment.
+         */
+        fw.rulesOf("port1", "port2");
+        assertEquals(1, fw._fgRulesByIfaces.size());
+        assertEquals(1, fw._fgRulesByIfaces.get("port1").size());
+
+        List<String> ifaces = Arrays.asList("port1", "port2", "port3", "loopback", "port4");
+        List<IPRangeable> addresses = Arrays.asList(new IPRange("10.1.0.1"),
+                new IPRange("10.2.0.1"), new IPRange("10.3.0.1"),
+                new IPRange("192.168.0.1"), new IPRange("10.0.0.0/8"));
+        for (String ifaceIn : ifaces) {
+            for (String ifaceOut : ifaces) {
+                FgFwRule[] rules = fw.rulesOf(ifaceIn, ifaceOut);
+                assertSame(drop, rules[rules.length - 1]);
+                for (IPRangeable source : addresses) {
+                    for (IPRangeable dest : addresses) {
+                        String pair = ifaceIn + " -> " + ifaceOut + " " + source + " -> " + dest;
+                        List<FgFwRule> expected = matchingRules(fw, fw._fgRules,
+                                ifaceIn, ifaceOut, source, dest);
+                        List<FgFwRule> matching = matchingRules(fw, Arrays.asList(rules),
+                                ifaceIn, ifaceOut, source, dest);
+                        assertEquals(pair, expected.get(0), matching.get(0));
+                        assertEquals(pair, expected, matching);
+                    }
+                }
+            }
+        }
+
+        assertEquals("[1, 6, 8, 999999]", numbers(fw.rulesOf("port1", "port2")));
+        assertEquals("[2, 3, 6, 7, 999999]", numbers(fw.rulesOf("port2", "port3")));
+        assertEquals("[5, 6, 7, 8, 999999]", numbers(fw.rulesOf("port3", "port1")));
+        assertEquals("[2, 6, 7, 999999]", numbers(fw.rulesOf("port4", "port3")));
+        assertEquals("[6, 7, 8, 999999]", numbers(fw.rulesOf("port4", "port4")));
+    }
+
+    protected static String numbers(FgFwRule[] rules) {
+        List<Integer> numbers = new ArrayList<>();
+        for (FgFwRule rule : rules)
+            numbers.add(rule.getNumber());
+        return numbers.toString();
+    }
+}
@@ -80,6 +80,31 @@ public class PacketFilterParserTest extends TestCase {
         exRule = parser.getRule(line, macros);
         assertEquals("abcd \"STRI \nNG\"\n", exRule.expandedToString());
 
+        /*
+         * macros and comments
+         */
+        line = new StringBuilder("pass $macro1 # comment\n");
+        exRule = parser.getRule(line, macros);
+        assertEquals("pass ABCD \n", exRule.expandedToString());
+        assertEquals("pass $macro1 # comment\n", exRule.lineToString());
+
+        /*
+         * rule starting at an index of the buffer, followed by a new rule
+         */
+        line = new StringBuilder("pass\nblock in \\\nall\nitem\npass\n");
+        exRule = parser.getRule(line, 5, macros);
+        assertEquals("block in \\\nall\nitem\n", exRule.expandedToString());
+
+        /*
+         * closing brace
+         */
+        line = new StringBuilder(" } \nitem\n");
+        exRule = parser.getRule(line, macros);
+        assertEquals(" } \n", exRule.expandedToString());
+
+        line = new StringBuilder("} item\nitem\n");
+        exRule = parser.getRule(line, macros);
+        assertEquals("} item\nitem\n", exRule.expandedToString());
     }
 
     /**
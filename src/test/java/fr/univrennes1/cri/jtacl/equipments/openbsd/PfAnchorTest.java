@@ -9,6 +9,8 @@
 
 package fr.univrennes1.cri.jtacl.equipments.openbsd;
 
+import fr.univrennes1.cri.jtacl.lib.misc.Direction;
+
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -144,4 +146,50 @@ public class PfAnchorTest extends TestCase {
 
     }
 
+    protected PfRule newRule(Direction direction, String ifName, Integer proto) {
+        PfRule rule = new PfRule();
+        rule.setDirection(direction);
+        if (ifName != null)
+            rule.getIfList().add(new PfIfSpec(false, ifName));
+        if (proto != null)
+            rule.getProtocols().add(proto);
+        return rule;
+    }
+
+    /**
+     * Test of computeSkipSteps method, of class PfAnchor.
+     */
+    public void testComputeSkipSteps() {
+        System.out.println("computeSkipSteps");
+        PfAnchor root = PfAnchor.newRootAnchor();
+
+        root.addRule(newRule(Direction.IN, "em0", 6));
+        root.addRule(newRule(Direction.IN, "em0", 17));
+        root.addRule(newRule(Direction.IN, "em1", 17));
+        root.addRule(newRule(Direction.OUT, "em1", 17));
+
+        PfAnchor child = root.findOrCreateAnchor("child");
+        child.addRule(newRule(Direction.IN, null, null));
+
+        root.computeSkipSteps();
+
+        int[] steps = root.getRules().get(0).getSkipSteps();
+        assertEquals(3, steps[PfRule.SKIP_DIR]);
+        assertEquals(2, steps[PfRule.SKIP_IFP]);
+        assertEquals(1, steps[PfRule.SKIP_PROTO]);
+        assertEquals(4, steps[PfRule.SKIP_AF]);
+        assertEquals(4, steps[PfRule.SKIP_SRC_ADDR]);
+
+        steps = root.getRules().get(1).getSkipSteps();
+        assertEquals(3, steps[PfRule.SKIP_DIR]);
+        assertEquals(2, steps[PfRule.SKIP_IFP]);
+        assertEquals(4, steps[PfRule.SKIP_PROTO]);
+
+        steps = root.getRules().get(3).getSkipSteps();
+        assertEquals(4, steps[PfRule.SKIP_DIR]);
+
+        steps = child.getRules().get(0).getSkipSteps();
+        assertEquals(1, steps[PfRule.SKIP_DIR]);
+    }
+
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.equipments.proxmox;
+
+import fr.univrennes1.cri.jtacl.core.exceptions.JtaclConfigurationException;
+import fr.univrennes1.cri.jtacl.core.monitor.Log;
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipment;
+import fr.univrennes1.cri.jtacl.core.network.NetworkEquipmentsByName;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class PxHostTest extends TestCase {
+
+    protected static final int GUESTS = 12;
+
+    public PxHostTest(String testName) {
+        super(testName);
+    }
+
+    protected static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+    }
+
+    /*
+     * writes a host with its guests into a temporary directory and returns
+     * the configuration file of the host. The guests in argument reference
+     * an unknown ipset.
+     */
+    protected File writeHost(int... failing) throws IOException {
+        File dir = Files.createTempDirectory("jtacl").toFile();
+        dir.deleteOnExit();
+        File guests = new File(dir, "guests");
+        guests.mkdir();
+        guests.deleteOnExit();
+
+        write(new File(dir, "cluster.fw"), "[OPTIONS]\n"
+                + "enable: 1\n"
+                + "[ALIASES]\n"
+                + "lan 10.0.0.0/24\n"
+                + "[IPSET web]\n"
+                + "lan\n"
+                + "10.1.0.0/24\n"
+                + "[group ssh]\n"
+                + "IN ACCEPT --source lan --proto tcp --dport 22\n");
+        for (int i = 0; i < GUESTS; i++) {
+            int id = 100 + i;
+            write(new File(guests, id + ".xml"), "<equipment>\n"
+                    + "<iface name=\"net0\" comment=\"net0\" ip=\"10.0.0." + id
+                    + "\" network=\"10.0.0.0/24\"/>\n"
+                    + "<policy filename=\"" + id + ".fw\"/>\n"
+                    + "</equipment>\n");
+            String ipset = "+web";
+            for (int f : failing) {
+                if (f == i)
+                    ipset = "+nothere";
+            }
+            write(new File(guests, id + ".fw"), "[OPTIONS]\n"
+                    + "enable: 1\n"
+                    + "[RULES]\n"
+                    + "IN SSH(ACCEPT)\n"
+                    + "IN ACCEPT --source " + ipset + " --proto tcp --dport " + id + "\n"
+                    + "GROUP ssh\n");
+        }
+        File host = new File(dir, "host.xml");
+        write(host, "<equipment>\n"
+                + "<policy filename=\"" + new File(dir, "cluster.fw") + "\"/>\n"
+                + "<guests directory=\"" + guests + "\"/>\n"
+                + "</equipment>\n");
+        return host;
+    }
+
+    /*
+     * configures the host and returns the messages logged, the rules of
+     * the guests and the error if any.
+     */
+    protected List<String> configure(File host, String threads) {
+        Monitor monitor = new Monitor() {
+            {
+                loadDatabases();
+            }
+        };
+        monitor.getOptions().setOption("config.threads", threads);
+        PxHost pxHost = new PxHost(monitor, "px", "px", host.getPath());
+
+        List<String> messages = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Level level = Log.config().getLevel();
+        Log.config().setLevel(Level.WARNING);
+        Log.config().addHandler(handler);
+        try {
+            NetworkEquipmentsByName guests = pxHost.configure();
+            assertEquals(GUESTS, guests.size());
+            for (NetworkEquipment guest : guests.values()) {
+                for (PxRule rule : ((PxGuest) guest)._rules)
+                    messages.add(guest.getName() + ": " + rule.toText());
+            }
+        } catch (JtaclConfigurationException ex) {
+            messages.add(ex.getMessage());
+        } finally {
+            Log.config().removeHandler(handler);
+            Log.config().setLevel(level);
+        }
+        return messages;
+    }
+
+    /**
+     * Test of the concurrent configuration of the guests: the result, the
+     * messages and the first error are the ones of the configuration of the
+     * guests one after the other.
+     */
+    public void testConcurrentGuests() throws IOException {
+        System.out.println("concurrentGuests");
+
+        File host = writeHost();
+        List<String> expected = configure(host, "1");
+        assertEquals(GUESTS * 5, expected.size());
+        assertEquals(expected, configure(host, "4"));
+
+        host = writeHost(3, 7, 10);
+        expected = configure(host, "1");
+        assertTrue(expected.get(expected.size() - 1).contains("Unknown Ipset"));
+        assertEquals(expected, configure(host, "4"));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.ip;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test class for {@link IPIntervals}.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class IPIntervalsTest extends TestCase {
+
+    public IPIntervalsTest(String testName) {
+        super(testName);
+    }
+
+    protected static IPIntervals build(String... ranges) throws UnknownHostException {
+        IPIntervals.Builder builder = new IPIntervals.Builder();
+        for (String range : ranges)
+            builder.add(new IPRange(range));
+        return builder.build();
+    }
+
+    /**
+     * Test of the merge of the ranges.
+     */
+    public void testMerge() throws UnknownHostException {
+        System.out.println("merge");
+        IPIntervals intervals = build("10.0.0.1", "10.0.0.0/24", "10.0.1.0",
+                "10.0.2.0/24", "192.168.0.10-192.168.0.20",
+                "192.168.0.15-192.168.0.30", "255.255.255.255",
+                "2001:db8::/64", "2001:db8:0:1::/64", "2001:db8::1");
+
+        List<IPRangeable> ranges = intervals.toRanges();
+        assertEquals(5, intervals.size());
+        assertEquals("10.0.0.0-10.0.1.0", ranges.get(0).toString());
+        assertEquals("10.0.2.0/24", ranges.get(1).toNetString("::i"));
+        assertEquals("192.168.0.10-192.168.0.30", ranges.get(2).toString());
+        assertEquals("255.255.255.255", ranges.get(3).toNetString("::i"));
+        assertEquals("2001:db8::/63", ranges.get(4).toNetString("::i"));
+
+        assertEquals(0, new IPIntervals.Builder().build().size());
+    }
+
+    /**
+     * Test of contains and overlaps.
+     */
+    public void testContainsOverlaps() throws UnknownHostException {
+        System.out.println("containsOverlaps");
+        IPIntervals intervals = build("10.0.0.0/24", "10.0.1.0/24",
+                "172.16.0.10-172.16.0.20", "2001:db8::/64");
+
+        assertTrue(intervals.contains(new IPRange("10.0.0.0/23")));
+        assertTrue(intervals.contains(new IPRange("10.0.1.255")));
+        assertFalse(intervals.contains(new IPRange("10.0.0.0/22")));
+        assertTrue(intervals.overlaps(new IPRange("10.0.0.0/22")));
+        assertFalse(intervals.overlaps(new IPRange("10.0.2.0/24")));
+        assertFalse(intervals.overlaps(new IPRange("9.255.255.255")));
+
+        assertFalse(intervals.contains(new IPRange("172.16.0.0/24")));
+        assertTrue(intervals.overlaps(new IPRange("172.16.0.0/24")));
+        assertTrue(intervals.contains(new IPRange("172.16.0.20")));
+        assertFalse(intervals.overlaps(new IPRange("172.16.0.21-172.16.0.30")));
+
+        assertTrue(intervals.contains(new IPRange("2001:db8::1")));
+        assertFalse(intervals.contains(new IPRange("2001:db8::/32")));
+        assertTrue(intervals.overlaps(new IPRange("2001:db8::/32")));
+        assertFalse(intervals.overlaps(new IPRange("2001:db8:0:1::1")));
+        assertFalse(intervals.overlaps(new IPRange("::10.0.0.1")));
+    }
+
+    /**
+     * Compares contains and overlaps with the tests on the list of ranges.
+     */
+    public void testRandom() throws UnknownHostException {
+        System.out.println("random");
+        Random random = new Random(1);
+        List<IPRangeable> ranges = new ArrayList<>();
+        IPIntervals.Builder builder = new IPIntervals.Builder();
+        for (int i = 0; i < 2000; i++) {
+            IPRange range = new IPRange("10." + random.nextInt(8) + "." +
+                    random.nextInt(256) + "." + random.nextInt(256) + "/" +
+                    (24 + random.nextInt(9)));
+            ranges.add(range);
+            builder.add(range);
+        }
+        IPIntervals intervals = builder.build();
+
+        for (int i = 0; i < 2000; i++) {
+            IPRange probe = new IPRange("10." + random.nextInt(8) + "." +
+                    random.nextInt(256) + "." + random.nextInt(256) + "/" +
+                    (22 + random.nextInt(11)));
+            boolean contains = false;
+            boolean overlaps = false;
+            for (IPRangeable range : ranges) {
+                contains |= range.contains(probe);
+                overlaps |= range.overlaps(probe);
+            }
+            /*
+             * the merged intervals may contain a range spanning several
+             * ranges.
+             */
+            if (contains)
+                assertTrue(intervals.contains(probe));
+            assertEquals(overlaps, intervals.overlaps(probe));
+        }
+    }
+
+    /**
+     * Test of the intervals not merged.
+     */
+    public void testNotMerged() throws UnknownHostException {
+        System.out.println("notMerged");
+        IPIntervals.Builder builder = new IPIntervals.Builder(false);
+        for (String range : new String[]{"10.0.0.0/24", "10.0.1.0/24",
+                "10.0.0.1", "10.0.2.0-10.0.2.200", "10.0.2.100-10.0.3.50",
+                "2001:db8::/64", "2001:db8:0:1::/64", "2001:db8::/63"})
+            builder.add(new IPRange(range));
+        IPIntervals intervals = builder.build();
+
+        assertEquals(5, intervals.size());
+        assertFalse(intervals.contains(new IPRange("10.0.0.0/23")));
+        assertTrue(intervals.overlaps(new IPRange("10.0.0.0/23")));
+        assertTrue(intervals.contains(new IPRange("10.0.1.0/25")));
+        assertTrue(intervals.contains(new IPRange("10.0.2.150-10.0.3.0")));
+        assertFalse(intervals.contains(new IPRange("10.0.2.50-10.0.3.0")));
+        assertTrue(intervals.contains(new IPRange("2001:db8::/63")));
+        assertFalse(intervals.contains(new IPRange("2001:db8::/62")));
+    }
+
+    /**
+     * Compares the intervals not merged with the tests on the list of
+     * ranges.
+     */
+    public void testRandomNotMerged() throws UnknownHostException {
+        System.out.println("randomNotMerged");
+        Random random = new Random(2);
+        List<IPRangeable> ranges = new ArrayList<>();
+        IPIntervals.Builder builder = new IPIntervals.Builder(false);
+        for (int i = 0; i < 2000; i++) {
+            IPRange range = new IPRange("10." + random.nextInt(8) + "." +
+                    random.nextInt(256) + "." + random.nextInt(256) + "/" +
+                    (20 + random.nextInt(13)));
+            ranges.add(range);
+            builder.add(range);
+        }
+        IPIntervals intervals = builder.build();
+
+        for (int i = 0; i < 2000; i++) {
+            IPRange probe = new IPRange("10." + random.nextInt(8) + "." +
+                    random.nextInt(256) + "." + random.nextInt(256) + "/" +
+                    (18 + random.nextInt(15)));
+            boolean contains = false;
+            boolean overlaps = false;
+            for (IPRangeable range : ranges) {
+                contains |= range.contains(probe);
+                overlaps |= range.overlaps(probe);
+            }
+            assertEquals(contains, intervals.contains(probe));
+            assertEquals(overlaps, intervals.overlaps(probe));
+        }
+    }
+}
@@ -523,6 +523,41 @@ public class IPNetTest extends TestCase {
     }
 
 
+    /**
+     * Test of the high and low parts of the address.
+     */
+    public void testHighLow() throws UnknownHostException {
+        System.out.println("highLow");
+
+        IPNet ip = new IPNet("255.255.255.255");
+        assertEquals(0L, ip.getHigh());
+        assertEquals(0xFFFFFFFFL, ip.getLow());
+        assertEquals(IP.MAX_IPV4_NUMBER, ip.getIP());
+
+        ip = new IPNet("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff");
+        assertEquals(-1L, ip.getHigh());
+        assertEquals(-1L, ip.getLow());
+        assertEquals(IP.MAX_IPV6_NUMBER, ip.getIP());
+
+        ip = new IPNet(new BigInteger("8000000000000000ffffffffffffffff", 16),
+                IPversion.IPV6);
+        assertEquals(new IPNet("8000::ffff:ffff:ffff:ffff"), ip);
+
+        IPNet ip1 = new IPNet("ffff::/1");
+        IPNet ip2 = new IPNet("8000::1");
+        IPNet ip3 = new IPNet("7fff::1");
+        assertTrue(ip1.contains(ip2));
+        assertFalse(ip1.contains(ip3));
+        assertTrue(ip3.compareTo(ip2) < 0);
+        assertTrue(ip1.overlaps(new IPRange("7fff::-8000::")));
+        assertFalse(ip1.overlaps(new IPRange("7fff::-7fff::ffff")));
+        assertEquals(new IPNet("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/1"),
+                ip1.lastNetworkAddress());
+        assertEquals(new IPNet("::/0"), new IPNet("1234::/0").networkAddress());
+        assertEquals(new IPNet("10.255.255.255/8"),
+                new IPNet("10.1.2.3/8").lastNetworkAddress());
+    }
+
     /**
      * Test of lastNetworkAddress
      *
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.ip;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test class for {@link IPPrefixTree}.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class IPPrefixTreeTest extends TestCase {
+
+    public IPPrefixTreeTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test of put and get.
+     */
+    public void testPutGet() throws UnknownHostException {
+        System.out.println("putGet");
+        IPPrefixTree<String> tree = new IPPrefixTree<>(IPversion.IPV4);
+
+        assertNull(tree.put(new IPNet("10.0.0.0/8"), "a"));
+        assertNull(tree.put(new IPNet("10.1.0.0/16"), "b"));
+        assertNull(tree.put(new IPNet("10.2.0.0/16"), "c"));
+        assertNull(tree.put(new IPNet("0.0.0.0/0"), "d"));
+        assertEquals("a", tree.put(new IPNet("10.0.0.0/8"), "e"));
+        assertEquals(4, tree.size());
+
+        assertEquals("e", tree.get(new IPNet("10.0.0.0/8")));
+        assertEquals("b", tree.get(new IPNet("10.1.0.0/16")));
+        assertEquals("d", tree.get(new IPNet("0.0.0.0/0")));
+        assertNull(tree.get(new IPNet("10.0.0.0/16")));
+        assertNull(tree.get(new IPNet("10.3.0.0/16")));
+    }
+
+    /**
+     * Test of longestMatch.
+     */
+    public void testLongestMatch() throws UnknownHostException {
+        System.out.println("longestMatch");
+        IPPrefixTree<String> tree = new IPPrefixTree<>(IPversion.IPV6);
+
+        tree.put(new IPNet("2001:db8::/32"), "a");
+        tree.put(new IPNet("2001:db8:1::/48"), "b");
+        tree.put(new IPNet("2001:db8:1::1/128"), "c");
+        tree.put(new IPNet("8000::/1"), "d");
+
+        assertEquals("c", tree.longestMatch(new IPNet("2001:db8:1::1")));
+        assertEquals("b", tree.longestMatch(new IPNet("2001:db8:1::2")));
+        assertEquals("b", tree.longestMatch(new IPNet("2001:db8:1::1/64")));
+        assertEquals("a", tree.longestMatch(new IPNet("2001:db8:2::1")));
+        assertEquals("a", tree.longestMatch(new IPNet("2001:db8::/32")));
+        assertNull(tree.longestMatch(new IPNet("2001:db8::/31")));
+        assertEquals("d", tree.longestMatch(new IPNet("ffff::1")));
+        assertNull(tree.longestMatch(new IPNet("::1")));
+    }
+
+    public void testMatching() throws UnknownHostException {
+        System.out.println("matching");
+        IPPrefixTree<String> tree = new IPPrefixTree<>(IPversion.IPV6);
+
+        tree.put(new IPNet("2001:db8::/32"), "a");
+        tree.put(new IPNet("2001:db8:1::/48"), "b");
+        tree.put(new IPNet("2001:db8:1::1/128"), "c");
+        tree.put(new IPNet("8000::/1"), "d");
+
+        assertEquals(Arrays.asList("a", "b", "c"),
+                tree.matching(new IPNet("2001:db8:1::1")));
+        assertEquals(Arrays.asList("a", "b"),
+                tree.matching(new IPNet("2001:db8:1::1/64")));
+        assertEquals(Arrays.asList("a"),
+                tree.matching(new IPNet("2001:db8:2::1")));
+        assertTrue(tree.matching(new IPNet("2001:db8::/31")).isEmpty());
+        assertEquals(Arrays.asList("d"), tree.matching(new IPNet("ffff::1")));
+    }
+
+    /**
+     * Compares longestMatch with a linear search on random prefixes.
+     */
+    public void testRandomLongestMatch() throws UnknownHostException {
+        System.out.println("randomLongestMatch");
+        Random random = new Random(42);
+        IPPrefixTree<IPNet> tree = new IPPrefixTree<>(IPversion.IPV4);
+        List<IPNet> prefixes = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            long ip = random.nextInt() & 0xF0F0FFFFL;
+            IPNet prefix = new IPNet(new IPBase(0L, ip, random.nextInt(33),
+                    IPversion.IPV4)).networkAddress();
+            tree.put(prefix, prefix);
+            if (!prefixes.contains(prefix))
+                prefixes.add(prefix);
+        }
+        assertEquals(prefixes.size(), tree.size());
+        assertEquals(prefixes.size(), tree.values().size());
+
+        for (int i = 0; i < 2000; i++) {
+            long ip = random.nextInt() & 0xF0F0FFFFL;
+            IPNet address = new IPNet(new IPBase(0L, ip, 32, IPversion.IPV4));
+            IPNet best = null;
+            for (IPNet prefix : prefixes) {
+                if (prefix.contains(address) &&
+                        (best == null || prefix.getPrefixLen() > best.getPrefixLen()))
+                    best = prefix;
+            }
+            assertEquals(best, tree.longestMatch(address));
+        }
+    }
+
+    /**
+     * Compares match and overlaps with a linear search on random prefixes
+     * and ranges.
+     */
+    public void testRandomMatchOverlaps() throws UnknownHostException {
+        System.out.println("randomMatchOverlaps");
+        Random random = new Random(7);
+        IPPrefixTree<IPNet> tree = new IPPrefixTree<>(IPversion.IPV4);
+        List<IPNet> prefixes = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            long ip = random.nextInt() & 0xFF00FFFFL;
+            IPNet prefix = new IPNet(new IPBase(0L, ip, 8 + random.nextInt(25),
+                    IPversion.IPV4)).networkAddress();
+            tree.put(prefix, prefix);
+            prefixes.add(prefix);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            long first = random.nextInt() & 0xFF00FFFFL;
+            long last = Math.min(first + random.nextInt(1 << random.nextInt(20)),
+                    0xFFFFFFFFL);
+            IPRangeable range;
+            if (i % 2 == 0)
+                range = new IPRange(new IPNet(new IPBase(0L, first, 32, IPversion.IPV4)),
+                        new IPNet(new IPBase(0L, last, 32, IPversion.IPV4)));
+            else
+                range = new IPNet(new IPBase(0L, first, 16 + random.nextInt(17),
+                        IPversion.IPV4));
+
+            boolean contains = false;
+            List<IPNet> overlapping = new ArrayList<>();
+            for (IPNet prefix : prefixes) {
+                contains |= prefix.contains(range);
+                if (prefix.overlaps(range) && !overlapping.contains(prefix))
+                    overlapping.add(prefix);
+            }
+            assertEquals(contains, tree.match(range) != null);
+            assertEquals(!overlapping.isEmpty(), tree.overlaps(range));
+            List<IPNet> values = tree.overlapping(range);
+            assertEquals(overlapping.size(), values.size());
+            assertTrue(values.containsAll(overlapping));
+        }
+    }
+}
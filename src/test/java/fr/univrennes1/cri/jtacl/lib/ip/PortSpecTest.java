@@ -121,4 +121,34 @@ public class PortSpecTest extends TestCase {
 
     }
 
+    /**
+     * Test of newRecorder method, of class PortSpec.
+     */
+    public void testNewRecorder() {
+        System.out.println("newRecorder");
+
+        PortSpec p1 = new PortSpec(PortOperator.RANGE, 0, 1000);
+        assertNull(p1.getBoundaries());
+
+        PortSpec rec = p1.newRecorder();
+        assertEquals(p1, rec);
+        assertEquals(0, rec.getBoundaries().size());
+
+        PortSpec p2 = new PortSpec(PortOperator.EQ, 80);
+        assertEquals(p2.matches(rec), MatchResult.MATCH);
+        assertEquals("[80, 81]", rec.getBoundaries().toString());
+
+        p2 = new PortSpec(PortOperator.NEQ, 500);
+        assertEquals(p2.matches(rec), MatchResult.MATCH);
+        assertEquals("[0, 80, 81, 500, 501, 65536]",
+                rec.getBoundaries().toString());
+
+        /*
+         * nothing recorded if the argument is not a recorder
+         */
+        assertEquals(rec.matches(p1), MatchResult.ALL);
+        assertEquals(6, rec.getBoundaries().size());
+        assertNull(p1.getBoundaries());
+    }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.lib.misc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for {@link JsonSections}.
+ *
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class JsonSectionsTest extends TestCase {
+
+    public JsonSectionsTest(String testName) {
+        super(testName);
+    }
+
+    protected static String jsonFile(String content) throws IOException {
+        File file = File.createTempFile("jtacl", ".json");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.replace('\'', '"')
+                .getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    /*
+     * loader which keeps the elements of the section
+     */
+    protected static JsonSections.SectionLoader keep(List<String> elements) {
+        return it -> it.forEachRemaining(n -> elements.add(n.toString()));
+    }
+
+    /**
+     * Test of the sections arrays and objects.
+     */
+    public void testSections() throws IOException {
+        System.out.println("sections");
+        String fileName = jsonFile("{"
+                + "'array': [1, {'a': [2, 3]}, [4], 'five'],"
+                + "'object': {'k1': {'x': 1}, 'k2': 2},"
+                + "'empty': [],"
+                + "'emptyObject': {},"
+                + "'scalar': 6"
+                + "}");
+
+        List<String> array = new ArrayList<>();
+        List<String> object = new ArrayList<>();
+        List<String> empty = new ArrayList<>();
+        List<String> emptyObject = new ArrayList<>();
+        List<String> scalar = new ArrayList<>();
+        Map<String, JsonSections.SectionLoader> loaders = new HashMap<>();
+        loaders.put("array", keep(array));
+        loaders.put("object", keep(object));
+        loaders.put("empty", keep(empty));
+        loaders.put("emptyObject", keep(emptyObject));
+        loaders.put("scalar", keep(scalar));
+        JsonSections.readSections(fileName, loaders);
+
+        assertEquals("[1, {\"a\":[2,3]}, [4], \"five\"]", array.toString());
+        assertEquals("[{\"x\":1}, 2]", object.toString());
+        assertTrue(empty.isEmpty());
+        assertTrue(emptyObject.isEmpty());
+        assertTrue(scalar.isEmpty());
+    }
+
+    /**
+     * Test of the sections skipped: sections without loader and elements
+     * not read by the loader.
+     */
+    public void testSkip() throws IOException {
+        System.out.println("skip");
+        String fileName = jsonFile("{"
+                + "'skipped': {'deep': [1, 2, {'z': [[], {}]}]},"
+                + "'partial': [{'a': 1}, {'b': [2, {'c': 3}]}, 4],"
+                + "'scalar': 'no loader',"
+                + "'last': [5]"
+                + "}");
+
+        List<String> partial = new ArrayList<>();
+        List<String> last = new ArrayList<>();
+        Map<String, JsonSections.SectionLoader> loaders = new HashMap<>();
+        loaders.put("partial", it -> partial.add(it.next().toString()));
+        loaders.put("last", keep(last));
+        JsonSections.readSections(fileName, loaders);
+
+        assertEquals("[{\"a\":1}]", partial.toString());
+        assertEquals("[5]", last.toString());
+    }
+
+    /**
+     * Test of the errors.
+     */
+    public void testErrors() throws IOException {
+        System.out.println("errors");
+        Map<String, JsonSections.SectionLoader> loaders = new HashMap<>();
+        List<String> elements = new ArrayList<>();
+        loaders.put("section", keep(elements));
+
+        /*
+         * not a JSON object
+         */
+        try {
+            JsonSections.readSections(jsonFile("['section']"), loaders);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().endsWith("JSON object expected"));
+        }
+
+        /*
+         * invalid element, read by the loader: the error of the element
+         * is an IOException.
+         */
+        try {
+            JsonSections.readSections(
+                    jsonFile("{'section': [{'a': 1}, {'b': }]}"), loaders);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            assertEquals("[{\"a\":1}]", elements.toString());
+        }
+
+        /*
+         * invalid element in a section skipped
+         */
+        try {
+            JsonSections.readSections(
+                    jsonFile("{'other': [{'b': }], 'section': []}"), loaders);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            //
+        }
+
+        try {
+            JsonSections.readSections("/nonexistent/file.json", loaders);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            //
+        }
+    }
+}
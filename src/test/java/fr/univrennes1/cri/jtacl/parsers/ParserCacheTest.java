@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.parsers;
+
+import junit.framework.TestCase;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+public class ParserCacheTest extends TestCase {
+
+    public ParserCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testGetParser() throws InterruptedException {
+        TestParser parser = ParserCache.getParser(TestParser.class);
+        assertSame(parser, ParserCache.getParser(TestParser.class));
+        assertSame(parser.Hw(), ParserCache.getParser(TestParser.class).Hw());
+
+        ParsingResult<?> result = new ReportingParseRunner(parser.Hw()).run("hello world");
+        assertTrue(result.matched);
+        assertEquals("+hello", parser.matched.get(0));
+
+        /*
+         * another thread uses its own parser
+         */
+        Object[] other = new Object[1];
+        Thread thread = new Thread(() -> other[0] = ParserCache.getParser(TestParser.class));
+        thread.start();
+        thread.join();
+        assertNotNull(other[0]);
+        assertNotSame(parser, other[0]);
+    }
+}
@@ -417,6 +417,37 @@ public class ShellParserTest extends TestCase {
         assertEquals("DEST - DEST", parser.getProbeCmdTemplate().getDestAddress());
     }
 
+    public void testScan() {
+        System.out.println("scan");
+
+        String line = "scan  SOURCE   DEST   tcp (1,1024)";
+        result = new ReportingParseRunner(parser.CommandLine()).run(line);
+        assertEquals("scan", parser.getString("Command"));
+        assertFalse(parser.getProbeCmdTemplate().getProbe6flag());
+        assertEquals("SOURCE", parser.getProbeCmdTemplate().getSrcAddress());
+        assertEquals("DEST", parser.getProbeCmdTemplate().getDestAddress());
+        assertEquals("tcp", parser.getProbeCmdTemplate().getProtoSpecification());
+        assertEquals("(1,1024)", parser.getProbeCmdTemplate().getPortDest());
+
+        line = "scan6 on ON qd SOURCE DEST udp dyn: flags S";
+        result = new ReportingParseRunner(parser.CommandLine()).run(line);
+        assertEquals("scan", parser.getString("Command"));
+        assertTrue(parser.getProbeCmdTemplate().getProbe6flag());
+        assertEquals("ON", parser.getProbeCmdTemplate().getEquipments());
+        assertTrue(parser.getProbeCmdTemplate().getProbeOptQuickDeny());
+        assertEquals("udp", parser.getProbeCmdTemplate().getProtoSpecification());
+        assertEquals("dyn", parser.getProbeCmdTemplate().getPortSource());
+        assertNull(parser.getProbeCmdTemplate().getPortDest());
+
+        line = "scan SOURCE DEST";
+        result = new ReportingParseRunner(parser.CommandLine()).run(line);
+        assertTrue(result.hasErrors());
+
+        line = "scan expect ACCEPT SOURCE DEST tcp";
+        result = new ReportingParseRunner(parser.CommandLine()).run(line);
+        assertTrue(result.hasErrors());
+    }
+
     public void testReload() {
         System.out.println("reload");
 
@@ -430,6 +461,15 @@ public class ShellParserTest extends TestCase {
         assertEquals("EQ", parser.getString("Equipments"));
     }
 
+    public void testSnapshot() {
+        System.out.println("snapshot");
+
+        String line = "snapshot   /tmp/lsfw.snapshot";
+        result = new ReportingParseRunner(parser.CommandLine()).run(line);
+        assertEquals("snapshot", parser.getString("Command"));
+        assertEquals("/tmp/lsfw.snapshot", parser.getString("SnapshotFile"));
+    }
+
     public void testRoute() {
         System.out.println("route");
 
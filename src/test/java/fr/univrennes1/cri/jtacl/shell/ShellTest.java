@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2010, Universite de Rennes 1
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the 2-clause BSD license.
+ *
+ * See COPYING for more details.
+ */
+
+package fr.univrennes1.cri.jtacl.shell;
+
+import fr.univrennes1.cri.jtacl.core.monitor.Monitor;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @author Patrick Lamaiziere <patrick.lamaiziere@univ-rennes1.fr>
+ */
+public class ShellTest extends TestCase {
+
+    /*
+     * monitor of the PacketFilter topology
+     */
+    protected static class PfMonitor extends Monitor {
+
+        public PfMonitor(String fileName) {
+            configure(fileName);
+            init();
+        }
+    }
+
+    public ShellTest(String testName) {
+        super(testName);
+    }
+
+    /*
+     * copies the PacketFilter topology into a temporary directory, with the
+     * file names made absolute, and returns its configuration file.
+     */
+    protected File copyPacketFilter() throws Exception {
+        File src = new File("tests/PacketFilter").getAbsoluteFile();
+        File dir = Files.createTempDirectory("jtacl").toFile();
+        dir.deleteOnExit();
+        String[] files = {"jtacl.xml", "pf.xml"};
+        for (String name : files) {
+            String content = new String(Files.readAllBytes(
+                    new File(src, name).toPath()), StandardCharsets.ISO_8859_1);
+            File dest = new File(dir, name);
+            content = content.replace("\"./pf.xml\"", '"' + dest.getParent() + "/pf.xml\"");
+            content = content.replace("\"./", '"' + src.getPath() + "/");
+            Files.write(dest.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+            dest.deleteOnExit();
+        }
+        return new File(dir, "jtacl.xml");
+    }
+
+    protected Shell newSession(Monitor monitor, ByteArrayOutputStream out) {
+        Shell session = new Shell(false);
+        session._monitor = monitor;
+        session._monitorOptions = monitor.getOptions();
+        session._daemon = true;
+        session._outStream = new PrintStream(out, true);
+        return session;
+    }
+
+    /**
+     * Test of the equipment command run by two clients of the daemon.
+     */
+    public void testConcurrentSessions() throws Exception {
+        System.out.println("concurrentSessions");
+
+        Monitor monitor = new PfMonitor(copyPacketFilter().getPath());
+        String[] commands = {"equipment PF xref ip 192.168.1.129",
+                "equipment PF xref ip 10.0.0.1"};
+
+        /*
+         * output of each command run alone
+         */
+        String[] expected = new String[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            newSession(monitor, out).parseShellCommand(commands[i]);
+            expected[i] = out.toString();
+            assertFalse(expected[i].isEmpty());
+        }
+        assertFalse(expected[0].equals(expected[1]));
+
+        /*
+         * each client gets only the output of its commands
+         */
+        final int count = 200;
+        ByteArrayOutputStream[] outs = new ByteArrayOutputStream[commands.length];
+        Thread[] threads = new Thread[commands.length];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < commands.length; i++) {
+            outs[i] = new ByteArrayOutputStream();
+            Shell session = newSession(monitor, outs[i]);
+            String command = commands[i];
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int j = 0; j < count; j++)
+                    session.parseShellCommand(command);
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        for (int i = 0; i < commands.length; i++) {
+            StringBuilder s = new StringBuilder();
+            for (int j = 0; j < count; j++)
+                s.append(expected[i]);
+            assertEquals(commands[i], s.toString(), outs[i].toString());
+        }
+    }
+
+    /**
+     * Test of the snapshot command run by a client of the daemon.
+     */
+    public void testDaemonSnapshot() throws Exception {
+        System.out.println("daemonSnapshot");
+
+        Monitor monitor = new PfMonitor(copyPacketFilter().getPath());
+        File file = File.createTempFile("jtacl", ".snapshot");
+        file.delete();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        newSession(monitor, out).parseShellCommand("snapshot " + file.getPath());
+        assertTrue(out.toString().startsWith("Error: snapshot unallowed"));
+        assertFalse(file.exists());
+    }
+}